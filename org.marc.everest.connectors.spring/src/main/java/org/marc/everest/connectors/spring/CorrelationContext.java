@@ -0,0 +1,132 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.spring;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries the correlation identifier of the message being exchanged on the current thread.
+ * <p>Spring invokes the Everest marshallers on the thread which sends the message, so a 
+ * connector sets the correlation identifier before sending and the marshallers file their 
+ * graph and parse results under it. When no identifier is set the marshallers fall back to 
+ * an identifier generated for the identity of the object being marshalled, which is kept 
+ * only as long as the object is reachable.</p>
+ */
+public final class CorrelationContext {
+
+	// The correlation identifier of the current thread
+	private static final ThreadLocal<String> s_correlationId = new ThreadLocal<String>();
+	// The identifiers generated for objects marshalled without a correlation identifier
+	private static final ConcurrentMap<IdentityKey, String> s_identityIds = new ConcurrentHashMap<IdentityKey, String>();
+	// Receives the keys of objects which are no longer reachable
+	private static final ReferenceQueue<Object> s_collected = new ReferenceQueue<Object>();
+	// Generates identifiers
+	private static final AtomicLong s_nextId = new AtomicLong();
+	
+	/**
+	 * Weakly references an object and compares by identity
+	 */
+	private static final class IdentityKey extends WeakReference<Object> {
+		
+		// The identity hash of the object
+		private final int m_hash;
+		
+		/**
+		 * Creates a new key, registered with the queue when it is stored
+		 */
+		IdentityKey(Object referent, ReferenceQueue<Object> queue)
+		{
+			super(referent, queue);
+			this.m_hash = System.identityHashCode(referent);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.m_hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this)
+				return true;
+			else if(!(obj instanceof IdentityKey))
+				return false;
+			Object referent = this.get();
+			return referent != null && referent == ((IdentityKey)obj).get();
+		}
+	}
+	
+	/**
+	 * Static class
+	 */
+	private CorrelationContext() { }
+	
+	/**
+	 * Sets the correlation identifier of the message being exchanged on the current thread
+	 */
+	public static void setCorrelationId(String correlationId)
+	{
+		s_correlationId.set(correlationId);
+	}
+	
+	/**
+	 * Gets the correlation identifier of the message being exchanged on the current thread
+	 */
+	public static String getCorrelationId()
+	{
+		return s_correlationId.get();
+	}
+	
+	/**
+	 * Clears the correlation identifier of the current thread
+	 */
+	public static void clear()
+	{
+		s_correlationId.remove();
+	}
+	
+	/**
+	 * Gets the correlation identifier of the current thread, or the identifier generated
+	 * for the identity of the specified object when none is set
+	 */
+	static String getCorrelationId(Object context)
+	{
+		String retVal = s_correlationId.get();
+		if(retVal != null || context == null)
+			return retVal;
+		
+		// Forget the identifiers of objects which have been collected
+		Reference<?> collected;
+		while((collected = s_collected.poll()) != null)
+			s_identityIds.remove(collected);
+		
+		retVal = s_identityIds.get(new IdentityKey(context, null));
+		if(retVal == null)
+		{
+			String generated = String.format("%s#%d", context.getClass().getName(), s_nextId.incrementAndGet());
+			retVal = s_identityIds.putIfAbsent(new IdentityKey(context, s_collected), generated);
+			if(retVal == null)
+				retVal = generated;
+		}
+		return retVal;
+	}
+}
@@ -21,8 +21,9 @@ package org.marc.everest.connectors.spring;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Result;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -31,15 +32,19 @@ import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stax.StAXResult;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.marc.everest.annotations.Interaction;
 import org.marc.everest.annotations.Structure;
+import org.marc.everest.connectors.CorrelationStore;
 import org.marc.everest.exceptions.ConnectorException;
 import org.marc.everest.formatters.FormatterUtil;
 import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
 import org.marc.everest.formatters.interfaces.IXmlStructureFormatter;
 import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.xml.XMLStreamBridge;
 import org.springframework.oxm.Marshaller;
 import org.springframework.oxm.XmlMappingException;
 import org.xml.sax.Attributes;
@@ -56,18 +61,33 @@ public class EverestMarshaller implements Marshaller {
 	// The structure formatter
 	private IXmlStructureFormatter m_formatter;
 
-	// Graph results
-	private HashMap<Object,IFormatterGraphResult> m_graphResults = new HashMap<Object, IFormatterGraphResult>(); 
+	// Graph results awaiting collection
+	private final CorrelationStore<IFormatterGraphResult> m_graphResults;
 	
 	/**
-	 * Get a graph result
+	 * Get the graph result of the specified object. 
+	 * <p>The result is filed under the correlation identifier of the current thread, 
+	 * or under the identity of the object when no identifier is set</p>
 	 */
-	public synchronized IFormatterGraphResult popGraphResult(Object context)
+	public IFormatterGraphResult popGraphResult(Object context)
 	{
-		IFormatterGraphResult res = this.m_graphResults.get(context);
-		if(res != null)
-			this.m_graphResults.remove(context);
-		return res;
+		return this.m_graphResults.take(CorrelationContext.getCorrelationId(context));
+	}
+	
+	/**
+	 * Get the graph result filed under the specified correlation identifier
+	 */
+	public IFormatterGraphResult takeGraphResult(String correlationId)
+	{
+		return this.m_graphResults.take(correlationId);
+	}
+	
+	/**
+	 * Gets the store which holds graph results until they are collected
+	 */
+	public CorrelationStore<IFormatterGraphResult> getGraphResults()
+	{
+		return this.m_graphResults;
 	}
 	
 	/**
@@ -75,7 +95,19 @@ public class EverestMarshaller implements Marshaller {
 	 */
 	public EverestMarshaller(IXmlStructureFormatter formatter)
 	{
+		this(formatter, new CorrelationStore<IFormatterGraphResult>());
+	}
+	
+	/**
+	 * Creates a new instance of the Marshaller with the specified formatter, filing graph
+	 * results in the specified store
+	 */
+	public EverestMarshaller(IXmlStructureFormatter formatter, CorrelationStore<IFormatterGraphResult> graphResults)
+	{
+		if(graphResults == null)
+			throw new IllegalArgumentException("graphResults");
 		this.m_formatter = formatter;
+		this.m_graphResults = graphResults;
 	}
 	
 	/**
@@ -86,27 +118,65 @@ public class EverestMarshaller implements Marshaller {
 		
 		// Marshal the object
 		if(obj instanceof IGraphable)
+			this.m_graphResults.put(CorrelationContext.getCorrelationId(obj), graph(this.m_formatter, res, (IGraphable)obj));
+		else
+			throw new ConnectorException("Can't serialize object as it does not implement IGraphable");
+	}
+	
+	/**
+	 * Graph the instance to the result using the specified formatter
+	 */
+	static IFormatterGraphResult graph(IXmlStructureFormatter formatter, Result res, IGraphable graphable)
+	{
+		if(res instanceof StreamResult)
+			return formatter.graph(((StreamResult)res).getOutputStream(), graphable);
+		
+		// Write SAX/DOM/StAX results directly when the instance is its own root element
+		XMLStreamWriter writer = null;
+		try
 		{
-			if(res instanceof StreamResult)
-				this.m_graphResults.put(obj, this.m_formatter.graph(((StreamResult)res).getOutputStream(), (IGraphable)obj));
-			else // Not a stream result we need to transform what Everest can handle (a stream) to SAX/DOM
+			if(isRootElement(graphable))
+				writer = XMLStreamBridge.createWriter(res);
+			if(writer != null)
 			{
-				ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				this.m_graphResults.put(obj, this.m_formatter.graph(bos, (IGraphable)obj));
-				StreamSource streamSrc = new StreamSource(new ByteArrayInputStream(bos.toByteArray()));
-				try {
-					TransformerFactory.newInstance().newTransformer().transform(streamSrc, res);
-				} catch(Exception e)
-				{
-					throw new ConnectorException("Couldn't marshal object to specified result");
-				}
-				
+				// A StAX result is usually positioned inside an enclosing document
+				boolean isDocument = !(res instanceof StAXResult);
+				if(isDocument)
+					writer.writeStartDocument();
+				IFormatterGraphResult retVal = formatter.graph(writer, graphable);
+				if(isDocument)
+					writer.writeEndDocument();
+				writer.flush();
+				return retVal;
 			}
-			
-			
 		}
-		else
-			throw new ConnectorException("Can't serialize object as it does not implement IGraphable");
+		catch(XMLStreamException e)
+		{
+			throw new ConnectorException("Couldn't marshal object to specified result", e);
+		}
+		
+		// Otherwise transform what Everest can handle (a stream) to the result
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		IFormatterGraphResult retVal = formatter.graph(bos, graphable);
+		StreamSource streamSrc = new StreamSource(new ByteArrayInputStream(bos.toByteArray()));
+		try {
+			TransformerFactory.newInstance().newTransformer().transform(streamSrc, res);
+		} catch(Exception e)
+		{
+			throw new ConnectorException("Couldn't marshal object to specified result");
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Returns true if the instance graphs its own root element (it is an interaction or an entry point)
+	 */
+	private static boolean isRootElement(IGraphable graphable)
+	{
+		if(graphable.getClass().getAnnotation(Interaction.class) != null)
+			return true;
+		Structure structure = graphable.getClass().getAnnotation(Structure.class);
+		return structure != null && structure.isEntryPoint();
 	}
 
 	/**
@@ -21,9 +21,9 @@ package org.marc.everest.connectors.spring;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.TransformerConfigurationException;
@@ -36,12 +36,14 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.marc.everest.annotations.Structure;
+import org.marc.everest.connectors.CorrelationStore;
 import org.marc.everest.exceptions.ConnectorException;
 import org.marc.everest.formatters.FormatterUtil;
 import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
 import org.marc.everest.formatters.interfaces.IFormatterParseResult;
 import org.marc.everest.formatters.interfaces.IXmlStructureFormatter;
 import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.xml.XMLStreamBridge;
 import org.springframework.oxm.Unmarshaller;
 import org.springframework.oxm.XmlMappingException;
 
@@ -53,18 +55,33 @@ public class EverestUnmarshaller implements Unmarshaller {
 	// The formatter to be used
 	private IXmlStructureFormatter m_formatter;
 	
-	// Graph results
-	private HashMap<Object,IFormatterParseResult> m_parseResults = new HashMap<Object, IFormatterParseResult>(); 
+	// Parse results awaiting collection
+	private final CorrelationStore<IFormatterParseResult> m_parseResults;
 	
 	/**
-	 * Get a graph result
+	 * Get the parse result of the specified object. 
+	 * <p>The result is filed under the correlation identifier of the current thread, 
+	 * or under the identity of the object when no identifier is set</p>
 	 */
-	public synchronized IFormatterParseResult popParseResult(Object context)
+	public IFormatterParseResult popParseResult(Object context)
 	{
-		IFormatterParseResult res = this.m_parseResults.get(context);
-		if(res != null)
-			this.m_parseResults.remove(context);
-		return res;
+		return this.m_parseResults.take(CorrelationContext.getCorrelationId(context));
+	}
+	
+	/**
+	 * Get the parse result filed under the specified correlation identifier
+	 */
+	public IFormatterParseResult takeParseResult(String correlationId)
+	{
+		return this.m_parseResults.take(correlationId);
+	}
+	
+	/**
+	 * Gets the store which holds parse results until they are collected
+	 */
+	public CorrelationStore<IFormatterParseResult> getParseResults()
+	{
+		return this.m_parseResults;
 	}
 	
 	/**
@@ -73,7 +90,18 @@ public class EverestUnmarshaller implements Unmarshaller {
 	 */
 	public EverestUnmarshaller(IXmlStructureFormatter fmtr)
 	{
+		this(fmtr, new CorrelationStore<IFormatterParseResult>());
+	}
+	
+	/**
+	 * Creates a new instance of the Everest unmarshaller, filing parse results in the specified store
+	 */
+	public EverestUnmarshaller(IXmlStructureFormatter fmtr, CorrelationStore<IFormatterParseResult> parseResults)
+	{
+		if(parseResults == null)
+			throw new IllegalArgumentException("parseResults");
 		this.m_formatter = fmtr;
+		this.m_parseResults = parseResults;
 	}
 	
 	/**
@@ -95,28 +123,48 @@ public class EverestUnmarshaller implements Unmarshaller {
 	 */
 	@Override
 	public Object unmarshal(Source src) throws IOException, XmlMappingException {
-		InputStream ins = null;
-		if(src instanceof StreamSource)
-			ins = ((StreamSource)src).getInputStream();
-		else 
-		{
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			Result outputTarget = new StreamResult(outputStream);
-			try {
-				TransformerFactory.newInstance().newTransformer().transform(src, outputTarget);
-			} catch(Exception e)
-			{
-				throw new ConnectorException("Couldn't transform source to input stream for formatter");
-			}
-			ins = new ByteArrayInputStream(outputStream.toByteArray());
-		}
 		
 		// HACK: I know this looks odd, why don't I just return the IFormatterParseResult right?
 		// Well, I want to keep this consistent with the Marshaller, also the IFormatterParseResult isn't
 		// really what is intended to be passed back.
-		IFormatterParseResult retVal = this.m_formatter.parse(ins);
-		this.m_parseResults.put(retVal.getStructure(), retVal);
+		IFormatterParseResult retVal = parse(this.m_formatter, src);
+		String correlationId = CorrelationContext.getCorrelationId(retVal.getStructure());
+		if(correlationId != null)
+			this.m_parseResults.put(correlationId, retVal);
 		return retVal.getStructure();
 	}
+	
+	/**
+	 * Parse an instance from the source using the specified formatter
+	 */
+	static IFormatterParseResult parse(IXmlStructureFormatter formatter, Source src)
+	{
+		if(src instanceof StreamSource && ((StreamSource)src).getInputStream() != null)
+			return formatter.parse(((StreamSource)src).getInputStream());
+		
+		// Read DOM/SAX/StAX sources directly where possible
+		XMLStreamReader reader = null;
+		try
+		{
+			reader = XMLStreamBridge.createReader(src);
+		}
+		catch(XMLStreamException e)
+		{
+			throw new ConnectorException("Couldn't read source for formatter", e);
+		}
+		if(reader != null)
+			return formatter.parse(reader);
+		
+		// Otherwise transform the source to a stream Everest can handle
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		Result outputTarget = new StreamResult(outputStream);
+		try {
+			TransformerFactory.newInstance().newTransformer().transform(src, outputTarget);
+		} catch(Exception e)
+		{
+			throw new ConnectorException("Couldn't transform source to input stream for formatter");
+		}
+		return formatter.parse(new ByteArrayInputStream(outputStream.toByteArray()));
+	}
 
 }
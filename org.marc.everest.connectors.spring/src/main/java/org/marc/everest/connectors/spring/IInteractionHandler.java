@@ -0,0 +1,34 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.spring;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Represents a class which handles interactions received by the SpringServerConnector
+ */
+public interface IInteractionHandler {
+
+	/**
+	 * Handle the received interaction
+	 * @param request The result of parsing the request, including the parsed structure
+	 * @return The response to graph to the caller or null if there is no response
+	 */
+	IGraphable handleInteraction(IReceiveResult request) throws Exception;
+	
+}
@@ -0,0 +1,253 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.spring;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.springframework.ws.WebServiceMessage;
+import org.springframework.ws.transport.WebServiceConnection;
+import org.springframework.ws.transport.http.CommonsHttpConnection;
+import org.springframework.ws.transport.http.CommonsHttpMessageSender;
+import org.springframework.ws.transport.http.HttpTransportConstants;
+
+/**
+ * Represents an HTTP message sender which sends messages over a pool of persistent connections.
+ * <p>Connections are kept open between messages and closed once they have been idle for the 
+ * keep-alive period. When request compression is enabled request bodies are sent gzip encoded, 
+ * and gzip encoded responses are decoded when accepting gzip encoding (the default).</p>
+ */
+public class PooledHttpMessageSender extends CommonsHttpMessageSender {
+
+	/**
+	 * The default number of seconds an idle connection is kept open
+	 */
+	public static final int DEFAULT_KEEP_ALIVE = 60;
+	
+	// The header which asks the server to close the connection
+	private static final String HEADER_CONNECTION = "Connection";
+	
+	// The number of seconds an idle connection is kept open, zero disables keep-alive
+	private int m_keepAlive = DEFAULT_KEEP_ALIVE;
+	// True when request bodies are compressed
+	private boolean m_compressRequests;
+	// Closes connections which have been idle for the keep-alive period
+	private IdleConnectionTimeoutThread m_idleConnectionThread;
+	
+	/**
+	 * Creates a new pooled message sender
+	 */
+	public PooledHttpMessageSender()
+	{
+		super();
+	}
+	
+	/**
+	 * Sets the maximum number of connections to any host
+	 */
+	public void setMaxPerRoute(int maxPerRoute)
+	{
+		if(maxPerRoute < 1)
+			throw new IllegalArgumentException("maxPerRoute must be positive");
+		this.getHttpClient().getHttpConnectionManager().getParams().setDefaultMaxConnectionsPerHost(maxPerRoute);
+	}
+	
+	/**
+	 * Gets the maximum number of connections to any host
+	 */
+	public int getMaxPerRoute()
+	{
+		return this.getHttpClient().getHttpConnectionManager().getParams().getDefaultMaxConnectionsPerHost();
+	}
+	
+	/**
+	 * Gets the maximum number of connections in the pool
+	 */
+	public int getMaxTotalConnections()
+	{
+		return this.getHttpClient().getHttpConnectionManager().getParams().getMaxTotalConnections();
+	}
+	
+	/**
+	 * Sets the number of seconds an idle connection is kept open, zero closes each connection after use
+	 */
+	public void setKeepAlive(int keepAlive)
+	{
+		if(keepAlive < 0)
+			throw new IllegalArgumentException("keepAlive must not be negative");
+		this.m_keepAlive = keepAlive;
+	}
+	
+	/**
+	 * Gets the number of seconds an idle connection is kept open
+	 */
+	public int getKeepAlive()
+	{
+		return this.m_keepAlive;
+	}
+	
+	/**
+	 * Sets a value indicating whether request bodies are gzip encoded
+	 */
+	public void setCompressRequests(boolean compressRequests)
+	{
+		this.m_compressRequests = compressRequests;
+	}
+	
+	/**
+	 * Gets a value indicating whether request bodies are gzip encoded
+	 */
+	public boolean isCompressRequests()
+	{
+		return this.m_compressRequests;
+	}
+	
+	/**
+	 * Start closing idle connections
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		if(this.m_keepAlive > 0 && this.m_idleConnectionThread == null)
+		{
+			long keepAliveMillis = this.m_keepAlive * 1000L;
+			this.m_idleConnectionThread = new IdleConnectionTimeoutThread();
+			this.m_idleConnectionThread.addConnectionManager(this.getHttpClient().getHttpConnectionManager());
+			this.m_idleConnectionThread.setConnectionTimeout(keepAliveMillis);
+			this.m_idleConnectionThread.setTimeoutInterval(Math.min(keepAliveMillis, 5000L));
+			this.m_idleConnectionThread.start();
+		}
+	}
+	
+	/**
+	 * Close the pooled connections
+	 */
+	@Override
+	public void destroy() throws Exception {
+		if(this.m_idleConnectionThread != null)
+		{
+			this.m_idleConnectionThread.shutdown();
+			this.m_idleConnectionThread = null;
+		}
+		super.destroy();
+	}
+	
+	/**
+	 * Create a connection to the specified URI
+	 */
+	@Override
+	public WebServiceConnection createConnection(URI uri) throws IOException {
+		PostMethod postMethod = new PostMethod(uri.toString());
+		if(this.isAcceptGzipEncoding())
+			postMethod.addRequestHeader(HttpTransportConstants.HEADER_ACCEPT_ENCODING, HttpTransportConstants.CONTENT_ENCODING_GZIP);
+		if(this.m_keepAlive == 0)
+			postMethod.addRequestHeader(HEADER_CONNECTION, "close");
+		return new PooledHttpConnection(this.getHttpClient(), postMethod, this.m_compressRequests);
+	}
+	
+	/**
+	 * A connection which optionally compresses the request body
+	 */
+	private static class PooledHttpConnection extends CommonsHttpConnection {
+		
+		// True when the request is compressed
+		private final boolean m_compress;
+		// The compressing stream
+		private CompressingOutputStream m_compressedStream;
+		
+		/**
+		 * Creates a new connection
+		 */
+		PooledHttpConnection(HttpClient httpClient, PostMethod postMethod, boolean compress)
+		{
+			super(httpClient, postMethod);
+			this.m_compress = compress;
+			if(compress)
+				postMethod.addRequestHeader(HttpTransportConstants.HEADER_CONTENT_ENCODING, HttpTransportConstants.CONTENT_ENCODING_GZIP);
+		}
+		
+		/**
+		 * Gets the stream the request body is written to
+		 */
+		@Override
+		protected OutputStream getRequestOutputStream() throws IOException {
+			if(!this.m_compress)
+				return super.getRequestOutputStream();
+			else if(this.m_compressedStream == null)
+				this.m_compressedStream = new CompressingOutputStream(super.getRequestOutputStream());
+			return this.m_compressedStream;
+		}
+		
+		/**
+		 * Add a header to the request. The length of a compressed request is taken from the 
+		 * compressed body rather than the length of the message
+		 */
+		@Override
+		protected void addRequestHeader(String name, String value) throws IOException {
+			if(this.m_compress && HttpTransportConstants.HEADER_CONTENT_LENGTH.equalsIgnoreCase(name))
+				return;
+			super.addRequestHeader(name, value);
+		}
+		
+		/**
+		 * Complete the compressed body before it is sent
+		 */
+		@Override
+		protected void onSendAfterWrite(WebServiceMessage message) throws IOException {
+			if(this.m_compressedStream != null)
+			{
+				this.m_compressedStream.release();
+				this.m_compressedStream = null;
+			}
+			super.onSendAfterWrite(message);
+		}
+	}
+	
+	/**
+	 * A gzip stream which completes on close but is only released once the body has been sent
+	 */
+	private static class CompressingOutputStream extends GZIPOutputStream {
+		
+		/**
+		 * Creates a new compressing stream
+		 */
+		CompressingOutputStream(OutputStream out) throws IOException
+		{
+			super(out);
+		}
+		
+		/**
+		 * Write the gzip trailer, the request buffer remains open
+		 */
+		@Override
+		public void close() throws IOException {
+			this.finish();
+		}
+		
+		/**
+		 * Write the gzip trailer and release the compressor
+		 */
+		void release() throws IOException {
+			super.close();
+		}
+	}
+}
@@ -22,14 +22,26 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.TransformerException;
 
-import org.marc.everest.annotations.Structure;
 import org.marc.everest.connectors.ConnectorUtil;
+import org.marc.everest.connectors.CorrelationStore;
+import org.marc.everest.connectors.interfaces.IAsyncSendingConnector;
 import org.marc.everest.connectors.interfaces.IFormattedConnector;
 import org.marc.everest.connectors.interfaces.IReceiveResult;
 import org.marc.everest.connectors.interfaces.ISendReceiveConnector;
+import org.marc.everest.connectors.interfaces.ISendCallback;
 import org.marc.everest.connectors.interfaces.ISendResult;
 import org.marc.everest.exceptions.ConnectorException;
 import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
@@ -89,8 +101,33 @@ import org.springframework.ws.soap.saaj.SaajSoapMessageFactory;
  * 	e.printStackTrace();
  * }
  * </pre> 
+ * <p>Messages can also be sent asynchronously, in which case a bounded pool of threads formats 
+ * and sends several messages at once:</p>
+ * <pre>
+ * try
+ * {
+ *  SpringClientConnector connector = new SpringClientConnector(appContext, "templateBeanName=clientRegistry;maxConcurrency=8;maxInFlight=32");
+ *  connector.setFormatter(fmtr);
+ *  connector.open();
+ *  List&lt;Future&lt;ISendResult&gt;&gt; results = new ArrayList&lt;Future&lt;ISendResult&gt;&gt;();
+ *  for(IGraphable instance : instances)
+ *  	results.add(connector.sendAsync(instance));
+ *  for(Future&lt;ISendResult&gt; result : results)
+ *  	System.out.println(result.get().getCode());
+ *  connector.close();
+ * }
+ * catch(Exception e)
+ * {
+ * 	e.printStackTrace();
+ * }
+ * </pre> 
  */
-public class SpringClientConnector implements ISendReceiveConnector, IFormattedConnector {
+public class SpringClientConnector implements ISendReceiveConnector, IAsyncSendingConnector, IFormattedConnector {
+
+	// The default number of threads used to send asynchronously
+	private static final int DEFAULT_MAX_CONCURRENCY = 4;
+	// The number of connectors created, used to name threads
+	private static final AtomicInteger s_connectorCount = new AtomicInteger();
 
 	// Backing field for formatter
 	private IXmlStructureFormatter m_formatter;
@@ -98,11 +135,23 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 	// Connection string
 	private String m_connectionString;
 	
-	// The client template
+	// The client template, a copy of the template bean owned by this connector
 	private WebServiceTemplate m_wsTemplate;
 	
 	// Used for send/receive operations.
-	private HashMap<ISendResult, IReceiveResult> m_messageCache = new HashMap<ISendResult, IReceiveResult>();
+	private CorrelationStore<IReceiveResult> m_messageCache = new CorrelationStore<IReceiveResult>();
+	
+	// The threads used for asynchronous sends
+	private ThreadPoolExecutor m_executor;
+	
+	// Limits the number of asynchronous sends which are queued or in progress
+	private Semaphore m_inFlight;
+	
+	// The maximum number of concurrent asynchronous sends
+	private int m_maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+	
+	// The maximum number of asynchronous sends which may be queued or in progress
+	private int m_maxInFlight = DEFAULT_MAX_CONCURRENCY * 2;
 	
 	// Execution context 
 	private ApplicationContext m_context;
@@ -138,37 +187,129 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 		
 		if(!this.isOpen())
 			throw new ConnectorException("Connector has not been opened");
+		return this.sendInternal(this.m_wsTemplate, data, callback);
+	}
+	
+	/**
+	 * Send data asynchronously
+	 */
+	@Override
+	public Future<ISendResult> sendAsync(IGraphable data) {
+		return this.sendAsync(data, null, null);
+	}
+
+	/**
+	 * Send data asynchronously, notifying the callback when complete
+	 */
+	@Override
+	public Future<ISendResult> sendAsync(IGraphable data, ISendCallback callback) {
+		return this.sendAsync(data, callback, null);
+	}
+	
+	/**
+	 * Send data asynchronously, notifying the callback when complete.
+	 * <p>The caller is blocked while the maximum number of messages are in flight</p>
+	 * @param data The data to send
+	 * @param callback The callback to notify when the send completes, may be null
+	 * @param messageCallback The callback used to customize the web service message, may be null
+	 */
+	public Future<ISendResult> sendAsync(final IGraphable data, final ISendCallback callback, final WebServiceMessageCallback messageCallback) {
+		
+		if(!this.isOpen())
+			throw new ConnectorException("Connector has not been opened");
+		
+		// Capture the state of the connector so sends already accepted complete after close
+		final WebServiceTemplate template = this.m_wsTemplate;
+		final Semaphore inFlight = this.m_inFlight;
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting to send", e);
+		}
+		
+		try
+		{
+			return this.m_executor.submit(new Callable<ISendResult>() {
+				@Override
+				public ISendResult call() {
+					try
+					{
+						ISendResult retVal = sendInternal(template, data, messageCallback);
+						if(callback != null)
+							callback.sendCompleted(data, retVal);
+						return retVal;
+					}
+					finally
+					{
+						inFlight.release();
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			inFlight.release();
+			throw new ConnectorException("Connector has been closed", e);
+		}
+	}
+	
+	/**
+	 * Send the data using the specified template
+	 */
+	private ISendResult sendInternal(WebServiceTemplate template, IGraphable data, WebServiceMessageCallback callback) {
 		
+		// The marshallers file their results under the correlation identifier
+		String correlationId = UUID.randomUUID().toString();
+		CorrelationContext.setCorrelationId(correlationId);
 		try
 		{
 			// Send
-			Structure struct = data.getClass().getAnnotation(Structure.class);
-			IGraphable response = (IGraphable)this.m_wsTemplate.marshalSendAndReceive(data, callback);
+			template.marshalSendAndReceive(data, callback);
 			
 			// Collection of parse/send errors
 			IFormatterGraphResult graphResult = null;
-			if(this.m_wsTemplate.getMarshaller() instanceof EverestMarshaller)
-				graphResult = ((EverestMarshaller)this.m_wsTemplate.getMarshaller()).popGraphResult(data);
+			if(template.getMarshaller() instanceof EverestMarshaller)
+				graphResult = ((EverestMarshaller)template.getMarshaller()).takeGraphResult(correlationId);
 			IFormatterParseResult parseResult = null;
-			if(this.m_wsTemplate.getUnmarshaller() instanceof EverestUnmarshaller)
-				parseResult = ((EverestUnmarshaller)this.m_wsTemplate.getUnmarshaller()).popParseResult(response);
+			if(template.getUnmarshaller() instanceof EverestUnmarshaller)
+				parseResult = ((EverestUnmarshaller)template.getUnmarshaller()).takeParseResult(correlationId);
 			
 			// Now construct the Send/Receive results
-			SpringConnectorSendResult sendResult = new SpringConnectorSendResult(graphResult.getCode(), graphResult.getDetails());
+			SpringConnectorSendResult sendResult = new SpringConnectorSendResult(graphResult.getCode(), graphResult.getDetails(), correlationId);
 			SpringConnectorReceiveResult recvResult = new SpringConnectorReceiveResult(parseResult.getCode(), parseResult.getDetails(), parseResult.getStructure());
 			
 			// Push the result
-			this.m_messageCache.put(sendResult, recvResult);
+			this.m_messageCache.put(correlationId, recvResult);
 			return sendResult;
 		}
 		catch(Exception e)
 		{
 			return new SpringConnectorSendResult(ResultCodeType.Error, Arrays.asList(new IResultDetail[] {
 				new ResultDetail(ResultDetailType.ERROR, e.getMessage(), e)	
-			}));
+			}), correlationId);
+		}
+		finally
+		{
+			CorrelationContext.clear();
 		}
 	}
 
+	/**
+	 * Gets the maximum number of asynchronous sends performed concurrently
+	 */
+	public int getMaxConcurrency() {
+		return this.m_maxConcurrency;
+	}
+	
+	/**
+	 * Gets the maximum number of asynchronous sends which may be queued or in progress 
+	 * before sendAsync blocks the caller
+	 */
+	public int getMaxInFlight() {
+		return this.m_maxInFlight;
+	}
+	
 	/**
 	 * Sets the connection string
 	 * 
@@ -176,6 +317,17 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 	 * <ul>
 	 * 	<li><b>templateBeanName</b> - The name of the template bean</li>
 	 * 	<li><b>defaultUri</b> - The default URI of the service, note the configuration file trumps this value</li>
+	 * 	<li><b>maxConcurrency</b> - The number of messages sent concurrently by sendAsync (default 4)</li>
+	 * 	<li><b>maxInFlight</b> - The number of messages which may be queued or in progress before sendAsync blocks (default twice maxConcurrency)</li>
+	 * 	<li><b>correlationCacheSize</b> - The number of responses held until they are received (default 1000)</li>
+	 * 	<li><b>correlationTimeout</b> - The number of seconds a response is held until it is received (default 300)</li>
+	 * </ul>
+	 * <p>The following options replace the message sender of the connector's copy of the template with a PooledHttpMessageSender:</p>
+	 * <ul>
+	 * 	<li><b>maxConnections</b> - The maximum number of pooled connections</li>
+	 * 	<li><b>maxPerRoute</b> - The maximum number of pooled connections to any host</li>
+	 * 	<li><b>keepAlive</b> - The number of seconds an idle connection is kept open, 0 closes connections after each message (default 60)</li>
+	 * 	<li><b>gzip</b> - When true request bodies are gzip compressed and compressed responses are accepted</li>
 	 * </ul>
 	 */
 	@Override
@@ -211,7 +363,8 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 		// Load context file
 		try
 		{
-			this.m_wsTemplate = (WebServiceTemplate)this.m_context.getBean(parameters.get("templatebeanname").get(0));
+			// The bean may be shared, so the connector configures a copy of it
+			this.m_wsTemplate = copyTemplate((WebServiceTemplate)this.m_context.getBean(parameters.get("templatebeanname").get(0)));
 			
 			// Set marshallers and unmarshallers
 			if(this.m_wsTemplate.getMarshaller() == null)
@@ -228,15 +381,143 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 			throw new ConnectorException("Unable to initialize Sping connection", e);
 		}
 		
+		// Asynchronous send limits
+		try
+		{
+			if(parameters.get("maxconcurrency") != null)
+			{
+				this.m_maxConcurrency = Integer.parseInt(parameters.get("maxconcurrency").get(0));
+				this.m_maxInFlight = this.m_maxConcurrency * 2;
+			}
+			if(parameters.get("maxinflight") != null)
+				this.m_maxInFlight = Integer.parseInt(parameters.get("maxinflight").get(0));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("maxConcurrency and maxInFlight parameters must be integers", e);
+		}
+		if(this.m_maxConcurrency < 1 || this.m_maxInFlight < this.m_maxConcurrency)
+			throw new ConnectorException("maxConcurrency must be positive and maxInFlight must be at least maxConcurrency");
+		
+		// Bounds of the responses awaiting receive
+		try
+		{
+			int cacheSize = CorrelationStore.DEFAULT_MAX_SIZE;
+			long timeout = CorrelationStore.DEFAULT_TIME_TO_LIVE;
+			if(parameters.get("correlationcachesize") != null)
+				cacheSize = Integer.parseInt(parameters.get("correlationcachesize").get(0));
+			if(parameters.get("correlationtimeout") != null)
+				timeout = Long.parseLong(parameters.get("correlationtimeout").get(0));
+			this.m_messageCache = new CorrelationStore<IReceiveResult>(cacheSize, timeout, TimeUnit.SECONDS);
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("correlationCacheSize and correlationTimeout parameters must be integers", e);
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new ConnectorException("correlationCacheSize and correlationTimeout parameters must be positive", e);
+		}
+		
+		// Pooled HTTP transport
+		final PooledHttpMessageSender messageSender = this.createMessageSender(parameters);
+		if(messageSender != null)
+			this.m_wsTemplate.setMessageSender(messageSender);
+		
+		final int connectorId = s_connectorCount.incrementAndGet();
+		this.m_inFlight = new Semaphore(this.m_maxInFlight);
+		this.m_executor = new ThreadPoolExecutor(this.m_maxConcurrency, this.m_maxConcurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			// The number of threads created
+			private final AtomicInteger m_threadCount = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("SpringClientConnector-%d-%d", connectorId, this.m_threadCount.incrementAndGet()));
+				retVal.setDaemon(true);
+				return retVal;
+			}
+		}) {
+			// Close the pooled connections once the sends accepted before close have completed
+			@Override
+			protected void terminated() {
+				super.terminated();
+				if(messageSender != null)
+					try {
+						messageSender.destroy();
+					} catch (Exception e) {
+						// Connections are closed when the sender is collected
+					}
+			}
+		};
+		this.m_executor.allowCoreThreadTimeOut(true);
+		
 	}
 
+	/**
+	 * Create a template for this connector which uses the message factory, message senders, marshallers, 
+	 * default URI, interceptors and fault resolver of the configured template bean
+	 */
+	private static WebServiceTemplate copyTemplate(WebServiceTemplate bean)
+	{
+		WebServiceTemplate retVal = new WebServiceTemplate(bean.getMessageFactory());
+		retVal.setMessageSenders(bean.getMessageSenders());
+		retVal.setMarshaller(bean.getMarshaller());
+		retVal.setUnmarshaller(bean.getUnmarshaller());
+		if(bean.getDefaultUri() != null)
+			retVal.setDefaultUri(bean.getDefaultUri());
+		retVal.setInterceptors(bean.getInterceptors());
+		retVal.setFaultMessageResolver(bean.getFaultMessageResolver());
+		return retVal;
+	}
+	
+	/**
+	 * Create the pooled message sender described by the connection string parameters, or null 
+	 * if the template's own message sender is to be used
+	 */
+	private PooledHttpMessageSender createMessageSender(HashMap<String, List<String>> parameters)
+	{
+		if(parameters.get("maxconnections") == null && parameters.get("maxperroute") == null && 
+				parameters.get("keepalive") == null && parameters.get("gzip") == null)
+			return null;
+		
+		PooledHttpMessageSender retVal = new PooledHttpMessageSender();
+		try
+		{
+			if(parameters.get("maxconnections") != null)
+				retVal.setMaxTotalConnections(Integer.parseInt(parameters.get("maxconnections").get(0)));
+			if(parameters.get("maxperroute") != null)
+				retVal.setMaxPerRoute(Integer.parseInt(parameters.get("maxperroute").get(0)));
+			if(parameters.get("keepalive") != null)
+				retVal.setKeepAlive(Integer.parseInt(parameters.get("keepalive").get(0)));
+			if(parameters.get("gzip") != null && Boolean.parseBoolean(parameters.get("gzip").get(0)))
+			{
+				retVal.setCompressRequests(true);
+				retVal.setAcceptGzipEncoding(true);
+			}
+			retVal.afterPropertiesSet();
+			return retVal;
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("maxConnections, maxPerRoute and keepAlive parameters must be integers", e);
+		}
+		catch(Exception e)
+		{
+			throw new ConnectorException("Unable to initialize the pooled HTTP message sender", e);
+		}
+	}
+	
 	/**
 	 * Close the connection
 	 */
 	@Override
 	public void close() {
 		if(this.isOpen())
+		{
+			// Sends which have already been accepted are allowed to complete
+			this.m_executor.shutdown();
+			this.m_executor = null;
 			this.m_wsTemplate = null;
+		}
 	}
 
 	/**
@@ -267,7 +548,9 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 
 	/**
 	 * Receive a result
-	 * <p>This method actually retrieves a result that has already been received by the underlying Spring framework</p>
+	 * <p>This method actually retrieves a result that has already been received by the underlying Spring framework.
+	 * Each result can be received once, results which are not received are discarded once the correlation cache 
+	 * is full or the correlation timeout elapses</p>
 	 * <p>Returns null if no results is present</p> 
 	 */
 	@Override
@@ -275,9 +558,17 @@ public class SpringClientConnector implements ISendReceiveConnector, IFormattedC
 		
 		if(!this.isOpen())
 			throw new ConnectorException("Connector not open");
+		else if(!(correlate instanceof SpringConnectorSendResult))
+			return null;
 		
-		// Just return the key
-		return this.m_messageCache.get(correlate);
+		return this.m_messageCache.take(((SpringConnectorSendResult)correlate).getCorrelationId());
+	}
+	
+	/**
+	 * Gets the store of responses awaiting receive, which exposes the metrics of the store
+	 */
+	public CorrelationStore<IReceiveResult> getCorrelationStore() {
+		return this.m_messageCache;
 	}
 
 }
@@ -31,14 +31,23 @@ public class SpringConnectorSendResult implements ISendResult {
 	private ResultCodeType m_result;
 	// Backing field for details
 	private Iterable<IResultDetail> m_details;
+	// Backing field for correlation id
+	private String m_correlationId;
 	
 	/**
 	 * Package scoped ctor
 	 */
-	SpringConnectorSendResult(ResultCodeType result, Iterable<IResultDetail> details) {
+	SpringConnectorSendResult(ResultCodeType result, Iterable<IResultDetail> details, String correlationId) {
 		this.m_result = result;
 		this.m_details = details;
-		
+		this.m_correlationId = correlationId;
+	}
+	
+	/**
+	 * Gets the identifier which correlates this result with the response received 
+	 */
+	public String getCorrelationId() {
+		return this.m_correlationId;
 	}
 	
 	/**
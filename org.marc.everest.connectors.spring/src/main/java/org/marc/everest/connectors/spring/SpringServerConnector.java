@@ -0,0 +1,432 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.spring;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Source;
+
+import org.marc.everest.annotations.Structure;
+import org.marc.everest.connectors.ConnectorUtil;
+import org.marc.everest.connectors.interfaces.IFormattedConnector;
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.IReceivingConnector;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.interfaces.IStructureFormatter;
+import org.marc.everest.formatters.interfaces.IXmlStructureFormatter;
+import org.marc.everest.interfaces.IGraphable;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.server.endpoint.MessageEndpoint;
+
+/**
+ * Represents a server connector which receives interactions as a Spring-WS endpoint.
+ * <p>The connector is registered with Spring-WS as a MessageEndpoint. The request payload is
+ * read by the formatter directly from the source of the message, and the parsed interaction 
+ * is dispatched by its structure name to the IInteractionHandler registered for it. The response 
+ * returned by the handler is graphed directly into the payload of the response message.</p>
+ * <p>Spring-WS invokes endpoints synchronously, so the response is always written on the thread
+ * of the container. Without a timeout the handler runs on that thread. With a timeout the handler 
+ * runs on a worker thread so the connector can answer with a fault once the timeout elapses. At 
+ * most maxConcurrency handlers run at once, further requests wait for a handler to complete 
+ * (up to the timeout) rather than being queued.</p>
+ * <p>Interactions with no registered handler are queued and can be collected using receive(), 
+ * in which case no response is sent.</p>
+ * The following example illustrates the use of the SpringServerConnector:
+ * <pre>
+ * SpringServerConnector connector = new SpringServerConnector("maxConcurrency=8;timeout=30");
+ * connector.setFormatter(fmtr);
+ * connector.registerHandler("PRPA_IN101103CA", new IInteractionHandler() {
+ * 	public IGraphable handleInteraction(IReceiveResult request) {
+ * 		return createResponse((PRPA_IN101103CA)request.getStructure());
+ * 	}
+ * });
+ * connector.open();
+ * 
+ * // Register the connector as an endpoint
+ * endpointMapping.setEndpointMap(Collections.singletonMap("{urn:hl7-org:v3}PRPA_IN101103CA", connector));
+ * </pre> 
+ */
+public class SpringServerConnector implements IReceivingConnector, IFormattedConnector, MessageEndpoint {
+
+	/**
+	 * The name under which a handler for any interaction is registered
+	 */
+	public static final String ANY_INTERACTION = "*";
+	
+	// The default number of threads used to handle interactions
+	private static final int DEFAULT_MAX_CONCURRENCY = 4;
+	// The default number of interactions which may wait to be received
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+	// The number of connectors created, used to name threads
+	private static final AtomicInteger s_connectorCount = new AtomicInteger();
+
+	// Backing field for formatter
+	private IXmlStructureFormatter m_formatter;
+	
+	// Connection string
+	private String m_connectionString;
+	
+	// The handlers by interaction name
+	private final ConcurrentHashMap<String, IInteractionHandler> m_handlers = new ConcurrentHashMap<String, IInteractionHandler>();
+	
+	// Interactions waiting to be received
+	private BlockingQueue<IReceiveResult> m_receiveQueue = new LinkedBlockingQueue<IReceiveResult>(DEFAULT_QUEUE_SIZE);
+	
+	// The threads which run the handlers when there is a timeout, read by the threads of the container
+	private volatile ThreadPoolExecutor m_executor;
+	
+	// Limits the number of handlers running at once
+	private volatile Semaphore m_permits;
+	
+	// The maximum number of interactions handled concurrently
+	private int m_maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+	
+	// The time in milliseconds to wait for a handler, zero to wait indefinitely
+	private volatile long m_timeout;
+	
+	/**
+	 * Creates a new instance of the SpringServerConnector
+	 */
+	public SpringServerConnector()
+	{
+	}
+	
+	/**
+	 * Creates a new instance of the SpringServerConnector with the specified connection string
+	 */
+	public SpringServerConnector(String connectionString)
+	{
+		this.m_connectionString = connectionString;
+	}
+	
+	/**
+	 * Register the handler for the specified interaction 
+	 * @param interaction The structure name of the interaction or ANY_INTERACTION
+	 */
+	public void registerHandler(String interaction, IInteractionHandler handler)
+	{
+		if(interaction == null)
+			throw new IllegalArgumentException("interaction");
+		else if(handler == null)
+			throw new IllegalArgumentException("handler");
+		this.m_handlers.put(interaction, handler);
+	}
+	
+	/**
+	 * Remove the handler for the specified interaction
+	 */
+	public IInteractionHandler unregisterHandler(String interaction)
+	{
+		return this.m_handlers.remove(interaction);
+	}
+	
+	/**
+	 * Gets the handler for the specified interaction instance
+	 */
+	private IInteractionHandler getHandler(IGraphable interaction)
+	{
+		Structure structure = interaction.getClass().getAnnotation(Structure.class);
+		String name = structure == null ? interaction.getClass().getSimpleName() : structure.name();
+		IInteractionHandler retVal = this.m_handlers.get(name);
+		if(retVal == null)
+			retVal = this.m_handlers.get(ANY_INTERACTION);
+		return retVal;
+	}
+	
+	/**
+	 * Invoke the endpoint with the received message
+	 */
+	@Override
+	public void invoke(MessageContext messageContext) throws Exception {
+		
+		// Capture the state of the connector so requests already accepted complete after close
+		ThreadPoolExecutor executor = this.m_executor;
+		Semaphore permits = this.m_permits;
+		long timeout = this.m_timeout;
+		if(executor == null)
+			throw new ConnectorException("Connector not open");
+		
+		Source payload = messageContext.getRequest().getPayloadSource();
+		if(payload == null)
+			throw new ConnectorException("The request has no payload");
+		
+		// Parse the request directly from the payload
+		IFormatterParseResult parseResult = EverestUnmarshaller.parse(this.m_formatter, payload);
+		if(parseResult.getStructure() == null)
+			throw new ConnectorException(String.format("Couldn't parse the request, the formatter returned %s", parseResult.getCode()));
+		final SpringConnectorReceiveResult request = new SpringConnectorReceiveResult(parseResult.getCode(), parseResult.getDetails(), parseResult.getStructure());
+		
+		// No handler so queue for receive
+		final IInteractionHandler handler = this.getHandler(request.getStructure());
+		if(handler == null)
+		{
+			if(!this.m_receiveQueue.offer(request))
+				throw new ConnectorException("The receive queue is full");
+			return;
+		}
+		
+		// Wait for a handler to complete when the maximum number are running
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		try
+		{
+			if(timeout == 0)
+				permits.acquire();
+			else if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+				throw new ConnectorException("No handler became available within the timeout");
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting for a handler", e);
+		}
+		
+		IGraphable response = null;
+		if(timeout == 0) // Handle on this thread
+		{
+			try
+			{
+				response = handler.handleInteraction(request);
+			}
+			finally
+			{
+				permits.release();
+			}
+		}
+		else
+			response = this.handleWithTimeout(executor, permits, handler, request, deadline);
+		
+		// Graph the response directly to the payload
+		if(response != null)
+			EverestMarshaller.graph(this.m_formatter, messageContext.getResponse().getPayloadResult(), response);
+	}
+
+	/**
+	 * Run the handler on a worker thread, waiting until the deadline for its response. The permit 
+	 * is released once the handler completes
+	 */
+	private IGraphable handleWithTimeout(ThreadPoolExecutor executor, final Semaphore permits, final IInteractionHandler handler, final IReceiveResult request, long deadline) throws Exception
+	{
+		Future<IGraphable> future = null;
+		try
+		{
+			future = executor.submit(new Callable<IGraphable>() {
+				@Override
+				public IGraphable call() throws Exception {
+					try
+					{
+						return handler.handleInteraction(request);
+					}
+					finally
+					{
+						permits.release();
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			permits.release();
+			throw new ConnectorException("Connector has been closed", e);
+		}
+		
+		try
+		{
+			return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		catch(TimeoutException e)
+		{
+			future.cancel(true);
+			throw new ConnectorException("The handler did not respond within the timeout", e);
+		}
+		catch(InterruptedException e)
+		{
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting for the handler", e);
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof Exception)
+				throw (Exception)e.getCause();
+			throw new ConnectorException("The handler failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Receive an interaction which had no handler, blocking until one is available
+	 */
+	@Override
+	public IReceiveResult receive() {
+		if(!this.isOpen())
+			throw new ConnectorException("Connector not open");
+		try
+		{
+			return this.m_receiveQueue.take();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting to receive", e);
+		}
+	}
+
+	/**
+	 * True if there are interactions waiting to be received
+	 */
+	@Override
+	public boolean hasData() {
+		return !this.m_receiveQueue.isEmpty();
+	}
+
+	/**
+	 * Gets the maximum number of interactions handled concurrently
+	 */
+	public int getMaxConcurrency() {
+		return this.m_maxConcurrency;
+	}
+	
+	/**
+	 * Sets the connection string
+	 * 
+	 * <p>Connection String options are:</p>
+	 * <ul>
+	 * 	<li><b>maxConcurrency</b> - The number of interactions handled concurrently, further requests wait for a handler to complete (default 4)</li>
+	 * 	<li><b>queueSize</b> - The number of interactions without a handler which may wait to be received (default 1000)</li>
+	 * 	<li><b>timeout</b> - The number of seconds to wait for a handler to respond, including the time waiting for a handler to complete when maxConcurrency handlers are running (default waits indefinitely and runs handlers on the thread of the container)</li>
+	 * </ul>
+	 */
+	@Override
+	public void setConnectionString(String connectionString) {
+		this.m_connectionString = connectionString;
+	}
+
+	/**
+	 * Gets the connection string
+	 */
+	@Override
+	public String getConnectionString() {
+		return this.m_connectionString;
+	}
+
+	/**
+	 * Open the connector
+	 */
+	@Override
+	public void open() {
+		
+		if(this.m_formatter == null)
+			throw new ConnectorException("This connection requires a formatter");
+		else if(this.isOpen())
+			return;
+		
+		// Get parameters
+		HashMap<String, List<String>> parameters = ConnectorUtil.parseConnectionString(this.m_connectionString == null ? "" : this.m_connectionString);
+		int queueSize = DEFAULT_QUEUE_SIZE;
+		try
+		{
+			if(parameters.get("maxconcurrency") != null)
+				this.m_maxConcurrency = Integer.parseInt(parameters.get("maxconcurrency").get(0));
+			if(parameters.get("queuesize") != null)
+				queueSize = Integer.parseInt(parameters.get("queuesize").get(0));
+			if(parameters.get("timeout") != null)
+				this.m_timeout = TimeUnit.SECONDS.toMillis(Long.parseLong(parameters.get("timeout").get(0)));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("maxConcurrency, queueSize and timeout parameters must be integers", e);
+		}
+		if(this.m_maxConcurrency < 1 || queueSize < 1 || this.m_timeout < 0)
+			throw new ConnectorException("maxConcurrency and queueSize must be positive and timeout must not be negative");
+		
+		// Resize the receive queue keeping anything not yet received
+		if(this.m_receiveQueue.remainingCapacity() + this.m_receiveQueue.size() != queueSize)
+		{
+			BlockingQueue<IReceiveResult> queue = new LinkedBlockingQueue<IReceiveResult>(queueSize);
+			this.m_receiveQueue.drainTo(queue);
+			this.m_receiveQueue = queue;
+		}
+		
+		// The permits bound the number of workers, so handlers are never queued for a worker
+		final int connectorId = s_connectorCount.incrementAndGet();
+		this.m_permits = new Semaphore(this.m_maxConcurrency);
+		this.m_executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			// The number of threads created
+			private final AtomicInteger m_threadCount = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("SpringServerConnector-%d-%d", connectorId, this.m_threadCount.incrementAndGet()));
+				retVal.setDaemon(true);
+				return retVal;
+			}
+		});
+	}
+
+	/**
+	 * Close the connector, interactions which have already been dispatched are allowed to complete
+	 */
+	@Override
+	public void close() {
+		if(this.isOpen())
+		{
+			this.m_executor.shutdown();
+			this.m_executor = null;
+		}
+	}
+
+	/**
+	 * True when the connection is open
+	 */
+	@Override
+	public boolean isOpen() {
+		return this.m_executor != null;
+	}
+
+	/**
+	 * Get the formatter
+	 */
+	@Override
+	public IStructureFormatter getFormatter() {
+		return this.m_formatter;
+	}
+
+	/**
+	 * Set the formatter
+	 */
+	@Override
+	public void setFormatter(IStructureFormatter fmtr) {
+		if(!(fmtr instanceof IXmlStructureFormatter))
+			throw new IllegalArgumentException("fmtr must be of IXmlStructureFormatter");
+		this.m_formatter = (IXmlStructureFormatter)fmtr;
+	}
+
+}
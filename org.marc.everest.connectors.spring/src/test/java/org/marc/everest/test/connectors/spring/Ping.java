@@ -0,0 +1,55 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors.spring;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.annotations.Structure;
+import org.marc.everest.annotations.StructureType;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * A message sent to the stub services used to test the connectors
+ */
+@Structure(name = "Ping", structureType = StructureType.MESSAGETYPE, isEntryPoint = true)
+public class Ping implements IGraphable {
+
+	// Backing field for id
+	private II m_id;
+	
+	/**
+	 * Creates a new ping
+	 */
+	public Ping() { }
+	
+	/**
+	 * Creates a new ping with the specified identifier
+	 */
+	public Ping(II id) { this.m_id = id; }
+	
+	/**
+	 * Gets the identifier of the ping
+	 */
+	@Property(name = "id", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 1)
+	public II getId() { return this.m_id; }
+	/**
+	 * Sets the identifier of the ping
+	 */
+	public void setId(II value) { this.m_id = value; }
+}
@@ -0,0 +1,163 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.connectors.spring.SpringClientConnector;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.ws.client.core.WebServiceTemplate;
+import org.springframework.ws.transport.WebServiceMessageSender;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class SpringClientConnectorTest {
+
+	// The stub server which echoes each SOAP envelope it receives
+	private HttpServer m_server;
+	// The content encodings of the requests received by the stub server
+	private final List<String> m_requestEncodings = new CopyOnWriteArrayList<String>();
+	// The application context holding the template bean
+	private StaticApplicationContext m_context;
+	// The template bean shared by the connectors
+	private WebServiceTemplate m_template;
+	
+	/**
+	 * Start the stub server and create the template bean which sends to it
+	 */
+	@Before
+	public void setUp() throws IOException {
+		this.m_server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.m_server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+				m_requestEncodings.add(String.valueOf(encoding));
+				InputStream request = exchange.getRequestBody();
+				if("gzip".equals(encoding))
+					request = new GZIPInputStream(request);
+				ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+				byte[] buffer = new byte[1024];
+				int br;
+				while((br = request.read(buffer)) != -1)
+					envelope.write(buffer, 0, br);
+				
+				// Echo the envelope, compressed when the client accepts it
+				boolean compress = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+				exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+				if(compress)
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, 0);
+				OutputStream response = exchange.getResponseBody();
+				if(compress)
+					response = new GZIPOutputStream(response);
+				response.write(envelope.toByteArray());
+				response.close();
+			}
+		});
+		this.m_server.start();
+		
+		this.m_template = new WebServiceTemplate();
+		this.m_template.setDefaultUri(String.format("http://localhost:%s/ping", this.m_server.getAddress().getPort()));
+		this.m_context = new StaticApplicationContext();
+		this.m_context.getBeanFactory().registerSingleton("template", this.m_template);
+		this.m_context.refresh();
+	}
+	
+	/**
+	 * Stop the stub server
+	 */
+	@After
+	public void tearDown() {
+		this.m_context.close();
+		this.m_server.stop(0);
+	}
+	
+	/**
+	 * Create a connector which sends over a pooled, compressing message sender
+	 */
+	private SpringClientConnector createConnector()
+	{
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		formatter.getGraphAides().add(new DatatypeFormatter());
+		formatter.addCachedClass(Ping.class);
+		SpringClientConnector retVal = new SpringClientConnector(this.m_context, "templateBeanName=template;maxConnections=4;gzip=true");
+		retVal.setFormatter(formatter);
+		return retVal;
+	}
+	
+	/**
+	 * Send a ping over the connector and verify the echoed ping is received
+	 */
+	private static void assertPing(SpringClientConnector connector, String extension)
+	{
+		ISendResult sendResult = connector.send(new Ping(new II("1.2.3", extension)));
+		Assert.assertNotSame(ResultCodeType.Error, sendResult.getCode());
+		IReceiveResult receiveResult = connector.receive(sendResult);
+		Assert.assertNotNull(receiveResult);
+		Assert.assertTrue(receiveResult.getStructure() instanceof Ping);
+		Assert.assertEquals(extension, ((Ping)receiveResult.getStructure()).getId().getExtension());
+	}
+	
+	/**
+	 * Connectors send compressed requests over their own pooled sender and leave the shared template bean as configured
+	 */
+	@Test
+	public void PooledSenderIsOwnedByConnectorTest() throws Exception {
+		WebServiceMessageSender[] beanSenders = this.m_template.getMessageSenders();
+		SpringClientConnector first = this.createConnector(), 
+				second = this.createConnector();
+		first.open();
+		second.open();
+		
+		Assert.assertArrayEquals(beanSenders, this.m_template.getMessageSenders());
+		Assert.assertNull(this.m_template.getMarshaller());
+		Assert.assertNull(this.m_template.getUnmarshaller());
+		
+		assertPing(first, "1");
+		assertPing(second, "2");
+		Assert.assertEquals(2, this.m_requestEncodings.size());
+		for(String encoding : this.m_requestEncodings)
+			Assert.assertEquals("gzip", encoding);
+		
+		// Closing one connector closes only its own connections
+		first.close();
+		Thread.sleep(100);
+		assertPing(second, "3");
+		second.close();
+		
+		Assert.assertArrayEquals(beanSenders, this.m_template.getMessageSenders());
+	}
+}
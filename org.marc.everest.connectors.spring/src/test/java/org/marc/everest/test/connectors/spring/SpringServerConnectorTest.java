@@ -0,0 +1,193 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors.spring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.spring.IInteractionHandler;
+import org.marc.everest.connectors.spring.SpringServerConnector;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.IGraphable;
+import org.springframework.ws.WebServiceMessage;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.server.EndpointAdapter;
+import org.springframework.ws.server.EndpointExceptionResolver;
+import org.springframework.ws.server.EndpointInvocationChain;
+import org.springframework.ws.server.EndpointMapping;
+import org.springframework.ws.server.MessageDispatcher;
+import org.springframework.ws.server.endpoint.adapter.MessageEndpointAdapter;
+import org.springframework.ws.soap.saaj.SaajSoapMessageFactory;
+import org.springframework.ws.soap.server.endpoint.SimpleSoapExceptionResolver;
+import org.springframework.ws.test.server.MockWebServiceClient;
+import org.springframework.ws.test.server.RequestCreators;
+import org.springframework.ws.test.server.ResponseMatcher;
+import org.springframework.ws.test.server.ResponseMatchers;
+import org.springframework.xml.transform.StringSource;
+
+public class SpringServerConnectorTest {
+
+	// The ping sent to the connector
+	private static final String PING_REQUEST = "<Ping xmlns=\"urn:hl7-org:v3\"><id root=\"1.2.3\" extension=\"1\"/></Ping>";
+	
+	// The connector under test
+	private SpringServerConnector m_connector;
+	// The client which dispatches requests to the connector
+	private MockWebServiceClient m_client;
+	
+	/**
+	 * Create the connector and a message dispatcher which routes every request to it
+	 */
+	@Before
+	public void setUp() {
+		this.m_connector = new SpringServerConnector("maxConcurrency=1;timeout=1");
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		formatter.getGraphAides().add(new DatatypeFormatter());
+		formatter.addCachedClass(Ping.class);
+		this.m_connector.setFormatter(formatter);
+		
+		MessageDispatcher dispatcher = new MessageDispatcher();
+		dispatcher.setEndpointMappings(Collections.<EndpointMapping>singletonList(new EndpointMapping() {
+			@Override
+			public EndpointInvocationChain getEndpoint(MessageContext messageContext) {
+				return new EndpointInvocationChain(m_connector);
+			}
+		}));
+		dispatcher.setEndpointAdapters(Collections.<EndpointAdapter>singletonList(new MessageEndpointAdapter()));
+		dispatcher.setEndpointExceptionResolvers(Collections.<EndpointExceptionResolver>singletonList(new SimpleSoapExceptionResolver()));
+		SaajSoapMessageFactory messageFactory = new SaajSoapMessageFactory();
+		messageFactory.afterPropertiesSet();
+		this.m_client = MockWebServiceClient.createClient(dispatcher, messageFactory);
+	}
+	
+	/**
+	 * Close the connector
+	 */
+	@After
+	public void tearDown() {
+		this.m_connector.close();
+	}
+	
+	/**
+	 * Matches a response whose payload is a ping with the specified extension
+	 */
+	private ResponseMatcher pingResponse(final String extension)
+	{
+		return new ResponseMatcher() {
+			@Override
+			public void match(WebServiceMessage request, WebServiceMessage response) throws IOException, AssertionError {
+				ByteArrayOutputStream payload = new ByteArrayOutputStream();
+				try
+				{
+					TransformerFactory.newInstance().newTransformer().transform(response.getPayloadSource(), new StreamResult(payload));
+				}
+				catch(TransformerException e)
+				{
+					throw new IOException(e.getMessage());
+				}
+				IFormatterParseResult result = m_connector.getFormatter().parse(new ByteArrayInputStream(payload.toByteArray()));
+				Assert.assertTrue(result.getStructure() instanceof Ping);
+				Assert.assertEquals(extension, ((Ping)result.getStructure()).getId().getExtension());
+			}
+		};
+	}
+	
+	/**
+	 * A request is dispatched to the handler registered for it and the response graphed to the payload
+	 */
+	@Test
+	public void HandlerRespondsTest() {
+		this.m_connector.registerHandler("Ping", new IInteractionHandler() {
+			@Override
+			public IGraphable handleInteraction(IReceiveResult request) {
+				return new Ping(new II("1.2.3", ((Ping)request.getStructure()).getId().getExtension() + "-reply"));
+			}
+		});
+		this.m_connector.open();
+		
+		this.m_client.sendRequest(RequestCreators.withPayload(new StringSource(PING_REQUEST)))
+			.andExpect(ResponseMatchers.noFault())
+			.andExpect(this.pingResponse("1-reply"));
+	}
+	
+	/**
+	 * A request with no handler is queued for receive
+	 */
+	@Test
+	public void UnhandledInteractionIsReceivedTest() {
+		this.m_connector.open();
+		
+		this.m_client.sendRequest(RequestCreators.withPayload(new StringSource(PING_REQUEST)))
+			.andExpect(ResponseMatchers.noFault());
+		
+		Assert.assertTrue(this.m_connector.hasData());
+		IReceiveResult result = this.m_connector.receive();
+		Assert.assertTrue(result.getStructure() instanceof Ping);
+		Assert.assertEquals("1", ((Ping)result.getStructure()).getId().getExtension());
+	}
+	
+	/**
+	 * A request is answered with a fault once the handler exceeds the timeout, and further requests 
+	 * are faulted rather than queued while the handler is still running
+	 */
+	@Test
+	public void TimeoutFaultTest() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1), 
+				done = new CountDownLatch(1);
+		this.m_connector.registerHandler("Ping", new IInteractionHandler() {
+			@Override
+			public IGraphable handleInteraction(IReceiveResult request) {
+				// Ignore the cancellation so the handler keeps the only permit
+				boolean waiting = true;
+				while(waiting)
+				{
+					try
+					{
+						release.await();
+						waiting = false;
+					}
+					catch(InterruptedException e) { }
+				}
+				done.countDown();
+				return null;
+			}
+		});
+		this.m_connector.open();
+		
+		this.m_client.sendRequest(RequestCreators.withPayload(new StringSource(PING_REQUEST)))
+			.andExpect(ResponseMatchers.serverOrReceiverFault());
+		this.m_client.sendRequest(RequestCreators.withPayload(new StringSource(PING_REQUEST)))
+			.andExpect(ResponseMatchers.serverOrReceiverFault());
+		
+		release.countDown();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -75,6 +75,10 @@ public class DatatypeFormatter implements IXmlStructureFormatter,
 	private R1FormatterCompatibilityMode m_compatibilityMode = R1FormatterCompatibilityMode.Universal;
 	// Backing field for validate conformance
 	private boolean m_validateConformance = true;
+	// Backing field for raw narrative
+	private boolean m_rawNarrative = false;
+	// Backing field for intern values
+	private boolean m_internValues = false;
 	// Namespace declaration for HL7
 	public static final String NS_HL7 = "urn:hl7-org:v3";
 	// Namespace declaration for XSI
@@ -293,6 +297,38 @@ public class DatatypeFormatter implements IXmlStructureFormatter,
 		this.m_validateConformance = value;
 	}
 
+	/**
+	 * Gets a value which indicates whether SD narrative is kept as raw XML when parsing
+	 */
+	public boolean getRawNarrative() {
+		return this.m_rawNarrative;
+	}
+
+	/**
+	 * Sets a value which indicates whether SD narrative is kept as raw XML when parsing. 
+	 * When set, the narrative is written back as it was read and the node tree is only 
+	 * built if the content of the SD is inspected
+	 */
+	public void setRawNarrative(boolean value) {
+		this.m_rawNarrative = value;
+	}
+
+	/**
+	 * Gets a value which indicates whether parsed BL and CS values are replaced by shared instances
+	 */
+	public boolean getInternValues() {
+		return this.m_internValues;
+	}
+
+	/**
+	 * Sets a value which indicates whether parsed BL and CS values are replaced by shared instances. 
+	 * When set, a BL carrying only its value and a CS carrying only an enumerated code are parsed 
+	 * as the frozen instance returned by intern(), so they must be copied before they are modified
+	 */
+	public void setInternValues(boolean value) {
+		this.m_internValues = value;
+	}
+
 	/**
 	 * Graphs a datatype instance o onto xw using the specified context 
 	 */
@@ -350,6 +386,8 @@ public class DatatypeFormatter implements IXmlStructureFormatter,
 
         // Set host for parse
         DatatypeFormatterParseResult result = new DatatypeFormatterParseResult(this.getCompatibilityMode(), this.getValidateConformance());
+        result.setRawNarrative(this.m_rawNarrative);
+        result.setInternValues(this.m_internValues);
         
 
         // Don't check for XSI type if the type is a GTS or iterable
@@ -43,6 +43,12 @@ public class DatatypeFormatterParseResult implements IFormatterParseResult {
 	// Backing field for validate conformance
 	private boolean m_validateConformance = true;
 	
+	// Backing field for raw narrative
+	private boolean m_rawNarrative = false;
+	
+	// Backing field for intern values
+	private boolean m_internValues = false;
+	
 	// Backing field for the structure
 	private IGraphable m_structure;
 	
@@ -61,6 +67,26 @@ public class DatatypeFormatterParseResult implements IFormatterParseResult {
 	 */
 	public R1FormatterCompatibilityMode getCompatibilityMode() { return this.m_hostCompatibilityMode; }
 
+	/**
+	 * Gets a value indicating whether SD narrative is kept as raw XML rather than parsed into nodes
+	 */
+	public boolean getRawNarrative() { return this.m_rawNarrative; }
+
+	/**
+	 * Sets a value indicating whether SD narrative is kept as raw XML
+	 */
+	void setRawNarrative(boolean value) { this.m_rawNarrative = value; }
+
+	/**
+	 * Gets a value indicating whether parsed BL and CS values are replaced by shared frozen instances
+	 */
+	public boolean getInternValues() { return this.m_internValues; }
+
+	/**
+	 * Sets a value indicating whether parsed BL and CS values are replaced by shared frozen instances
+	 */
+	void setInternValues(boolean value) { this.m_internValues = value; }
+
 	/**
 	 * Package scoped constructor
 	 */
@@ -92,7 +92,7 @@ public class ANYFormatter implements IDatatypeFormatter {
 			}
 				
 			// validate flavor
-			if(instance.getFlavorId() != null && result.getValidateConformance() && !FormatterUtil.validateFlavor(instance.getFlavorId().toUpperCase(), instance))
+			if(instance.getFlavorId() != null && result.getValidateConformance() && !FormatterUtil.validateFlavor(instance.getFlavorId(), instance))
 			{
 				result.addResultDetail(new DatatypeFlavorValidationResultDetail(ResultDetailType.WARNING, instance.getClass().getName(), instance.getFlavorId(), s.toString()));
 				if(result.getCode().equals(ResultCodeType.Accepted))
@@ -157,7 +157,7 @@ public class ANYFormatter implements IDatatypeFormatter {
         // Disabled for test
         // Validate flavor... 
         IResultDetail[] flavor;
-        if (instance.getFlavorId() != null && result.getValidateConformance() && FormatterUtil.validateFlavor(instance.getFlavorId().toUpperCase(), instance) == false)
+        if (instance.getFlavorId() != null && result.getValidateConformance() && FormatterUtil.validateFlavor(instance.getFlavorId(), instance) == false)
             result.addResultDetail(new DatatypeFlavorValidationResultDetail(ResultDetailType.WARNING, instance.getClass().getName(), instance.getFlavorId(), s.toString()));
 
         return instance;
@@ -226,7 +226,7 @@ public class ANYFormatter implements IDatatypeFormatter {
         	 }
 
          // Validate flavor... 
-         if (instance.getFlavorId() != null && result.getValidateConformance() && FormatterUtil.validateFlavor(instance.getFlavorId().toUpperCase(), instance) == false)
+         if (instance.getFlavorId() != null && result.getValidateConformance() && FormatterUtil.validateFlavor(instance.getFlavorId(), instance) == false)
              result.addResultDetail(new DatatypeFlavorValidationResultDetail(ResultDetailType.WARNING, instance.getClass().getName(), instance.getFlavorId(), path));
 		
 	}
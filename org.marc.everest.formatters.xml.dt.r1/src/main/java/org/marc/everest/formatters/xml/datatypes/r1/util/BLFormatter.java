@@ -79,6 +79,8 @@ public class BLFormatter extends ANYFormatter {
 		
 		// validate
 		super.validate(retVal, s.toString(), result);
+		if(result.getInternValues())
+			return retVal.intern();
 		return retVal;
 	}
 
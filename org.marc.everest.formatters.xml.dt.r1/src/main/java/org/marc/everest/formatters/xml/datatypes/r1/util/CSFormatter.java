@@ -74,6 +74,8 @@ public class CSFormatter extends ANYFormatter {
 		
 		CS<?> retVal = this.parseCodifiedValue(s, context, result, CS.class);
 		super.validate(retVal, s.toString(), result);
+		if(result.getInternValues())
+			return retVal.intern(); // share the frozen instance when only an enumerated code is present
 		return retVal;
 	}
 
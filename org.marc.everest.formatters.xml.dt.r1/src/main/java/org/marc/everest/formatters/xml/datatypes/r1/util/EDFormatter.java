@@ -20,6 +20,10 @@
 package org.marc.everest.formatters.xml.datatypes.r1.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -38,6 +42,9 @@ import org.marc.everest.datatypes.EncapsulatedDataCompression;
 import org.marc.everest.datatypes.EncapsulatedDataIntegrityAlgorithm;
 import org.marc.everest.datatypes.EncapsulatedDataRepresentation;
 import org.marc.everest.datatypes.TEL;
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+import org.marc.everest.datatypes.payload.PayloadBuffer;
+import org.marc.everest.datatypes.payload.PayloadUtil;
 import org.marc.everest.exceptions.FormatterException;
 import org.marc.everest.exceptions.MessageValidationException;
 import org.marc.everest.formatters.FormatterElementContext;
@@ -58,6 +65,141 @@ import org.marc.everest.xml.XMLStateStreamWriter;
  */
 public class EDFormatter extends ANYFormatter {
 
+	/**
+	 * The number of bytes encoded per write when graphing base64 data. Must be a multiple of
+	 * three so that each chunk encodes without padding
+	 */
+	private static final int BASE64_CHUNK_BYTES = 3 * 4096;
+	/**
+	 * The number of characters decoded at a time when parsing base64 data. Must be a multiple
+	 * of four so that each chunk decodes on a quantum boundary
+	 */
+	private static final int BASE64_CHUNK_CHARS = 4 * 4096;
+
+	/**
+	 * Decodes base64 content as it is read from the stream into a payload buffer
+	 */
+	private static class Base64StreamDecoder {
+
+		// Base64 characters waiting to be decoded
+		private final char[] m_pending = new char[BASE64_CHUNK_CHARS];
+		// The number of pending characters
+		private int m_count;
+		// The buffer holding the decoded payload
+		private final PayloadBuffer m_buffer = new PayloadBuffer();
+
+		/**
+		 * Append base64 text to the decoder ignoring whitespace
+		 */
+		public void append(String text) throws IOException
+		{
+			for(int i = 0; i < text.length(); i++)
+			{
+				char c = text.charAt(i);
+				if(Character.isWhitespace(c))
+					continue;
+				this.m_pending[this.m_count++] = c;
+				if(this.m_count == this.m_pending.length)
+					this.decodePending();
+			}
+		}
+
+		/**
+		 * Decode the pending characters into the buffer
+		 */
+		private void decodePending() throws IOException
+		{
+			if(this.m_count > 0)
+				this.m_buffer.write(DatatypeConverter.parseBase64Binary(new String(this.m_pending, 0, this.m_count)));
+			this.m_count = 0;
+		}
+
+		/**
+		 * Returns true if any content was appended
+		 */
+		public boolean hasContent()
+		{
+			return this.m_count > 0 || this.m_buffer.getLength() > 0;
+		}
+
+		/**
+		 * Complete decoding and get the decoded payload
+		 */
+		public IPayloadSource toPayloadSource() throws IOException
+		{
+			this.decodePending();
+			return this.m_buffer.toPayloadSource();
+		}
+
+		/**
+		 * Discard the decoded content
+		 */
+		public void discard()
+		{
+			this.m_buffer.discard();
+		}
+	}
+
+	/**
+	 * Write the data of the ED as base64 in fixed size chunks
+	 */
+	private void writeBase64(XMLStreamWriter s, ED instance) throws IOException, XMLStreamException
+	{
+		InputStream data = instance.openData();
+		try
+		{
+			byte[] buffer = new byte[BASE64_CHUNK_BYTES];
+			int read;
+			do
+			{
+				read = PayloadUtil.fill(data, buffer);
+				if(read == buffer.length)
+					s.writeCharacters(DatatypeConverter.printBase64Binary(buffer));
+				else if(read > 0)
+					s.writeCharacters(DatatypeConverter.printBase64Binary(Arrays.copyOf(buffer, read)));
+			} while(read == buffer.length);
+		}
+		finally
+		{
+			data.close();
+		}
+	}
+
+	/**
+	 * Write the UTF-8 data of a payload source as text in fixed size chunks
+	 */
+	private void writeText(XMLStreamWriter s, ED instance) throws IOException, XMLStreamException
+	{
+		Reader data = new InputStreamReader(instance.openData(), Charset.forName("UTF8"));
+		try
+		{
+			char[] buffer = new char[PayloadUtil.CHUNK_SIZE];
+			int offset = 0, read;
+			while((read = data.read(buffer, offset, buffer.length - offset)) >= 0)
+			{
+				int length = offset + read;
+				// Hold back a high surrogate so that a surrogate pair is not split between writes
+				if(length > 0 && Character.isHighSurrogate(buffer[length - 1]))
+				{
+					s.writeCharacters(buffer, 0, length - 1);
+					buffer[0] = buffer[length - 1];
+					offset = 1;
+				}
+				else
+				{
+					s.writeCharacters(buffer, 0, length);
+					offset = 0;
+				}
+			}
+			if(offset > 0)
+				s.writeCharacters(buffer, 0, offset);
+		}
+		finally
+		{
+			data.close();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.marc.everest.formatters.xml.datatypes.r1.util.ANYFormatter#graph(javax.xml.stream.XMLStreamWriter, java.lang.Object, org.marc.everest.formatters.FormatterElementContext, org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatterGraphResult)
 	 */
@@ -108,10 +250,12 @@ public class EDFormatter extends ANYFormatter {
 				result.addResultDetail(new UnsupportedDatatypeR1PropertyResultDetail(ResultDetailType.WARNING, "ED", "translation", s.toString()));
 			
 			// Encoding 
-			if(instance.getData() != null && instance.getData().length > 0)
+			if(instance.hasData() && instance.getDataLength() != 0)
 			{
 				if(instance.getRepresentation() == EncapsulatedDataRepresentation.Base64 || instance.getCompression() != null)
-					s.writeCharacters(DatatypeConverter.printBase64Binary(instance.getData()));
+					this.writeBase64(s, instance);
+				else if(instance.getRepresentation() == EncapsulatedDataRepresentation.Text && instance.getPayload() != null)
+					this.writeText(s, instance);
 				else if(instance.getRepresentation() == EncapsulatedDataRepresentation.Text)
 					s.writeCharacters(new String(instance.getData(), Charset.forName("UTF8")));
 				else 
@@ -127,6 +271,8 @@ public class EDFormatter extends ANYFormatter {
 			}
 		} catch (XMLStreamException e) {
 			throw new FormatterException("Can't graph ED instance");
+		} catch (IOException e) {
+			throw new FormatterException("Can't read the data of the ED instance", e);
 		}
 		
 	}
@@ -157,8 +303,9 @@ public class EDFormatter extends ANYFormatter {
         	retVal.setIntegrityCheckAlgorithm(FormatterUtil.fromWireFormat(s.getAttributeValue(null, "integrityCheckAlgorithm"), EncapsulatedDataIntegrityAlgorithm.class));
         if (s.getAttributeValue(null,"integrityCheck") != null)
             retVal.setIntegrityCheck(DatatypeConverter.parseBase64Binary(s.getAttributeValue(null,"integrityCheck")));
-        // Process elements
+        // Process elements, base64 content is decoded as it is read
         StringBuilder innerContent = new StringBuilder();
+        Base64StreamDecoder base64Content = retVal.getRepresentation() == EncapsulatedDataRepresentation.Base64 ? new Base64StreamDecoder() : null;
 		if(!s.isEndElement())
 		{
 			try
@@ -170,7 +317,9 @@ public class EDFormatter extends ANYFormatter {
 				{
 					if(s.getEventType() == XMLStreamReader.CHARACTERS || s.getEventType() == XMLStreamReader.CDATA)
 					{
-						if(s.getEventType() == XMLStreamReader.CDATA || !s.getText().trim().isEmpty())
+						if(base64Content != null)
+							base64Content.append(s.getText());
+						else if(s.getEventType() == XMLStreamReader.CDATA || !s.getText().trim().isEmpty())
 							innerContent.append(s.getText());
 						s.next();
 					}
@@ -210,18 +359,38 @@ public class EDFormatter extends ANYFormatter {
 			}
 			catch(XMLStreamException e)
 			{
+				if(base64Content != null)
+					base64Content.discard();
 				throw new FormatterException("Could not parse ED type", e);
 			}
+			catch(IOException e)
+			{
+				base64Content.discard();
+				throw new FormatterException("Could not buffer ED data", e);
+			}
 		}
 		
 		// Set inner content?
 		if(innerContent.length() > 0)
 		{
-			if(retVal.getRepresentation() == EncapsulatedDataRepresentation.Base64)
-				retVal.setData(DatatypeConverter.parseBase64Binary(innerContent.toString()));
-			else
-				retVal.setData(innerContent.toString());
+			if(base64Content != null)
+				base64Content.discard();
+			retVal.setData(innerContent.toString());
+		}
+		else if(base64Content != null && base64Content.hasContent())
+		{
+			try
+			{
+				retVal.setPayload(base64Content.toPayloadSource());
+			}
+			catch(IOException e)
+			{
+				base64Content.discard();
+				throw new FormatterException("Could not buffer ED data", e);
+			}
 		}
+		else if(base64Content != null)
+			base64Content.discard();
 		
 		// Validate integrity check
 		try {
@@ -19,8 +19,17 @@
  */
 package org.marc.everest.formatters.xml.datatypes.r1.util;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Stack;
 
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -43,6 +52,11 @@ import org.marc.everest.formatters.xml.datatypes.r1.IDatatypeFormatter;
  */
 public class SDFormatter extends ANYFormatter implements IDatatypeFormatter {
 
+	// Factory used to read raw content
+	private static final XMLInputFactory s_inputFactory = XMLInputFactory.newInstance();
+	// Factory used to capture raw content
+	private static final XMLOutputFactory s_outputFactory = XMLOutputFactory.newInstance();
+
 	/**
 	 * Graph this instance
 	 */
@@ -67,7 +81,11 @@ public class SDFormatter extends ANYFormatter implements IDatatypeFormatter {
 			if(instance_sd.getId() != null)
 				s.writeAttribute("ID", instance_sd.getId());
 			
-			if(instance_sd.getContent() != null)
+			// Read once, another thread may read the raw content into nodes meanwhile
+			String rawContent = instance_sd.getRawContent();
+			if(rawContent != null)
+				writeRawContent(s, rawContent);
+			else if(instance_sd.getContent() != null)
 				for(StructDocNode nd : instance_sd.getContent())
 					nd.writeXml(s);
 		} catch (XMLStreamException e) {
@@ -96,7 +114,15 @@ public class SDFormatter extends ANYFormatter implements IDatatypeFormatter {
 		if(s.getAttributeValue(null, "ID") != null)
 			retVal.setId(s.getAttributeValue(null, "ID"));
 		
-		if(!s.isEndElement())
+		if(!s.isEndElement() && result.getRawNarrative())
+		{
+			try {
+				retVal.setRawContent(readRawContent(s));
+			} catch (XMLStreamException e) {
+				throw new FormatterException("Could not read SD content", e);
+			}
+		}
+		else if(!s.isEndElement())
 		{
 			StructDocElementNode tNode = new StructDocElementNode();
 			tNode.readXml(s);
@@ -110,6 +136,202 @@ public class SDFormatter extends ANYFormatter implements IDatatypeFormatter {
 		return retVal;
 	}
 
+	/**
+	 * Copy the content of the current element to a standalone XML fragment without 
+	 * creating nodes. The content is wrapped in an element with the same name as the 
+	 * current element which declares every namespace binding the content uses from 
+	 * outside of it, and the reader is left on the end of the current element. Returns 
+	 * null if the element contains only whitespace
+	 */
+	private static String readRawContent(XMLStreamReader s) throws XMLStreamException
+	{
+		String wrapperPrefix = s.getPrefix() == null ? "" : s.getPrefix(),
+				wrapperNs = s.getNamespaceURI() == null ? "" : s.getNamespaceURI(),
+				wrapperName = s.getLocalName();
+		
+		// Bindings used by the content but declared outside of it
+		Map<String, String> outerBindings = new LinkedHashMap<String, String>();
+		outerBindings.put(wrapperPrefix, wrapperNs);
+		// Prefixes declared within the content and where the declarations of each open element start
+		List<String> innerPrefixes = new ArrayList<String>();
+		Stack<Integer> innerMarks = new Stack<Integer>();
+		
+		StringWriter content = new StringWriter();
+		XMLStreamWriter xw = s_outputFactory.createXMLStreamWriter(content);
+		boolean hasContent = false;
+		int depth = 0;
+		while(!(s.next() == XMLStreamReader.END_ELEMENT && depth == 0))
+		{
+			switch(s.getEventType())
+			{
+				case XMLStreamReader.START_ELEMENT:
+					depth++;
+					hasContent = true;
+					innerMarks.push(innerPrefixes.size());
+					for(int i = 0; i < s.getNamespaceCount(); i++)
+						innerPrefixes.add(s.getNamespacePrefix(i) == null ? "" : s.getNamespacePrefix(i));
+					addOuterBinding(s, s.getPrefix(), innerPrefixes, outerBindings);
+					
+					xw.writeStartElement(s.getPrefix() == null ? "" : s.getPrefix(), s.getLocalName(), s.getNamespaceURI() == null ? "" : s.getNamespaceURI());
+					for(int i = 0; i < s.getNamespaceCount(); i++)
+						if(s.getNamespacePrefix(i) == null || s.getNamespacePrefix(i).length() == 0)
+							xw.writeDefaultNamespace(s.getNamespaceURI(i) == null ? "" : s.getNamespaceURI(i));
+						else
+							xw.writeNamespace(s.getNamespacePrefix(i), s.getNamespaceURI(i));
+					for(int i = 0; i < s.getAttributeCount(); i++)
+						if(s.getAttributeNamespace(i) == null || s.getAttributeNamespace(i).length() == 0)
+							xw.writeAttribute(s.getAttributeLocalName(i), s.getAttributeValue(i));
+						else
+						{
+							addOuterBinding(s, s.getAttributePrefix(i), innerPrefixes, outerBindings);
+							xw.writeAttribute(s.getAttributePrefix(i), s.getAttributeNamespace(i), s.getAttributeLocalName(i), s.getAttributeValue(i));
+						}
+					break;
+				case XMLStreamReader.END_ELEMENT:
+					depth--;
+					innerPrefixes.subList(innerMarks.pop(), innerPrefixes.size()).clear();
+					xw.writeEndElement();
+					break;
+				case XMLStreamReader.CDATA:
+					hasContent = true;
+					xw.writeCData(s.getText());
+					break;
+				case XMLStreamReader.CHARACTERS:
+				case XMLStreamReader.SPACE:
+					hasContent |= !s.isWhiteSpace();
+					xw.writeCharacters(s.getTextCharacters(), s.getTextStart(), s.getTextLength());
+					break;
+				case XMLStreamReader.COMMENT:
+					hasContent = true;
+					xw.writeComment(s.getText());
+					break;
+			}
+		}
+		xw.close();
+		if(!hasContent)
+			return null;
+		
+		// Wrap the content in an element declaring the outer bindings
+		StringWriter sw = new StringWriter();
+		XMLStreamWriter ww = s_outputFactory.createXMLStreamWriter(sw);
+		ww.writeStartElement(wrapperPrefix, wrapperName, wrapperNs);
+		for(Map.Entry<String, String> binding : outerBindings.entrySet())
+			if(binding.getKey().length() == 0)
+				ww.writeDefaultNamespace(binding.getValue());
+			else
+				ww.writeNamespace(binding.getKey(), binding.getValue());
+		ww.writeCharacters("");
+		ww.flush();
+		sw.write(content.toString());
+		ww.writeEndElement();
+		ww.close();
+		return sw.toString();
+	}
+	
+	/**
+	 * Record the binding of a prefix used by raw content when the binding is declared outside 
+	 * of the content
+	 */
+	private static void addOuterBinding(XMLStreamReader s, String prefix, List<String> innerPrefixes, Map<String, String> outerBindings)
+	{
+		if(prefix == null)
+			prefix = "";
+		if(XMLConstants.XML_NS_PREFIX.equals(prefix) || innerPrefixes.contains(prefix) || outerBindings.containsKey(prefix))
+			return;
+		String namespaceUri = s.getNamespaceContext().getNamespaceURI(prefix);
+		if(namespaceUri != null)
+			outerBindings.put(prefix, namespaceUri);
+	}
+	
+	/**
+	 * Write raw content captured by {@link #readRawContent(XMLStreamReader)} to the writer without 
+	 * creating nodes. Elements in the namespace of the wrapper are written the same way 
+	 * as element nodes, elements in other namespaces keep their prefix and declare it 
+	 * with the start tag
+	 */
+	private static void writeRawContent(XMLStreamWriter s, String rawContent) throws XMLStreamException
+	{
+		XMLStreamReader xr = s_inputFactory.createXMLStreamReader(new StringReader(rawContent));
+		xr.nextTag();
+		String wrapperNs = xr.getNamespaceURI() == null ? "" : xr.getNamespaceURI();
+		
+		// Bindings declared while writing and where the bindings of each open element start
+		List<String[]> bindings = new ArrayList<String[]>();
+		Stack<Integer> marks = new Stack<Integer>();
+		
+		int depth = 0;
+		while(!(xr.next() == XMLStreamReader.END_ELEMENT && depth == 0))
+		{
+			switch(xr.getEventType())
+			{
+				case XMLStreamReader.START_ELEMENT:
+					depth++;
+					marks.push(bindings.size());
+					String prefix = xr.getPrefix() == null ? "" : xr.getPrefix(),
+						namespaceUri = xr.getNamespaceURI() == null ? "" : xr.getNamespaceURI();
+					if(wrapperNs.equals(namespaceUri) && getBinding(bindings, "") == null)
+						s.writeStartElement(namespaceUri, xr.getLocalName());
+					else
+					{
+						s.writeStartElement(prefix, xr.getLocalName(), namespaceUri);
+						declareBinding(s, prefix, namespaceUri, bindings);
+					}
+					for(int i = 0; i < xr.getAttributeCount(); i++)
+						if(xr.getAttributeNamespace(i) == null || xr.getAttributeNamespace(i).length() == 0)
+							s.writeAttribute(xr.getAttributeLocalName(i), xr.getAttributeValue(i));
+						else
+						{
+							if(!XMLConstants.XML_NS_PREFIX.equals(xr.getAttributePrefix(i)))
+								declareBinding(s, xr.getAttributePrefix(i), xr.getAttributeNamespace(i), bindings);
+							s.writeAttribute(xr.getAttributePrefix(i), xr.getAttributeNamespace(i), xr.getAttributeLocalName(i), xr.getAttributeValue(i));
+						}
+					break;
+				case XMLStreamReader.END_ELEMENT:
+					depth--;
+					bindings.subList(marks.pop(), bindings.size()).clear();
+					s.writeEndElement();
+					break;
+				case XMLStreamReader.CDATA:
+					s.writeCData(xr.getText());
+					break;
+				case XMLStreamReader.CHARACTERS:
+				case XMLStreamReader.SPACE:
+					s.writeCharacters(xr.getTextCharacters(), xr.getTextStart(), xr.getTextLength());
+					break;
+				case XMLStreamReader.COMMENT:
+					s.writeComment(xr.getText());
+					break;
+			}
+		}
+		xr.close();
+	}
+	
+	/**
+	 * Get the namespace a prefix was bound to while writing raw content, null if it was not bound
+	 */
+	private static String getBinding(List<String[]> bindings, String prefix)
+	{
+		for(int i = bindings.size() - 1; i >= 0; i--)
+			if(bindings.get(i)[0].equals(prefix))
+				return bindings.get(i)[1];
+		return null;
+	}
+	
+	/**
+	 * Declare a binding on the element being written unless an enclosing element of the 
+	 * raw content already declared it
+	 */
+	private static void declareBinding(XMLStreamWriter s, String prefix, String namespaceUri, List<String[]> bindings) throws XMLStreamException
+	{
+		if(namespaceUri.equals(getBinding(bindings, prefix)))
+			return;
+		bindings.add(new String[] { prefix, namespaceUri });
+		if(prefix.length() == 0)
+			s.writeDefaultNamespace(namespaceUri);
+		else
+			s.writeNamespace(prefix, namespaceUri);
+	}
+
 	/**
 	 * Get the type this formatter handles
 	 */
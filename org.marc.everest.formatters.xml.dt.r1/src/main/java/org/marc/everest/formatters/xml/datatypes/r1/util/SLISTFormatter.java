@@ -0,0 +1,315 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.formatters.xml.datatypes.r1.util;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.generic.SLIST;
+import org.marc.everest.datatypes.interfaces.IQuantity;
+import org.marc.everest.exceptions.FormatterException;
+import org.marc.everest.exceptions.MessageValidationException;
+import org.marc.everest.formatters.FormatterElementContext;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatterGraphResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatterParseResult;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.NotImplementedElementResultDetail;
+import org.marc.everest.resultdetails.ResultDetail;
+
+/**
+ * Represents a formatter that can graph and parse SLIST instances. The digits are
+ * written from and read into the digit array of the SLIST directly without creating 
+ * an INT per sample
+ */
+public class SLISTFormatter extends ANYFormatter {
+
+	// Number of characters buffered before digits are written
+	private static final int DIGIT_BUFFER_SIZE = 4096;
+	
+	/**
+	 * Tokenizes space separated digits as they are read, tokens may span 
+	 * character events
+	 */
+	private static class DigitTokenizer {
+		
+		// The list receiving the digits
+		private final SLIST<?> m_target;
+		// The value of the current token
+		private long m_value;
+		// True if the current token is negative
+		private boolean m_negative;
+		// True if a sign or digit of a token has been read
+		private boolean m_inToken;
+		// True if the current token has at least one digit
+		private boolean m_hasDigits;
+		// True if the current token is invalid
+		private boolean m_invalid;
+		// Number of invalid tokens
+		private int m_invalidCount;
+		
+		/**
+		 * Creates a new tokenizer appending to the specified list
+		 */
+		DigitTokenizer(SLIST<?> target)
+		{
+			this.m_target = target;
+		}
+		
+		/**
+		 * Read length characters from text starting at start
+		 */
+		void read(char[] text, int start, int length)
+		{
+			for(int i = start; i < start + length; i++)
+			{
+				char c = text[i];
+				if(c >= '0' && c <= '9')
+				{
+					this.m_value = this.m_value * 10 + (c - '0');
+					this.m_invalid |= this.m_value > (long)Integer.MAX_VALUE + 1;
+					this.m_hasDigits = this.m_inToken = true;
+				}
+				else if(c == ' ' || c == '\t' || c == '\r' || c == '\n')
+					this.end();
+				else if((c == '-' || c == '+') && !this.m_inToken)
+				{
+					this.m_negative = c == '-';
+					this.m_inToken = true;
+				}
+				else
+					this.m_invalid = this.m_inToken = true;
+			}
+		}
+		
+		/**
+		 * End the current token
+		 */
+		void end()
+		{
+			if(!this.m_inToken)
+				return;
+			long value = this.m_negative ? -this.m_value : this.m_value;
+			if(this.m_invalid || !this.m_hasDigits || value > Integer.MAX_VALUE)
+				this.m_invalidCount++;
+			else
+				this.m_target.addDigit((int)value);
+			this.m_value = 0;
+			this.m_negative = this.m_inToken = this.m_hasDigits = this.m_invalid = false;
+		}
+		
+		/**
+		 * Gets the number of tokens which were not valid digits
+		 */
+		int getInvalidCount()
+		{
+			return this.m_invalidCount;
+		}
+	}
+	
+	/**
+	 * Graph the SLIST instance
+	 */
+	@Override
+	public void graph(XMLStreamWriter s, Object o,
+			FormatterElementContext context, DatatypeFormatterGraphResult result) {
+		
+		super.graph(s, o, context, result);
+		SLIST<?> instance = (SLIST<?>)o;
+		if(instance.isNull())
+			return;
+		
+		try
+		{
+			if(instance.getOrigin() != null)
+				this.writeElementUtil(s, "origin", instance.getOrigin(), context, result);
+			if(instance.getScale() != null)
+				this.writeElementUtil(s, "scale", instance.getScale(), context, result);
+			
+			s.writeStartElement(DatatypeFormatter.NS_HL7, "digits");
+			char[] buffer = new char[DIGIT_BUFFER_SIZE];
+			int length = 0;
+			for(int i = 0; i < instance.size(); i++)
+			{
+				if(length > DIGIT_BUFFER_SIZE - 12) // room for a separator, sign and ten digits
+				{
+					s.writeCharacters(buffer, 0, length);
+					length = 0;
+				}
+				if(i > 0)
+					buffer[length++] = ' ';
+				length = appendDigit(buffer, length, instance.getDigit(i));
+			}
+			if(length > 0)
+				s.writeCharacters(buffer, 0, length);
+			s.writeEndElement();
+		}
+		catch(XMLStreamException e)
+		{
+			throw new FormatterException("Could not graph SLIST type", e);
+		}
+	}
+
+	/**
+	 * Write the digit to the buffer at the specified position returning the new length
+	 */
+	private static int appendDigit(char[] buffer, int position, int digit)
+	{
+		long value = digit;
+		if(value < 0)
+		{
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int end = position;
+		long scan = value;
+		do
+		{
+			end++;
+			scan /= 10;
+		} while(scan > 0);
+		for(int i = end - 1; i >= position; i--)
+		{
+			buffer[i] = (char)('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+	
+	/**
+	 * Write the element to the wire
+	 */
+	private void writeElementUtil(XMLStreamWriter s, String elementName, IQuantity value, FormatterElementContext context, DatatypeFormatterGraphResult result) throws XMLStreamException
+	{
+		s.writeStartElement(DatatypeFormatter.NS_HL7, elementName);
+		IFormatterGraphResult hostResult = this.getHost().graph(s, value, context.findChildContextFromName(elementName, PropertyType.STRUCTURAL, SLIST.class));
+		result.addResultDetail(hostResult.getDetails());
+		s.writeEndElement();
+	}
+	
+	/**
+	 * Parse an SLIST instance
+	 */
+	@Override
+	public Object parse(XMLStreamReader s, FormatterElementContext context,
+			DatatypeFormatterParseResult result) {
+		
+		SLIST<?> retVal = super.parse(s, context, result, SLIST.class);
+		
+		if(!s.isEndElement())
+		{
+			try
+			{
+				String sName = s.getLocalName();
+				DatatypeFormatter.nextElementEvent(s);
+				while(!(s.getEventType() == XMLStreamReader.END_ELEMENT && s.getLocalName().equals(sName)))
+				{
+					String oldName = s.getLocalName();
+					try
+					{
+						if(s.getEventType() == XMLStreamReader.END_ELEMENT) continue;
+						
+						if(s.getLocalName().equals("origin"))
+							retVal.setOrigin(this.parseElementUtil(s, "origin", context, result));
+						else if(s.getLocalName().equals("scale"))
+							retVal.setScale(this.parseElementUtil(s, "scale", context, result));
+						else if(s.getLocalName().equals("digits"))
+						{
+							String location = s.toString();
+							DigitTokenizer tokenizer = new DigitTokenizer(retVal);
+							while(s.next() != XMLStreamReader.END_ELEMENT)
+								if(s.isCharacters())
+									tokenizer.read(s.getTextCharacters(), s.getTextStart(), s.getTextLength());
+							tokenizer.end();
+							if(tokenizer.getInvalidCount() > 0)
+								result.addResultDetail(new ResultDetail(ResultDetailType.ERROR, String.format("%s value(s) in digits are not valid integers and have been ignored", tokenizer.getInvalidCount()), location, null));
+						}
+						else
+							result.addResultDetail(new NotImplementedElementResultDetail(ResultDetailType.WARNING, s.getLocalName(), s.getNamespaceURI(), s.toString(), null));
+					}
+					catch(MessageValidationException e)
+					{
+						result.addResultDetail(new ResultDetail(ResultDetailType.ERROR, e.getMessage(), s.toString(), e));
+					}
+					finally
+					{
+						if(oldName.equals(s.getLocalName())) DatatypeFormatter.nextElementEvent(s);
+					}
+				}
+			}
+			catch(XMLStreamException e)
+			{
+				throw new FormatterException("Could not parse SLIST type", e);
+			}
+		}
+		
+		super.validate(retVal, s.toString(), result);
+		return retVal;
+	}
+	
+	/**
+	 * Parse the origin or scale element. The origin takes the type bound to the SLIST 
+	 * and both default to PQ (as in SLIST_PQ) when no type is known
+	 */
+	private IQuantity parseElementUtil(XMLStreamReader s, String elementName, FormatterElementContext context, DatatypeFormatterParseResult result)
+	{
+		FormatterElementContext childContext = context.findChildContextFromName(elementName, PropertyType.STRUCTURAL, SLIST.class);
+		Type elementType = PQ.class;
+		if(elementName.equals("origin"))
+		{
+			Type boundType = context.getActualTypeArgument(SLIST.class.getTypeParameters()[0]);
+			if(boundType instanceof Class<?> && !boundType.equals(Object.class) || boundType instanceof ParameterizedType)
+				elementType = boundType;
+		}
+		childContext.setOwnerType(elementType);
+		IFormatterParseResult hostResult = this.getHost().parse(s, childContext);
+		result.addResultDetail(hostResult.getDetails());
+		return (IQuantity)hostResult.getStructure();
+	}
+
+	/**
+	 * Get the type this formatter handles
+	 */
+	@Override
+	public String getHandlesType() {
+		return "SLIST";
+	}
+
+	/**
+	 * Get supported properties
+	 */
+	@Override
+	public List<String> getSupportedProperties() {
+		List<String> retVal = super.getSupportedProperties();
+		retVal.addAll(Arrays.asList(new String[] {
+				"origin",
+				"scale",
+				"digit"
+		}));
+		return retVal;
+	}
+}
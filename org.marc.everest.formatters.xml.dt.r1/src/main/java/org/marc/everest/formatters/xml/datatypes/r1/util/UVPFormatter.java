@@ -126,8 +126,10 @@ public class UVPFormatter extends ANYFormatter {
 			// Move null flavors from value to the root
 			retVal.setNullFlavor(valueValue.getNullFlavor());
 			retVal.setFlavorId(valueValue.getFlavorId());
-			valueValue.setNullFlavor((NullFlavor)null);
-			valueValue.setFlavorId(null);
+			if(valueValue.getNullFlavor() != null)
+				valueValue.setNullFlavor((NullFlavor)null);
+			if(valueValue.getFlavorId() != null)
+				valueValue.setFlavorId(null);
 			
 			// Validate
 			super.validate(retVal, s.toString(), result);
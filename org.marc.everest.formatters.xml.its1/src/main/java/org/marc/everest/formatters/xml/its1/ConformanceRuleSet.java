@@ -0,0 +1,220 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.formatters.xml.its1;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Properties;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.formatters.FormatterUtil;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IImplementsNullFlavor;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.InsufficientRepetitionsResultDetail;
+import org.marc.everest.resultdetails.MandatoryElementMissingResultDetail;
+import org.marc.everest.resultdetails.RequiredElementMissingResultDetail;
+
+/**
+ * The conformance rules of a structure compiled from the annotations of its build properties.
+ * <p>Rules are compiled once per class and are aligned with the build properties of the class 
+ * so they can be evaluated against property values as the formatter reads them. Checking 
+ * a conformant value allocates nothing, result details are only created for violations.</p>
+ */
+final class ConformanceRuleSet {
+
+	/**
+	 * A compiled conformance rule for one property
+	 */
+	static final class Rule {
+		
+		// The getter of the property
+		private final Method m_getter;
+		// The name of the property
+		private final String m_name;
+		// The name of the class which owns the property
+		private final String m_ownerName;
+		// True if the property must be set to a non-null value
+		private final boolean m_mandatory;
+		// True if the property must be populated
+		private final boolean m_populated;
+		// True if the number of repetitions of the property is constrained
+		private final boolean m_constrainsRepetitions;
+		// The minimum and maximum repetitions
+		private final int m_minOccurs, m_maxOccurs;
+		
+		/**
+		 * Compile a rule for the specified getter
+		 */
+		Rule(Class<?> owner, Method getter, Property pa)
+		{
+			Class<?> returnType = getter.getReturnType();
+			this.m_getter = getter;
+			this.m_name = pa.name();
+			this.m_ownerName = owner.getName();
+			this.m_mandatory = pa.conformance() == ConformanceType.MANDATORY && FormatterUtil.hasInterface(returnType, IImplementsNullFlavor.class);
+			this.m_populated = pa.conformance() == ConformanceType.POPULATED;
+			this.m_constrainsRepetitions = pa.minOccurs() != 0 && FormatterUtil.hasInterface(returnType, Collection.class);
+			this.m_minOccurs = pa.minOccurs();
+			this.m_maxOccurs = pa.maxOccurs() < 0 ? Integer.MAX_VALUE : pa.maxOccurs();
+		}
+		
+		/**
+		 * Gets the getter of the property the rule applies to
+		 */
+		Method getGetter() { return this.m_getter; }
+		
+		/**
+		 * Returns true if the rule can be violated by some value
+		 */
+		boolean isEffective() { return this.m_mandatory || this.m_populated || this.m_constrainsRepetitions; }
+		
+		/**
+		 * Returns true if the value conforms to the rule
+		 */
+		boolean conforms(Object value)
+		{
+			if(this.m_mandatory && (value == null || ((IImplementsNullFlavor)value).getNullFlavor() != null))
+				return false;
+			else if(this.m_populated && value == null)
+				return false;
+			else if(this.m_constrainsRepetitions)
+			{
+				int size = value == null ? 0 : ((Collection<?>)value).size();
+				return size >= this.m_minOccurs && size <= this.m_maxOccurs;
+			}
+			return true;
+		}
+		
+		/**
+		 * Create the result detail describing why the value does not conform
+		 * @param isValid False if the owner has already violated a rule
+		 * @param createRequiredElements True if the formatter creates missing required elements
+		 */
+		IResultDetail createDetail(Object value, boolean isValid, boolean createRequiredElements, String location)
+		{
+			if(this.m_mandatory && (value == null || ((IImplementsNullFlavor)value).getNullFlavor() != null))
+				return new MandatoryElementMissingResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s is marked mandatory and is either not assigned, or is assigned a null flavor. This is not permitted.", this.m_name, this.m_ownerName), location, null);
+			else if(this.m_populated && value == null)
+				return new RequiredElementMissingResultDetail(isValid && createRequiredElements ? ResultDetailType.WARNING : ResultDetailType.ERROR, String.format("Property %s in %s is marked 'populated' and isn't assigned (you must at minimum, assign a nullFlavor for this attribute)!", this.m_name, this.m_ownerName), location, null);
+			int size = value == null ? 0 : ((Collection<?>)value).size();
+			return new InsufficientRepetitionsResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s does not have enough elements in the list, have %d elements, need between %d and %s elements!", this.m_name, this.m_ownerName, size, this.m_minOccurs, this.m_maxOccurs == Integer.MAX_VALUE ? "infinite" : String.valueOf(this.m_maxOccurs)), location, null);
+		}
+	}
+	
+	// The rules aligned with the build properties, null where a property has no effective rule
+	private final Rule[] m_rules;
+	// The build properties
+	private final Method[] m_getters;
+	// The wire names of the build properties
+	private final String[] m_names;
+	// True where the build property can return part of the graph
+	private final boolean[] m_canReturnGraph;
+	// True if no property has an effective rule
+	private final boolean m_isEmpty;
+	// The getNullFlavor method of classes which don't implement IImplementsNullFlavor
+	private final Method m_nullFlavorGetter;
+	
+	/**
+	 * Compile the rules of the specified type from its build properties
+	 */
+	ConformanceRuleSet(Class<?> type, List<Method> buildProperties)
+	{
+		this.m_rules = new Rule[buildProperties.size()];
+		this.m_getters = buildProperties.toArray(new Method[this.m_rules.length]);
+		this.m_names = new String[this.m_rules.length];
+		this.m_canReturnGraph = new boolean[this.m_rules.length];
+		boolean isEmpty = true;
+		for(int i = 0; i < this.m_rules.length; i++)
+		{
+			Method getter = this.m_getters[i];
+			Class<?> returnType = getter.getReturnType();
+			this.m_canReturnGraph[i] = returnType.isInterface() || returnType.equals(Object.class) || 
+					IGraphable.class.isAssignableFrom(returnType) || Iterable.class.isAssignableFrom(returnType);
+			Property pa = getter.getAnnotation(Property.class);
+			if(pa == null && getter.getAnnotation(Properties.class) != null)
+				pa = getter.getAnnotation(Properties.class).value()[0];
+			if(pa == null)
+				continue;
+			this.m_names[i] = pa.propertyType() == PropertyType.STRUCTURAL ? "@" + pa.name() : pa.name();
+			Rule rule = new Rule(type, getter, pa);
+			if(rule.isEffective())
+			{
+				this.m_rules[i] = rule;
+				isEmpty = false;
+			}
+		}
+		this.m_isEmpty = isEmpty;
+		
+		Method nullFlavorGetter = null;
+		if(!IImplementsNullFlavor.class.isAssignableFrom(type))
+			try {
+				nullFlavorGetter = type.getMethod("getNullFlavor");
+			} catch (NoSuchMethodException e) {
+			}
+		this.m_nullFlavorGetter = nullFlavorGetter;
+	}
+	
+	/**
+	 * Gets the rule for the build property at the specified index or null if there is none
+	 */
+	Rule getRule(int index) { return this.m_rules[index]; }
+	
+	/**
+	 * Gets the build property at the specified index
+	 */
+	Method getGetter(int index) { return this.m_getters[index]; }
+	
+	/**
+	 * Gets the wire name of the build property at the specified index (prefixed with @ for attributes)
+	 */
+	String getName(int index) { return this.m_names[index]; }
+	
+	/**
+	 * Returns true if the build property at the specified index can return part of the graph
+	 */
+	boolean canReturnGraph(int index) { return this.m_canReturnGraph[index]; }
+	
+	/**
+	 * Gets the number of build properties covered by the rule set
+	 */
+	int size() { return this.m_rules.length; }
+	
+	/**
+	 * Returns true if there are no rules to evaluate
+	 */
+	boolean isEmpty() { return this.m_isEmpty; }
+	
+	/**
+	 * Returns true if the instance carries a null flavor (null instances are not validated)
+	 */
+	boolean isNull(Object instance)
+	{
+		if(instance instanceof IImplementsNullFlavor)
+			return ((IImplementsNullFlavor)instance).getNullFlavor() != null;
+		else if(this.m_nullFlavorGetter != null)
+			try {
+				return this.m_nullFlavorGetter.invoke(instance) != null;
+			} catch (Exception e) {
+			}
+		return false;
+	}
+}
@@ -26,9 +26,13 @@ import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.stream.XMLStreamException;
@@ -48,20 +52,21 @@ import org.marc.everest.datatypes.interfaces.IAny;
 import org.marc.everest.datatypes.interfaces.ICodedSimple;
 import org.marc.everest.datatypes.interfaces.ICodedValue;
 import org.marc.everest.datatypes.interfaces.ICollection;
+import org.marc.everest.datatypes.interfaces.IListContainer;
 import org.marc.everest.exceptions.FormatterException;
 import org.marc.everest.formatters.FormatterElementContext;
 import org.marc.everest.formatters.FormatterUtil;
+import org.marc.everest.interfaces.IChangeTracking;
 import org.marc.everest.interfaces.IGraphable;
 import org.marc.everest.interfaces.IImplementsNullFlavor;
 import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
 import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.DatatypeFlavorValidationResultDetail;
 import org.marc.everest.resultdetails.FixedValueMisMatchedResultDetail;
-import org.marc.everest.resultdetails.InsufficientRepetitionsResultDetail;
-import org.marc.everest.resultdetails.MandatoryElementMissingResultDetail;
 import org.marc.everest.resultdetails.NotImplementedElementResultDetail;
 import org.marc.everest.resultdetails.NotImplementedResultDetail;
 import org.marc.everest.resultdetails.NotSupportedChoiceResultDetail;
-import org.marc.everest.resultdetails.RequiredElementMissingResultDetail;
 import org.marc.everest.resultdetails.ResultDetail;
 import org.marc.everest.xml.XMLStateStreamWriter;
 
@@ -75,6 +80,8 @@ public class ReflectionFormatter {
 	private XmlIts1Formatter m_host;
 	// Cached build properties for each type encountered
 	private HashMap<Class<?>, List<Method>> m_cachedBuildProperties = new HashMap<Class<?>, List<Method>>();
+	// Compiled conformance rules for each type encountered
+	private HashMap<Class<?>, ConformanceRuleSet> m_cachedConformanceRules = new HashMap<Class<?>, ConformanceRuleSet>();
 	
 	/**
 	 * Gets the host of the formatter
@@ -90,70 +97,176 @@ public class ReflectionFormatter {
 	 */
 	public Collection<IResultDetail> validate(IGraphable o, FormatterElementContext context, String locationPath)
 	{
-		List<IResultDetail> dtls = new ArrayList<IResultDetail>(10);
-        boolean isValid = true;
-
         // Null return bool
         if (o == null)
             return null;
-
-        Method nullFlavorAttrib = null;
-		try {
-			nullFlavorAttrib = o.getClass().getMethod("getNullFlavor");
-			if (nullFlavorAttrib != null && nullFlavorAttrib.invoke(o) != null)
-	            return null;
-		} catch (Exception e) {
-		}
         
+        List<IResultDetail> dtls = this.validateInternal(o, locationPath);
+        if(dtls == null)
+        	return Collections.emptyList();
+        return dtls;
+	}
+	
+	/**
+	 * Validate the instance o adding any validation errors to the parse result
+	 */
+	void validate(IGraphable o, String locationPath, XmlIts1FormatterParseResult resultContext)
+	{
+		if(o != null)
+			resultContext.addResultDetail(this.validateInternal(o, locationPath));
+	}
+	
+	/**
+	 * Evaluate the compiled conformance rules of o, returning null when o conforms
+	 */
+	private List<IResultDetail> validateInternal(IGraphable o, String locationPath)
+	{
+		ConformanceRuleSet rules = this.getConformanceRules(o.getClass());
+		if(rules.isEmpty() || rules.isNull(o))
+			return null;
 
-        // Scan property info for violations
-        List<Method> methods = this.getBuildProperties(o.getClass());
-        for(Method prop : methods)
-        {
-
-            Object propertyValue = null;
+		List<IResultDetail> dtls = null;
+		boolean isValid = true,
+				createRequiredElements = this.getHost().getCreateRequiredElements(),
+				failFast = this.getHost().getFailFast();
+		
+		for(int i = 0; i < rules.size(); i++)
+		{
+			ConformanceRuleSet.Rule rule = rules.getRule(i);
+			if(rule == null)
+				continue;
+			
+			Object propertyValue = null;
 			try {
-				propertyValue = prop.invoke(o);
+				propertyValue = rule.getGetter().invoke(o);
 			} catch (Exception e) {
+				if(dtls == null)
+					dtls = new ArrayList<IResultDetail>();
 				dtls.add(new ResultDetail(ResultDetailType.ERROR, e.getMessage(), locationPath, e));
-			} 
-        	FormatterElementContext currentContext = new FormatterElementContext(propertyValue, prop, context);
-            
-        	// Get get the first one
-        	if(currentContext.getPropertiesAnnotation() != null)
-        		currentContext.setPropertyAnnotation(currentContext.getPropertiesAnnotation().value()[0]);
-        	
-        	// Shortcut vars
-        	Property pa = currentContext.getPropertyAnnotation();
-        	Class<?> actualReturnType = FormatterUtil.getClassForType(prop.getReturnType(), currentContext);
-        	
-            if (pa.conformance().equals(ConformanceType.MANDATORY) &&
-                FormatterUtil.hasInterface(actualReturnType, IImplementsNullFlavor.class) &&
-                (propertyValue == null || ((IImplementsNullFlavor)propertyValue).getNullFlavor() != null))
-            {
-                isValid = false;
-                dtls.add(new MandatoryElementMissingResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s is marked mandatory and is either not assigned, or is assigned a null flavor. This is not permitted.", pa.name(), o.getClass().getName()), locationPath, null));
-            }
-            else if (pa.conformance() == ConformanceType.POPULATED && propertyValue == null)
-            {
-                isValid &= this.getHost().getCreateRequiredElements();
-                dtls.add(new RequiredElementMissingResultDetail(isValid ? ResultDetailType.WARNING : ResultDetailType.ERROR, String.format("Property %s in %s is marked 'populated' and isn't assigned (you must at minimum, assign a nullFlavor for this attribute)!", pa.name(), o.getClass().getName()), locationPath, null));
-            }
-            else if (pa.minOccurs() != 0 && FormatterUtil.hasInterface(actualReturnType, Collection.class))
-            {
-                Integer minOccurs = pa.minOccurs(), 
-                    maxOccurs = pa.maxOccurs() < 0 ? Integer.MAX_VALUE : pa.maxOccurs();
-                
-                Collection<?> piCollection = (Collection<?>)propertyValue;
-                if(piCollection.size() > maxOccurs || piCollection.size() < minOccurs)
-                { 
-                    isValid = false; 
-                    dtls.add(new InsufficientRepetitionsResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s does not have enough elements in the list, have %d elements, need between %d and %s elements!", pa.name(), o.getClass().getName(), piCollection.size(), minOccurs, maxOccurs == Integer.MAX_VALUE ? "infinite" : maxOccurs.toString()), locationPath, null));
-                }
-            }
-        }
-
-        return dtls;
+			}
+			
+			if(!rule.conforms(propertyValue))
+			{
+				IResultDetail dtl = rule.createDetail(propertyValue, isValid, createRequiredElements, locationPath);
+				isValid &= dtl.getType() != ResultDetailType.ERROR;
+				if(dtls == null)
+					dtls = new ArrayList<IResultDetail>();
+				dtls.add(dtl);
+				if(failFast && !isValid)
+					break;
+			}
+		}
+		
+		return dtls;
+	}
+	
+	/**
+	 * Validate the node and its descendants, re-checking only the nodes for which the cache
+	 * holds no current result. The details of the node are added to details ahead of those
+	 * of its descendants
+	 * @return True if the node was re-checked
+	 */
+	boolean validate(Object node, String locationPath, ValidationCache cache, List<IResultDetail> details)
+	{
+		ValidationCache.Entry entry = cache.getCurrent(node);
+		if(entry != null) // shared node that has already been visited in this pass
+			return entry.rechecked;
+		cache.put(node, new ValidationCache.Entry(null, -1, -1, null, true));
+		
+		ValidationCache.Entry previous = cache.getPrevious(node);
+		int size = node instanceof Collection<?> ? ((Collection<?>)node).size() : -1,
+				mark = details.size();
+		long stamp = node instanceof IChangeTracking ? ((IChangeTracking)node).getModificationStamp() : -1;
+		boolean recheck = previous == null || previous.size != size || previous.stamp != stamp;
+		// A node which does not track changes is unchanged while its items and property values are the same instances
+		List<Object> values = node instanceof IChangeTracking ? null : new ArrayList<Object>();
+		
+		// Visit the descendants first as a re-checked descendant requires its ancestors to be re-checked
+		if(node instanceof Iterable<?>)
+			for(Object item : (Iterable<?>)node)
+			{
+				if(values != null)
+					values.add(item);
+				if(item instanceof IGraphable || item instanceof Iterable<?>)
+					recheck |= this.validate(item, locationPath, cache, details);
+			}
+		if(node instanceof IListContainer)
+			for(IGraphable item : ((IListContainer)node).getContainedList())
+			{
+				if(values != null)
+					values.add(item);
+				if(item != null)
+					recheck |= this.validate(item, locationPath, cache, details);
+			}
+		
+		ConformanceRuleSet rules = null;
+		if(node instanceof IGraphable)
+		{
+			rules = this.getConformanceRules(node.getClass());
+			for(int i = 0; i < rules.size(); i++)
+			{
+				boolean isDescendant = rules.canReturnGraph(i) && rules.getName(i) != null;
+				if(!isDescendant && values == null)
+					continue;
+				Object value = null;
+				try {
+					value = rules.getGetter(i).invoke(node);
+				} catch (Exception e) {
+					details.add(new ResultDetail(ResultDetailType.ERROR, e.getMessage(), locationPath, e));
+				}
+				if(values != null)
+					values.add(value);
+				if(isDescendant && (value instanceof IGraphable || value instanceof Iterable<?>))
+					recheck |= this.validate(value, locationPath + "/" + rules.getName(i), cache, details);
+			}
+		}
+		if(values != null && !recheck)
+			recheck = !previous.isSameValues(values);
+		
+		// Check the node itself
+		List<IResultDetail> nodeDetails = null;
+		if(!recheck)
+			nodeDetails = previous.details;
+		else if(node instanceof ANY)
+		{
+			ANY instance = (ANY)node;
+			if(!instance.validate())
+			{
+				nodeDetails = new ArrayList<IResultDetail>();
+				for(IResultDetail dtl : instance.validateEx())
+				{
+					dtl.setLocation(locationPath);
+					nodeDetails.add(dtl);
+				}
+			}
+			if(instance.getFlavorId() != null && !FormatterUtil.validateFlavor(instance.getFlavorId(), instance))
+			{
+				if(nodeDetails == null)
+					nodeDetails = new ArrayList<IResultDetail>(1);
+				nodeDetails.add(new DatatypeFlavorValidationResultDetail(ResultDetailType.WARNING, instance.getClass().getName(), instance.getFlavorId(), locationPath));
+			}
+		}
+		else if(rules != null)
+			nodeDetails = this.validateInternal((IGraphable)node, locationPath);
+		
+		if(nodeDetails != null)
+			details.addAll(mark, nodeDetails);
+		cache.put(node, new ValidationCache.Entry(nodeDetails, size, stamp, values, recheck));
+		return recheck;
+	}
+	
+	/**
+	 * Gets the compiled conformance rules for the specified type
+	 */
+	private synchronized ConformanceRuleSet getConformanceRules(Class<?> instanceType)
+	{
+		ConformanceRuleSet retVal = this.m_cachedConformanceRules.get(instanceType);
+		if(retVal == null)
+		{
+			retVal = new ConformanceRuleSet(instanceType, this.getBuildProperties(instanceType));
+			this.m_cachedConformanceRules.put(instanceType, retVal);
+		}
+		return retVal;
 	}
 	
 	/**
@@ -216,25 +329,35 @@ public class ReflectionFormatter {
 				
 			}
 
-			// Validate
-			if(this.getHost().getValidateConformance())
-			{
-				Collection<IResultDetail> dtls = this.validate((IGraphable)o, context, xw.toString());
-				resultContext.addResultDetail(dtls);
-			}
-			
 			// Reflect the properties and ensure they are in the appropriate order
             List<Method> buildProperties = getBuildProperties(instanceType);
             
+            // Conformance rules are evaluated against the property values as they are graphed
+            ConformanceRuleSet rules = this.getConformanceRules(instanceType);
+            boolean validate = !rules.isEmpty() && !rules.isNull(o) && this.getHost().shouldValidate(resultContext.getDetailCode()),
+            		isValid = true,
+            		createRequiredElements = this.getHost().getCreateRequiredElements(),
+            		failFast = this.getHost().getFailFast();
+            
             // This is used because sometimes methods are already rendered
             // whenever they're overridden..
             List<String> alreadyRenderedMethods = new ArrayList<String>(); 
             
             // Now iterate through each of the properties and emit the property
-            for(Method prop : buildProperties)
+            for(int propertyIndex = 0; propertyIndex < buildProperties.size(); propertyIndex++)
             {
-            	
+            	Method prop = buildProperties.get(propertyIndex);
             	Object propertyValue =  prop.invoke(o); // get the value of the property
+            	
+            	// Validate the value
+            	ConformanceRuleSet.Rule rule = validate ? rules.getRule(propertyIndex) : null;
+            	if(rule != null && !rule.conforms(propertyValue))
+            	{
+            		IResultDetail dtl = rule.createDetail(propertyValue, isValid, createRequiredElements, xw.toString());
+            		isValid &= dtl.getType() != ResultDetailType.ERROR;
+            		resultContext.addResultDetail(dtl);
+            		validate = !(failFast && !isValid);
+            	}
             	FormatterElementContext currentContext = new FormatterElementContext(propertyValue, prop, context);
             	
             	// Choice
@@ -279,7 +402,7 @@ public class ReflectionFormatter {
             				type = prop.getReturnType();
                         propertyValue = type.newInstance();
                         if(propertyValue instanceof IImplementsNullFlavor)
-                        	((IImplementsNullFlavor)propertyValue).setNullFlavor(new CS<NullFlavor>(NullFlavor.NoInformation));
+                        	((IImplementsNullFlavor)propertyValue).setNullFlavor(CS.getSharedInstance(NullFlavor.NoInformation));
                     }
 
             	
@@ -308,13 +431,21 @@ public class ReflectionFormatter {
             			 // Impose flavors or code?
                         if (!currentContext.getPropertyAnnotation().imposeFlavorId().equals(Property.NULL) &&
                             propertyValue instanceof ANY)
+                        {
+                        	if(((ANY)propertyValue).isFrozen()) // shared instances are copied before imposing the flavor
+                        		propertyValue = ((ANY)propertyValue).shallowCopy();
                             ((ANY)propertyValue).setFlavorId(currentContext.getPropertyAnnotation().imposeFlavorId());
+                        }
                         if (!currentContext.getPropertyAnnotation().supplierDomain().equals(Property.NULL) &&
                             propertyValue instanceof ICodedValue &&
                             ((ICodedSimple)propertyValue).getCode() != null &&
                             ((ICodedValue)propertyValue).getCodeSystem() == null &&
                             !((IAny)propertyValue).isNull())
+                        {
+                        	if(((ANY)propertyValue).isFrozen()) // shared instances are copied before imposing the code system
+                        		propertyValue = ((ANY)propertyValue).shallowCopy();
                             ((ICodedValue)propertyValue).setCodeSystem(currentContext.getPropertyAnnotation().supplierDomain());
+                        }
             			
             			
             			// Graph
@@ -348,15 +479,25 @@ public class ReflectionFormatter {
             				if(!genType.equals(Object.class))
             					currentContext.setOwnerClazz(FormatterUtil.getClassForType(genType));
             				
-            				for(Object collValue : (Iterable<?>)propertyValue)
+            				if(propertyValue instanceof Collection<?> && this.getHost().shouldGraphParallel(xw, ((Collection<?>)propertyValue).size()))
             				{
             					if(genType == null) // HACK: Java erases generic and the property attribute didn't have any info
             					{
-            						genType = collValue.getClass();
+            						genType = ((Collection<?>)propertyValue).iterator().next().getClass();
             						currentContext.setOwnerClazz((Class<?>)genType);
             					}
-            					this.getHost().writeElementUtil(xw, currentContext.getPropertyAnnotation().name(), (IGraphable)collValue, genType, currentContext, resultContext);
+            					this.graphParallel(xw, currentContext.getPropertyAnnotation().name(), (Collection<?>)propertyValue, genType, currentContext, resultContext);
             				}
+            				else
+            					for(Object collValue : (Iterable<?>)propertyValue)
+            					{
+            						if(genType == null) // HACK: Java erases generic and the property attribute didn't have any info
+            						{
+            							genType = collValue.getClass();
+            							currentContext.setOwnerClazz((Class<?>)genType);
+            						}
+            						this.getHost().writeElementUtil(xw, currentContext.getPropertyAnnotation().name(), (IGraphable)collValue, genType, currentContext, resultContext);
+            					}
             			}
             			else
             			{
@@ -378,6 +519,58 @@ public class ReflectionFormatter {
 
 	}
 
+	/**
+	 * Graph the items of a collection concurrently on the graph executor of the host. Each item
+	 * is graphed into its own buffer and the buffers and result details are appended in order, so
+	 * the output is the same as graphing the items one after another.
+	 */
+	private void graphParallel(XMLStateStreamWriter xw, final String elementName, Collection<?> items, final Type itemType, final FormatterElementContext context, XmlIts1FormatterGraphResult resultContext) throws Exception
+	{
+		List<XMLStateStreamWriter> buffers = new ArrayList<XMLStateStreamWriter>(items.size());
+		List<Future<XmlIts1FormatterGraphResult>> results = new ArrayList<Future<XmlIts1FormatterGraphResult>>(items.size());
+		try
+		{
+			for(final Object item : items)
+			{
+				final XMLStateStreamWriter buffer = xw.createBuffer();
+				buffers.add(buffer);
+				results.add(this.getHost().getGraphExecutor().submit(new Callable<XmlIts1FormatterGraphResult>() {
+					@Override
+					public XmlIts1FormatterGraphResult call() throws Exception {
+						XmlIts1FormatterGraphResult itemResult = new XmlIts1FormatterGraphResult(ResultCodeType.Accepted, null);
+						getHost().writeElementUtil(buffer, elementName, (IGraphable)item, itemType, context, itemResult);
+						return itemResult;
+					}
+				}));
+			}
+			
+			// The buffers resolve prefixes through xw so nothing is appended until every item is graphed
+			List<XmlIts1FormatterGraphResult> itemResults = new ArrayList<XmlIts1FormatterGraphResult>(results.size());
+			for(Future<XmlIts1FormatterGraphResult> result : results)
+				try
+				{
+					itemResults.add(result.get());
+				}
+				catch(ExecutionException e)
+				{
+					if(e.getCause() instanceof Exception)
+						throw (Exception)e.getCause();
+					throw (Error)e.getCause();
+				}
+			
+			for(int i = 0; i < buffers.size(); i++)
+			{
+				xw.writeBuffer(buffers.get(i));
+				resultContext.addResultDetail(itemResults.get(i).getDetails());
+			}
+		}
+		finally
+		{
+			for(Future<XmlIts1FormatterGraphResult> result : results) // stop the remaining items when one fails
+				result.cancel(false);
+		}
+	}
+
 	/**
 	 * Determine if the specified method is already listed in the list of methods
 	 */
@@ -505,7 +698,7 @@ public class ReflectionFormatter {
 			{
 				Property propertyAnnotation = meth.getAnnotation(Property.class);
 				Properties propertiesAnnotation = meth.getAnnotation(Properties.class);
-				if(propertyAnnotation == null && propertiesAnnotation == null)
+				if((propertyAnnotation == null && propertiesAnnotation == null) || meth.isBridge())
 					continue; // No bother adding useless methods
 				else if(this.isOfPropertyType(meth, PropertyType.TRAVERSABLEASSOCIATION) && !this.isPropertyAlreadyNoted(meth, traversable))
 					traversable.add(0,meth);
@@ -671,8 +864,8 @@ public class ReflectionFormatter {
 							Object tValue = this.getHost().parseObjectInternal(xr, childContext, resultContext);
 							// Verify
 							if (!childContext.getPropertyAnnotation().fixedValue().equals(Property.NULL) && !childContext.getPropertyAnnotation().fixedValue().equals(FormatterUtil.toWireFormat(tValue)) && childContext.getPropertyAnnotation().propertyType() != PropertyType.TRAVERSABLEASSOCIATION)
-	                            resultContext.addResultDetail(new FixedValueMisMatchedResultDetail(FormatterUtil.toWireFormat(tValue), childContext.getPropertyAnnotation().fixedValue(), xr.toString()));
-	                        
+            	                resultContext.addResultDetail(new FixedValueMisMatchedResultDetail(FormatterUtil.toWireFormat(tValue), childContext.getPropertyAnnotation().fixedValue(), xr.toString()));
+            	            
 							// Invoke the setter
 							try {
 								if(!setterMethod.getParameterTypes()[0].isAssignableFrom(tValue.getClass()))
@@ -0,0 +1,143 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.formatters.xml.its1;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.marc.everest.interfaces.IResultDetail;
+
+/**
+ * Records the validation results of each node of a graph so that the graph can be
+ * revalidated incrementally with XmlIts1Formatter.validate(IGraphable, ValidationCache).
+ * <p>On revalidation a node is only re-checked when it is new, when its IChangeTracking 
+ * modification stamp differs from the one recorded, when a node which does not track changes 
+ * holds different instances as its items or property values, when the size of a collection 
+ * changed, or when one of its descendants was re-checked (so the cardinality and 
+ * mandatory constraints of the ancestors of a modified node are evaluated again). 
+ * The results of every other node are taken from the cache. Each pass retains only 
+ * the nodes that are still part of the graph.</p>
+ * <p>Validation does not modify the graph, so any number of caches can be used with the same 
+ * graph. A cache should be used with one graph and is not thread safe</p>
+ */
+public final class ValidationCache {
+
+	/**
+	 * The cached validation result of one node
+	 */
+	static final class Entry {
+		
+		// The result details of the node itself, null when the node conforms
+		final List<IResultDetail> details;
+		// The size of the node when it is a collection, otherwise -1
+		final int size;
+		// The modification stamp of the node when it tracks changes, otherwise -1
+		final long stamp;
+		// The items and property values of the node when it does not track changes, otherwise null
+		final Object[] values;
+		// True if the node was re-checked in the pass which created the entry
+		final boolean rechecked;
+		
+		/**
+		 * Creates a new cache entry
+		 */
+		Entry(List<IResultDetail> details, int size, long stamp, List<Object> values, boolean rechecked)
+		{
+			this.details = details;
+			this.size = size;
+			this.stamp = stamp;
+			this.values = values == null ? null : values.toArray();
+			this.rechecked = rechecked;
+		}
+		
+		/**
+		 * Returns true if the node held the same instances as its items and property values
+		 */
+		boolean isSameValues(List<Object> values)
+		{
+			if(this.values == null || this.values.length != values.size())
+				return false;
+			for(int i = 0; i < this.values.length; i++)
+				if(this.values[i] != values.get(i))
+					return false;
+			return true;
+		}
+	}
+	
+	// The entries from the last completed pass
+	private Map<Object, Entry> m_entries = new IdentityHashMap<Object, Entry>();
+	// The entries of the pass in progress
+	private Map<Object, Entry> m_currentPass;
+	
+	/**
+	 * Begin a validation pass
+	 */
+	void beginPass()
+	{
+		this.m_currentPass = new IdentityHashMap<Object, Entry>(Math.max(16, this.m_entries.size()));
+	}
+	
+	/**
+	 * Complete the validation pass, discarding entries of nodes which were not visited
+	 */
+	void endPass()
+	{
+		this.m_entries = this.m_currentPass;
+		this.m_currentPass = null;
+	}
+	
+	/**
+	 * Gets the entry of the node from the last pass
+	 */
+	Entry getPrevious(Object node)
+	{
+		return this.m_entries.get(node);
+	}
+	
+	/**
+	 * Gets the entry of the node if it has already been visited in this pass
+	 */
+	Entry getCurrent(Object node)
+	{
+		return this.m_currentPass.get(node);
+	}
+	
+	/**
+	 * Records the entry of the node in this pass
+	 */
+	void put(Object node, Entry entry)
+	{
+		this.m_currentPass.put(node, entry);
+	}
+	
+	/**
+	 * Gets the number of nodes in the cache
+	 */
+	public int size()
+	{
+		return this.m_entries.size();
+	}
+	
+	/**
+	 * Discard all cached results so the next pass validates every node
+	 */
+	public void clear()
+	{
+		this.m_entries.clear();
+	}
+}
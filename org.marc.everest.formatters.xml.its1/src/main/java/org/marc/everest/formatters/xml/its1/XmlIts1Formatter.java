@@ -18,8 +18,12 @@
  */
 package org.marc.everest.formatters.xml.its1;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -28,6 +32,10 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
@@ -36,6 +44,7 @@ import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.marc.everest.annotations.Interaction;
+import org.marc.everest.annotations.PropertyType;
 import org.marc.everest.annotations.Structure;
 import org.marc.everest.annotations.StructureType;
 import org.marc.everest.datatypes.ANY;
@@ -54,9 +63,12 @@ import org.marc.everest.interfaces.IGraphable;
 import org.marc.everest.interfaces.IResultDetail;
 import org.marc.everest.interfaces.ResultCodeType;
 import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.NotImplementedElementResultDetail;
 import org.marc.everest.resultdetails.NotSupportedChoiceResultDetail;
 import org.marc.everest.resultdetails.ResultDetail;
 import org.marc.everest.util.ClassEnumerator;
+import org.marc.everest.xml.XMLFragment;
+import org.marc.everest.xml.XMLFragmentScanner;
 import org.marc.everest.xml.XMLStateStreamReader;
 import org.marc.everest.xml.XMLStateStreamWriter;
 
@@ -68,6 +80,15 @@ import org.marc.everest.xml.XMLStateStreamWriter;
  */
 public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureFormatter, IValidatingStructureFormatter {
 
+	/**
+	 * The default number of items a collection must have before it is graphed in parallel
+	 */
+	public static final int DEFAULT_PARALLEL_GRAPH_THRESHOLD = 16;
+	/**
+	 * The default number of repetitions a batch document must have before it is parsed in parallel
+	 */
+	public static final int DEFAULT_PARALLEL_PARSE_THRESHOLD = 16;
+
 	// backing field for create required elements
 	private boolean m_createRequiredElements = false;
 	// set to true when the object's dispose method has been called
@@ -82,12 +103,22 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 	static final String NS_XSI = "http://www.w3.org/2001/XMLSchema-instance";
 	// Validate conformance
 	private boolean m_validateConformance = true;
+	// Stop validating at the first error
+	private boolean m_failFast = false;
 	// already loaded has maps
 	private Map<String, Class<?>> m_rootNameMaps = new HashMap<String, Class<?>>();
 	// Reflection formatter instance
 	private ReflectionFormatter m_reflectFormatter;
 	// Prefix
 	private String m_prefix = "hl7";
+	// Graphs the items of large collections in parallel, null when graphing sequentially
+	private ExecutorService m_graphExecutor;
+	// The number of items a collection must have before it is graphed in parallel
+	private int m_parallelGraphThreshold = DEFAULT_PARALLEL_GRAPH_THRESHOLD;
+	// Parses the repetitions of batch documents in parallel, null when parsing sequentially
+	private ExecutorService m_parseExecutor;
+	// The number of repetitions a batch document must have before it is parsed in parallel
+	private int m_parallelParseThreshold = DEFAULT_PARALLEL_PARSE_THRESHOLD;
 	
 	/**
 	 * Creates a new instance of the XML ITS 1 formatter
@@ -184,27 +215,9 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 				throw new FormatterException(String.format("Can't parse '%s' from namespace '%s'. The data does not appear to be HL7v3 data", xr.getName(), xr.getNamespaceURI()));
 			
 			// Mapped type
-			Class<?> mappedClass;
-			for(int i = 0; i < 2; i++)
-			{
-				mappedClass = m_rootNameMaps.get(xr.getLocalName());
-				if(mappedClass != null)
-					return this.parse(xr, new FormatterElementContext(mappedClass, null));
-				else if(i == 0) // first go-around build root maps
-				{
-					// Load all GPMR packages from the classpath
-					List<Class<?>> candidateClasses = ClassEnumerator.loadGpmrPackages();
-					for(Class<?> candidateClass : candidateClasses)
-					{
-						synchronized (m_rootNameMaps) {
-							Structure struct = candidateClass.getAnnotation(Structure.class);
-							if(struct != null && (struct.isEntryPoint() || struct.structureType().equals(StructureType.INTERACTION)) &&
-									xr.getLocalName().equals(struct.name()) && !m_rootNameMaps.containsKey(struct.name()))
-								m_rootNameMaps.put(struct.name(), candidateClass);
-						}
-					}
-				}
-			}
+			Class<?> mappedClass = this.getRootClass(xr.getLocalName());
+			if(mappedClass != null)
+				return this.parse(xr, new FormatterElementContext(mappedClass, null));
 
 			// Couldn't find a class
 			return new XmlIts1FormatterParseResult(
@@ -219,6 +232,34 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 		}
 	}
 
+	/**
+	 * Get the entry point or interaction class for the specified root element name, null if there is none
+	 */
+	private Class<?> getRootClass(String localName)
+	{
+		for(int i = 0; i < 2; i++)
+		{
+			Class<?> mappedClass = m_rootNameMaps.get(localName);
+			if(mappedClass != null)
+				return mappedClass;
+			else if(i == 0) // first go-around build root maps
+			{
+				// Load all GPMR packages from the classpath
+				List<Class<?>> candidateClasses = ClassEnumerator.loadGpmrPackages();
+				for(Class<?> candidateClass : candidateClasses)
+				{
+					synchronized (m_rootNameMaps) {
+						Structure struct = candidateClass.getAnnotation(Structure.class);
+						if(struct != null && (struct.isEntryPoint() || struct.structureType().equals(StructureType.INTERACTION)) &&
+								localName.equals(struct.name()) && !m_rootNameMaps.containsKey(struct.name()))
+							m_rootNameMaps.put(struct.name(), candidateClass);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Adds the specified class to the list of cached classes in this formatter. This can reduce the
 	 * amount of time it takes to first deserialize a class
@@ -402,13 +443,188 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 		XMLInputFactory fact = XMLInputFactory.newInstance();
 		XMLStateStreamReader xsReader;
 		try {
+			if(this.shouldParseParallel())
+			{
+				// Batches are split into fragments, so the whole document is needed
+				byte[] data = readFully(s);
+				IFormatterParseResult retVal = this.parseParallel(new XMLFragmentScanner(data));
+				if(retVal != null)
+					return retVal;
+				s = new ByteArrayInputStream(data);
+			}
 			xsReader = new XMLStateStreamReader(fact.createXMLStreamReader(s));
 			return this.parse(xsReader);
 		} catch (XMLStreamException e) {
 			throw new FormatterException(e.getMessage(), e);
+		} catch (IOException e) {
+			throw new FormatterException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the remainder of the specified stream
+	 */
+	private static byte[] readFully(InputStream s) throws IOException
+	{
+		ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int br;
+		while((br = s.read(buffer)) != -1)
+			retVal.write(buffer, 0, br);
+		return retVal.toByteArray();
+	}
+
+	/**
+	 * Parse a batch document by parsing each repetition of the child element of its root element which 
+	 * repeats most on the parse executor. The envelope is parsed with the repetitions removed while they 
+	 * are parsed, and the parsed repetitions are then added to the collection of the envelope in document
+	 * order.
+	 * @return The result of the parse, or null if the document should be parsed sequentially
+	 */
+	@SuppressWarnings("unchecked")
+	private IFormatterParseResult parseParallel(final XMLFragmentScanner scanner) throws XMLStreamException
+	{
+		final List<XMLFragment> fragments = scanner.scan(null);
+		if(fragments.size() < this.m_parallelParseThreshold)
+			return null;
+		
+		// The repetitions must be in a collection property of a known root
+		final Class<?> rootClass = this.getRootClass(scanner.getRootName().substring(scanner.getRootName().indexOf(':') + 1));
+		if(rootClass == null)
+			return null;
+		FormatterElementContext childContext = findParallelParseContext(rootClass, fragments.get(0).getLocalName());
+		if(childContext == null)
+			return null;
+		
+		// Create a context which pretends to be the generic type of the collection
+		Type argType = childContext.getGetterMethod().getGenericReturnType();
+		if(argType instanceof ParameterizedType)
+			argType = ((ParameterizedType)argType).getActualTypeArguments()[0];
+		final FormatterElementContext itemContext = new FormatterElementContext(FormatterUtil.getClassForType(argType, childContext), childContext.getGetterMethod()); 
+		itemContext.setParentContext(childContext);
+		
+		final XMLInputFactory fact = XMLInputFactory.newInstance();
+		List<Future<XmlIts1FormatterParseResult>> results = new ArrayList<Future<XmlIts1FormatterParseResult>>(fragments.size());
+		try
+		{
+			for(final XMLFragment fragment : fragments)
+				results.add(this.m_parseExecutor.submit(new Callable<XmlIts1FormatterParseResult>() {
+					@Override
+					public XmlIts1FormatterParseResult call() throws Exception {
+						return parseFragment(fact, scanner, fragment, itemContext);
+					}
+				}));
+
+			// Parse the envelope while the repetitions are parsed
+			XmlIts1FormatterParseResult resultContext = new XmlIts1FormatterParseResult(ResultCodeType.Accepted, null);
+			XMLStateStreamReader xr = new XMLStateStreamReader(fact.createXMLStreamReader(scanner.openEnvelope(), scanner.getEncoding()));
+			while(!xr.isStartElement() && xr.hasNext())
+				xr.next();
+			if(!xr.isStartElement() || !XmlIts1Formatter.NS_HL7.equals(xr.getNamespaceURI()))
+				return null;
+			String rootPath = xr.toString();
+			IGraphable root = this.m_reflectFormatter.parse(xr, new FormatterElementContext(rootClass, null), resultContext);
+			
+			// Add the repetitions in order
+			Collection<Object> collection = (Collection<Object>)childContext.getGetterMethod().invoke(root);
+			if(collection == null)
+				return null;
+			for(Future<XmlIts1FormatterParseResult> result : results)
+			{
+				XmlIts1FormatterParseResult fragmentResult = null;
+				try
+				{
+					fragmentResult = result.get();
+				}
+				catch(ExecutionException e)
+				{
+					if(e.getCause() instanceof RuntimeException)
+						throw (RuntimeException)e.getCause();
+					else if(e.getCause() instanceof Error)
+						throw (Error)e.getCause();
+					throw new FormatterException(e.getCause().getMessage(), (Exception)e.getCause());
+				}
+				resultContext.addResultDetail(fragmentResult.getDetails());
+				if(fragmentResult.getStructure() != null)
+					collection.add(fragmentResult.getStructure());
+			}
+			
+			if(this.shouldValidate(resultContext.getDetailCode()))
+				this.m_reflectFormatter.validate(root, rootPath, resultContext);
+			resultContext.setStructure(root);
+			resultContext.setCode(this.calculateResultCode(resultContext.getDetailCode()));
+			return resultContext;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new FormatterException("Interrupted waiting for the repetitions to be parsed", e);
+		}
+		catch(XMLStreamException e)
+		{
+			throw e;
+		}
+		catch(RuntimeException e)
+		{
+			throw e;
+		}
+		catch(Exception e)
+		{
+			throw new FormatterException(e.getMessage(), e);
+		}
+		finally
+		{
+			for(Future<XmlIts1FormatterParseResult> result : results) // stop the remaining repetitions when one fails
+				result.cancel(false);
 		}
 	}
 
+	/**
+	 * Find the context of the collection property of the root class which holds the specified element, 
+	 * null if the element isn't held by a collection which can be parsed in parallel
+	 */
+	private static FormatterElementContext findParallelParseContext(Class<?> rootClass, String elementName)
+	{
+		FormatterElementContext ctx = new FormatterElementContext(rootClass, null),
+				retVal = ctx.findChildContextFromName(elementName, PropertyType.NONSTRUCTURAL);
+		if(retVal == null)
+			retVal = ctx.findChildContextFromName(elementName, PropertyType.TRAVERSABLEASSOCIATION);
+		if(retVal == null || retVal.getGetterMethod() == null ||
+				FormatterUtil.hasInterface(retVal.getOwnerClazz(), IGraphable.class) || 
+				!FormatterUtil.hasInterface(retVal.getOwnerClazz(), Collection.class))
+			return null;
+		return retVal;
+	}
+
+	/**
+	 * Parse one repetition of a batch document. The locations of the result details are qualified with
+	 * the position of the repetition
+	 */
+	private XmlIts1FormatterParseResult parseFragment(XMLInputFactory fact, XMLFragmentScanner scanner, XMLFragment fragment, FormatterElementContext itemContext) throws XMLStreamException
+	{
+		XmlIts1FormatterParseResult retVal = new XmlIts1FormatterParseResult(ResultCodeType.Accepted, null);
+		XMLStateStreamReader xr = new XMLStateStreamReader(fact.createXMLStreamReader(scanner.openFragment(fragment), scanner.getEncoding()));
+		
+		// Advance to the repetition inside the enclosing root
+		int depth = 0;
+		while(xr.hasNext() && depth < 2)
+			if(xr.next() == XMLStreamReader.START_ELEMENT)
+				depth++;
+		String path = xr.toString();
+		
+		if(!XmlIts1Formatter.NS_HL7.equals(xr.getNamespaceURI()))
+			retVal.addResultDetail(new NotImplementedElementResultDetail(ResultDetailType.WARNING, xr.getLocalName(), xr.getNamespaceURI(), path, null));
+		else
+			retVal.setStructure(this.parseObjectInternal(xr, itemContext, retVal));
+		
+		// Qualify the locations with the position of the repetition
+		String position = String.format("%s[%s]", path, fragment.getIndex() + 1);
+		for(IResultDetail dtl : retVal.getDetails())
+			if(dtl.getLocation() != null && dtl.getLocation().startsWith(path))
+				dtl.setLocation(position + dtl.getLocation().substring(path.length()));
+		return retVal;
+	}
+
 	/**
 	 * Gets a value which indicates whether the formatter should validate instances
 	 */
@@ -426,6 +642,147 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 		
 	}
 
+	/**
+	 * Gets a value which indicates whether validation stops at the first error
+	 */
+	public boolean getFailFast() {
+		return this.m_failFast;
+	}
+
+	/**
+	 * Sets a value which indicates whether validation stops at the first error. When set, 
+	 * the formatter no longer evaluates conformance rules once the result has been rejected, 
+	 * so only the first error is reported
+	 */
+	public void setFailFast(boolean value) {
+		this.m_failFast = value;
+	}
+
+	/**
+	 * Gets the executor used to graph the items of large collections in parallel
+	 */
+	public ExecutorService getGraphExecutor() {
+		return this.m_graphExecutor;
+	}
+
+	/**
+	 * Sets the executor used to graph the items of large collections in parallel, or null to graph sequentially. 
+	 * The items of the outermost collection with at least the parallel graph threshold items are graphed 
+	 * concurrently into buffers which are appended to the output in order, so the output is identical to
+	 * graphing sequentially. The executor is not shut down by the formatter. Collections are graphed 
+	 * sequentially when validation stops at the first error, as which items are validated depends on the
+	 * order they are graphed in.
+	 */
+	public void setGraphExecutor(ExecutorService value) {
+		this.m_graphExecutor = value;
+	}
+
+	/**
+	 * Gets the number of items a collection must have before it is graphed in parallel
+	 */
+	public int getParallelGraphThreshold() {
+		return this.m_parallelGraphThreshold;
+	}
+
+	/**
+	 * Sets the number of items a collection must have before it is graphed in parallel
+	 */
+	public void setParallelGraphThreshold(int value) {
+		if(value < 1)
+			throw new IllegalArgumentException("value must be positive");
+		this.m_parallelGraphThreshold = value;
+	}
+
+	/**
+	 * Gets the executor used to parse the repetitions of batch documents in parallel
+	 */
+	public ExecutorService getParseExecutor() {
+		return this.m_parseExecutor;
+	}
+
+	/**
+	 * Sets the executor used to parse the repetitions of batch documents in parallel, or null to parse
+	 * sequentially. When set, documents parsed from a stream are read into memory and the child element
+	 * of the root element which repeats most is found by scanning the bytes. If it repeats at least the 
+	 * parallel parse threshold times and is held by a collection, each repetition is parsed concurrently
+	 * and added to the collection in document order. The executor is not shut down by the formatter. 
+	 * Documents are parsed sequentially when validation stops at the first error.
+	 */
+	public void setParseExecutor(ExecutorService value) {
+		this.m_parseExecutor = value;
+	}
+
+	/**
+	 * Gets the number of repetitions a batch document must have before it is parsed in parallel
+	 */
+	public int getParallelParseThreshold() {
+		return this.m_parallelParseThreshold;
+	}
+
+	/**
+	 * Sets the number of repetitions a batch document must have before it is parsed in parallel
+	 */
+	public void setParallelParseThreshold(int value) {
+		if(value < 1)
+			throw new IllegalArgumentException("value must be positive");
+		this.m_parallelParseThreshold = value;
+	}
+
+	/**
+	 * Returns true if documents should be split and parsed in parallel
+	 */
+	private boolean shouldParseParallel() {
+		return this.m_parseExecutor != null && !(this.m_failFast && this.m_validateConformance);
+	}
+
+	/**
+	 * Returns true if the items of a collection of the specified size should be graphed in parallel
+	 */
+	boolean shouldGraphParallel(XMLStateStreamWriter xw, int size) {
+		return this.m_graphExecutor != null && size >= this.m_parallelGraphThreshold && !xw.isBuffer() && 
+				!(this.m_failFast && this.m_validateConformance);
+	}
+
+	/**
+	 * Returns true if conformance should be validated given the result code so far
+	 */
+	boolean shouldValidate(ResultCodeType detailCode) {
+		return this.m_validateConformance && !(this.m_failFast && detailCode == ResultCodeType.Rejected);
+	}
+
+	/**
+	 * Validate the conformance of the specified graph without graphing it
+	 */
+	public Collection<IResultDetail> validate(IGraphable o) {
+		return this.validate(o, null);
+	}
+
+	/**
+	 * Validate the conformance of the specified graph, re-checking only the nodes which 
+	 * have changed since the graph was last validated with the same cache
+	 * @param o The graph to validate
+	 * @param cache The results of the previous validation of the graph, or null to validate every node
+	 * @return The result details of every node in the graph
+	 */
+	public Collection<IResultDetail> validate(IGraphable o, ValidationCache cache) {
+		
+		throwIfDisposed();
+		List<IResultDetail> retVal = new ArrayList<IResultDetail>();
+		if(o == null)
+			return retVal;
+		if(cache == null)
+			cache = new ValidationCache();
+		
+		cache.beginPass();
+		try {
+			this.m_reflectFormatter.validate(o, "/" + this.getStructureName(o.getClass()), cache, retVal);
+		}
+		finally {
+			cache.endPass();
+		}
+		return retVal;
+	}
+
 	/**
 	 * Write an element to the stream
 	 * @throws XMLStreamException 
@@ -507,7 +864,7 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 			
 			this.graphObjectInternal(xsw, o, context, resultContext);
 			
-			resultContext.setCode(this.calculateResultCode(resultContext.getDetails()));
+			resultContext.setCode(this.calculateResultCode(resultContext.getDetailCode()));
 			
 			if(!this.getValidateConformance() && !resultContext.getCode().equals(ResultCodeType.Accepted))
 				resultContext.setCode(ResultCodeType.AcceptedNonConformant);
@@ -519,19 +876,10 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 	/**
 	 * Calculate the appropriate result code
 	 */
-	private ResultCodeType calculateResultCode(Iterable<IResultDetail> details)
+	private ResultCodeType calculateResultCode(ResultCodeType detailCode)
 	{
 
-		ResultCodeType retVal = ResultCodeType.Accepted;
-		for(IResultDetail dtl : details)
-			if(dtl.getType() == ResultDetailType.ERROR)
-			{
-				retVal = ResultCodeType.Rejected;
-				break;
-			}
-			else if(dtl.getType() == ResultDetailType.WARNING &&
-					retVal == ResultCodeType.Accepted)
-				retVal = ResultCodeType.AcceptedNonConformant;
+		ResultCodeType retVal = detailCode;
 		
 		// Now, validate conformance?
 		if(!this.getValidateConformance() && retVal != ResultCodeType.Accepted)
@@ -563,7 +911,7 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 						
 			resultContext.setStructure(this.parseObjectInternal(xr, ctx, resultContext));
 			
-			resultContext.setCode(this.calculateResultCode(resultContext.getDetails()));
+			resultContext.setCode(this.calculateResultCode(resultContext.getDetailCode()));
 			
 		} catch (XMLStreamException e) {
 			throw new FormatterException(e.getMessage(), e);
@@ -623,13 +971,12 @@ public class XmlIts1Formatter implements IStructureFormatter, IXmlStructureForma
 		
 
 		IGraphable result = this.m_reflectFormatter.parse(xr, ctx, resultContext);
-		if(this.getValidateConformance())
+		if(this.shouldValidate(resultContext.getDetailCode()))
 		{
-			Collection<IResultDetail> details = this.m_reflectFormatter.validate(result, ctx, currentPath);
 	        if (result == null)
 	            resultContext.addResultDetail(new ResultDetail(this.getValidateConformance() ? ResultDetailType.ERROR : ResultDetailType.WARNING, String.format("Couldn't parse class of type '%s'", ctx.getOwnerClazz().getName()), currentPath, null));
-	        else if(details != null && details.size() > 0)
-	            resultContext.addResultDetail(details);
+	        else
+	        	this.m_reflectFormatter.validate(result, currentPath, resultContext);
 		}
         return result;
 	}
@@ -26,6 +26,7 @@ import org.marc.everest.formatters.interfaces.IFormatterParseResult;
 import org.marc.everest.interfaces.IGraphable;
 import org.marc.everest.interfaces.IResultDetail;
 import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.interfaces.ResultDetailType;
 
 /**
  * Represents a formatter parse result from the XML ITS1 formatter
@@ -36,6 +37,8 @@ public class XmlIts1FormatterParseResult implements IFormatterParseResult {
 	private ResultCodeType m_code = ResultCodeType.Accepted;
 	// Backing field for results
 	private List<IResultDetail> m_results = new ArrayList<IResultDetail>();
+	// The result code implied by the details added so far
+	private ResultCodeType m_detailCode = ResultCodeType.Accepted;
 	// Backing field for structure
 	private IGraphable m_structure;
 	/**
@@ -45,7 +48,7 @@ public class XmlIts1FormatterParseResult implements IFormatterParseResult {
 	{
 		this.m_code = code;
 		if(results != null)
-			this.m_results = new ArrayList<IResultDetail>(results);
+			this.addResultDetail(results);
 	}
 	
 	/**
@@ -55,6 +58,10 @@ public class XmlIts1FormatterParseResult implements IFormatterParseResult {
 	public void addResultDetail(IResultDetail dtl)
 	{
 		this.m_results.add(dtl);
+		if(dtl.getType() == ResultDetailType.ERROR)
+			this.m_detailCode = ResultCodeType.Rejected;
+		else if(dtl.getType() == ResultDetailType.WARNING && this.m_detailCode == ResultCodeType.Accepted)
+			this.m_detailCode = ResultCodeType.AcceptedNonConformant;
 	}
 	
 	/**
@@ -64,10 +71,15 @@ public class XmlIts1FormatterParseResult implements IFormatterParseResult {
 	{
 		if(other != null)
 			for (IResultDetail irdtl : other) {
-				this.m_results.add(irdtl);
+				this.addResultDetail(irdtl);
 			}
 	}
 	
+	/**
+	 * Gets the result code implied by the details added so far
+	 */
+	ResultCodeType getDetailCode() { return this.m_detailCode; }
+	
 	/**
 	 * Gets the result details of the format operation
 	 */
@@ -0,0 +1,73 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.annotations.Structure;
+import org.marc.everest.annotations.StructureType;
+import org.marc.everest.datatypes.ANY;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * A batch of messages used to test the formatter
+ */
+@Structure(name = "Batch", structureType = StructureType.MESSAGETYPE, isEntryPoint = true)
+public class Batch implements IGraphable {
+
+	// Backing field for id
+	private II m_id;
+	// Backing field for message
+	private List<Message> m_message = new ArrayList<Message>();
+	// Backing field for value
+	private List<ANY> m_value = new ArrayList<ANY>();
+	
+	/**
+	 * Gets the identifier of the batch
+	 */
+	@Property(name = "id", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 1)
+	public II getId() { return this.m_id; }
+	/**
+	 * Sets the identifier of the batch
+	 */
+	public void setId(II value) { this.m_id = value; }
+	
+	/**
+	 * Gets the messages in the batch
+	 */
+	@Property(name = "message", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.TRAVERSABLEASSOCIATION, minOccurs = 1, maxOccurs = -1, sortKey = 2)
+	public List<Message> getMessage() { return this.m_message; }
+	/**
+	 * Sets the messages in the batch
+	 */
+	public void setMessage(List<Message> value) { this.m_message = value; }
+	
+	/**
+	 * Gets values of any type
+	 */
+	@Property(name = "value", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, maxOccurs = -1, sortKey = 3)
+	public List<ANY> getValue() { return this.m_value; }
+	/**
+	 * Sets values of any type
+	 */
+	public void setValue(List<ANY> value) { this.m_value = value; }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.*;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.NullFlavor;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.formatters.FormatterUtil;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.ReflectionFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.IImplementsNullFlavor;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.InsufficientRepetitionsResultDetail;
+import org.marc.everest.resultdetails.MandatoryElementMissingResultDetail;
+import org.marc.everest.resultdetails.RequiredElementMissingResultDetail;
+
+public class ConformanceRuleTest {
+
+	/**
+	 * Create the formatter which graphs and parses the registrations
+	 */
+	private static XmlIts1Formatter createFormatter()
+	{
+		XmlIts1Formatter retVal = new XmlIts1Formatter();
+		retVal.getGraphAides().add(new DatatypeFormatter());
+		retVal.addCachedClass(Registration.class);
+		return retVal;
+	}
+
+	/**
+	 * Create a message which can be the subject of a registration
+	 */
+	private static Message createMessage()
+	{
+		Message retVal = new Message();
+		retVal.setCode(new CS<String>("A"));
+		return retVal;
+	}
+
+	/**
+	 * Create a registration which violates its mandatory, populated and minimum occurs rules
+	 */
+	private static Registration createInvalidRegistration()
+	{
+		Registration retVal = new Registration();
+		retVal.setId(new II());
+		retVal.getId().setNullFlavor(NullFlavor.NoInformation);
+		return retVal;
+	}
+
+	/**
+	 * Gets the conformance details of the specified details so they can be compared,
+	 * including the location if requested
+	 */
+	private static List<String> getConformanceDetails(Iterable<IResultDetail> details, boolean includeLocation)
+	{
+		List<String> retVal = new ArrayList<String>();
+		for(IResultDetail dtl : details)
+			if(dtl instanceof MandatoryElementMissingResultDetail ||
+					dtl instanceof RequiredElementMissingResultDetail ||
+					dtl instanceof InsufficientRepetitionsResultDetail)
+				retVal.add(dtl.getClass().getSimpleName() + " " + dtl.getType() + " " + dtl.getMessage() +
+						(includeLocation ? " " + dtl.getLocation() : ""));
+		return retVal;
+	}
+
+	/**
+	 * Validate o the way the reflection formatter did before its rules were compiled
+	 */
+	private static List<IResultDetail> validateReflectively(Object o, boolean createRequiredElements, String locationPath) throws Exception
+	{
+		// Build properties are evaluated in sort key order
+		List<Method> buildProperties = new ArrayList<Method>();
+		for(Method prop : o.getClass().getMethods())
+			if(prop.getAnnotation(Property.class) != null)
+				buildProperties.add(prop);
+		Collections.sort(buildProperties, new Comparator<Method>() {
+			@Override
+			public int compare(Method a, Method b) {
+				return a.getAnnotation(Property.class).sortKey() - b.getAnnotation(Property.class).sortKey();
+			}
+		});
+
+		List<IResultDetail> dtls = new ArrayList<IResultDetail>();
+		boolean isValid = true;
+		for(Method prop : buildProperties)
+		{
+			Property pa = prop.getAnnotation(Property.class);
+			Object propertyValue = prop.invoke(o);
+			if(pa.conformance().equals(ConformanceType.MANDATORY) &&
+					FormatterUtil.hasInterface(prop.getReturnType(), IImplementsNullFlavor.class) &&
+					(propertyValue == null || ((IImplementsNullFlavor)propertyValue).getNullFlavor() != null))
+			{
+				isValid = false;
+				dtls.add(new MandatoryElementMissingResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s is marked mandatory and is either not assigned, or is assigned a null flavor. This is not permitted.", pa.name(), o.getClass().getName()), locationPath, null));
+			}
+			else if (pa.conformance() == ConformanceType.POPULATED && propertyValue == null)
+			{
+				isValid &= createRequiredElements;
+				dtls.add(new RequiredElementMissingResultDetail(isValid ? ResultDetailType.WARNING : ResultDetailType.ERROR, String.format("Property %s in %s is marked 'populated' and isn't assigned (you must at minimum, assign a nullFlavor for this attribute)!", pa.name(), o.getClass().getName()), locationPath, null));
+			}
+			else if (pa.minOccurs() != 0 && FormatterUtil.hasInterface(prop.getReturnType(), Collection.class))
+			{
+				Integer minOccurs = pa.minOccurs(),
+					maxOccurs = pa.maxOccurs() < 0 ? Integer.MAX_VALUE : pa.maxOccurs();
+				Collection<?> piCollection = (Collection<?>)propertyValue;
+				if(piCollection.size() > maxOccurs || piCollection.size() < minOccurs)
+				{
+					isValid = false;
+					dtls.add(new InsufficientRepetitionsResultDetail(ResultDetailType.ERROR, String.format("Property %s in %s does not have enough elements in the list, have %d elements, need between %d and %s elements!", pa.name(), o.getClass().getName(), piCollection.size(), minOccurs, maxOccurs == Integer.MAX_VALUE ? "infinite" : maxOccurs.toString()), locationPath, null));
+				}
+			}
+		}
+		return dtls;
+	}
+
+	/**
+	 * Graph the registration returning the details of the result
+	 */
+	private static Iterable<IResultDetail> graph(XmlIts1Formatter formatter, Registration registration) throws Exception
+	{
+		return formatter.graph(new ByteArrayOutputStream(), registration).getDetails();
+	}
+
+	/**
+	 * Parse the registration returning the details of the result
+	 */
+	private static Iterable<IResultDetail> parse(XmlIts1Formatter formatter, String xml) throws Exception
+	{
+		return formatter.parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getDetails();
+	}
+
+	/**
+	 * The compiled rules report the same details as the reflective validation did
+	 */
+	@Test
+	public void ConformanceRuleValidateMatchesReflectiveTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		ReflectionFormatter reflectionFormatter = new ReflectionFormatter();
+		reflectionFormatter.setHost(formatter);
+
+		Registration registration = createInvalidRegistration();
+		List<String> expected = getConformanceDetails(validateReflectively(registration, false, "/Registration"), true);
+		Assert.assertEquals(3, expected.size());
+		Assert.assertEquals(expected, getConformanceDetails(reflectionFormatter.validate(registration, null, "/Registration"), true));
+
+		// Too many repetitions and a populated value which is created by the formatter
+		formatter.setCreateRequiredElements(true);
+		registration.setId(new II("1.2.3", "4"));
+		for(int i = 0; i < 3; i++)
+			registration.getSubject().add(createMessage());
+		expected = getConformanceDetails(validateReflectively(registration, true, "/Registration"), true);
+		Assert.assertEquals(2, expected.size());
+		Assert.assertTrue(expected.get(0), expected.get(0).startsWith("RequiredElementMissingResultDetail WARNING"));
+		Assert.assertEquals(expected, getConformanceDetails(reflectionFormatter.validate(registration, null, "/Registration"), true));
+
+		// A conformant registration has no details
+		registration.setStatusCode(new CS<String>("active"));
+		registration.getSubject().remove(0);
+		Assert.assertTrue(validateReflectively(registration, true, "/Registration").isEmpty());
+		Assert.assertTrue(reflectionFormatter.validate(registration, null, "/Registration").isEmpty());
+	}
+
+	/**
+	 * Graphing reports a violation of each kind of rule
+	 */
+	@Test
+	public void ConformanceRuleGraphTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		Registration registration = createInvalidRegistration();
+		List<String> expected = getConformanceDetails(validateReflectively(registration, false, null), false);
+		Assert.assertEquals(expected, getConformanceDetails(graph(formatter, registration), false));
+
+		registration.setId(new II("1.2.3", "4"));
+		registration.setStatusCode(new CS<String>("active"));
+		for(int i = 0; i < 3; i++)
+			registration.getSubject().add(createMessage());
+		List<String> actual = getConformanceDetails(graph(formatter, registration), false);
+		Assert.assertEquals(1, actual.size());
+		Assert.assertTrue(actual.get(0), actual.get(0).startsWith("InsufficientRepetitionsResultDetail ERROR"));
+		Assert.assertEquals(getConformanceDetails(validateReflectively(registration, false, null), false), actual);
+
+		registration.getSubject().remove(0);
+		Assert.assertTrue(getConformanceDetails(graph(formatter, registration), false).isEmpty());
+	}
+
+	/**
+	 * Parsing reports a violation of each kind of rule
+	 */
+	@Test
+	public void ConformanceRuleParseTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		String subject = "<subject><code code=\"A\"/></subject>";
+		Iterable<IResultDetail> details = parse(formatter, "<Registration xmlns=\"urn:hl7-org:v3\"><id nullFlavor=\"NI\"/></Registration>");
+		List<String> actual = getConformanceDetails(details, false);
+		Assert.assertEquals(getConformanceDetails(validateReflectively(createInvalidRegistration(), false, null), false), actual);
+
+		details = parse(formatter, "<Registration xmlns=\"urn:hl7-org:v3\"><id root=\"1.2.3\" extension=\"4\"/><statusCode code=\"active\"/>" +
+				subject + subject + subject + "</Registration>");
+		actual = getConformanceDetails(details, false);
+		Assert.assertEquals(1, actual.size());
+		Assert.assertTrue(actual.get(0), actual.get(0).startsWith("InsufficientRepetitionsResultDetail ERROR Property subject"));
+
+		details = parse(formatter, "<Registration xmlns=\"urn:hl7-org:v3\"><id root=\"1.2.3\" extension=\"4\"/><statusCode code=\"active\"/>" +
+				subject + "</Registration>");
+		Assert.assertTrue(getConformanceDetails(details, false).isEmpty());
+	}
+
+	/**
+	 * With fail fast set only the first error is reported on graph and parse
+	 */
+	@Test
+	public void ConformanceRuleFailFastTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		formatter.setFailFast(true);
+
+		Registration registration = createInvalidRegistration();
+		registration.getComponent().add(createInvalidRegistration());
+		List<String> actual = getConformanceDetails(graph(formatter, registration), false);
+		Assert.assertEquals(1, actual.size());
+		Assert.assertTrue(actual.get(0), actual.get(0).startsWith("MandatoryElementMissingResultDetail ERROR Property id"));
+
+		actual = getConformanceDetails(parse(formatter, "<Registration xmlns=\"urn:hl7-org:v3\"><id nullFlavor=\"NI\"/>" +
+				"<component><id nullFlavor=\"NI\"/></component></Registration>"), false);
+		Assert.assertEquals(1, actual.size());
+		Assert.assertTrue(actual.get(0), actual.get(0).startsWith("MandatoryElementMissingResultDetail ERROR Property id"));
+
+		// Without fail fast every violation of both registrations is reported
+		formatter.setFailFast(false);
+		Assert.assertEquals(6, getConformanceDetails(graph(formatter, registration), false).size());
+	}
+}
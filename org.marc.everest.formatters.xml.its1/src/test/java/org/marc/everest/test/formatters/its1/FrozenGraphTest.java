@@ -0,0 +1,93 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.BL;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.datatypes.generic.CV;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.util.GraphUtil;
+
+public class FrozenGraphTest {
+
+	/**
+	 * Graph the specified batch
+	 */
+	private static String graph(Batch batch) throws Exception
+	{
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		formatter.getGraphAides().add(new DatatypeFormatter());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		IFormatterGraphResult result = formatter.graph(bos, batch);
+		Assert.assertNotNull(result);
+		return bos.toString("UTF-8");
+	}
+	
+	/**
+	 * A frozen graph is graphed with the supplier domain imposed on a copy of the frozen code
+	 */
+	@Test
+	public void GraphFrozenSupplierDomainTest() throws Exception {
+		Batch batch = new Batch();
+		batch.setId(new II("1.2.3", "4"));
+		Message message = new Message();
+		message.setCode(new CS<String>("A"));
+		message.setReasonCode(new CV<String>("R"));
+		batch.getMessage().add(message);
+		
+		String expected = graph(batch);
+		Assert.assertTrue(expected, expected.contains("codeSystem=\"1.2.3.4\""));
+		
+		message.getReasonCode().setCodeSystem(null);
+		GraphUtil.freeze(batch);
+		Assert.assertEquals(expected, graph(batch));
+		Assert.assertTrue(message.getReasonCode().isFrozen());
+		Assert.assertNull(message.getReasonCode().getCodeSystem());
+	}
+	
+	/**
+	 * Parsed values are only shared frozen instances when the datatype formatter interns them
+	 */
+	@Test
+	public void ParseInternValuesTest() throws Exception {
+		byte[] data = ("<Batch xmlns=\"urn:hl7-org:v3\"><id root=\"1.2.3\" extension=\"4\"/>" +
+				"<message><code code=\"A\"/><urgentInd value=\"true\"/></message></Batch>").getBytes("UTF-8");
+		
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		DatatypeFormatter datatypeFormatter = new DatatypeFormatter();
+		formatter.getGraphAides().add(datatypeFormatter);
+		formatter.addCachedClass(Batch.class);
+		Batch batch = (Batch)formatter.parse(new ByteArrayInputStream(data)).getStructure();
+		BL urgentInd = batch.getMessage().get(0).getUrgentInd();
+		Assert.assertNotSame(BL.TRUE, urgentInd);
+		Assert.assertFalse(urgentInd.isFrozen());
+		urgentInd.setValue(false);
+		Assert.assertEquals(Boolean.TRUE, BL.TRUE.getValue());
+		
+		datatypeFormatter.setInternValues(true);
+		batch = (Batch)formatter.parse(new ByteArrayInputStream(data)).getStructure();
+		Assert.assertSame(BL.TRUE, batch.getMessage().get(0).getUrgentInd());
+	}
+}
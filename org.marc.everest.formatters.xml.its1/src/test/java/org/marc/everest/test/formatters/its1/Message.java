@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.annotations.Structure;
+import org.marc.everest.annotations.StructureType;
+import org.marc.everest.datatypes.BL;
+import org.marc.everest.datatypes.SD;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.datatypes.generic.CV;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * A message in a batch used to test the formatter
+ */
+@Structure(name = "Message", structureType = StructureType.MESSAGETYPE)
+public class Message implements IGraphable {
+
+	// Backing field for code
+	private CS<String> m_code;
+	// Backing field for text
+	private ST m_text;
+	// Backing field for effective time
+	private TS m_effectiveTime;
+	// Backing field for component
+	private List<Message> m_component = new ArrayList<Message>();
+	// Backing field for reason code
+	private CV<String> m_reasonCode;
+	// Backing field for narrative
+	private SD m_narrative;
+	// Backing field for urgent indicator
+	private BL m_urgentInd;
+	
+	/**
+	 * Gets the code of the message
+	 */
+	@Property(name = "code", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 1)
+	public CS<String> getCode() { return this.m_code; }
+	/**
+	 * Sets the code of the message
+	 */
+	public void setCode(CS<String> value) { this.m_code = value; }
+	
+	/**
+	 * Gets the text of the message
+	 */
+	@Property(name = "text", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 2)
+	public ST getText() { return this.m_text; }
+	/**
+	 * Sets the text of the message
+	 */
+	public void setText(ST value) { this.m_text = value; }
+	
+	/**
+	 * Gets the effective time of the message
+	 */
+	@Property(name = "effectiveTime", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 3)
+	public TS getEffectiveTime() { return this.m_effectiveTime; }
+	/**
+	 * Sets the effective time of the message
+	 */
+	public void setEffectiveTime(TS value) { this.m_effectiveTime = value; }
+	
+	/**
+	 * Gets the components of the message
+	 */
+	@Property(name = "component", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.TRAVERSABLEASSOCIATION, maxOccurs = -1, sortKey = 4)
+	public List<Message> getComponent() { return this.m_component; }
+	/**
+	 * Sets the components of the message
+	 */
+	public void setComponent(List<Message> value) { this.m_component = value; }
+	
+	/**
+	 * Gets the reason for the message, drawn from the supplier domain 1.2.3.4 when no code system is set
+	 */
+	@Property(name = "reasonCode", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, supplierDomain = "1.2.3.4", sortKey = 5)
+	public CV<String> getReasonCode() { return this.m_reasonCode; }
+	/**
+	 * Sets the reason for the message
+	 */
+	public void setReasonCode(CV<String> value) { this.m_reasonCode = value; }
+	
+	/**
+	 * Gets the narrative of the message
+	 */
+	@Property(name = "narrative", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 6)
+	public SD getNarrative() { return this.m_narrative; }
+	/**
+	 * Sets the narrative of the message
+	 */
+	public void setNarrative(SD value) { this.m_narrative = value; }
+	
+	/**
+	 * Gets an indicator of whether the message is urgent
+	 */
+	@Property(name = "urgentInd", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 7)
+	public BL getUrgentInd() { return this.m_urgentInd; }
+	/**
+	 * Sets an indicator of whether the message is urgent
+	 */
+	public void setUrgentInd(BL value) { this.m_urgentInd = value; }
+}
@@ -0,0 +1,140 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.xml.XMLStateStreamWriter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+public class ParallelGraphTest {
+
+	// HL7 namespace
+	private static final String NS_HL7 = "urn:hl7-org:v3";
+	// XSI namespace
+	private static final String NS_XSI = "http://www.w3.org/2001/XMLSchema-instance";
+	
+	// The executor the items are graphed on
+	private ExecutorService m_executor;
+	
+	/**
+	 * Create the executor
+	 */
+	@Before
+	public void setUp() {
+		this.m_executor = Executors.newFixedThreadPool(4);
+	}
+	
+	/**
+	 * Shut down the executor
+	 */
+	@After
+	public void tearDown() {
+		this.m_executor.shutdownNow();
+	}
+	
+	/**
+	 * Create a batch whose values need an xsi:type
+	 */
+	private static Batch createBatch()
+	{
+		Batch retVal = new Batch();
+		retVal.setId(new II("1.2.3", "4"));
+		Message message = new Message();
+		message.setCode(new CS<String>("A"));
+		retVal.getMessage().add(message);
+		for(int i = 0; i < 100; i++)
+			retVal.getValue().add(i % 2 == 0 ? new INT(i) : new ST("value " + i));
+		return retVal;
+	}
+	
+	/**
+	 * Graph the batch into an envelope which only declares the HL7 namespace, so the namespace
+	 * repairing writer declares the XSI namespace on each value
+	 */
+	private static String graph(Batch batch, ExecutorService executor, List<String> details) throws Exception
+	{
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		formatter.getGraphAides().add(new DatatypeFormatter());
+		formatter.setGraphExecutor(executor);
+		formatter.setParallelGraphThreshold(2);
+		
+		XMLOutputFactory factory = XMLOutputFactory.newInstance();
+		factory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+		StringWriter sw = new StringWriter();
+		XMLStreamWriter envelope = factory.createXMLStreamWriter(sw);
+		envelope.writeStartElement("hl7", "Envelope", NS_HL7);
+		XMLStateStreamWriter xw = new XMLStateStreamWriter(envelope);
+		xw.writeStartElement("hl7", "Batch", NS_HL7);
+		IFormatterGraphResult result = formatter.graph(xw, batch);
+		xw.writeEndElement();
+		envelope.writeEndElement();
+		xw.close();
+		
+		for(IResultDetail dtl : result.getDetails())
+			details.add(dtl.getType() + " " + dtl.getMessage() + " " + dtl.getLocation());
+		return sw.toString();
+	}
+	
+	/**
+	 * Items which declare a namespace the root doesn't are graphed in parallel as they are sequentially
+	 */
+	@Test
+	public void ParallelGraphUndeclaredNamespaceTest() throws Exception {
+		Batch batch = createBatch();
+		List<String> sequentialDetails = new ArrayList<String>(),
+				parallelDetails = new ArrayList<String>();
+		String sequential = graph(batch, null, sequentialDetails);
+		for(int i = 0; i < 10; i++)
+		{
+			parallelDetails.clear();
+			Assert.assertEquals(sequential, graph(batch, this.m_executor, parallelDetails));
+			Assert.assertEquals(sequentialDetails, parallelDetails);
+		}
+		
+		// Each value is well formed and typed in the XSI namespace
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(sequential)));
+		Assert.assertEquals(1, document.getElementsByTagNameNS(NS_HL7, "Batch").getLength());
+		Assert.assertTrue(sequential.indexOf("xmlns:xsi") > sequential.indexOf("<hl7:value"));
+		Assert.assertEquals(100, document.getElementsByTagNameNS(NS_HL7, "value").getLength());
+		Element value = (Element)document.getElementsByTagNameNS(NS_HL7, "value").item(1);
+		Assert.assertEquals("ST", value.getAttributeNS(NS_XSI, "type").replaceAll(".*:", ""));
+	}
+}
@@ -0,0 +1,140 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.*;
+
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.IResultDetail;
+
+public class ParallelParseTest {
+
+	// The number of messages in the batch
+	private static final int MESSAGE_COUNT = 40;
+	
+	// The executor the messages are parsed on
+	private ExecutorService m_executor;
+	
+	/**
+	 * Create the executor
+	 */
+	@Before
+	public void setUp() {
+		this.m_executor = Executors.newFixedThreadPool(4);
+	}
+	
+	/**
+	 * Shut down the executor
+	 */
+	@After
+	public void tearDown() {
+		this.m_executor.shutdownNow();
+	}
+	
+	/**
+	 * Create a batch document in which every third message contains an element the formatter doesn't know
+	 */
+	private static byte[] createBatch() throws Exception
+	{
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		sb.append("<Batch xmlns=\"urn:hl7-org:v3\"><id root=\"1.2.3\" extension=\"4\"/>");
+		for(int i = 0; i < MESSAGE_COUNT; i++)
+		{
+			sb.append("<message><code code=\"A\"/>");
+			if(i % 3 == 0)
+				sb.append("<bogus/>");
+			sb.append(String.format("<text>message %s</text><component><code code=\"B%s\"/></component></message>", i, i));
+		}
+		sb.append("</Batch>");
+		return sb.toString().getBytes("UTF-8");
+	}
+	
+	/**
+	 * Create a formatter which parses on the specified executor
+	 */
+	private static XmlIts1Formatter createFormatter(ExecutorService executor)
+	{
+		XmlIts1Formatter retVal = new XmlIts1Formatter();
+		retVal.getGraphAides().add(new DatatypeFormatter());
+		retVal.addCachedClass(Batch.class);
+		retVal.setValidateConformance(false);
+		retVal.setParseExecutor(executor);
+		retVal.setParallelParseThreshold(2);
+		return retVal;
+	}
+	
+	/**
+	 * Graph the parsed structure so two parses can be compared
+	 */
+	private static String graph(IFormatterParseResult result) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		createFormatter(null).graph(bos, result.getStructure());
+		return bos.toString("UTF-8");
+	}
+	
+	/**
+	 * Get the locations of the details of the parse
+	 */
+	private static List<String> getLocations(IFormatterParseResult result)
+	{
+		List<String> retVal = new ArrayList<String>();
+		for(IResultDetail dtl : result.getDetails())
+			retVal.add(dtl.getLocation());
+		return retVal;
+	}
+	
+	/**
+	 * A batch parsed in parallel has the structure of the batch parsed sequentially, and the
+	 * locations of the details are qualified with the position of the message
+	 */
+	@Test
+	public void ParallelParseMatchesSequentialTest() throws Exception {
+		byte[] data = createBatch();
+		IFormatterParseResult sequential = createFormatter(null).parse(new ByteArrayInputStream(data));
+		Assert.assertNotNull(sequential.getStructure());
+		Assert.assertEquals(MESSAGE_COUNT, ((Batch)sequential.getStructure()).getMessage().size());
+		String expected = graph(sequential);
+		
+		// The sequential parse reports the unknown element without the position of the message
+		String messageStep = "local-name() = 'message']";
+		List<String> expectedLocations = new ArrayList<String>();
+		for(String location : getLocations(sequential))
+		{
+			Assert.assertTrue(location, location.contains(messageStep + "/") && location.endsWith("'bogus']"));
+			expectedLocations.add(location.replace(messageStep, String.format("%s[%s]", messageStep, expectedLocations.size() * 3 + 1)));
+		}
+		Assert.assertEquals((MESSAGE_COUNT + 2) / 3, expectedLocations.size());
+		
+		for(int i = 0; i < 10; i++)
+		{
+			IFormatterParseResult parallel = createFormatter(this.m_executor).parse(new ByteArrayInputStream(data));
+			Assert.assertEquals(sequential.getCode(), parallel.getCode());
+			Assert.assertEquals(expected, graph(parallel));
+			Assert.assertEquals(expectedLocations, getLocations(parallel));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.marc.everest.annotations.ConformanceType;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
+import org.marc.everest.annotations.Structure;
+import org.marc.everest.annotations.StructureType;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * A registration carrying each kind of conformance rule, used to test validation
+ */
+@Structure(name = "Registration", structureType = StructureType.MESSAGETYPE, isEntryPoint = true)
+public class Registration implements IGraphable {
+
+	// Backing field for id
+	private II m_id;
+	// Backing field for status code
+	private CS<String> m_statusCode;
+	// Backing field for subject
+	private List<Message> m_subject = new ArrayList<Message>();
+	// Backing field for component
+	private List<Registration> m_component = new ArrayList<Registration>();
+	
+	/**
+	 * Gets the identifier of the registration
+	 */
+	@Property(name = "id", conformance = ConformanceType.MANDATORY, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 1)
+	public II getId() { return this.m_id; }
+	/**
+	 * Sets the identifier of the registration
+	 */
+	public void setId(II value) { this.m_id = value; }
+	
+	/**
+	 * Gets the status of the registration
+	 */
+	@Property(name = "statusCode", conformance = ConformanceType.POPULATED, propertyType = PropertyType.NONSTRUCTURAL, sortKey = 2)
+	public CS<String> getStatusCode() { return this.m_statusCode; }
+	/**
+	 * Sets the status of the registration
+	 */
+	public void setStatusCode(CS<String> value) { this.m_statusCode = value; }
+	
+	/**
+	 * Gets the messages the registration applies to
+	 */
+	@Property(name = "subject", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.TRAVERSABLEASSOCIATION, minOccurs = 1, maxOccurs = 2, sortKey = 3)
+	public List<Message> getSubject() { return this.m_subject; }
+	/**
+	 * Sets the messages the registration applies to
+	 */
+	public void setSubject(List<Message> value) { this.m_subject = value; }
+	
+	/**
+	 * Gets the registrations which are part of this registration
+	 */
+	@Property(name = "component", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.TRAVERSABLEASSOCIATION, maxOccurs = -1, sortKey = 4)
+	public List<Registration> getComponent() { return this.m_component; }
+	/**
+	 * Sets the registrations which are part of this registration
+	 */
+	public void setComponent(List<Registration> value) { this.m_component = value; }
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.marc.everest.datatypes.SD;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+
+public class SDRawNarrativeTest {
+
+	// A batch whose narrative uses a prefix declared on the root
+	private static final String BATCH = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+			"<Batch xmlns=\"urn:hl7-org:v3\" xmlns:x=\"urn:foo\"><id root=\"1.2.3\" extension=\"4\"/>" +
+			"<message><code code=\"A\"/><narrative>A<x:foo x:bar=\"1\">z</x:foo><paragraph>p</paragraph></narrative></message></Batch>";
+
+	/**
+	 * Create a formatter which keeps narrative as raw XML
+	 */
+	private static XmlIts1Formatter createFormatter(boolean rawNarrative)
+	{
+		XmlIts1Formatter formatter = new XmlIts1Formatter();
+		DatatypeFormatter datatypeFormatter = new DatatypeFormatter();
+		datatypeFormatter.setRawNarrative(rawNarrative);
+		formatter.getGraphAides().add(datatypeFormatter);
+		formatter.addCachedClass(Batch.class);
+		return formatter;
+	}
+	
+	/**
+	 * Parse and graph the batch
+	 */
+	private static byte[] roundTrip(XmlIts1Formatter formatter, byte[] data) throws Exception
+	{
+		IFormatterParseResult result = formatter.parse(new ByteArrayInputStream(data));
+		Assert.assertTrue(result.getStructure() instanceof Batch);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		formatter.graph(bos, result.getStructure());
+		return bos.toByteArray();
+	}
+	
+	/**
+	 * Find the only element with the specified namespace and local name
+	 */
+	private static Element find(byte[] data, String namespaceUri, String localName) throws Exception
+	{
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(data));
+		Assert.assertEquals(new String(data, "UTF-8"), 1, document.getElementsByTagNameNS(namespaceUri, localName).getLength());
+		return (Element)document.getElementsByTagNameNS(namespaceUri, localName).item(0);
+	}
+	
+	/**
+	 * Raw narrative keeps the namespaces in scope where it was read, and graphs the same as narrative read into nodes
+	 */
+	@Test
+	public void RawNarrativeNamespaceRoundTripTest() throws Exception {
+		byte[] data = BATCH.getBytes("UTF-8");
+		byte[] raw = roundTrip(createFormatter(true), data);
+		
+		Element foo = find(raw, "urn:foo", "foo");
+		Assert.assertEquals("1", foo.getAttributeNS("urn:foo", "bar"));
+		Assert.assertEquals("z", foo.getTextContent());
+		Assert.assertEquals("p", find(raw, "urn:hl7-org:v3", "paragraph").getTextContent());
+		
+		// The raw content is read into the same nodes as narrative parsed directly
+		XmlIts1Formatter formatter = createFormatter(true);
+		Batch batch = (Batch)formatter.parse(new ByteArrayInputStream(data)).getStructure();
+		SD narrative = batch.getMessage().get(0).getNarrative();
+		Assert.assertTrue(narrative.hasRawContent());
+		Batch parsed = (Batch)createFormatter(false).parse(new ByteArrayInputStream(data)).getStructure();
+		Assert.assertEquals(parsed.getMessage().get(0).getNarrative(), narrative);
+		
+		// Graphing again is stable
+		Assert.assertEquals(new String(raw, "UTF-8"), new String(roundTrip(createFormatter(true), raw), "UTF-8"));
+	}
+}
@@ -0,0 +1,160 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.formatters.its1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.NullFlavor;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.datatypes.generic.CS;
+import org.marc.everest.datatypes.generic.CV;
+import org.marc.everest.formatters.xml.datatypes.r1.DatatypeFormatter;
+import org.marc.everest.formatters.xml.its1.ValidationCache;
+import org.marc.everest.formatters.xml.its1.XmlIts1Formatter;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.util.GraphUtil;
+
+public class ValidationCacheTest {
+
+	/**
+	 * Create a batch of one message
+	 */
+	private static Batch createBatch()
+	{
+		Batch retVal = new Batch();
+		retVal.setId(new II("1.2.3", "4"));
+		Message message = new Message();
+		message.setCode(new CS<String>("A"));
+		retVal.getMessage().add(message);
+		return retVal;
+	}
+	
+	/**
+	 * Create the formatter which validates the batches
+	 */
+	private static XmlIts1Formatter createFormatter()
+	{
+		XmlIts1Formatter retVal = new XmlIts1Formatter();
+		retVal.getGraphAides().add(new DatatypeFormatter());
+		return retVal;
+	}
+	
+	/**
+	 * Get the messages of the specified details so they can be compared
+	 */
+	private static List<String> getMessages(Collection<IResultDetail> details)
+	{
+		List<String> retVal = new ArrayList<String>();
+		for(IResultDetail dtl : details)
+			retVal.add(dtl.getType() + " " + dtl.getMessage() + " " + dtl.getLocation());
+		return retVal;
+	}
+	
+	/**
+	 * Two caches over the same graph both see a modification made after either has validated it
+	 */
+	@Test
+	public void ValidationCacheIndependentCachesTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		Batch batch = createBatch();
+		ValidationCache first = new ValidationCache(), second = new ValidationCache();
+		List<String> valid = getMessages(formatter.validate(batch, first));
+		Assert.assertEquals(valid, getMessages(formatter.validate(batch, second)));
+		
+		// A control act root without an extension is invalid, each cache re-checks the identifier
+		batch.getId().setControlActRoot("1.2.3");
+		List<String> invalid = getMessages(formatter.validate(batch));
+		Assert.assertFalse(valid.equals(invalid));
+		Assert.assertEquals(invalid, getMessages(formatter.validate(batch, first)));
+		Assert.assertEquals(invalid, getMessages(formatter.validate(batch, second)));
+		Assert.assertEquals(invalid, getMessages(formatter.validate(batch, first)));
+		
+		batch.getId().setControlActRoot(null);
+		Assert.assertEquals(valid, getMessages(formatter.validate(batch, second)));
+		Assert.assertEquals(valid, getMessages(formatter.validate(batch, first)));
+	}
+	
+	/**
+	 * Validating a frozen graph which holds shared instances does not modify it
+	 */
+	@Test
+	public void ValidationCacheFrozenGraphTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		Batch batch = createBatch();
+		batch.getMessage().get(0).setReasonCode(new CV<String>());
+		batch.getMessage().get(0).getReasonCode().setNullFlavor(NullFlavor.Unknown);
+		GraphUtil.freeze(batch);
+		
+		CS<NullFlavor> shared = batch.getMessage().get(0).getReasonCode().getNullFlavor();
+		long idStamp = batch.getId().getModificationStamp(), 
+				sharedStamp = shared.getModificationStamp();
+		ValidationCache cache = new ValidationCache();
+		List<String> expected = getMessages(formatter.validate(batch, cache));
+		Assert.assertEquals(expected, getMessages(formatter.validate(batch, cache)));
+		Assert.assertEquals(expected, getMessages(formatter.validate(batch, new ValidationCache())));
+		Assert.assertEquals(idStamp, batch.getId().getModificationStamp());
+		Assert.assertEquals(sharedStamp, shared.getModificationStamp());
+		Assert.assertSame(CS.getSharedInstance(NullFlavor.Unknown), shared);
+	}
+	
+	/**
+	 * Create a registration which conforms to its rules
+	 */
+	private static Registration createRegistration()
+	{
+		Registration retVal = new Registration();
+		retVal.setId(new II("1.2.3", "5"));
+		retVal.setStatusCode(new CS<String>("active"));
+		retVal.getSubject().add(new Message());
+		return retVal;
+	}
+	
+	/**
+	 * Nodes which do not track changes are only re-checked when they or their descendants change, 
+	 * so the details of an unchanged registration are the ones recorded by the previous pass
+	 */
+	@Test
+	public void ValidationCacheUnchangedSubtreeTest() throws Exception {
+		XmlIts1Formatter formatter = createFormatter();
+		Registration root = createRegistration(), 
+				invalid = createRegistration(), 
+				changed = createRegistration();
+		invalid.setId(null);
+		root.getComponent().add(invalid);
+		root.getComponent().add(changed);
+		ValidationCache cache = new ValidationCache();
+		List<IResultDetail> first = new ArrayList<IResultDetail>(formatter.validate(root, cache));
+		Assert.assertEquals(1, first.size());
+		
+		// Only the changed registration and its ancestors are re-checked
+		changed.setStatusCode(new CS<String>("completed"));
+		changed.getSubject().get(0).setText(new ST("text"));
+		List<IResultDetail> second = new ArrayList<IResultDetail>(formatter.validate(root, cache));
+		Assert.assertEquals(1, second.size());
+		Assert.assertSame(first.get(0), second.get(0));
+		
+		changed.setStatusCode(null);
+		invalid.setId(new II("1.2.3", "6"));
+		Assert.assertEquals(getMessages(formatter.validate(root)), getMessages(formatter.validate(root, cache)));
+		Assert.assertEquals(1, formatter.validate(root, cache).size());
+	}
+}
@@ -0,0 +1,86 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors;
+
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+
+/**
+ * Represents the result of sending one interaction in a batch
+ */
+public class BatchSendResult implements ISendResult {
+
+	// Backing field for code
+	private final ResultCodeType m_code;
+	// Backing field for details
+	private final Iterable<IResultDetail> m_details;
+	// Backing field for the result of the batch
+	private final ISendResult m_batchResult;
+	// Backing field for the position in the batch
+	private final int m_index;
+	
+	/**
+	 * Creates a new result which shares the result of the batch
+	 */
+	public BatchSendResult(ISendResult batchResult, int index)
+	{
+		this(batchResult.getCode(), batchResult.getDetails(), batchResult, index);
+	}
+	
+	/**
+	 * Creates a new result for the interaction at the specified position in the batch
+	 */
+	public BatchSendResult(ResultCodeType code, Iterable<IResultDetail> details, ISendResult batchResult, int index)
+	{
+		this.m_code = code;
+		this.m_details = details;
+		this.m_batchResult = batchResult;
+		this.m_index = index;
+	}
+	
+	/**
+	 * Get the result code of sending the interaction
+	 */
+	@Override
+	public ResultCodeType getCode() {
+		return this.m_code;
+	}
+
+	/**
+	 * Get the details of sending the interaction
+	 */
+	@Override
+	public Iterable<IResultDetail> getDetails() {
+		return this.m_details;
+	}
+	
+	/**
+	 * Gets the result of sending the batch which contained the interaction
+	 */
+	public ISendResult getBatchResult() {
+		return this.m_batchResult;
+	}
+	
+	/**
+	 * Gets the position of the interaction in the batch
+	 */
+	public int getIndex() {
+		return this.m_index;
+	}
+
+}
@@ -0,0 +1,650 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.marc.everest.connectors.interfaces.IAsyncSendingConnector;
+import org.marc.everest.connectors.interfaces.IBatchWrapper;
+import org.marc.everest.connectors.interfaces.IFormattedConnector;
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.ISendCallback;
+import org.marc.everest.connectors.interfaces.ISendReceiveConnector;
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.connectors.interfaces.ISendingConnector;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.ResultDetail;
+
+/**
+ * Represents a connector which accumulates interactions and sends them in batches over another connector.
+ * <p>Interactions are packed into a batch transmission wrapper by an IBatchWrapper and sent over
+ * the underlying connector once the batch reaches the maximum count or size, or the oldest interaction
+ * has waited for the maximum delay. When the underlying connector is an ISendReceiveConnector the batch
+ * acknowledgement is received and unpacked by the wrapper into the result of each interaction.</p>
+ * <p>Batches are sent one at a time on a background thread, the future returned by sendAsync
+ * completes when the batch containing the interaction has been acknowledged, or fails with the 
+ * error which prevented the batch being sent. At most maxPendingBatches batches wait to be sent, 
+ * once they are waiting sendAsync blocks until a batch has been sent. Callbacks are notified on
+ * the sending thread and may use the connector, including sending more interactions. The following example
+ * loads a large number of registrations in batches of 500:</p>
+ * <pre>
+ * BatchSendingConnector batcher = new BatchSendingConnector(clientConnector, wrapper, "maxBatchCount=500;maxDelay=2000");
+ * batcher.open();
+ * for(IGraphable registration : registrations)
+ * 	batcher.sendAsync(registration, callback);
+ * batcher.close(); // sends the last batch
+ * </pre>
+ */
+public class BatchSendingConnector implements IAsyncSendingConnector {
+
+	/**
+	 * The default maximum number of interactions in a batch
+	 */
+	public static final int DEFAULT_MAX_BATCH_COUNT = 100;
+	/**
+	 * The default number of milliseconds an interaction waits for its batch to fill
+	 */
+	public static final long DEFAULT_MAX_DELAY = 1000;
+	/**
+	 * The default maximum number of batches waiting to be sent
+	 */
+	public static final int DEFAULT_MAX_PENDING_BATCHES = 10;
+	
+	// The number of connectors created, used to name threads
+	private static final AtomicInteger s_connectorCount = new AtomicInteger();
+	
+	// The connector batches are sent over
+	private final ISendingConnector m_connector;
+	// Packs interactions into batches
+	private final IBatchWrapper m_wrapper;
+	// Connection string
+	private String m_connectionString;
+	
+	// The maximum number of interactions in a batch
+	private int m_maxBatchCount = DEFAULT_MAX_BATCH_COUNT;
+	// The maximum graphed size of a batch in bytes, zero if there is no limit
+	private long m_maxBatchSize;
+	// The number of milliseconds an interaction waits for its batch to fill, zero if there is no limit
+	private long m_maxDelay = DEFAULT_MAX_DELAY;
+	// The maximum number of batches waiting to be sent
+	private int m_maxPendingBatches = DEFAULT_MAX_PENDING_BATCHES;
+	
+	// Synchronizes the batch being accumulated
+	private final Object m_syncLock = new Object();
+	// The interactions in the batch being accumulated
+	private List<PendingSend> m_pending = new ArrayList<PendingSend>();
+	// The graphed size of the batch being accumulated
+	private long m_pendingSize;
+	// Flushes the batch being accumulated when it has waited for the maximum delay
+	private ScheduledFuture<?> m_flushTimer;
+	// Runs the flush timer
+	private ScheduledThreadPoolExecutor m_executor;
+	// Sends batches, on a separate thread so a flush timer waiting for a pending batch does not hold up sending
+	private ExecutorService m_sender;
+	// Limits the number of batches waiting to be sent
+	// Batches waiting to be handed to the sending thread, in the order they were filled
+	private Deque<List<PendingSend>> m_readyBatches = new ArrayDeque<List<PendingSend>>();
+	// The number of batches handed to the sending thread which have not been sent
+	private int m_sendingBatches;
+	// The thread sending batches, which also notifies callbacks
+	private volatile Thread m_senderThread;
+	
+	/**
+	 * Creates a new batching connector over the specified connector
+	 * @param connector The connector batches are sent over
+	 * @param wrapper Packs interactions into a batch and unpacks the batch acknowledgement
+	 */
+	public BatchSendingConnector(ISendingConnector connector, IBatchWrapper wrapper)
+	{
+		if(connector == null)
+			throw new IllegalArgumentException("connector");
+		else if(wrapper == null)
+			throw new IllegalArgumentException("wrapper");
+		this.m_connector = connector;
+		this.m_wrapper = wrapper;
+	}
+	
+	/**
+	 * Creates a new batching connector over the specified connector with the specified connection string
+	 */
+	public BatchSendingConnector(ISendingConnector connector, IBatchWrapper wrapper, String connectionString)
+	{
+		this(connector, wrapper);
+		this.m_connectionString = connectionString;
+	}
+	
+	/**
+	 * Send data, blocking until the batch containing the data has been sent
+	 */
+	@Override
+	public ISendResult send(IGraphable data) {
+		Future<ISendResult> result = this.sendAsync(data, null);
+		try
+		{
+			return result.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting for the batch to be sent", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new ConnectorException("The batch could not be sent", e.getCause());
+		}
+	}
+
+	/**
+	 * Add data to the current batch
+	 */
+	@Override
+	public Future<ISendResult> sendAsync(IGraphable data) {
+		return this.sendAsync(data, null);
+	}
+
+	/**
+	 * Add data to the current batch, notifying the callback when the batch has been sent
+	 */
+	@Override
+	public Future<ISendResult> sendAsync(IGraphable data, ISendCallback callback) {
+		
+		if(data == null)
+			throw new IllegalArgumentException("data");
+		
+		long size = this.m_maxBatchSize > 0 ? this.measure(data) : 0;
+		PendingSend send = new PendingSend(data, callback);
+		synchronized (this.m_syncLock) {
+			if(!this.isOpen())
+				throw new ConnectorException("Connector has not been opened");
+			
+			// Send the current batch first if this interaction would exceed the size, the connector may be closed while waiting
+			if(this.m_maxBatchSize > 0 && !this.m_pending.isEmpty() && this.m_pendingSize + size > this.m_maxBatchSize)
+			{
+				this.flushInternal();
+				if(!this.isOpen())
+					throw new ConnectorException("Connector has been closed");
+			}
+			
+			this.m_pending.add(send);
+			this.m_pendingSize += size;
+			if(this.m_pending.size() >= this.m_maxBatchCount || this.m_maxBatchSize > 0 && this.m_pendingSize >= this.m_maxBatchSize)
+				this.flushInternal();
+			else if(this.m_pending.size() == 1 && this.m_maxDelay > 0)
+				this.m_flushTimer = this.m_executor.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				}, this.m_maxDelay, TimeUnit.MILLISECONDS);
+		}
+		return send.getFuture();
+	}
+	
+	/**
+	 * Send the current batch without waiting for it to fill
+	 */
+	public void flush() {
+		synchronized (this.m_syncLock) {
+			if(this.isOpen())
+				this.flushInternal();
+		}
+	}
+	
+	/**
+	 * Hand the current batch to the sending thread, the caller holds the sync lock. Waits while 
+	 * the maximum number of batches are waiting to be sent, releasing the sync lock so callbacks 
+	 * may use the connector meanwhile. A callback on the sending thread does not wait for itself,
+	 * its batch is handed over once an earlier batch has been sent
+	 */
+	private void flushInternal() {
+		if(this.m_flushTimer != null)
+		{
+			this.m_flushTimer.cancel(false);
+			this.m_flushTimer = null;
+		}
+		if(this.m_pending.isEmpty())
+			return;
+		
+		List<PendingSend> batch = this.m_pending;
+		this.m_pending = new ArrayList<PendingSend>();
+		this.m_pendingSize = 0;
+		this.m_readyBatches.add(batch);
+		this.dispatchReadyBatches();
+		if(Thread.currentThread() != this.m_senderThread)
+			this.awaitDispatch(batch);
+	}
+	
+	/**
+	 * Wait until the batch has been handed to the sending thread, the caller holds the sync lock
+	 */
+	private void awaitDispatch(List<PendingSend> batch) {
+		boolean interrupted = false;
+		while(this.m_readyBatches.contains(batch))
+			try
+			{
+				this.m_syncLock.wait();
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Hand ready batches to the sending thread while fewer than the maximum are waiting to be 
+	 * sent, the caller holds the sync lock
+	 */
+	private void dispatchReadyBatches() {
+		while(!this.m_readyBatches.isEmpty() && this.m_sendingBatches < this.m_maxPendingBatches)
+		{
+			final List<PendingSend> batch = this.m_readyBatches.poll();
+			this.m_sendingBatches++;
+			this.m_sender.execute(new Runnable() {
+				@Override
+				public void run() {
+					try
+					{
+						sendBatch(batch);
+					}
+					finally
+					{
+						synchronized (m_syncLock) {
+							m_sendingBatches--;
+							dispatchReadyBatches();
+							m_syncLock.notifyAll();
+						}
+					}
+					
+					// Callbacks may use the connector, so they are notified once the batch has been counted as sent
+					for(PendingSend send : batch)
+						send.notifyCallback();
+				}
+			});
+		}
+		this.m_syncLock.notifyAll();
+	}
+	
+	/**
+	 * Send a batch and complete the sends it contains, every send fails when the batch could not be sent
+	 */
+	private void sendBatch(List<PendingSend> batch) {
+		
+		List<IGraphable> interactions = new ArrayList<IGraphable>(batch.size());
+		for(PendingSend send : batch)
+			interactions.add(send.getData());
+		
+		List<ISendResult> results = null;
+		try
+		{
+			ISendResult batchResult = this.m_connector.send(this.m_wrapper.wrap(interactions));
+			
+			// Receive the batch acknowledgement
+			IReceiveResult acknowledgement = null;
+			if(this.m_connector instanceof ISendReceiveConnector && 
+					(batchResult.getCode() == ResultCodeType.Accepted || batchResult.getCode() == ResultCodeType.AcceptedNonConformant))
+				acknowledgement = ((ISendReceiveConnector)this.m_connector).receive(batchResult);
+			
+			results = this.m_wrapper.unwrap(interactions, batchResult, acknowledgement);
+			if(results == null)
+			{
+				results = new ArrayList<ISendResult>(batch.size());
+				for(int i = 0; i < batch.size(); i++)
+					results.add(new BatchSendResult(batchResult, i));
+			}
+			else if(results.size() != batch.size())
+				throw new IllegalStateException(String.format("The batch wrapper returned %d results for %d interactions", results.size(), batch.size()));
+		}
+		catch(Throwable e)
+		{
+			Iterable<IResultDetail> details = Arrays.asList(new IResultDetail[] {
+				new ResultDetail(ResultDetailType.ERROR, e.getMessage(), e instanceof Exception ? (Exception)e : new ExecutionException(e))	
+			});
+			for(int i = 0; i < batch.size(); i++)
+				batch.get(i).fail(e, new BatchSendResult(ResultCodeType.Error, details, null, i));
+			return;
+		}
+		
+		for(int i = 0; i < batch.size(); i++)
+			batch.get(i).complete(results.get(i));
+	}
+	
+	/**
+	 * Measure the graphed size of the data using the formatter of the underlying connector
+	 */
+	private long measure(IGraphable data) {
+		if(!(this.m_connector instanceof IFormattedConnector) || ((IFormattedConnector)this.m_connector).getFormatter() == null)
+			return 0;
+		CountingOutputStream counter = new CountingOutputStream();
+		((IFormattedConnector)this.m_connector).getFormatter().graph(counter, data);
+		return counter.getCount();
+	}
+	
+	/**
+	 * Gets the number of interactions waiting for the current batch to be sent
+	 */
+	public int getPendingCount() {
+		synchronized (this.m_syncLock) {
+			return this.m_pending.size();
+		}
+	}
+	
+	/**
+	 * Gets the maximum number of interactions in a batch
+	 */
+	public int getMaxBatchCount() {
+		return this.m_maxBatchCount;
+	}
+	
+	/**
+	 * Gets the maximum graphed size of a batch in bytes, zero if there is no limit
+	 */
+	public long getMaxBatchSize() {
+		return this.m_maxBatchSize;
+	}
+	
+	/**
+	 * Gets the number of milliseconds an interaction waits for its batch to fill, zero if there is no limit
+	 */
+	public long getMaxDelay() {
+		return this.m_maxDelay;
+	}
+	
+	/**
+	 * Gets the maximum number of batches waiting to be sent
+	 */
+	public int getMaxPendingBatches() {
+		return this.m_maxPendingBatches;
+	}
+	
+	/**
+	 * Gets the connector batches are sent over
+	 */
+	public ISendingConnector getConnector() {
+		return this.m_connector;
+	}
+	
+	/**
+	 * Sets the connection string
+	 * 
+	 * <p>Connection String options are:</p>
+	 * <ul>
+	 * 	<li><b>maxBatchCount</b> - The maximum number of interactions in a batch (default 100)</li>
+	 * 	<li><b>maxBatchSize</b> - The maximum graphed size of a batch in bytes, measuring the size graphs each interaction an extra time (default no limit)</li>
+	 * 	<li><b>maxDelay</b> - The number of milliseconds an interaction waits for its batch to fill, 0 waits for a flush (default 1000)</li>
+	 * 	<li><b>maxPendingBatches</b> - The number of batches which may wait to be sent before sendAsync waits (default 10)</li>
+	 * </ul>
+	 */
+	@Override
+	public void setConnectionString(String connectionString) {
+		this.m_connectionString = connectionString;
+	}
+
+	/**
+	 * Gets the connection string
+	 */
+	@Override
+	public String getConnectionString() {
+		return this.m_connectionString;
+	}
+
+	/**
+	 * Open the connector, opening the underlying connector if it is not open
+	 */
+	@Override
+	public void open() {
+		
+		if(this.isOpen())
+			return;
+		
+		HashMap<String, List<String>> parameters = ConnectorUtil.parseConnectionString(this.m_connectionString == null ? "" : this.m_connectionString);
+		try
+		{
+			if(parameters.get("maxbatchcount") != null)
+				this.m_maxBatchCount = Integer.parseInt(parameters.get("maxbatchcount").get(0));
+			if(parameters.get("maxbatchsize") != null)
+				this.m_maxBatchSize = Long.parseLong(parameters.get("maxbatchsize").get(0));
+			if(parameters.get("maxdelay") != null)
+				this.m_maxDelay = Long.parseLong(parameters.get("maxdelay").get(0));
+			if(parameters.get("maxpendingbatches") != null)
+				this.m_maxPendingBatches = Integer.parseInt(parameters.get("maxpendingbatches").get(0));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("maxBatchCount, maxBatchSize, maxDelay and maxPendingBatches parameters must be integers", e);
+		}
+		if(this.m_maxBatchCount < 1 || this.m_maxPendingBatches < 1 || this.m_maxBatchSize < 0 || this.m_maxDelay < 0)
+			throw new ConnectorException("maxBatchCount and maxPendingBatches must be positive and maxBatchSize and maxDelay must not be negative");
+		
+		if(!this.m_connector.isOpen())
+			this.m_connector.open();
+		
+		final int connectorId = s_connectorCount.incrementAndGet();
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("BatchSendingConnector-%d-Timer", connectorId));
+				retVal.setDaemon(true);
+				return retVal;
+			}
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		ExecutorService sender = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("BatchSendingConnector-%d", connectorId));
+				retVal.setDaemon(true);
+				m_senderThread = retVal;
+				return retVal;
+			}
+		});
+		synchronized (this.m_syncLock) {
+			this.m_readyBatches.clear();
+			this.m_sendingBatches = 0;
+			this.m_sender = sender;
+			this.m_executor = executor;
+		}
+	}
+
+	/**
+	 * Close the connector, sending the current batch and waiting for the batches already
+	 * accepted to be sent. The underlying connector is left open.
+	 */
+	@Override
+	public void close() {
+		ScheduledThreadPoolExecutor executor = null;
+		ExecutorService sender = null;
+		synchronized (this.m_syncLock) {
+			if(!this.isOpen())
+				return;
+			// No more interactions are accepted once the timer is cleared
+			executor = this.m_executor;
+			this.m_executor = null;
+			this.flushInternal();
+			if(!this.m_readyBatches.isEmpty() && Thread.currentThread() != this.m_senderThread)
+				this.awaitDispatch(this.m_readyBatches.peekLast());
+			sender = this.m_sender;
+			this.m_sender = null;
+		}
+		
+		executor.shutdown();
+		sender.shutdown();
+		try
+		{
+			sender.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * True when the connector is open
+	 */
+	@Override
+	public boolean isOpen() {
+		synchronized (this.m_syncLock) {
+			return this.m_executor != null;
+		}
+	}
+	
+	/**
+	 * An interaction waiting for its batch to be sent
+	 */
+	private static class PendingSend implements Callable<ISendResult> {
+		
+		// The interaction
+		private final IGraphable m_data;
+		// The callback to notify, may be null
+		private final ISendCallback m_callback;
+		// Completes with the result
+		private final FutureTask<ISendResult> m_future = new FutureTask<ISendResult>(this);
+		// The result of sending
+		private ISendResult m_result;
+		// The error which prevented sending, null if the batch was sent
+		private Throwable m_error;
+		// The result the callback is notified with
+		private ISendResult m_callbackResult;
+		
+		/**
+		 * Creates a new pending send
+		 */
+		PendingSend(IGraphable data, ISendCallback callback)
+		{
+			this.m_data = data;
+			this.m_callback = callback;
+		}
+		
+		/**
+		 * Gets the interaction
+		 */
+		IGraphable getData() {
+			return this.m_data;
+		}
+		
+		/**
+		 * Gets the future which completes with the result
+		 */
+		Future<ISendResult> getFuture() {
+			return this.m_future;
+		}
+		
+		/**
+		 * Complete the send with the specified result
+		 */
+		void complete(ISendResult result) {
+			this.m_result = result;
+			this.m_callbackResult = result;
+			this.m_future.run();
+		}
+		
+		/**
+		 * Fail the send with the error which prevented the batch being sent, the callback 
+		 * is notified with the specified error result
+		 */
+		void fail(Throwable error, ISendResult result) {
+			this.m_error = error;
+			this.m_callbackResult = result;
+			this.m_future.run();
+		}
+		
+		/**
+		 * Notify the callback of the result the send was completed or failed with
+		 */
+		void notifyCallback() {
+			if(this.m_callback != null)
+				try
+				{
+					this.m_callback.sendCompleted(this.m_data, this.m_callbackResult);
+				}
+				catch(Throwable e)
+				{
+					// A failing callback must not prevent the rest of the batch from completing
+				}
+		}
+		
+		/**
+		 * Provides the result or the error to the future
+		 */
+		@Override
+		public ISendResult call() throws Exception {
+			if(this.m_error instanceof Exception)
+				throw (Exception)this.m_error;
+			else if(this.m_error instanceof Error)
+				throw (Error)this.m_error;
+			else if(this.m_error != null)
+				throw new ExecutionException(this.m_error);
+			return this.m_result;
+		}
+	}
+	
+	/**
+	 * A stream which counts the bytes written to it
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		
+		// The number of bytes written
+		private long m_count;
+		
+		/**
+		 * Count a byte
+		 */
+		@Override
+		public void write(int b) {
+			this.m_count++;
+		}
+		
+		/**
+		 * Count bytes
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.m_count += len;
+		}
+		
+		/**
+		 * Gets the number of bytes written
+		 */
+		long getCount() {
+			return this.m_count;
+		}
+	}
+
+}
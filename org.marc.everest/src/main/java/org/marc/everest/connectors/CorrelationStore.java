@@ -0,0 +1,286 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent store which correlates values with an explicit correlation identifier 
+ * and is bounded in both size and time.
+ * <p>Connectors use the store to hold results until the caller that is interested 
+ * in them collects them. Values which are never collected are evicted oldest first once 
+ * the store is full, or once they are older than the time to live, so a long running 
+ * sender keeps a flat memory profile. Subclasses can evict additional entries by 
+ * overriding shouldEvict and can observe evictions by overriding onEvicted.</p>
+ */
+public class CorrelationStore<V> {
+
+	/**
+	 * An entry in the store
+	 */
+	private static final class Entry<V> {
+		
+		// The correlation identifier
+		final String correlationId;
+		// The value, cleared once the entry is taken or replaced so the order queue does not retain it
+		volatile V value;
+		// The time the entry was created (in nanoseconds)
+		final long created;
+		
+		/**
+		 * Creates a new entry
+		 */
+		Entry(String correlationId, V value, long created)
+		{
+			this.correlationId = correlationId;
+			this.value = value;
+			this.created = created;
+		}
+	}
+	
+	// The default maximum number of entries
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	// The default time to live in seconds
+	public static final long DEFAULT_TIME_TO_LIVE = 300;
+	
+	// The entries by correlation identifier
+	private final ConcurrentMap<String, Entry<V>> m_entries = new ConcurrentHashMap<String, Entry<V>>();
+	// The entries in the order they were added, may contain entries which have since been removed
+	private final Queue<Entry<V>> m_order = new ConcurrentLinkedQueue<Entry<V>>();
+	// Serializes purges so the head which was examined is the head which is polled
+	private final Lock m_purgeLock = new ReentrantLock();
+	// The number of entries
+	private final AtomicInteger m_size = new AtomicInteger();
+	// The maximum number of entries
+	private final int m_maxSize;
+	// The time to live of an entry in nanoseconds
+	private final long m_timeToLive;
+	// Metrics
+	private final AtomicLong m_hits = new AtomicLong(), 
+			m_misses = new AtomicLong(), 
+			m_evictions = new AtomicLong(), 
+			m_expirations = new AtomicLong();
+	
+	/**
+	 * Creates a new correlation store with the default bounds
+	 */
+	public CorrelationStore()
+	{
+		this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Creates a new correlation store with the specified bounds
+	 * @param maxSize The maximum number of entries
+	 * @param timeToLive The time after which an entry that has not been collected expires
+	 */
+	public CorrelationStore(int maxSize, long timeToLive, TimeUnit unit)
+	{
+		if(maxSize < 1)
+			throw new IllegalArgumentException("maxSize must be positive");
+		else if(timeToLive <= 0)
+			throw new IllegalArgumentException("timeToLive must be positive");
+		this.m_maxSize = maxSize;
+		this.m_timeToLive = unit.toNanos(timeToLive);
+	}
+	
+	/**
+	 * Stores the value under the correlation identifier, replacing any existing value
+	 */
+	public void put(String correlationId, V value)
+	{
+		if(correlationId == null)
+			throw new IllegalArgumentException("correlationId");
+		else if(value == null)
+			throw new IllegalArgumentException("value");
+		
+		Entry<V> entry = new Entry<V>(correlationId, value, System.nanoTime()),
+				replaced = this.m_entries.put(correlationId, entry);
+		if(replaced == null)
+			this.m_size.incrementAndGet();
+		else
+			replaced.value = null;
+		this.m_order.offer(entry);
+		this.purge();
+	}
+	
+	/**
+	 * Removes and returns the value stored under the correlation identifier, or null if there is none
+	 */
+	public V take(String correlationId)
+	{
+		Entry<V> entry = correlationId == null ? null : this.m_entries.remove(correlationId);
+		if(entry == null)
+		{
+			this.m_misses.incrementAndGet();
+			return null;
+		}
+		this.m_size.decrementAndGet();
+		V value = entry.value;
+		entry.value = null;
+		if(this.isExpired(entry, System.nanoTime()))
+		{
+			this.m_expirations.incrementAndGet();
+			this.onEvicted(correlationId, value, true);
+			return null;
+		}
+		this.m_hits.incrementAndGet();
+		return value;
+	}
+	
+	/**
+	 * Returns the value stored under the correlation identifier without removing it, or null if there is none
+	 */
+	public V peek(String correlationId)
+	{
+		Entry<V> entry = correlationId == null ? null : this.m_entries.get(correlationId);
+		if(entry == null || this.isExpired(entry, System.nanoTime()))
+			return null;
+		return entry.value;
+	}
+	
+	/**
+	 * Evicts entries which have expired, entries selected by shouldEvict and the 
+	 * oldest entries while the store is over its maximum size
+	 */
+	public void purge()
+	{
+		long now = System.nanoTime();
+		Entry<V> head;
+		this.m_purgeLock.lock();
+		try
+		{
+			while((head = this.m_order.peek()) != null)
+			{
+				V value = head.value;
+				boolean current = value != null && this.m_entries.get(head.correlationId) == head,
+						expired = current && this.isExpired(head, now),
+						evict = current && !expired && (this.m_size.get() > this.m_maxSize || this.shouldEvict(head.correlationId, value, TimeUnit.NANOSECONDS.toMillis(now - head.created)));
+				if(current && !expired && !evict)
+					break;
+				
+				this.m_order.poll();
+				if((expired || evict) && this.m_entries.remove(head.correlationId, head))
+				{
+					head.value = null;
+					this.m_size.decrementAndGet();
+					(expired ? this.m_expirations : this.m_evictions).incrementAndGet();
+					this.onEvicted(head.correlationId, value, expired);
+				}
+			}
+		}
+		finally
+		{
+			this.m_purgeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Remove all entries
+	 */
+	public void clear()
+	{
+		this.m_purgeLock.lock();
+		try
+		{
+			this.m_entries.clear();
+			this.m_order.clear();
+			this.m_size.set(0);
+		}
+		finally
+		{
+			this.m_purgeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns true if the entry has outlived the time to live
+	 */
+	private boolean isExpired(Entry<V> entry, long now)
+	{
+		return now - entry.created > this.m_timeToLive;
+	}
+	
+	/**
+	 * When overridden in a derived class, returns true if the oldest entry should be evicted
+	 * even though the store is within its bounds
+	 * @param ageMillis The age of the entry in milliseconds
+	 */
+	protected boolean shouldEvict(String correlationId, V value, long ageMillis)
+	{
+		return false;
+	}
+	
+	/**
+	 * Called when an entry is evicted without having been collected
+	 * @param expired True if the entry was evicted because it outlived the time to live
+	 */
+	protected void onEvicted(String correlationId, V value, boolean expired)
+	{
+	}
+	
+	/**
+	 * Gets the number of entries in the store
+	 */
+	public int size() { return this.m_size.get(); }
+	
+	/**
+	 * Gets the maximum number of entries in the store
+	 */
+	public int getMaxSize() { return this.m_maxSize; }
+	
+	/**
+	 * Gets the time to live of an entry in milliseconds
+	 */
+	public long getTimeToLive() { return TimeUnit.NANOSECONDS.toMillis(this.m_timeToLive); }
+	
+	/**
+	 * Gets the number of values which were collected with take
+	 */
+	public long getHitCount() { return this.m_hits.get(); }
+	
+	/**
+	 * Gets the number of calls to take which found no value
+	 */
+	public long getMissCount() { return this.m_misses.get(); }
+	
+	/**
+	 * Gets the number of entries evicted because the store was full or selected by shouldEvict
+	 */
+	public long getEvictionCount() { return this.m_evictions.get(); }
+	
+	/**
+	 * Gets the number of entries evicted because they outlived the time to live
+	 */
+	public long getExpirationCount() { return this.m_expirations.get(); }
+	
+	/**
+	 * Represent the metrics of the store as a string
+	 */
+	@Override
+	public String toString() {
+		return String.format("size=%d/%d, hits=%d, misses=%d, evictions=%d, expirations=%d", this.size(), this.m_maxSize, this.getHitCount(), this.getMissCount(), this.getEvictionCount(), this.getExpirationCount());
+	}
+}
@@ -0,0 +1,44 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.interfaces;
+
+import java.util.concurrent.Future;
+
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Represents a sending connector that can send data to a remote system without 
+ * blocking the caller for the duration of the exchange.
+ * <p>Several messages may be in flight at once, so the formatting of one message 
+ * can overlap with the network wait of another. Implementations may block the caller 
+ * of sendAsync when their limit of in-flight messages has been reached</p>
+ */
+public interface IAsyncSendingConnector extends ISendingConnector {
+
+	/**
+	 * Send data to the remote system asynchronously
+	 * @return A future which completes with the result of the send operation
+	 */
+	Future<ISendResult> sendAsync(IGraphable data);
+	
+	/**
+	 * Send data to the remote system asynchronously, notifying the callback when the send completes
+	 * @param callback The callback to notify, may be null
+	 * @return A future which completes with the result of the send operation
+	 */
+	Future<ISendResult> sendAsync(IGraphable data, ISendCallback callback);
+}
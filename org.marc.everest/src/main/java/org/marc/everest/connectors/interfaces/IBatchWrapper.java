@@ -0,0 +1,46 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.interfaces;
+
+import java.util.List;
+
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Represents a class which packs interactions into an HL7v3 batch transmission wrapper 
+ * and unpacks the batch acknowledgement into the results of the individual interactions
+ */
+public interface IBatchWrapper {
+
+	/**
+	 * Wrap the interactions in a batch
+	 * @param interactions The interactions in the order they were sent
+	 * @return The batch to transmit
+	 */
+	IGraphable wrap(List<IGraphable> interactions);
+	
+	/**
+	 * Unwrap the result of transmitting a batch into the results of each interaction
+	 * @param interactions The interactions in the batch
+	 * @param batchResult The result of sending the batch
+	 * @param acknowledgement The batch acknowledgement, or null if the connector does not receive responses
+	 * @return The result of each interaction in the order of interactions, or null if each interaction 
+	 * shares the result of the batch 
+	 */
+	List<ISendResult> unwrap(List<IGraphable> interactions, ISendResult batchResult, IReceiveResult acknowledgement);
+	
+}
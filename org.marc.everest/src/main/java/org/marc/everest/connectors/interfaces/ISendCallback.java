@@ -0,0 +1,32 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.interfaces;
+
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Represents a callback which is notified when an asynchronous send operation completes
+ */
+public interface ISendCallback {
+
+	/**
+	 * Called when the data has been sent, on the thread which performed the send
+	 * @param data The data which was sent
+	 * @param result The result of the send operation
+	 */
+	void sendCompleted(IGraphable data, ISendResult result);
+}
@@ -0,0 +1,77 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream which reads the remaining bytes of a buffer without copying them
+ */
+class ByteBufferInputStream extends InputStream {
+
+	// The buffer being read
+	private final ByteBuffer m_buffer;
+	
+	/**
+	 * Creates a new stream over the remaining bytes of the buffer
+	 */
+	ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this.m_buffer = buffer;
+	}
+	
+	/**
+	 * Read a byte
+	 */
+	@Override
+	public int read() {
+		return this.m_buffer.hasRemaining() ? this.m_buffer.get() & 0xFF : -1;
+	}
+	
+	/**
+	 * Read bytes
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if(len == 0)
+			return 0;
+		else if(!this.m_buffer.hasRemaining())
+			return -1;
+		len = Math.min(len, this.m_buffer.remaining());
+		this.m_buffer.get(b, off, len);
+		return len;
+	}
+	
+	/**
+	 * Gets the number of bytes remaining
+	 */
+	@Override
+	public int available() {
+		return this.m_buffer.remaining();
+	}
+	
+	/**
+	 * Skip bytes
+	 */
+	@Override
+	public long skip(long n) {
+		int skipped = (int)Math.max(0, Math.min(n, this.m_buffer.remaining()));
+		this.m_buffer.position(this.m_buffer.position() + skipped);
+		return skipped;
+	}
+}
@@ -0,0 +1,426 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.ResultDetail;
+
+/**
+ * Represents a connector which exchanges messages through a spool directory.
+ * <p>Sent messages are graphed to a hidden temporary file and renamed to a unique name with the .xml
+ * extension once complete, so a receiver never sees a partially written message. Received messages
+ * are claimed by renaming them with a .working suffix before they are read, which allows several
+ * processes to receive from the same directory, and are deleted (or renamed with a .processed suffix)
+ * once received by the application. Files which were claimed but not received when the connector is
+ * closed are returned to the directory. Small files are read into memory while files at or above the map threshold are 
+ * memory-mapped and parsed directly from the mapping. Some platforms can't delete or rename a file while it is mapped,
+ * so received files which can't be removed yet are retried on each scan of the directory.</p>
+ * <pre>
+ * FileConnector connector = new FileConnector("directory=/var/spool/hl7;pattern=*.xml;maxConcurrency=8");
+ * connector.setFormatter(new XmlIts1Formatter());
+ * connector.open();
+ * IReceiveResult message = connector.receive();
+ * </pre>
+ */
+public class FileConnector extends LocalConnector {
+
+	/**
+	 * The default size in bytes at or above which files are memory-mapped
+	 */
+	public static final long DEFAULT_MAP_THRESHOLD = 1024 * 1024;
+	/**
+	 * The default number of milliseconds between scans of the directory
+	 */
+	public static final long DEFAULT_POLL_INTERVAL = 1000;
+	
+	// The suffix of files that have been claimed by a receiver
+	private static final String WORKING_SUFFIX = ".working";
+	// The suffix of files that have been received when files are kept
+	private static final String PROCESSED_SUFFIX = ".processed";
+	
+	// The spool directory
+	private File m_directory;
+	// The pattern received file names must match
+	private Pattern m_pattern;
+	// The size in bytes at or above which files are memory-mapped
+	private long m_mapThreshold = DEFAULT_MAP_THRESHOLD;
+	// The number of milliseconds between scans of the directory
+	private long m_pollInterval = DEFAULT_POLL_INTERVAL;
+	// True if received files are renamed rather than deleted
+	private boolean m_keepFiles;
+	// Scans the directory
+	private ScheduledThreadPoolExecutor m_scanner;
+	// Received files which could not be deleted or renamed yet
+	private final Queue<SpooledFile> m_pendingRemoval = new ConcurrentLinkedQueue<SpooledFile>();
+	
+	/**
+	 * Creates a new file connector
+	 */
+	public FileConnector()
+	{
+	}
+	
+	/**
+	 * Creates a new file connector with the specified connection string
+	 */
+	public FileConnector(String connectionString)
+	{
+		super(connectionString);
+	}
+	
+	/**
+	 * Graph the data to a new file in the directory
+	 */
+	@Override
+	public ISendResult send(IGraphable data) {
+		
+		File directory = this.m_directory;
+		if(!this.isOpen())
+			throw new ConnectorException("Connector not open");
+		
+		String name = UUID.randomUUID().toString();
+		File temp = new File(directory, "." + name + ".tmp");
+		try
+		{
+			IFormatterGraphResult result = null;
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+			try
+			{
+				result = this.getFormatter().graph(out, data);
+			}
+			finally
+			{
+				out.close();
+			}
+			
+			if(!isPublishable(result))
+				return new LocalSendResult(result.getCode(), result.getDetails(), null);
+			
+			File target = new File(directory, name + ".xml");
+			if(!temp.renameTo(target))
+				throw new IOException(String.format("Could not rename %s to %s", temp, target));
+			temp = null;
+			return new LocalSendResult(result.getCode(), result.getDetails(), target.getName());
+		}
+		catch(IOException e)
+		{
+			return new LocalSendResult(ResultCodeType.Error, Arrays.asList(new IResultDetail[] {
+					new ResultDetail(ResultDetailType.ERROR, e.getMessage(), e)
+			}), null);
+		}
+		finally
+		{
+			if(temp != null)
+				temp.delete();
+		}
+	}
+	
+	/**
+	 * Start scanning the directory
+	 */
+	@Override
+	void startReceiving(final ParseWorkerPool workers) {
+		this.m_scanner = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("FileConnector-%s", m_directory.getName()));
+				retVal.setDaemon(true);
+				return retVal;
+			}
+		});
+		this.m_scanner.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try
+				{
+					scan(workers);
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, 0, this.m_pollInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop scanning the directory
+	 */
+	@Override
+	void stopReceiving() {
+		this.m_scanner.shutdownNow();
+		try
+		{
+			this.m_scanner.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		this.m_scanner = null;
+		
+		for(Iterator<SpooledFile> it = this.m_pendingRemoval.iterator(); it.hasNext(); )
+			if(it.next().remove())
+				it.remove();
+	}
+	
+	/**
+	 * Claim the files in the directory oldest first and hand them to the worker pool
+	 */
+	private void scan(ParseWorkerPool workers) throws InterruptedException {
+		
+		// Retry the removal of received files, their mappings have usually been released by now
+		for(Iterator<SpooledFile> it = this.m_pendingRemoval.iterator(); it.hasNext(); )
+			if(it.next().remove())
+				it.remove();
+		
+		File[] files = this.m_directory.listFiles();
+		if(files == null)
+			return;
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				long diff = o1.lastModified() - o2.lastModified();
+				return diff < 0 ? -1 : diff > 0 ? 1 : o1.getName().compareTo(o2.getName());
+			}
+		});
+		
+		for(final File file : files)
+		{
+			if(!this.isCandidate(file))
+				continue;
+			
+			workers.acquire(); // blocks while the queue is full
+			final File working = new File(file.getPath() + WORKING_SUFFIX);
+			if(!file.renameTo(working)) // claimed by another receiver
+			{
+				workers.release();
+				continue;
+			}
+			
+			workers.execute(new SpooledFile(file, working));
+		}
+	}
+	
+	/**
+	 * Returns true if the file is a message waiting to be received
+	 */
+	private boolean isCandidate(File file) {
+		String name = file.getName();
+		return !name.startsWith(".") && !name.endsWith(WORKING_SUFFIX) && !name.endsWith(PROCESSED_SUFFIX) && 
+				this.m_pattern.matcher(name).matches() && file.isFile();
+	}
+	
+	/**
+	 * Read the content of a file, memory-mapping it when it is at least the threshold
+	 */
+	private static ByteBuffer read(File file, long mapThreshold) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if(size >= mapThreshold)
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			
+			ByteBuffer retVal = ByteBuffer.allocate((int)size);
+			while(retVal.hasRemaining() && channel.read(retVal) != -1)
+				;
+			retVal.flip();
+			return retVal;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Convert a file name glob to a regular expression
+	 */
+	private static Pattern compileGlob(String glob) {
+		StringBuilder regex = new StringBuilder();
+		int literalStart = 0;
+		for(int i = 0; i < glob.length(); i++)
+		{
+			char c = glob.charAt(i);
+			if(c != '*' && c != '?')
+				continue;
+			if(i > literalStart)
+				regex.append(Pattern.quote(glob.substring(literalStart, i)));
+			regex.append(c == '*' ? ".*" : ".");
+			literalStart = i + 1;
+		}
+		if(literalStart < glob.length())
+			regex.append(Pattern.quote(glob.substring(literalStart)));
+		return Pattern.compile(regex.toString());
+	}
+	
+	/**
+	 * Gets the spool directory
+	 */
+	public File getDirectory() {
+		return this.m_directory;
+	}
+	
+	/**
+	 * Gets the size in bytes at or above which files are memory-mapped
+	 */
+	public long getMapThreshold() {
+		return this.m_mapThreshold;
+	}
+	
+	/**
+	 * Gets the number of milliseconds between scans of the directory
+	 */
+	public long getPollInterval() {
+		return this.m_pollInterval;
+	}
+	
+	/**
+	 * Sets the connection string
+	 * 
+	 * <p>Connection String options are:</p>
+	 * <ul>
+	 * 	<li><b>directory</b> - The spool directory messages are sent to and received from</li>
+	 * 	<li><b>pattern</b> - The file name pattern of received messages where * matches any characters and ? matches one character (default *.xml)</li>
+	 * 	<li><b>mapThreshold</b> - The size in bytes at or above which files are memory-mapped rather than read (default 1048576)</li>
+	 * 	<li><b>pollInterval</b> - The number of milliseconds between scans of the directory (default 1000)</li>
+	 * 	<li><b>keepFiles</b> - When true received files are renamed with a .processed suffix rather than deleted (default false)</li>
+	 * 	<li><b>maxConcurrency</b> - The number of worker threads parsing messages (default 4)</li>
+	 * 	<li><b>queueSize</b> - The maximum number of messages being parsed or waiting to be received (default 100)</li>
+	 * </ul>
+	 */
+	@Override
+	public void setConnectionString(String connectionString) {
+		super.setConnectionString(connectionString);
+	}
+
+	/**
+	 * Read the file connector parameters
+	 */
+	@Override
+	void configure(HashMap<String, List<String>> parameters) {
+		if(parameters.get("directory") == null)
+			throw new ConnectorException("directory parameter must be present in the ConnectionString");
+		File directory = new File(parameters.get("directory").get(0));
+		if(!directory.isDirectory())
+			throw new ConnectorException(String.format("%s is not a directory", directory));
+		
+		try
+		{
+			if(parameters.get("mapthreshold") != null)
+				this.m_mapThreshold = Long.parseLong(parameters.get("mapthreshold").get(0));
+			if(parameters.get("pollinterval") != null)
+				this.m_pollInterval = Long.parseLong(parameters.get("pollinterval").get(0));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("mapThreshold and pollInterval parameters must be integers", e);
+		}
+		if(this.m_mapThreshold < 0 || this.m_pollInterval < 1)
+			throw new ConnectorException("mapThreshold must not be negative and pollInterval must be positive");
+		
+		this.m_pattern = compileGlob(parameters.get("pattern") == null ? "*.xml" : parameters.get("pattern").get(0));
+		this.m_keepFiles = parameters.get("keepfiles") != null && Boolean.parseBoolean(parameters.get("keepfiles").get(0));
+		this.m_directory = directory;
+	}
+	
+	/**
+	 * A file in the directory which has been claimed for receiving
+	 */
+	private class SpooledFile extends ParseWorkerPool.Message {
+		
+		// The name of the file before it was claimed
+		private final File m_file;
+		// The name of the file while it is claimed
+		private final File m_working;
+		
+		/**
+		 * Creates a new spooled file
+		 */
+		SpooledFile(File file, File working)
+		{
+			super(file.getName());
+			this.m_file = file;
+			this.m_working = working;
+		}
+		
+		/**
+		 * Read the file
+		 */
+		@Override
+		ByteBuffer read() throws IOException {
+			return FileConnector.read(this.m_working, m_mapThreshold);
+		}
+		
+		/**
+		 * Delete the file, or rename it when files are kept. Files which are still mapped are
+		 * removed by a later scan
+		 */
+		@Override
+		void received() {
+			if(!this.remove())
+				m_pendingRemoval.add(this);
+		}
+		
+		/**
+		 * Delete the file, or rename it when files are kept
+		 * @return False if the file could not be removed
+		 */
+		boolean remove() {
+			if(m_keepFiles)
+				return this.m_working.renameTo(new File(this.m_file.getPath() + PROCESSED_SUFFIX));
+			return this.m_working.delete() || !this.m_working.exists();
+		}
+		
+		/**
+		 * Return the file to the directory
+		 */
+		@Override
+		boolean discarded() {
+			return this.m_working.renameTo(this.m_file);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.marc.everest.connectors.ConnectorUtil;
+import org.marc.everest.connectors.interfaces.IFormattedConnector;
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.IReceivingConnector;
+import org.marc.everest.connectors.interfaces.ISendingConnector;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.formatters.interfaces.IStructureFormatter;
+import org.marc.everest.interfaces.ResultCodeType;
+
+/**
+ * Represents a connector which exchanges messages without a network, through the file system or memory.
+ * <p>Received messages are parsed with the assigned formatter (for example the XmlIts1Formatter) on a 
+ * pool of worker threads. The number of messages being parsed or waiting to be received is bounded, 
+ * once the bound is reached no further messages are taken from the source until the application 
+ * receives the ones already parsed. Messages are only taken from the source once the application
+ * first calls receive() or hasData(), so a connector used only for sending never consumes messages.</p>
+ */
+public abstract class LocalConnector implements ISendingConnector, IReceivingConnector, IFormattedConnector {
+
+	/**
+	 * The default number of worker threads parsing messages
+	 */
+	public static final int DEFAULT_MAX_CONCURRENCY = 4;
+	/**
+	 * The default maximum number of messages being parsed or waiting to be received
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+	
+	// The number of connectors created, used to name threads
+	private static final AtomicInteger s_connectorCount = new AtomicInteger();
+	
+	// Connection string
+	private String m_connectionString;
+	// The formatter used to graph and parse messages
+	private IStructureFormatter m_formatter;
+	// The number of worker threads parsing messages
+	private int m_maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+	// The maximum number of messages being parsed or waiting to be received
+	private int m_queueSize = DEFAULT_QUEUE_SIZE;
+	// Synchronizes opening and closing
+	private final Object m_syncLock = new Object();
+	// Parses received messages
+	private volatile ParseWorkerPool m_workers;
+	// True once messages are being taken from the source
+	private boolean m_receiving;
+	
+	/**
+	 * Creates a new local connector
+	 */
+	LocalConnector()
+	{
+	}
+	
+	/**
+	 * Creates a new local connector with the specified connection string
+	 */
+	LocalConnector(String connectionString)
+	{
+		this.m_connectionString = connectionString;
+	}
+	
+	/**
+	 * Read the connector specific parameters of the connection string
+	 */
+	abstract void configure(HashMap<String, List<String>> parameters);
+	
+	/**
+	 * Start taking messages from the source and handing them to the worker pool
+	 */
+	abstract void startReceiving(ParseWorkerPool workers);
+	
+	/**
+	 * Stop taking messages from the source
+	 */
+	abstract void stopReceiving();
+	
+	/**
+	 * Receive the next message, waiting until one is available or the connector is closed
+	 */
+	@Override
+	public IReceiveResult receive() {
+		ParseWorkerPool workers = this.ensureReceiving();
+		try
+		{
+			IReceiveResult retVal = null;
+			while((retVal = workers.poll(1, TimeUnit.SECONDS)) == null)
+				if(this.m_workers != workers)
+					throw new ConnectorException("Connector has been closed");
+			return retVal;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting to receive", e);
+		}
+	}
+	
+	/**
+	 * Receive the next message, waiting up to the specified time
+	 * @return The received message or null if no message arrived in time
+	 */
+	public IReceiveResult receive(long timeout, TimeUnit unit) {
+		ParseWorkerPool workers = this.ensureReceiving();
+		try
+		{
+			return workers.poll(timeout, unit);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting to receive", e);
+		}
+	}
+
+	/**
+	 * True when a parsed message is waiting to be received
+	 */
+	@Override
+	public boolean hasData() {
+		return this.ensureReceiving().hasData();
+	}
+	
+	/**
+	 * Start taking messages from the source if this has not been done
+	 */
+	private ParseWorkerPool ensureReceiving() {
+		synchronized (this.m_syncLock) {
+			if(!this.isOpen())
+				throw new ConnectorException("Connector not open");
+			if(!this.m_receiving)
+			{
+				this.startReceiving(this.m_workers);
+				this.m_receiving = true;
+			}
+			return this.m_workers;
+		}
+	}
+	
+	/**
+	 * Returns true if a message with the specified graph result should be published
+	 */
+	static boolean isPublishable(IFormatterGraphResult result) {
+		return result.getCode() != ResultCodeType.Rejected && result.getCode() != ResultCodeType.Error;
+	}
+
+	/**
+	 * Gets the number of worker threads parsing messages
+	 */
+	public int getMaxConcurrency() {
+		return this.m_maxConcurrency;
+	}
+	
+	/**
+	 * Gets the maximum number of messages being parsed or waiting to be received
+	 */
+	public int getQueueSize() {
+		return this.m_queueSize;
+	}
+	
+	/**
+	 * Gets the formatter used to graph and parse messages
+	 */
+	@Override
+	public IStructureFormatter getFormatter() {
+		return this.m_formatter;
+	}
+
+	/**
+	 * Sets the formatter used to graph and parse messages
+	 */
+	@Override
+	public void setFormatter(IStructureFormatter fmtr) {
+		this.m_formatter = fmtr;
+	}
+
+	/**
+	 * Sets the connection string
+	 * 
+	 * <p>Connection String options common to local connectors are:</p>
+	 * <ul>
+	 * 	<li><b>maxConcurrency</b> - The number of worker threads parsing messages (default 4)</li>
+	 * 	<li><b>queueSize</b> - The maximum number of messages being parsed or waiting to be received (default 100)</li>
+	 * </ul>
+	 */
+	@Override
+	public void setConnectionString(String connectionString) {
+		this.m_connectionString = connectionString;
+	}
+
+	/**
+	 * Gets the connection string
+	 */
+	@Override
+	public String getConnectionString() {
+		return this.m_connectionString;
+	}
+
+	/**
+	 * Open the connector
+	 */
+	@Override
+	public void open() {
+		synchronized (this.m_syncLock) {
+			if(this.isOpen())
+				return;
+			else if(this.m_formatter == null)
+				throw new ConnectorException("This connection requires a formatter");
+			
+			HashMap<String, List<String>> parameters = ConnectorUtil.parseConnectionString(this.m_connectionString == null ? "" : this.m_connectionString);
+			try
+			{
+				if(parameters.get("maxconcurrency") != null)
+					this.m_maxConcurrency = Integer.parseInt(parameters.get("maxconcurrency").get(0));
+				if(parameters.get("queuesize") != null)
+					this.m_queueSize = Integer.parseInt(parameters.get("queuesize").get(0));
+			}
+			catch(NumberFormatException e)
+			{
+				throw new ConnectorException("maxConcurrency and queueSize parameters must be integers", e);
+			}
+			if(this.m_maxConcurrency < 1 || this.m_queueSize < 1)
+				throw new ConnectorException("maxConcurrency and queueSize must be positive");
+			this.configure(parameters);
+			
+			this.m_workers = new ParseWorkerPool(String.format("%s-%d", this.getClass().getSimpleName(), s_connectorCount.incrementAndGet()), 
+					this.m_formatter, this.m_maxConcurrency, this.m_queueSize);
+		}
+	}
+
+	/**
+	 * Close the connector. Messages which have been parsed but not received are returned to their source.
+	 * @throws ConnectorException When the connector was closed but some messages could not be returned to their source
+	 */
+	@Override
+	public void close() {
+		List<String> lost;
+		synchronized (this.m_syncLock) {
+			if(!this.isOpen())
+				return;
+			if(this.m_receiving)
+				this.stopReceiving();
+			this.m_receiving = false;
+			lost = this.m_workers.shutdown();
+			this.m_workers = null;
+		}
+		if(!lost.isEmpty())
+			throw new ConnectorException(String.format("The connector was closed but %d message(s) could not be returned to the source: %s", lost.size(), lost));
+	}
+
+	/**
+	 * True when the connector is open
+	 */
+	@Override
+	public boolean isOpen() {
+		return this.m_workers != null;
+	}
+
+}
@@ -0,0 +1,80 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+
+/**
+ * Represents a message received by a local connector
+ */
+public class LocalReceiveResult implements IReceiveResult {
+
+	// Backing field for code
+	private final ResultCodeType m_code;
+	// Backing field for details
+	private final Iterable<IResultDetail> m_details;
+	// Backing field for structure
+	private final IGraphable m_structure;
+	// Backing field for the name of the message
+	private final String m_name;
+	
+	/**
+	 * Package scoped ctor
+	 */
+	LocalReceiveResult(ResultCodeType code, Iterable<IResultDetail> details, IGraphable structure, String name)
+	{
+		this.m_code = code;
+		this.m_details = details;
+		this.m_structure = structure;
+		this.m_name = name;
+	}
+	
+	/**
+	 * Get the codified result of parsing the message
+	 */
+	@Override
+	public ResultCodeType getCode() {
+		return this.m_code;
+	}
+
+	/**
+	 * Get the details of parsing the message
+	 */
+	@Override
+	public Iterable<IResultDetail> getDetails() {
+		return this.m_details;
+	}
+
+	/**
+	 * Get the structure that was parsed
+	 */
+	@Override
+	public IGraphable getStructure() {
+		return this.m_structure;
+	}
+	
+	/**
+	 * Gets the name of the message, the file name or queue message identifier
+	 */
+	public String getName() {
+		return this.m_name;
+	}
+
+}
@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+
+/**
+ * Represents the result of sending a message with a local connector
+ */
+public class LocalSendResult implements ISendResult {
+
+	// Backing field for code
+	private final ResultCodeType m_code;
+	// Backing field for details
+	private final Iterable<IResultDetail> m_details;
+	// Backing field for the name of the message
+	private final String m_name;
+	
+	/**
+	 * Package scoped ctor
+	 */
+	LocalSendResult(ResultCodeType code, Iterable<IResultDetail> details, String name)
+	{
+		this.m_code = code;
+		this.m_details = details;
+		this.m_name = name;
+	}
+	
+	/**
+	 * Get the codified result of sending
+	 */
+	@Override
+	public ResultCodeType getCode() {
+		return this.m_code;
+	}
+
+	/**
+	 * Get the details of sending
+	 */
+	@Override
+	public Iterable<IResultDetail> getDetails() {
+		return this.m_details;
+	}
+	
+	/**
+	 * Gets the name of the message, the file name or queue message identifier, or null if the message was not sent
+	 */
+	public String getName() {
+		return this.m_name;
+	}
+
+}
@@ -0,0 +1,248 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.interfaces.IStructureFormatter;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.resultdetails.ResultDetail;
+
+/**
+ * Parses messages read by a local connector on a pool of worker threads.
+ * <p>The number of messages being read, parsed or waiting to be received is bounded by the
+ * queue size. Reserving space for a message blocks once the bound is reached and space is returned
+ * each time a parsed message is received, so a slow consumer holds back the source instead
+ * of accumulating parsed messages in memory.</p>
+ */
+class ParseWorkerPool {
+
+	/**
+	 * A message taken from the source of a local connector
+	 */
+	static abstract class Message {
+		
+		// The name of the message
+		private final String m_name;
+		
+		/**
+		 * Creates a new message with the specified name
+		 */
+		Message(String name)
+		{
+			this.m_name = name;
+		}
+		
+		/**
+		 * Gets the name of the message
+		 */
+		String getName() {
+			return this.m_name;
+		}
+		
+		/**
+		 * Read the content of the message, called on a worker thread
+		 */
+		abstract ByteBuffer read() throws IOException;
+		
+		/**
+		 * Called once the parsed message has been received by the application
+		 */
+		abstract void received();
+		
+		/**
+		 * Called when the connector is closed before the message was received so it can be returned to the source
+		 * @return False if the message could not be returned to the source
+		 */
+		abstract boolean discarded();
+	}
+	
+	// The formatter used to parse messages
+	private final IStructureFormatter m_formatter;
+	// Bounds the messages in flight
+	private final Semaphore m_permits;
+	// Parsed messages waiting to be received
+	private final BlockingQueue<ParsedMessage> m_results = new LinkedBlockingQueue<ParsedMessage>();
+	// The worker threads
+	private final ThreadPoolExecutor m_executor;
+	
+	/**
+	 * Creates a new worker pool
+	 * @param name The name of the owning connector, used to name threads
+	 * @param formatter The formatter used to parse messages
+	 * @param maxConcurrency The number of worker threads
+	 * @param queueSize The maximum number of messages in flight
+	 */
+	ParseWorkerPool(final String name, IStructureFormatter formatter, int maxConcurrency, int queueSize)
+	{
+		this.m_formatter = formatter;
+		this.m_permits = new Semaphore(queueSize);
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.m_executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread retVal = new Thread(r, String.format("%s-%d", name, threadCount.incrementAndGet()));
+				retVal.setDaemon(true);
+				return retVal;
+			}
+		});
+		this.m_executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Reserve space for a message, blocking while the maximum number of messages are in flight
+	 */
+	void acquire() throws InterruptedException
+	{
+		this.m_permits.acquire();
+	}
+	
+	/**
+	 * Return space reserved with acquire that was not used
+	 */
+	void release()
+	{
+		this.m_permits.release();
+	}
+	
+	/**
+	 * Parse a message in the space reserved by acquire
+	 */
+	void execute(final Message message)
+	{
+		this.m_executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				m_results.add(new ParsedMessage(parse(message), message));
+			}
+		});
+	}
+	
+	/**
+	 * Read and parse a message
+	 */
+	private LocalReceiveResult parse(Message message)
+	{
+		try
+		{
+			IFormatterParseResult result = this.m_formatter.parse(new ByteBufferInputStream(message.read()));
+			return new LocalReceiveResult(result.getCode(), result.getDetails(), result.getStructure(), message.getName());
+		}
+		catch(Exception e)
+		{
+			return new LocalReceiveResult(ResultCodeType.Error, Arrays.asList(new IResultDetail[] {
+					new ResultDetail(ResultDetailType.ERROR, e.getMessage(), e)
+			}), null, message.getName());
+		}
+	}
+	
+	/**
+	 * Take the next parsed message, waiting up to the specified time
+	 * @return The parsed message or null if none was parsed in time
+	 */
+	LocalReceiveResult poll(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		ParsedMessage retVal = this.m_results.poll(timeout, unit);
+		if(retVal == null)
+			return null;
+		this.m_permits.release();
+		retVal.getMessage().received();
+		return retVal.getResult();
+	}
+	
+	/**
+	 * True when a parsed message is waiting to be received
+	 */
+	boolean hasData()
+	{
+		return !this.m_results.isEmpty();
+	}
+	
+	/**
+	 * Stop the worker threads once the messages already taken from the source have been parsed,
+	 * and return the messages which were not received to the source
+	 * @return The names of the messages which could not be returned to the source
+	 */
+	List<String> shutdown()
+	{
+		this.m_executor.shutdown();
+		try
+		{
+			this.m_executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		List<ParsedMessage> discarded = new ArrayList<ParsedMessage>();
+		List<String> retVal = new ArrayList<String>();
+		this.m_results.drainTo(discarded);
+		for(ParsedMessage parsed : discarded)
+			if(!parsed.getMessage().discarded())
+				retVal.add(parsed.getMessage().getName());
+		return retVal;
+	}
+	
+	/**
+	 * A message which has been parsed and is waiting to be received
+	 */
+	private static class ParsedMessage {
+		
+		// The result of parsing
+		private final LocalReceiveResult m_result;
+		// The message that was parsed
+		private final Message m_message;
+		
+		/**
+		 * Creates a new parsed message
+		 */
+		ParsedMessage(LocalReceiveResult result, Message message)
+		{
+			this.m_result = result;
+			this.m_message = message;
+		}
+		
+		/**
+		 * Gets the result of parsing
+		 */
+		LocalReceiveResult getResult() {
+			return this.m_result;
+		}
+		
+		/**
+		 * Gets the message that was parsed
+		 */
+		Message getMessage() {
+			return this.m_message;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.connectors.local;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Represents a connector which exchanges messages through a named queue within the JVM.
+ * <p>Every connector opened with the same queue name shares the queue, messages are graphed
+ * to bytes by the sender and parsed by the receiver exactly as they would be over a network
+ * connector, which makes the queue connector useful for decoupling components of one application
+ * and for testing. The queue is bounded, send() blocks while the queue is full.</p>
+ * <pre>
+ * QueueConnector sender = new QueueConnector("queue=admissions"), receiver = new QueueConnector("queue=admissions");
+ * sender.setFormatter(new XmlIts1Formatter());
+ * receiver.setFormatter(new XmlIts1Formatter());
+ * sender.open();
+ * receiver.open();
+ * sender.send(message);
+ * IReceiveResult received = receiver.receive();
+ * </pre>
+ */
+public class QueueConnector extends LocalConnector {
+
+	/**
+	 * The default maximum number of messages waiting in a queue
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+	
+	// The queues shared by connectors, by name
+	private static final ConcurrentMap<String, BlockingQueue<QueuedMessage>> s_queues = new ConcurrentHashMap<String, BlockingQueue<QueuedMessage>>();
+	
+	// The name of the queue
+	private String m_queueName;
+	// The queue messages are exchanged through
+	private BlockingQueue<QueuedMessage> m_queue;
+	// Takes messages from the queue
+	private Thread m_pump;
+	
+	/**
+	 * Creates a new queue connector
+	 */
+	public QueueConnector()
+	{
+	}
+	
+	/**
+	 * Creates a new queue connector with the specified connection string
+	 */
+	public QueueConnector(String connectionString)
+	{
+		super(connectionString);
+	}
+	
+	/**
+	 * Graph the data and place it on the queue, waiting while the queue is full
+	 */
+	@Override
+	public ISendResult send(IGraphable data) {
+		
+		BlockingQueue<QueuedMessage> queue = this.m_queue;
+		if(!this.isOpen())
+			throw new ConnectorException("Connector not open");
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IFormatterGraphResult result = this.getFormatter().graph(out, data);
+		if(!isPublishable(result))
+			return new LocalSendResult(result.getCode(), result.getDetails(), null);
+		
+		QueuedMessage message = new QueuedMessage(UUID.randomUUID().toString(), out.toByteArray(), queue);
+		try
+		{
+			queue.put(message);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ConnectorException("Interrupted while waiting to send", e);
+		}
+		return new LocalSendResult(result.getCode(), result.getDetails(), message.getName());
+	}
+	
+	/**
+	 * Start taking messages from the queue
+	 */
+	@Override
+	void startReceiving(final ParseWorkerPool workers) {
+		final BlockingQueue<QueuedMessage> queue = this.m_queue;
+		this.m_pump = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try
+				{
+					while(!Thread.currentThread().isInterrupted())
+					{
+						workers.acquire(); // blocks while the worker queue is full
+						QueuedMessage message = queue.poll(1, TimeUnit.SECONDS);
+						if(message == null)
+							workers.release();
+						else
+							workers.execute(message);
+					}
+				}
+				catch(InterruptedException e)
+				{
+					// closing
+				}
+			}
+		}, String.format("QueueConnector-%s", this.getQueueName()));
+		this.m_pump.setDaemon(true);
+		this.m_pump.start();
+	}
+
+	/**
+	 * Stop taking messages from the queue
+	 */
+	@Override
+	void stopReceiving() {
+		this.m_pump.interrupt();
+		try
+		{
+			this.m_pump.join();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		this.m_pump = null;
+	}
+	
+	/**
+	 * Gets 	 */
+	public String getQueueName() {
+		return this.m_queueName;
+	}
+	
+	/**
+	 * Gets the number of messages waiting in the queue
+	 */
+	public int getQueueDepth() {
+		BlockingQueue<QueuedMessage> queue = this.m_queue;
+		return queue == null ? 0 : queue.size();
+	}
+	
+	/**
+	 * Sets the connection string
+	 * 
+	 * <p>Connection String options are:</p>
+	 * <ul>
+	 * 	<li><b>queue</b> - The name of the queue messages are exchanged through</li>
+	 * 	<li><b>capacity</b> - The maximum number of messages waiting in the queue, used by the first connector to open the queue (default 1000)</li>
+	 * 	<li><b>maxConcurrency</b> - The number of worker threads parsing messages (default 4)</li>
+	 * 	<li><b>queueSize</b> - The maximum number of messages being parsed or waiting to be received (default 100)</li>
+	 * </ul>
+	 */
+	@Override
+	public void setConnectionString(String connectionString) {
+		super.setConnectionString(connectionString);
+	}
+
+	/**
+	 * Read the queue connector parameters
+	 */
+	@Override
+	void configure(HashMap<String, List<String>> parameters) {
+		if(parameters.get("queue") == null)
+			throw new ConnectorException("queue parameter must be present in the ConnectionString");
+		
+		int capacity = DEFAULT_CAPACITY;
+		try
+		{
+			if(parameters.get("capacity") != null)
+				capacity = Integer.parseInt(parameters.get("capacity").get(0));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new ConnectorException("capacity parameter must be an integer", e);
+		}
+		if(capacity < 1)
+			throw new ConnectorException("capacity must be positive");
+		
+		String name = parameters.get("queue").get(0);
+		BlockingQueue<QueuedMessage> queue = s_queues.get(name);
+		if(queue == null)
+		{
+			queue = new LinkedBlockingQueue<QueuedMessage>(capacity);
+			BlockingQueue<QueuedMessage> existing = s_queues.putIfAbsent(name, queue);
+			if(existing != null)
+				queue = existing;
+		}
+		this.m_queueName = name;
+		this.m_queue = queue;
+	}
+	
+	/**
+	 * A graphed message waiting in a queue
+	 */
+	private static class QueuedMessage extends ParseWorkerPool.Message {
+		
+		// The graphed message
+		private final byte[] m_data;
+		// The queue the message was sent to
+		private final BlockingQueue<QueuedMessage> m_queue;
+		
+		/**
+		 * Creates a new queued message
+		 */
+		QueuedMessage(String name, byte[] data, BlockingQueue<QueuedMessage> queue)
+		{
+			super(name);
+			this.m_data = data;
+			this.m_queue = queue;
+		}
+		
+		/**
+		 * Wrap the graphed message
+		 */
+		@Override
+		ByteBuffer read() {
+			return ByteBuffer.wrap(this.m_data);
+		}
+		
+		/**
+		 * Nothing to do once received
+		 */
+		@Override
+		void received() {
+		}
+		
+		/**
+		 * Return the message to the queue, failing if the queue has filled
+		 */
+		@Override
+		boolean discarded() {
+			return this.m_queue.offer(this);
+		}
+	}
+}
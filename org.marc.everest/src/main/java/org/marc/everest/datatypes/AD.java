@@ -24,6 +24,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.marc.everest.annotations.ConformanceType;
@@ -56,6 +57,9 @@ public class AD extends ANY {
 	/** Specifies the usable period for the address **/
 	private GTS useablePeriod;
 	
+	/** Hash code cached once the instance is frozen **/
+	private int m_frozenHashCode;
+	
 	/**
 	 * Instantiates a new AD.
 	 */
@@ -144,6 +148,7 @@ public class AD extends ANY {
 	 */
 	public void setPart(List<ADXP> part)
 	{
+		this.onModifying();
 		this.parts = part;
 	}
 	
@@ -163,6 +168,7 @@ public class AD extends ANY {
 	 */
 	public void setUse(SET<CS<PostalAddressUse>> use)
 	{
+		this.onModifying();
 		this.use = use;
 	}
 	/**
@@ -170,6 +176,7 @@ public class AD extends ANY {
 	 */
 	public void setIsNotOrdered(boolean ordered)
 	{
+		this.onModifying();
 		this.isNotOrdered = ordered;
 	}
 	/**
@@ -192,7 +199,7 @@ public class AD extends ANY {
 	 * Gets the timing specification indiciating the time when this address is valid
 	 * @param value
 	 */
-	public void setUseablePeriod(GTS value) { this.useablePeriod = value; }
+	public void setUseablePeriod(GTS value) { this.onModifying(); this.useablePeriod = value; }
 	
 	/**
 	 * Determines whether or not <code>n</code> conforms to the AD.Basic flavor.
@@ -334,5 +341,87 @@ public class AD extends ANY {
 		}
 	}
 
+	/**
+	 * Freezes this address along with its parts, uses and useable period
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		if(this.parts != null)
+		{
+			for(ADXP part : this.parts)
+				if(part != null)
+					part.freeze();
+			this.parts = Collections.unmodifiableList(this.parts);
+		}
+		if(this.use != null)
+			this.use.freeze();
+		if(this.useablePeriod != null)
+			this.useablePeriod.freeze();
+		super.freeze();
+	}
 	
+	/**
+	 * Clone this instance. The clone receives its own modifiable list of the same parts
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		AD retVal = (AD)super.clone();
+		if(this.parts != null)
+			retVal.parts = new ArrayList<ADXP>(this.parts);
+		retVal.m_frozenHashCode = 0;
+		return retVal;
+	}
+
+	/**
+	 * Calculate the hash code of this address
+	 */
+	@Override
+	public int hashCode() {
+		if(this.m_frozenHashCode != 0)
+			return this.m_frozenHashCode;
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + (isNotOrdered ? 1231 : 1237);
+		result = prime * result + ((parts == null) ? 0 : parts.hashCode());
+		result = prime * result + ((use == null) ? 0 : use.hashCode());
+		result = prime * result
+				+ ((useablePeriod == null) ? 0 : useablePeriod.hashCode());
+		if(this.isFrozen())
+			this.m_frozenHashCode = result;
+		return result;
+	}
+
+	/**
+	 * Determine if this address equals another
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		AD other = (AD) obj;
+		if (isNotOrdered != other.isNotOrdered)
+			return false;
+		if (parts == null) {
+			if (other.parts != null)
+				return false;
+		} else if (!parts.equals(other.parts))
+			return false;
+		if (use == null) {
+			if (other.use != null)
+				return false;
+		} else if (!use.equals(other.use))
+			return false;
+		if (useablePeriod == null) {
+			if (other.useablePeriod != null)
+				return false;
+		} else if (!useablePeriod.equals(other.useablePeriod))
+			return false;
+		return true;
+	}
 }
@@ -98,6 +98,7 @@ public class ADXP extends ANY {
 	 * @param partType the new part type
 	 */
 	public void setPartType(AddressPartType partType) {
+		this.onModifying();
 		this.partType = partType;
 	}
 
@@ -119,6 +120,7 @@ public class ADXP extends ANY {
 	 * @param value the string representation of the address part.
 	 */
 	public void setValue(String value) {
+		this.onModifying();
 		this.value = value;
 	}
 
@@ -139,6 +141,7 @@ public class ADXP extends ANY {
 	 * @param code the new code
 	 */
 	public void setCode(String code) {
+		this.onModifying();
 		this.code = code;
 	}
 
@@ -158,6 +161,7 @@ public class ADXP extends ANY {
 	 * @param codeSystem the new code system
 	 */
 	public void setCodeSystem(String codeSystem) {
+		this.onModifying();
 		this.codeSystem = codeSystem;
 	}
 
@@ -177,6 +181,7 @@ public class ADXP extends ANY {
 	 * @param codeSystemVersion the new code system version
 	 */
 	public void setCodeSystemVersion(String codeSystemVersion) {
+		this.onModifying();
 		this.codeSystemVersion = codeSystemVersion;
 	}
 
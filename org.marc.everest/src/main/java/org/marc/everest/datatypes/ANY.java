@@ -37,41 +37,48 @@ import org.marc.everest.resultdetails.DatatypeValidationResultDetail;
  */
 public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable {
 
-	// Backing field for null flavor
-	private CS<NullFlavor> m_nullFlavor;
-	// Backing field for update mode
-	private CS<UpdateMode> m_updateMode;
-	// Backing field for flavor id
-	private String m_flavorId;
-		
+	// The null flavor, update mode and flavor id are kept with the other rarely used 
+	// attributes in the extended attributes record of HXIT
+	
 	/**
 	 * Gets the exceptional code that identifies why the contents of the datatype are not 
 	 * being passed within a message instance.
 	 */
 	@Override
 	@Property(name = "nullFlavor", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.STRUCTURAL, genericSupplier = { NullFlavor.class })
-	public CS<NullFlavor> getNullFlavor() { return this.m_nullFlavor; }
+	public CS<NullFlavor> getNullFlavor() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.nullFlavor; }
 	/**
 	 * Sets the exception code that identifies why the contents of the datatype are not
 	 * being passed within a message instance.
 	 * @param value The new value of the nullFlavor field
 	 */
-	public void setNullFlavor(CS<NullFlavor> value) { this.m_nullFlavor = value; }
+	public void setNullFlavor(CS<NullFlavor> value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().nullFlavor = value; 
+	}
 	/**
 	 * Sets the exceptional code that identifies why the contents of the datatype
 	 * are not being passed within a message structure
 	 */
-	public void setNullFlavor(NullFlavor value) { this.m_nullFlavor = new CS<NullFlavor>(value); }
+	public void setNullFlavor(NullFlavor value) { 
+		this.onModifying();
+		this.getExtendedAttributes().nullFlavor = value == null ? null : CS.getSharedInstance(value); 
+	}
 	/**
 	 * Gets the flavor identifier for the datatpe. A flavor identifier is used by specializations to validate
 	 * the contents of a datatype to an expected rule.
 	 * @return
 	 */
-	public String getFlavorId() { return this.m_flavorId; }
+	public String getFlavorId() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.flavorId; }
 	/**
 	 * Sets the flavor identifier for the datatype
 	 */
-	public void setFlavorId(String value) { this.m_flavorId = value; }
+	public void setFlavorId(String value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().flavorId = value; 
+	}
 
 	/**
 	 * Gets the update mode of the datatype.
@@ -80,12 +87,16 @@ public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable
 	 * @return
 	 */
 	@Property(name = "updateMode", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.STRUCTURAL, genericSupplier = { UpdateMode.class })
-	public CS<UpdateMode> getUpdateMode() { return this.m_updateMode; }
+	public CS<UpdateMode> getUpdateMode() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.updateMode; }
 	/**
 	 * Sets the update mode of the datatype
 	 * @param value
 	 */
-	public void setUpdateMode(CS<UpdateMode> value) { this.m_updateMode = value; }
+	public void setUpdateMode(CS<UpdateMode> value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().updateMode = value; 
+	}
 	
 	/**
 	 * Gets the datatype of this class instance
@@ -106,7 +117,7 @@ public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable
 	/**
 	 * A predicate indicating that a value is an exceptional or null value
 	 */
-	public boolean isNull() { return this.m_nullFlavor != null; }
+	public boolean isNull() { return this.m_extendedAttributes != null && this.m_extendedAttributes.nullFlavor != null; }
 	
 	/** 
 	 * Hashcode
@@ -115,12 +126,17 @@ public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		if(this.m_extendedAttributes == null) // Same as hashing three nulls
+			return prime * prime * prime;
+		String flavorId = this.m_extendedAttributes.flavorId;
+		CS<NullFlavor> nullFlavor = this.m_extendedAttributes.nullFlavor;
+		CS<UpdateMode> updateMode = this.m_extendedAttributes.updateMode;
 		result = prime * result
-				+ ((m_flavorId == null) ? 0 : m_flavorId.hashCode());
+				+ ((flavorId == null) ? 0 : flavorId.hashCode());
 		result = prime * result
-				+ ((m_nullFlavor == null) ? 0 : m_nullFlavor.hashCode());
+				+ ((nullFlavor == null) ? 0 : nullFlavor.hashCode());
 		result = prime * result
-				+ ((m_updateMode == null) ? 0 : m_updateMode.hashCode());
+				+ ((updateMode == null) ? 0 : updateMode.hashCode());
 		return result;
 	}
 	
@@ -136,28 +152,11 @@ public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable
 			return false;
 		}
 		ANY other = (ANY) obj;
-		if (m_flavorId == null) {
-			if (other.m_flavorId != null) {
-				return false;
-			}
-		} else if (!m_flavorId.equals(other.m_flavorId)) {
-			return false;
-		}
-		if (m_nullFlavor == null) {
-			if (other.m_nullFlavor != null) {
-				return false;
-			}
-		} else if (!m_nullFlavor.equals(other.m_nullFlavor)) {
-			return false;
-		}
-		if (m_updateMode == null) {
-			if (other.m_updateMode != null) {
-				return false;
-			}
-		} else if (!m_updateMode.equals(other.m_updateMode)) {
-			return false;
-		}
-		return true;
+		if(this.m_extendedAttributes == null && other.m_extendedAttributes == null)
+			return true;
+		return attributeEquals(this.getFlavorId(), other.getFlavorId()) &&
+				attributeEquals(this.getNullFlavor(), other.getNullFlavor()) &&
+				attributeEquals(this.getUpdateMode(), other.getUpdateMode());
 	}
 	
 	/**
@@ -221,7 +220,7 @@ public class ANY extends HXIT implements IAny, IImplementsNullFlavor, Cloneable
 	@Override
 	public ANY shallowCopy() {
 		try {
-			return (ANY)super.clone();
+			return (ANY)this.clone();
 		} catch (CloneNotSupportedException e) {
 			throw new UnsupportedOperationException(e.getMessage(), e);
 		}
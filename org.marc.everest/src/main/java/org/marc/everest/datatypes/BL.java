@@ -29,10 +29,16 @@ import org.marc.everest.datatypes.interfaces.IAny;
 @Structure(name = "BL", structureType = StructureType.DATATYPE)
 public class BL extends PDV<Boolean> {
 
-	// True constant
+	// True constant (frozen)
 	public static final BL TRUE = BL.fromBoolean(true);
-	// False constant
+	// False constant (frozen)
 	public static final BL FALSE = BL.fromBoolean(false);
+	
+	static {
+		TRUE.freeze();
+		FALSE.freeze();
+	}
+	
 	/**
 	 * Creates a new instance of BL
 	 */
@@ -180,6 +186,24 @@ public class BL extends PDV<Boolean> {
 		return new BL(b);
 	}
 
+	/**
+	 * Gets the shared frozen BL.TRUE or BL.FALSE constant for the specified value
+	 */
+	public static BL valueOf(boolean b)
+	{
+		return b ? TRUE : FALSE;
+	}
+	
+	/**
+	 * Returns BL.TRUE or BL.FALSE when this instance carries only a value, otherwise returns this instance
+	 */
+	public BL intern()
+	{
+		if(this.getClass() != BL.class || this.getValue() == null || this.hasExtendedAttributes())
+			return this;
+		return valueOf(this.getValue());
+	}
+
 	/**
 	 * Cast to boolean
 	 */
@@ -72,7 +72,7 @@ public class CO extends QTY<BigDecimal> {
 	 * Sets the value of the CO
 	 * @param value The new code of the CO
 	 */
-	public void setCode(CD<String> value) { this.m_code = value; }
+	public void setCode(CD<String> value) { this.onModifying(); this.m_code = value; }
 	
 	/**
 	 * Validate the CO
@@ -21,6 +21,7 @@ package org.marc.everest.datatypes;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -28,10 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.Deflater;
 
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.transform.Result;
@@ -52,6 +50,13 @@ import org.marc.everest.annotations.StructureType;
 import org.marc.everest.datatypes.generic.SET;
 import org.marc.everest.datatypes.interfaces.IAny;
 import org.marc.everest.datatypes.interfaces.IEncapsulatedData;
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+import org.marc.everest.datatypes.payload.ByteArrayPayloadSource;
+import org.marc.everest.datatypes.payload.CodecPool;
+import org.marc.everest.datatypes.payload.PayloadPipeline;
+import org.marc.everest.datatypes.payload.PayloadPipelineResult;
+import org.marc.everest.datatypes.payload.PayloadUtil;
+import org.marc.everest.interfaces.IDisposable;
 import org.marc.everest.interfaces.IResultDetail;
 import org.marc.everest.interfaces.ResultDetailType;
 import org.marc.everest.resultdetails.DatatypeValidationResultDetail;
@@ -62,10 +67,12 @@ import org.w3c.dom.Document;
  * within an instance
  */
 @Structure(name = "ED", structureType = StructureType.DATATYPE)
-public class ED extends ANY implements IEncapsulatedData {
+public class ED extends ANY implements IEncapsulatedData, IDisposable {
 
 	// backing field for data
 	private byte[] m_data;
+	// backing field for data held outside of the heap
+	private IPayloadSource m_payload;
 	// backing field for media type
 	private String m_mediaType;
 	// Backing field for language
@@ -86,6 +93,8 @@ public class ED extends ANY implements IEncapsulatedData {
 	private ED m_thumbnail;
 	// backing field for translations
 	private SET<ED> m_translation;
+	// Hash code cached once the instance is frozen
+	private int m_frozenHashCode;
 	
 	/**
 	 * Creates a new instance of the encapsulated data class
@@ -138,15 +147,98 @@ public class ED extends ANY implements IEncapsulatedData {
 	}
 	
 	/**
-	 * Gets the data that is contained within the ED instance
+	 * Gets the data that is contained within the ED instance.
+	 * <p>When the data is carried by a payload source the entire payload is read into 
+	 * memory, use {@link #openData()} to read large payloads</p>
+	 * @throws IllegalStateException When the payload source cannot be read
 	 */
-	public byte[] getData() { return this.m_data; }
+	public byte[] getData() { 
+		if(this.m_data == null && this.m_payload != null)
+			try
+			{
+				return PayloadUtil.readFully(this.m_payload);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException("Could not read the ED payload", e);
+			}
+		return this.m_data; 
+	}
 	/**
 	 * Sets the data that is contained within the ED instance
 	 * @param value The byte array that represents the data to be set in the ED instance
 	 */
 	public void setData(byte[] value) { 
+		this.onModifying();
 		this.m_data = value; 
+		this.m_payload = null;
+	}
+	
+	/**
+	 * Gets the source of the data when the data is held outside of this instance (in a file 
+	 * or buffer for example) 
+	 */
+	public IPayloadSource getPayload() { return this.m_payload; }
+	/**
+	 * Sets the source of the data contained in the ED instance. Data carried by a payload 
+	 * source is read in chunks when the ED is formatted rather than being held on the heap
+	 * @param value The source of the data 
+	 */
+	public void setPayload(IPayloadSource value) {
+		this.onModifying();
+		if(value instanceof ByteArrayPayloadSource)
+			this.setData(((ByteArrayPayloadSource)value).getData());
+		else
+		{
+			this.m_payload = value;
+			this.m_data = null;
+		}
+	}
+	
+	/**
+	 * Returns true if this ED carries data either directly or in a payload source
+	 */
+	public boolean hasData() { return this.m_data != null || this.m_payload != null; }
+	
+	/**
+	 * Opens a stream over the data contained in this ED instance or returns null 
+	 * if there is no data
+	 */
+	public InputStream openData() throws IOException
+	{
+		if(this.m_payload != null)
+			return this.m_payload.openStream();
+		else if(this.m_data != null)
+			return new ByteArrayInputStream(this.m_data);
+		return null;
+	}
+	
+	/**
+	 * Gets the length of the data in bytes, -1 if the length is not known or 0 if 
+	 * there is no data
+	 */
+	public long getDataLength()
+	{
+		if(this.m_payload != null)
+			return this.m_payload.getLength();
+		else if(this.m_data != null)
+			return this.m_data.length;
+		return 0;
+	}
+	
+	/**
+	 * Closes the payload source of this ED and of its translations, releasing any temporary 
+	 * file which holds the data. The data of a closed payload source can no longer be read
+	 */
+	@Override
+	public void close()
+	{
+		if(this.m_payload != null)
+			this.m_payload.close();
+		if(this.m_translation != null)
+			for(ED translation : this.m_translation)
+				if(translation != null)
+					translation.close();
 	}
 	
 	/**
@@ -155,6 +247,8 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	public void setData(String value)
 	{
+		this.onModifying();
+		this.m_payload = null;
 		if(value == null)
 			this.m_data = null;
 		else
@@ -167,6 +261,8 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	public void setData(Document value) throws TransformerConfigurationException, TransformerException
 	{
+		this.onModifying();
+		this.m_payload = null;
 		if(value == null)
 		{
 			this.m_data = null;
@@ -193,7 +289,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the reference to the content of this ED
 	 */
-	public void setReference(TEL value) { this.m_reference = value; }
+	public void setReference(TEL value) { this.onModifying(); this.m_reference = value; }
 	/**
 	 * Gets the compression method that was used to compress the data
 	 */
@@ -205,7 +301,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	 * use the @see Compress method. 
 	 * @param value The selected compression value
 	 */
-	public void setCompression(EncapsulatedDataCompression value) { this.m_compression = value; }
+	public void setCompression(EncapsulatedDataCompression value) { this.onModifying(); this.m_compression = value; }
 	/**
 	 * Compresses the data contained in this instance of ED and returns a new 
 	 * ED with the specified compression and compressed data
@@ -215,7 +311,22 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	public ED compress(EncapsulatedDataCompression compressionAlgorithm) throws IOException
 	{
-		return compress(compressionAlgorithm, this.getData());
+		return compress(compressionAlgorithm, Deflater.DEFAULT_COMPRESSION);
+	}
+	/**
+	 * Compresses the data contained in this instance of ED with the specified compression level
+	 * and returns a new ED with the specified compression and compressed data
+	 * @param compressionAlgorithm The compression algorithm to use for compressing
+	 * @param compressionLevel The level of compression (0-9 or -1 for the default level)
+	 * @return A new instance of ED that has been compressed using the desired algorithm
+	 */
+	public ED compress(EncapsulatedDataCompression compressionAlgorithm, int compressionLevel) throws IOException
+	{
+		if(compressionAlgorithm == null)
+			throw new IllegalArgumentException("compressionAlgorithm is null");
+		PayloadPipeline pipeline = new PayloadPipeline(compressionAlgorithm, this.m_integrityCheckAlgorithm);
+		pipeline.setCompressionLevel(compressionLevel);
+		return compress(pipeline);
 	}
 	/**
 	 * Compresses the specified data with the specified compression algorithm and returns a new
@@ -233,46 +344,49 @@ public class ED extends ANY implements IEncapsulatedData {
 		else if(data == null)
 			throw new IllegalArgumentException("data is null");
 		
-		ED retVal = null;
+		return compress(new PayloadPipeline(compressionAlgorithm, this.m_integrityCheckAlgorithm), new ByteArrayPayloadSource(data));
+	}
+	/**
+	 * Compresses the data contained in this instance of ED using the specified pipeline and returns
+	 * a new ED instance with the compressed data. 
+	 * <p>The data is compressed and the integrity check of the compressed data is computed (when
+	 * the pipeline has an integrity check algorithm) in a single pass over the data</p>
+	 * @param pipeline The pipeline which describes the compression to apply
+	 * @return A new instance of ED that contains all the data found in this instance with the compressed data
+	 */
+	public ED compress(PayloadPipeline pipeline) throws IOException
+	{
+		if(!this.hasData())
+			throw new IllegalArgumentException("data is null");
+		return compress(pipeline, this.m_payload != null ? this.m_payload : new ByteArrayPayloadSource(this.m_data));
+	}
+	/**
+	 * Compresses the specified source with the pipeline
+	 */
+	private ED compress(PayloadPipeline pipeline, IPayloadSource source) throws IOException
+	{
+		if(pipeline.getCompression() == null)
+			throw new IllegalArgumentException("pipeline has no compression algorithm");
+		
+		ED retVal = (ED)this.shallowCopy();
+		PayloadPipelineResult result = null;
 		try
 		{
-			retVal = (ED)this.clone();
-		}
-		catch(CloneNotSupportedException e)
-		{
-			// Shouldn't reach this
+			result = pipeline.compress(source);
 		}
-		
-		// Create byte array output stream
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		
-		// Deflater stream
-		DeflaterOutputStream compressionStream = null;
-		
-		// Determine compression algorithm
-		switch(compressionAlgorithm)
+		catch(NoSuchAlgorithmException e)
 		{
-			case Deflate:
-				compressionStream = new DeflaterOutputStream(bos);
-				break;
-			case GZip:
-				compressionStream = new GZIPOutputStream(bos);
-				break;
-			default:
-				throw new IllegalArgumentException("unsupported compressionAlgorithm");
+			throw new IllegalArgumentException("unsupported integrityCheckAlgorithm", e);
 		}
 		
-		try
+		retVal.setPayload(result.getPayload());
+		retVal.setCompression(pipeline.getCompression());
+		if(result.getIntegrityCheck() != null)
 		{
-			compressionStream.write(data);
-			compressionStream.close();
-		}
-		catch(IOException e) { // ingore
+			retVal.setIntegrityCheckAlgorithm(pipeline.getIntegrityCheckAlgorithm());
+			retVal.setIntegrityCheck(result.getIntegrityCheck());
 		}
 		
-		retVal.setData(bos.toByteArray());
-		retVal.setCompression(compressionAlgorithm);
-		
 		return retVal;
 	}
 	/**
@@ -286,56 +400,18 @@ public class ED extends ANY implements IEncapsulatedData {
 		if(this.getCompression() == null)
 			throw new IllegalStateException("no compression algorithm is set on this instance");
 		
-		ED retVal = null;
-		try
-		{
-			retVal = (ED)this.clone();
-		}
-		catch(CloneNotSupportedException e)
-		{
-			// Shouldn't reach this
-		}
-		
-		// Data stream
-		ByteArrayInputStream bin = new ByteArrayInputStream(this.getData());
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		// Deflate output stream
-		InflaterInputStream decompressionStream = null;
-		switch(this.getCompression())
-		{
-			case Deflate:
-				decompressionStream = new InflaterInputStream(bin);
-				break;
-			case GZip:
-				decompressionStream = new GZIPInputStream(bin);
-				break;
-			default:
-				throw new NoSuchAlgorithmException();
-		}
+		ED retVal = (ED)this.shallowCopy();
 		
-		// Decompress
-		try
-		{
-			byte buffer[] = new byte[1024];
-			int read = 0;
-			do
-			{
-				read = decompressionStream.read(buffer, 0, buffer.length);
-				if(read > 0)
-					bos.write(buffer, 0, read);
-			} while(read >= 0);
-			
-		}
-		catch(IOException e)
-		{
-			// Ignore
-		}
+		// Decompress and compute the integrity check of the uncompressed data in one pass 
+		EncapsulatedDataIntegrityAlgorithm integrityCheckAlgorithm = this.getIntegrityCheck() != null ? this.getIntegrityCheckAlgorithm() : null;
+		PayloadPipelineResult result = new PayloadPipeline(this.getCompression(), integrityCheckAlgorithm).decompress(
+				this.m_payload != null ? this.m_payload : new ByteArrayPayloadSource(this.getData()));
 		
-		retVal.setData(bos.toByteArray());
+		retVal.setPayload(result.getPayload());
 		retVal.setCompression(null);
 		
-		if(retVal.getIntegrityCheckAlgorithm() != null && retVal.getIntegrityCheck() != null)
-			retVal.setIntegrityCheck(retVal.computeIntegrityCheck());
+		if(result.getIntegrityCheck() != null)
+			retVal.setIntegrityCheck(result.getIntegrityCheck());
 		return retVal;
 	}
 	
@@ -347,7 +423,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the description of the data contained in this ED
 	 */
-	public void setDescription(ST value) { this.m_description = value; }
+	public void setDescription(ST value) { this.onModifying(); this.m_description = value; }
 
 	/**
 	 * Gets a code specifying how this instance will be represented in
@@ -362,7 +438,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the representation of the instance of ED
 	 */
-	public void setRepresentation(EncapsulatedDataRepresentation value) { this.m_representation = value; }
+	public void setRepresentation(EncapsulatedDataRepresentation value) { this.onModifying(); this.m_representation = value; }
 	/**
 	 * Gets the language in which the content of the ED is represented.
 	 */
@@ -372,7 +448,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	 * Sets the language in which the content of the ED is represented
 	 * @param value
 	 */
-	public void setLanguage(String value) { this.m_language = value; }
+	public void setLanguage(String value) { this.onModifying(); this.m_language = value; }
 	/**
 	 * Gets alternate representations of this encapsulated data object in 
 	 * other languages.
@@ -383,7 +459,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	 * Sets the alternate representations of this encapsulated data object
 	 * in other language
 	 */
-	public void setTranslation(SET<ED> value) { this.m_translation = value; }
+	public void setTranslation(SET<ED> value) { this.onModifying(); this.m_translation = value; }
 	/**
 	 * Gets the internet media type (MIME) of this ED instance
 	 */
@@ -392,7 +468,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the internet media type (MIME) of this ED instance
 	 */
-	public void setMediaType(String value) { this.m_mediaType = value; }
+	public void setMediaType(String value) { this.onModifying(); this.m_mediaType = value; }
 
 	/** 
 	 * Gets the integrity check for this instance of the ED class.
@@ -402,7 +478,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the integrity check data for this instance of the ED class
 	 */
-	public void setIntegrityCheck(byte[] value) { this.m_integrityCheck = value; }
+	public void setIntegrityCheck(byte[] value) { this.onModifying(); this.m_integrityCheck = value; }
 	/**
 	 * Gets the integrity check algorithm
 	 */
@@ -411,12 +487,28 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the integrity check algorithm to the specified value
 	 */
-	public void setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm value) { this.m_integrityCheckAlgorithm = value; }
+	public void setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm value) { this.onModifying(); this.m_integrityCheckAlgorithm = value; }
 	/**
 	 * Computes the integrity check of the data
 	 * @throws NoSuchAlgorithmException 
 	 */
 	public byte[] computeIntegrityCheck() throws NoSuchAlgorithmException {
+		if(this.m_payload != null)
+		{
+			MessageDigest calcDigest = CodecPool.acquireDigest(this.m_integrityCheckAlgorithm);
+			try
+			{
+				return PayloadUtil.digest(this.m_payload, calcDigest);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException("Could not read the ED payload", e);
+			}
+			finally
+			{
+				CodecPool.releaseDigest(calcDigest, this.m_integrityCheckAlgorithm);
+			}
+		}
 		return computeIntegrityCheck(this.m_data);
 	}
 	/**
@@ -436,21 +528,16 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	public byte[] computeIntegrityCheck(byte[] data, EncapsulatedDataIntegrityAlgorithm algorithm) throws NoSuchAlgorithmException {
 		
-		MessageDigest calcDigest = null;
-		
-		// Determine the algorithm
-		switch(algorithm)
+		MessageDigest calcDigest = CodecPool.acquireDigest(algorithm);
+		try
 		{
-			case Sha1:
-				calcDigest = MessageDigest.getInstance("SHA-1");
-				break;
-			case Sha256:
-				calcDigest = MessageDigest.getInstance("SHA-256");
-				break;
+			calcDigest.update(data, 0, data.length);
+			return calcDigest.digest();
+		}
+		finally
+		{
+			CodecPool.releaseDigest(calcDigest, algorithm);
 		}
-		
-		calcDigest.update(data, 0, data.length);
-		return calcDigest.digest();
 	}
 	/**
 	 * Validates that the data contained within the ED matches it's integrity check
@@ -459,7 +546,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	public boolean validateIntegrityCheck() throws NoSuchAlgorithmException
 	{
-		if(this.getIntegrityCheckAlgorithm() == null || this.getData() == null)
+		if(this.getIntegrityCheckAlgorithm() == null || !this.hasData())
 			return true;
 		
 		byte[] valueHash = this.getIntegrityCheck();
@@ -474,7 +561,7 @@ public class ED extends ANY implements IEncapsulatedData {
 	/**
 	 * Sets the thumbnail representation of this ED instance
 	 */
-	public void setThumbnail(ED value) { this.m_thumbnail = value; }
+	public void setThumbnail(ED value) { this.onModifying(); this.m_thumbnail = value; }
 	
 	/**
 	 * Flavor validation for ED.TEXT
@@ -515,8 +602,8 @@ public class ED extends ANY implements IEncapsulatedData {
 	@Override
 	public boolean validate()
 	{
-		boolean isValid = (((this.getData() != null || this.getReference() != null) ) ^ (this.getNullFlavor() != null)) &&
-	        (((this.getData() != null || this.getReference() != null)) || (this.getData() == null && this.getReference() == null)) &&
+		boolean isValid = (((this.hasData() || this.getReference() != null) ) ^ (this.getNullFlavor() != null)) &&
+	        (((this.hasData() || this.getReference() != null)) || (!this.hasData() && this.getReference() == null)) &&
 	        (this.getReference() == null || TEL.isValidUrlFlavor(this.getReference())) &&
 	        (this.getThumbnail() == null || this.getThumbnail().getThumbnail() == null && this.getThumbnail().getReference() == null);
 
@@ -528,16 +615,48 @@ public class ED extends ANY implements IEncapsulatedData {
 	     return isValid;
 	}
 	
+	/**
+	 * Freezes this instance along with its reference, description, thumbnail and translations.
+	 * <p>Note: The byte array passed to setData is not copied, callers sharing a frozen ED 
+	 * must not modify that array</p>
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		if(this.m_reference != null)
+			this.m_reference.freeze();
+		if(this.m_description != null)
+			this.m_description.freeze();
+		if(this.m_thumbnail != null)
+			this.m_thumbnail.freeze();
+		if(this.m_translation != null)
+			this.m_translation.freeze();
+		super.freeze();
+	}
+	
+	/**
+	 * Clone this instance, the clone does not share the cached hash code
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		ED retVal = (ED)super.clone();
+		retVal.m_frozenHashCode = 0;
+		return retVal;
+	}
+	
 	/**
 	 * Gets the hash code
 	 */
 	@Override
 	public int hashCode() {
+		if(this.m_frozenHashCode != 0)
+			return this.m_frozenHashCode;
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result
 				+ ((m_compression == null) ? 0 : m_compression.hashCode());
-		result = prime * result + Arrays.hashCode(m_data);
+		result = prime * result + this.dataHashCode();
 		result = prime * result + Arrays.hashCode(m_integrityCheck);
 		result = prime
 				* result
@@ -552,6 +671,8 @@ public class ED extends ANY implements IEncapsulatedData {
 				+ ((m_representation == null) ? 0 : m_representation.hashCode());
 		result = prime * result
 				+ ((m_thumbnail == null) ? 0 : m_thumbnail.hashCode());
+		if(this.isFrozen())
+			this.m_frozenHashCode = result;
 		return result;
 	}
 	
@@ -570,7 +691,7 @@ public class ED extends ANY implements IEncapsulatedData {
 		ED other = (ED) obj;
 		if (m_compression != other.m_compression)
 			return false;
-		if (!Arrays.equals(m_data, other.m_data))
+		if (!this.dataEquals(other))
 			return false;
 		if (!Arrays.equals(m_integrityCheck, other.m_integrityCheck))
 			return false;
@@ -596,12 +717,51 @@ public class ED extends ANY implements IEncapsulatedData {
 		return true;
 	}
 	
+	/**
+	 * Calculate the hash code of the data without reading a payload source into memory
+	 */
+	private int dataHashCode()
+	{
+		if(this.m_payload == null)
+			return Arrays.hashCode(this.m_data);
+		try
+		{
+			return PayloadUtil.hashCode(this.m_payload);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Could not read the ED payload", e);
+		}
+	}
+	
+	/**
+	 * Determine if the data in this ED equals the data in the other without reading 
+	 * payload sources into memory
+	 */
+	private boolean dataEquals(ED other)
+	{
+		if(this.m_payload == null && other.m_payload == null)
+			return ED.byteEquals(this.m_data, other.m_data);
+		else if(!this.hasData() || !other.hasData())
+			return this.hasData() == other.hasData();
+		try
+		{
+			return PayloadUtil.contentEquals(
+					this.m_payload != null ? this.m_payload : new ByteArrayPayloadSource(this.m_data), 
+					other.m_payload != null ? other.m_payload : new ByteArrayPayloadSource(other.m_data));
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Could not read the ED payload", e);
+		}
+	}
+	
 	/**
 	 * Cast operator to byte array
 	 */
 	public byte[] toByteArray()
 	{
-		return this.m_data;
+		return this.getData();
 	}
 	
 	/**
@@ -628,12 +788,13 @@ public class ED extends ANY implements IEncapsulatedData {
 	 */
 	@Override
 	public String toString() {
-		if (this.m_representation == EncapsulatedDataRepresentation.Text && this.m_data != null)
-            return new String(this.m_data);
-        else if (this.m_representation == EncapsulatedDataRepresentation.Base64 && this.m_data != null)
-            return DatatypeConverter.printBase64Binary(this.m_data);
-        else if(this.m_representation == EncapsulatedDataRepresentation.Xml && this.m_data != null)
-        	return new String(this.m_data);
+		byte[] data = this.getData();
+		if (this.m_representation == EncapsulatedDataRepresentation.Text && data != null)
+            return new String(data);
+        else if (this.m_representation == EncapsulatedDataRepresentation.Base64 && data != null)
+            return DatatypeConverter.printBase64Binary(data);
+        else if(this.m_representation == EncapsulatedDataRepresentation.Xml && data != null)
+        	return new String(data);
         return "";
 	}
 	
@@ -644,11 +805,11 @@ public class ED extends ANY implements IEncapsulatedData {
 	public Collection<IResultDetail> validateEx() {
 		Collection<IResultDetail> retVal = new ArrayList<IResultDetail>(super.validateEx());
 
-        if (!((this.m_data != null) ^ (this.m_reference != null)))
+        if (!(this.hasData() ^ (this.m_reference != null)))
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.WARNING, "ED", "The Data and Reference properties should be used exclusive of each other", null));
-        if (this.getNullFlavor() != null && (this.m_data != null || this.m_reference != null))
+        if (this.getNullFlavor() != null && (this.hasData() || this.m_reference != null))
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "ED", EverestValidationMessages.MSG_NULLFLAVOR_WITH_VALUE));
-        else if (this.getNullFlavor() == null && this.m_data == null && this.m_reference == null)
+        else if (this.getNullFlavor() == null && !this.hasData() && this.m_reference == null)
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "ED", EverestValidationMessages.MSG_NULLFLAVOR_MISSING));
         if (this.m_translation != null)
         {
@@ -723,18 +884,18 @@ public class ED extends ANY implements IEncapsulatedData {
 	        else
         	{
 	        	otherEd = (ED)other;
-	        	if (otherEd.m_data != null && otherEd.m_compression != null)
+	        	if (otherEd.hasData() && otherEd.m_compression != null)
 	        	otherEd = otherEd.unCompress();
         	}
 	        
 	        // Compressed data for this reference
-	        if (this.m_data != null && this.m_compression != null)
+	        if (this.hasData() && this.m_compression != null)
 	            thisEd = this.unCompress();
 	        else
 	            thisEd = this;
 	
-	        if (thisEd.m_data != null && otherEd.m_data != null)
-	            return BL.fromBoolean(ED.byteEquals(thisEd.m_data, otherEd.m_data) && thisEd.m_mediaType.equals(otherEd.m_mediaType));
+	        if (thisEd.hasData() && otherEd.hasData())
+	            return BL.fromBoolean(thisEd.dataEquals(otherEd) && thisEd.m_mediaType.equals(otherEd.m_mediaType));
 	        else
 	            return BL.FALSE;
         }
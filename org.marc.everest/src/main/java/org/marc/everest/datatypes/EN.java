@@ -22,6 +22,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.marc.everest.annotations.ConformanceType;
@@ -47,6 +48,8 @@ public class EN extends ANY {
 	private List<ENXP> m_parts = new ArrayList<ENXP>();
 	// backing field for use
 	private SET<CS<EntityNameUse>> m_use;
+	// Hash code cached once the instance is frozen
+	private int m_frozenHashCode;
 	
 	/**
 	 * Creates a new instance of EN
@@ -101,6 +104,7 @@ public class EN extends ANY {
 	 * Sets the list of parts that make up this entity name
 	 */
 	public void setParts(List<ENXP> value) {
+		this.onModifying();
 		this.m_parts = value;
 	}
 	/**
@@ -114,6 +118,7 @@ public class EN extends ANY {
 	 * Sets the valid uses of this entity name
 	 */
 	public void setUse(SET<CS<EntityNameUse>> value) {
+		this.onModifying();
 		this.m_use = value;
 	}
 	/**
@@ -205,15 +210,50 @@ public class EN extends ANY {
 
         return sw.toString();	
 	}
+	/**
+	 * Freezes this name along with its parts and uses
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		if(this.m_parts != null)
+		{
+			for(ENXP part : this.m_parts)
+				if(part != null)
+					part.freeze();
+			this.m_parts = Collections.unmodifiableList(this.m_parts);
+		}
+		if(this.m_use != null)
+			this.m_use.freeze();
+		super.freeze();
+	}
+	
+	/**
+	 * Clone this instance. The clone receives its own modifiable list of the same parts
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		EN retVal = (EN)super.clone();
+		if(this.m_parts != null)
+			retVal.m_parts = new ArrayList<ENXP>(this.m_parts);
+		retVal.m_frozenHashCode = 0;
+		return retVal;
+	}
+	
 	/** (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
+		if(this.m_frozenHashCode != 0)
+			return this.m_frozenHashCode;
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result + ((m_parts == null) ? 0 : m_parts.hashCode());
 		result = prime * result + ((m_use == null) ? 0 : m_use.hashCode());
+		if(this.isFrozen())
+			this.m_frozenHashCode = result;
 		return result;
 	}
 	/** (non-Javadoc)
@@ -81,6 +81,7 @@ public class ENXP extends ANY {
 	 * Sets the value of the name part
 	 */
 	public void setValue(String value) {
+		this.onModifying();
 		this.m_value = value;
 	}
 	/**
@@ -94,6 +95,7 @@ public class ENXP extends ANY {
 	 * Sets the type of this name part
 	 */
 	public void setType(CS<EntityNamePartType> value) {
+		this.onModifying();
 		this.m_type = value;
 	}
 	/**
@@ -107,6 +109,7 @@ public class ENXP extends ANY {
 	 * Sets the code for this name part
 	 */
 	public void setCode(String value) {
+		this.onModifying();
 		this.m_code = value;
 	}
 	/**
@@ -120,6 +123,7 @@ public class ENXP extends ANY {
 	 * Sets the code system for this name part
 	 */
 	public void setM_codeSystem(String value) {
+		this.onModifying();
 		this.m_codeSystem = value;
 	}
 	/**
@@ -133,6 +137,7 @@ public class ENXP extends ANY {
 	 * Sets the code system version for this name part
 	 */
 	public void setCodeSystemVersion(String value) {
+		this.onModifying();
 		this.m_codeSystemVersion = value;
 	}
 	/**
@@ -146,6 +151,7 @@ public class ENXP extends ANY {
 	 * @param m_qualifier the m_qualifier to set
 	 */
 	public void setQualifier(SET<CS<EntityNamePartQualifier>> value) {
+		this.onModifying();
 		this.m_qualifier = value;
 	}
 	/** 
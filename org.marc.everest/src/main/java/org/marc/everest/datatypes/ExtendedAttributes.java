@@ -0,0 +1,65 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes;
+
+import org.marc.everest.datatypes.generic.CS;
+
+/**
+ * Holds the attributes of HXIT and ANY which are rarely populated.
+ * <p>Every datatype instance carries these attributes but almost all of them are null, so
+ * rather than paying for seven fields on each instance they are kept in this record which is
+ * only allocated the first time one of them is set</p>
+ */
+final class ExtendedAttributes implements Cloneable {
+
+	// Valid time low
+	TS validTimeLow;
+	// Valid time high
+	TS validTimeHigh;
+	// Control act root
+	String controlActRoot;
+	// Control act extension
+	String controlActExt;
+	// Null flavor
+	CS<NullFlavor> nullFlavor;
+	// Update mode
+	CS<UpdateMode> updateMode;
+	// Flavor identifier
+	String flavorId;
+	
+	/**
+	 * Returns true when none of the attributes are populated
+	 */
+	boolean isEmpty()
+	{
+		return this.validTimeLow == null && this.validTimeHigh == null && 
+				this.controlActRoot == null && this.controlActExt == null && 
+				this.nullFlavor == null && this.updateMode == null && this.flavorId == null;
+	}
+	
+	/**
+	 * Creates a copy of this record so that copies of a datatype do not share it
+	 */
+	ExtendedAttributes copy()
+	{
+		try {
+			return (ExtendedAttributes)super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new UnsupportedOperationException(e.getMessage(), e);
+		}
+	}
+}
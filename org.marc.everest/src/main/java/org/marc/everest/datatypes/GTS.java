@@ -23,6 +23,11 @@ import java.util.*;
 import org.marc.everest.annotations.*;
 import org.marc.everest.datatypes.generic.*;
 import org.marc.everest.datatypes.interfaces.*;
+import org.marc.everest.datatypes.timing.ITimingEventResolver;
+import org.marc.everest.datatypes.timing.TimingEvaluator;
+import org.marc.everest.datatypes.timing.TimingPlan;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.util.GraphUtil;
 
 
 /**
@@ -30,10 +35,16 @@ import org.marc.everest.datatypes.interfaces.*;
  * the timing of events and actions.
  */
 @Structure(name = "GTS", structureType = StructureType.DATATYPE)
-public class GTS extends ANY implements ISetComponent<IPointInTime> {
+public class GTS extends ANY implements ISetComponent<IPointInTime>, INormalizable {
 
 	// backing field for hull
 	private ISetComponent<TS> m_hull;
+	// The compiled timing plan of the hull
+	private TimingPlan m_compiledPlan;
+	// The frozen hull the plan was compiled from
+	private ISetComponent<TS> m_compiledHull;
+	// The resolver the plan was compiled with
+	private ITimingEventResolver m_compiledResolver;
 	
 	/**
 	 * Creates a new instance of the GTS class
@@ -101,7 +112,101 @@ public class GTS extends ANY implements ISetComponent<IPointInTime> {
 	/**
 	 * Sets the Hull value of this GTS
 	 */
-	public void setHull(ISetComponent<TS> hull) { this.m_hull = hull; }
+	public void setHull(ISetComponent<TS> hull) { this.onModifying(); this.m_hull = hull; }
+
+	/**
+	 * Gets the compiled timing plan for this GTS which can be used to enumerate occurrences
+	 * and determine membership. EIVL components cannot be evaluated without a resolver, use
+	 * {@link #getTimingPlan(ITimingEventResolver)} when the hull contains them.
+	 * <p>The plan is cached on this instance when the hull is frozen throughout (see 
+	 * {@link org.marc.everest.util.GraphUtil#freeze(IGraphable)}), otherwise any component of 
+	 * the hull may have changed and the plan is compiled on each call</p>
+	 * @throws UnsupportedOperationException When the hull contains a component which cannot be evaluated
+	 */
+	public TimingPlan getTimingPlan()
+	{
+		return this.getTimingPlan(null);
+	}
+
+	/**
+	 * Gets the compiled timing plan for this GTS using the specified resolver to locate
+	 * the events referenced by EIVL components
+	 * @throws UnsupportedOperationException When the hull contains a component which cannot be evaluated
+	 */
+	public synchronized TimingPlan getTimingPlan(ITimingEventResolver resolver)
+	{
+		if(this.m_hull == null)
+			throw new UnsupportedOperationException("Cannot evaluate a GTS without a hull");
+		if(this.m_compiledPlan != null && this.m_compiledHull == this.m_hull && this.m_compiledResolver == resolver)
+			return this.m_compiledPlan;
+		
+		TimingPlan retVal = TimingEvaluator.compile(this.m_hull, resolver);
+		if(GraphUtil.isFrozen(this.m_hull))
+		{
+			this.m_compiledPlan = retVal;
+			this.m_compiledHull = this.m_hull;
+			this.m_compiledResolver = resolver;
+		}
+		return retVal;
+	}
+
+	/**
+	 * Gets the occurrences of this timing specification which overlap the window from (inclusive) 
+	 * to (exclusive)
+	 */
+	public List<IVL<TS>> getOccurrences(TS from, TS to)
+	{
+		return this.getTimingPlan().getOccurrences(from, to);
+	}
+
+	/**
+	 * Gets the occurrences of this timing specification which overlap the window from (inclusive) 
+	 * to (exclusive) using the specified resolver to locate the events referenced by EIVL components
+	 */
+	public List<IVL<TS>> getOccurrences(TS from, TS to, ITimingEventResolver resolver)
+	{
+		return this.getTimingPlan(resolver).getOccurrences(from, to);
+	}
+
+	/**
+	 * Returns true if the specified time falls within an occurrence of this timing specification
+	 */
+	public boolean contains(TS instant)
+	{
+		return this.getTimingPlan().contains(instant);
+	}
+
+	/**
+	 * Returns true if the specified time falls within an occurrence of this timing specification 
+	 * using the specified resolver to locate the events referenced by EIVL components
+	 */
+	public boolean contains(TS instant, ITimingEventResolver resolver)
+	{
+		return this.getTimingPlan(resolver).contains(instant);
+	}
+
+	/**
+	 * Normalize this GTS by simplifying the set expression in its hull.
+	 * <p>The hull is only replaced when simplification changed the expression so that
+	 * a set expression which cannot be simplified is transmitted as it was constructed</p>
+	 * @see SetExpressionSimplifier
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public IGraphable normalize() {
+		if(this.m_hull == null || this.isNull())
+			return this;
+
+		ISetComponent<TS> simplified = SetExpressionSimplifier.simplify(this.m_hull),
+				translated = this.m_hull instanceof SXPR<?> ? ((SXPR<TS>)this.m_hull).translateToQSET() : this.m_hull;
+		if(simplified == null || simplified.equals(translated))
+			return this;
+
+		GTS retVal = (GTS)this.shallowCopy();
+		retVal.m_hull = simplified;
+		retVal.m_compiledPlan = null;
+		return retVal;
+	}
 
 	/**
 	 * Flavor validator for the bounded PIVL class
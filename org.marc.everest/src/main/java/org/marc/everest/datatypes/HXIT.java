@@ -31,60 +31,128 @@ import org.marc.everest.resultdetails.DatatypeValidationResultDetail;
  * by the value is (was) valid and which control act event modified the value
  */
 @Structure(name = "HXIT", structureType = StructureType.DATATYPE)
-public abstract class HXIT implements IGraphable
+public abstract class HXIT implements IGraphable, IChangeTracking
 {
 
-	// Backing field for valid time low
-	private TS m_validTimeLow;
-	// Backing field for valid time high
-	private TS m_validTimeHigh;
-	// Backing field for control act root
-	private String m_controlActRoot;
+	// Backing record for the rarely used attributes, null until one of them is set
+	ExtendedAttributes m_extendedAttributes;
+	// True once the instance has been frozen
+	private boolean m_frozen;
+	// Incremented each time the instance is modified
+	private long m_modificationStamp;
 	
-
-	// Backing field for control act ext
-	private String m_controlActExt;
+	/**
+	 * Returns true if this instance has been frozen and can no longer be modified
+	 */
+	public boolean isFrozen() { return this.m_frozen; }
+	
+	/**
+	 * Freezes this instance so that any further attempt to modify it throws an
+	 * UnsupportedOperationException. 
+	 * <p>Frozen instances can be shared safely between structures and threads. 
+	 * Freezing is not reversible, however copies made with shallowCopy() are not frozen</p>
+	 */
+	public void freeze() { this.m_frozen = true; }
+	
+	/**
+	 * Throws an UnsupportedOperationException when this instance is frozen
+	 */
+	protected void throwIfFrozen()
+	{
+		if(this.m_frozen)
+			throw new UnsupportedOperationException(String.format("This instance of %s is frozen and cannot be modified", this.getClass().getSimpleName()));
+	}
+	
+	/**
+	 * Called by setters before they modify this instance. Throws an UnsupportedOperationException 
+	 * when the instance is frozen, otherwise advances its modification stamp
+	 */
+	protected void onModifying()
+	{
+		this.throwIfFrozen();
+		this.m_modificationStamp++;
+	}
+	
+	/**
+	 * Gets the number of times a setter of this instance has been called
+	 */
+	@Override
+	public long getModificationStamp() { return this.m_modificationStamp; }
+	
+	/**
+	 * Returns true if any of the history, null flavor, update mode or flavor attributes are populated
+	 */
+	protected boolean hasExtendedAttributes()
+	{
+		return this.m_extendedAttributes != null && !this.m_extendedAttributes.isEmpty();
+	}
+	
+	/**
+	 * Gets the record of rarely used attributes, allocating it if necessary
+	 */
+	ExtendedAttributes getExtendedAttributes()
+	{
+		if(this.m_extendedAttributes == null)
+			this.m_extendedAttributes = new ExtendedAttributes();
+		return this.m_extendedAttributes;
+	}
 	
 	/**
 	 * Identifies the time that the given information has or will become valid
 	 */
 	@Property(name = "validTimeLow", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
-	public TS getValidTimeLow() { return this.m_validTimeLow; }
+	public TS getValidTimeLow() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.validTimeLow; }
 	/**
 	 * Identifies the time that the given information has or will become valid
 	 * @param value The value to set the valid time
 	 */
-	public void setValidTimeLow(TS value) { this.m_validTimeLow = value; }
+	public void setValidTimeLow(TS value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().validTimeLow = value; 
+	}
 	/**
 	 * Identifies the time that the given information has or will no longer be valid
 	 */
 	@Property(name = "validTimeHigh", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
-	public TS getValidTimeHigh() { return this.m_validTimeHigh; }
+	public TS getValidTimeHigh() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.validTimeHigh; }
 	/**
 	 * Identifies the time that the given information has or will no longer be valid
 	 * @param value The value to set the valid time
 	 */
-	public void setValidTimeHigh(TS value) { this.m_validTimeHigh = value; }
+	public void setValidTimeHigh(TS value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().validTimeHigh = value; 
+	}
 	/**
 	 * Identifies the root of the identifier of the event associated with the setting of the data type to the value
 	 */
 	@Property(name = "controlActRoot", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
-	public String getControlActRoot() { return this.m_controlActRoot; }
+	public String getControlActRoot() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.controlActRoot; }
 	/**
 	 * Identifies the root of the identifier of the event associated with the setting of the data type to the value
 	 * @param value The value to set the control act root 
 	 */
-	public void setControlActRoot(String value) { this.m_controlActRoot = value; }
+	public void setControlActRoot(String value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().controlActRoot = value; 
+	}
 	/**
 	 * Identifies the extension of the identifier of the event associated with the setting of the data type to the value
 	 */
 	@Property(name = "controlActExt", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
-	public String getControlActExt() { return this.m_controlActExt; }
+	public String getControlActExt() { return this.m_extendedAttributes == null ? null : this.m_extendedAttributes.controlActExt; }
 	/**
 	 * Identifies the extension of the identifier of the event associated with the setting of the data type to the value
 	 * @param value The value to set the control act extension to
 	 */
-	public void setControlActExt(String value) { this.m_controlActExt = value; }
+	public void setControlActExt(String value) { 
+		this.onModifying();
+		if(value != null || this.m_extendedAttributes != null)
+			this.getExtendedAttributes().controlActExt = value; 
+	}
 	
 	/**
 	 * When overridden in a derived class this method validates that the datatype contents are valid.
@@ -92,24 +160,49 @@ public abstract class HXIT implements IGraphable
 	 */
 	public boolean validate()
 	{
-		return this.m_controlActExt == null && this.m_controlActRoot == null || 
-			this.m_controlActRoot != null && this.m_controlActExt != null;
+		return this.getControlActExt() == null && this.getControlActRoot() == null || 
+			this.getControlActRoot() != null && this.getControlActExt() != null;
+	}
+	
+	/**
+	 * Clone this instance, giving the clone its own copy of the extended attributes
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		HXIT retVal = (HXIT)super.clone();
+		retVal.m_frozen = false;
+		if(retVal.m_extendedAttributes != null)
+			retVal.m_extendedAttributes = retVal.m_extendedAttributes.copy();
+		return retVal;
 	}
 	
+	/**
+	 * Compare two possibly null values
+	 */
+	static boolean attributeEquals(Object a, Object b)
+	{
+		return a == null ? b == null : a.equals(b);
+	}
 	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		if(this.m_extendedAttributes == null) // Same as hashing four nulls
+			return prime * prime * prime * prime;
+		String controlActExt = this.m_extendedAttributes.controlActExt, 
+				controlActRoot = this.m_extendedAttributes.controlActRoot;
+		TS validTimeHigh = this.m_extendedAttributes.validTimeHigh, 
+				validTimeLow = this.m_extendedAttributes.validTimeLow;
 		result = prime * result
-				+ ((m_controlActExt == null) ? 0 : m_controlActExt.hashCode());
+				+ ((controlActExt == null) ? 0 : controlActExt.hashCode());
 		result = prime
 				* result
-				+ ((m_controlActRoot == null) ? 0 : m_controlActRoot.hashCode());
+				+ ((controlActRoot == null) ? 0 : controlActRoot.hashCode());
 		result = prime * result
-				+ ((m_validTimeHigh == null) ? 0 : m_validTimeHigh.hashCode());
+				+ ((validTimeHigh == null) ? 0 : validTimeHigh.hashCode());
 		result = prime * result
-				+ ((m_validTimeLow == null) ? 0 : m_validTimeLow.hashCode());
+				+ ((validTimeLow == null) ? 0 : validTimeLow.hashCode());
 		return result;
 	}
 	
@@ -125,35 +218,12 @@ public abstract class HXIT implements IGraphable
 			return false;
 		}
 		HXIT other = (HXIT) obj;
-		if (m_controlActExt == null) {
-			if (other.m_controlActExt != null) {
-				return false;
-			}
-		} else if (!m_controlActExt.equals(other.m_controlActExt)) {
-			return false;
-		}
-		if (m_controlActRoot == null) {
-			if (other.m_controlActRoot != null) {
-				return false;
-			}
-		} else if (!m_controlActRoot.equals(other.m_controlActRoot)) {
-			return false;
-		}
-		if (m_validTimeHigh == null) {
-			if (other.m_validTimeHigh != null) {
-				return false;
-			}
-		} else if (!m_validTimeHigh.equals(other.m_validTimeHigh)) {
-			return false;
-		}
-		if (m_validTimeLow == null) {
-			if (other.m_validTimeLow != null) {
-				return false;
-			}
-		} else if (!m_validTimeLow.equals(other.m_validTimeLow)) {
-			return false;
-		}
-		return true;
+		if(this.m_extendedAttributes == null && other.m_extendedAttributes == null)
+			return true;
+		return attributeEquals(this.getControlActExt(), other.getControlActExt()) &&
+				attributeEquals(this.getControlActRoot(), other.getControlActRoot()) &&
+				attributeEquals(this.getValidTimeHigh(), other.getValidTimeHigh()) &&
+				attributeEquals(this.getValidTimeLow(), other.getValidTimeLow());
 	}
 	
 	/**
@@ -162,9 +232,9 @@ public abstract class HXIT implements IGraphable
 	public Collection<IResultDetail> validateEx()
 	{
 		Collection<IResultDetail> retVal = new ArrayList<IResultDetail>();
-        if ((this.m_controlActRoot == null) ^ (this.m_controlActExt == null))
+        if ((this.getControlActRoot() == null) ^ (this.getControlActExt() == null))
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "HXIT",
-                this.m_controlActExt == null ? "ControlActExt must be populated when ControlActRoot is populated" :
+                this.getControlActExt() == null ? "ControlActExt must be populated when ControlActRoot is populated" :
                 "ControlActRoot must be populated when ControlActExt is populated", null));
         return retVal;
 	}
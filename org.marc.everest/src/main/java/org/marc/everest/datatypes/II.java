@@ -19,8 +19,6 @@
 package org.marc.everest.datatypes;
 
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.marc.everest.annotations.ConformanceType;
 import org.marc.everest.annotations.Flavor;
@@ -36,6 +34,9 @@ import org.marc.everest.datatypes.interfaces.IAny;
 @Structure(name = "II", structureType = StructureType.DATATYPE)
 public class II extends ANY {
 
+	// The lengths of the hex digit groups in a UUID
+	private static final int[] s_uuidGroups = { 8, 4, 4, 4, 12 };
+	
 	// Backing field for root
 	private String m_root;
 	// Backing field for extension
@@ -97,7 +98,7 @@ public class II extends ANY {
 	/**
 	 * Sets a value that guarantees the uniqueness of the extension of this instance identifier
 	 */
-	public void setRoot(String value) { this.m_root = value; }
+	public void setRoot(String value) { this.onModifying(); this.m_root = value; }
 	/**
 	 * Gets a character string that uniquely identifies the object
 	 */
@@ -106,7 +107,7 @@ public class II extends ANY {
 	/**
 	 * Sets a character string that uniquely identifies the object
 	 */
-	public void setExtension(String value) { this.m_extension = value; }
+	public void setExtension(String value) { this.onModifying(); this.m_extension = value; }
 	/**
 	 * Gets a value that identifies the scope under which this identifier applies to the object
 	 */
@@ -115,7 +116,7 @@ public class II extends ANY {
 	/**
 	 * Sets a value that identifies the scope under which this identifier applies to the object
 	 */
-	public void setScope(IdentifierScope value) { this.m_scope = value; }
+	public void setScope(IdentifierScope value) { this.onModifying(); this.m_scope = value; }
 	/**
 	 * Gets a value that specifies the reliability of the instance identifier
 	 */
@@ -124,7 +125,7 @@ public class II extends ANY {
 	/**
 	 * Sets a value that specifies the reliability of the instance identifier
 	 */
-	public void setReliability(IdentifierReliability value) { this.m_reliability = value; }
+	public void setReliability(IdentifierReliability value) { this.onModifying(); this.m_reliability = value; }
 	/**
 	 * Gets a value that specifies if the identifier is intended to be displayed on a user screen
 	 */
@@ -134,7 +135,7 @@ public class II extends ANY {
 	 * Sets a value that specifies if the identifier is intended to be displayed on a user screen
 	 * @param value
 	 */
-	public void setDisplayable(Boolean value) { this.m_displayable = value; }
+	public void setDisplayable(Boolean value) { this.onModifying(); this.m_displayable = value; }
 	/**
 	 * Gets a human readable name for the identifier
 	 */
@@ -143,7 +144,7 @@ public class II extends ANY {
 	/**
 	 * Sets a human readable name for the identifier
 	 */
-	public void setIdentifierName(String value) { this.m_identifierName = value; }
+	public void setIdentifierName(String value) { this.onModifying(); this.m_identifierName = value; }
 	/**
 	 * Gets the authority responsible for the assignment of the identifier
 	 */
@@ -152,16 +153,44 @@ public class II extends ANY {
 	/**
 	 * Sets the authority that is responsible for the assignment of the identifier.
 	 */
-	public void setAssigningAuthorityName(String value) { this.m_assigningAuthorityName = value; }
+	public void setAssigningAuthorityName(String value) { this.onModifying(); this.m_assigningAuthorityName = value; }
 	
 	/**
 	 * Determines if the root of the specified II is a UUID
 	 */
 	public static boolean isRootUuid(II ii)
 	{
-		Pattern rp = Pattern.compile("[{]?[A-F0-9]{8}-?([A-F0-9]{4}-?){3}[A-F0-9]{12}", Pattern.CASE_INSENSITIVE);
-		Matcher matcher = rp.matcher(ii.getRoot()); 
- 		return matcher.find();
+		// Equivalent to finding [{]?[A-F0-9]{8}-?([A-F0-9]{4}-?){3}[A-F0-9]{12} without compiling a pattern
+		String root = ii.getRoot();
+		for(int start = 0; start + 32 <= root.length(); start++)
+			if(isUuidAt(root, start))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Returns true if a UUID starts at the specified offset of the string
+	 */
+	private static boolean isUuidAt(String s, int offset)
+	{
+		int pos = offset;
+		for(int g = 0; g < s_uuidGroups.length; g++)
+		{
+			for(int i = 0; i < s_uuidGroups[g]; i++, pos++)
+				if(pos >= s.length() || !isHexDigit(s.charAt(pos)))
+					return false;
+			if(g < s_uuidGroups.length - 1 && pos < s.length() && s.charAt(pos) == '-')
+				pos++;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if the character is an ASCII hexadecimal digit
+	 */
+	private static boolean isHexDigit(char c)
+	{
+		return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
 	}
 	
     /**
@@ -169,9 +198,23 @@ public class II extends ANY {
      */
     public static boolean isRootOid(II ii)
     {
-    	Pattern rp = Pattern.compile("^(\\d+?\\.){1,}\\d+$");
-		Matcher matcher = rp.matcher(ii.getRoot()); 
- 		return matcher.find();
+    	// Equivalent to ^(\d+?\.){1,}\d+$ : two or more runs of digits separated by single dots
+    	String root = ii.getRoot();
+    	int arcs = 0, arcLength = 0;
+    	for(int i = 0; i < root.length(); i++)
+    	{
+    		char c = root.charAt(i);
+    		if(c >= '0' && c <= '9')
+    			arcLength++;
+    		else if(c == '.' && arcLength > 0)
+    		{
+    			arcs++;
+    			arcLength = 0;
+    		}
+    		else
+    			return false;
+    	}
+    	return arcs > 0 && arcLength > 0;
     }
     
 	/**
@@ -19,9 +19,13 @@
 
 package org.marc.everest.datatypes;
 
+import org.marc.everest.annotations.ConformanceType;
 import org.marc.everest.annotations.Flavor;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.annotations.PropertyType;
 import org.marc.everest.annotations.Structure;
 import org.marc.everest.annotations.StructureType;
+import org.marc.everest.datatypes.generic.PDV;
 import org.marc.everest.datatypes.generic.QTY;
 import org.marc.everest.datatypes.interfaces.IAny;
 import org.marc.everest.datatypes.interfaces.IOrderedDataType;
@@ -29,6 +33,8 @@ import org.marc.everest.datatypes.interfaces.IOrderedDataType;
 
 /**
  * Integer numbers are precise numbers that are results of counting and enumerating
+ * <p>The value is stored as a primitive int, {@link #getValue()} boxes it on request. Use 
+ * {@link #intValue()} and {@link INT.Accumulator} to work with values without boxing</p>
  */
 @Structure(name = "INT", structureType = StructureType.DATATYPE)
 public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
@@ -38,6 +44,143 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	// One constant
 	public static final INT ONE = new INT(1);
 	
+	// The value of the integer
+	private int m_primitiveValue;
+	// True if the value is set
+	private boolean m_hasValue;
+	
+	/**
+	 * Accumulates the sum, count and range of integer values without creating 
+	 * an INT or Integer per value
+	 */
+	public static class Accumulator {
+		
+		// Sum of the values
+		private long m_sum;
+		// Number of values
+		private int m_count;
+		// Number of null values (or values without a value)
+		private int m_nullCount;
+		// Minimum value
+		private int m_min = Integer.MAX_VALUE;
+		// Maximum value
+		private int m_max = Integer.MIN_VALUE;
+		
+		/**
+		 * Add a value to the accumulator
+		 */
+		public Accumulator add(int value)
+		{
+			this.m_sum += value;
+			this.m_count++;
+			if(value < this.m_min) this.m_min = value;
+			if(value > this.m_max) this.m_max = value;
+			return this;
+		}
+		
+		/**
+		 * Add an INT to the accumulator, INT instances without a value are counted as nulls
+		 */
+		public Accumulator add(INT value)
+		{
+			if(value == null || !value.m_hasValue || value.isNull())
+				this.m_nullCount++;
+			else
+				this.add(value.m_primitiveValue);
+			return this;
+		}
+		
+		/**
+		 * Add all of the values to the accumulator
+		 */
+		public Accumulator addAll(Iterable<? extends INT> values)
+		{
+			for(INT value : values)
+				this.add(value);
+			return this;
+		}
+		
+		/**
+		 * Add the values accumulated by another accumulator to this accumulator
+		 */
+		public Accumulator combine(Accumulator other)
+		{
+			this.m_sum += other.m_sum;
+			this.m_count += other.m_count;
+			this.m_nullCount += other.m_nullCount;
+			if(other.m_min < this.m_min) this.m_min = other.m_min;
+			if(other.m_max > this.m_max) this.m_max = other.m_max;
+			return this;
+		}
+		
+		/**
+		 * Gets the sum of the values
+		 */
+		public long getSum() { return this.m_sum; }
+		/**
+		 * Gets the number of values accumulated
+		 */
+		public int getCount() { return this.m_count; }
+		/**
+		 * Gets the number of null values that were skipped
+		 */
+		public int getNullCount() { return this.m_nullCount; }
+		/**
+		 * Gets the mean of the values or NaN if there are no values
+		 */
+		public double getMean() { return this.m_count == 0 ? Double.NaN : (double)this.m_sum / this.m_count; }
+		
+		/**
+		 * Gets the minimum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public int getMin() 
+		{
+			if(this.m_count == 0)
+				throw new IllegalStateException("No values have been accumulated");
+			return this.m_min;
+		}
+		
+		/**
+		 * Gets the maximum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public int getMax() 
+		{
+			if(this.m_count == 0)
+				throw new IllegalStateException("No values have been accumulated");
+			return this.m_max;
+		}
+		
+		/**
+		 * Gets the sum as an INT, the INT is null flavored when no values have been accumulated
+		 * @throws ArithmeticException When the sum does not fit in an INT
+		 */
+		public INT toSum()
+		{
+			if(this.m_count == 0)
+			{
+				INT retVal = new INT();
+				retVal.setNullFlavor(NullFlavor.NoInformation);
+				return retVal;
+			}
+			else if(this.m_sum > Integer.MAX_VALUE || this.m_sum < Integer.MIN_VALUE)
+				throw new ArithmeticException("The sum is out of the range of INT");
+			return new INT((int)this.m_sum);
+		}
+		
+		/**
+		 * Clears the accumulator
+		 */
+		public void reset()
+		{
+			this.m_sum = 0;
+			this.m_count = this.m_nullCount = 0;
+			this.m_min = Integer.MAX_VALUE;
+			this.m_max = Integer.MIN_VALUE;
+		}
+	}
+	
 	/**
 	 * Creates a new instance of the INT class
 	 */
@@ -45,7 +188,49 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	/**
 	 * Creates a new instance of the INT class with the specified value
 	 */
-	public INT(Integer value) { super(value); }
+	public INT(Integer value) { this.setValue(value); }
+	/**
+	 * Creates a new instance of the INT class with the specified value
+	 */
+	public INT(int value) { this.setValue(value); }
+	
+	/**
+	 * Gets the value of the integer
+	 */
+	@Property(name = "value", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
+	@Override
+	public Integer getValue() { return this.m_hasValue ? Integer.valueOf(this.m_primitiveValue) : null; }
+	/**
+	 * Sets the value of the integer
+	 */
+	@Override
+	public void setValue(Integer value) {
+		this.onModifying();
+		this.m_hasValue = value != null;
+		this.m_primitiveValue = this.m_hasValue ? value.intValue() : 0;
+	}
+	/**
+	 * Sets the value of the integer
+	 */
+	public void setValue(int value) {
+		this.onModifying();
+		this.m_hasValue = true;
+		this.m_primitiveValue = value;
+	}
+	/**
+	 * Returns true if the integer has a value
+	 */
+	public boolean hasValue() { return this.m_hasValue; }
+	/**
+	 * Gets the value of the integer without boxing
+	 * @throws IllegalStateException When the integer has no value
+	 */
+	public int intValue()
+	{
+		if(!this.m_hasValue)
+			throw new IllegalStateException("INT has no value");
+		return this.m_primitiveValue;
+	}
 	
 	/**
 	 * Validates that the specified instance meets the validation criteria of POS
@@ -53,7 +238,7 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	@Flavor(name = "INT.POS")
 	public static Boolean isValidPosFlavor(INT i)
 	{
-		return i.getValue() != null && i.getValue() > 0;
+		return i.m_hasValue && i.m_primitiveValue > 0;
 	}
 	
 	/**
@@ -62,7 +247,7 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	@Flavor(name = "INT.NONNEG")
 	public static Boolean isValidNonNegFlavor(INT i)
 	{
-		return i.getValue() != null && i.getValue() >= 0;
+		return i.m_hasValue && i.m_primitiveValue >= 0;
 	}
 	
 	/**
@@ -71,8 +256,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	public REAL toReal()
 	{
 		REAL retVal = new REAL();
-		if(this.getValue() != null)
-			retVal.setValue((double)this.getValue()); // This is a performance hit, but there is no way around it in the jaba land
+		if(this.m_hasValue)
+			retVal.setValue((double)this.m_primitiveValue);
 		else
 			retVal.setNullFlavor(this.getNullFlavor());
 		return retVal;
@@ -84,8 +269,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	public static INT fromReal(REAL r)
 	{
 		INT retVal = new INT();
-		if(r.getValue() != null)
-			retVal.setValue(r.getValue().intValue());
+		if(r.hasValue())
+			retVal.setValue((int)r.doubleValue());
 		else
 			retVal.setNullFlavor(r.getNullFlavor());
 		
@@ -96,47 +281,28 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	 * Get the maximum of this integer an another
 	 */
 	public INT max(INT other) {
-		try
-		{
-			if(other == null || other.isNull())
-				return (INT)this.clone();
-			else if(this.isNull())
-				return (INT)other.clone();
-			else if(other.getValue() > this.getValue())
-				return new INT(other.getValue());
-			else
-				return new INT(this.getValue());
-		}
-		catch(CloneNotSupportedException e)
-		{
-			INT in = new INT();
-			in.setNullFlavor(NullFlavor.NoInformation);
-			return in;
-		}
+		if(other == null || other.isNull())
+			return (INT)this.shallowCopy();
+		else if(this.isNull())
+			return (INT)other.shallowCopy();
+		else if(other.m_hasValue && this.m_hasValue)
+			return new INT(other.m_primitiveValue > this.m_primitiveValue ? other.m_primitiveValue : this.m_primitiveValue);
+		else
+			return new INT(this.getValue());
 	}
 	
 	/**
 	 * Gets the minimum value of this integer and another
 	 */
-	public INT min(INT other) { 
-
-		try
-		{
-			if(other == null || other.isNull())
-				return (INT)this.clone();
-			else if(this.isNull())
-				return (INT)other.clone();
-			else if(other.getValue() < this.getValue())
-				return new INT(other.getValue());
-			else 
-				return new INT(this.getValue());
-		}
-		catch(CloneNotSupportedException e)
-		{
-			INT in = new INT();
-			in.setNullFlavor(NullFlavor.NoInformation);
-			return in;
-		}
+	public INT min(INT other) {
+		if(other == null || other.isNull())
+			return (INT)this.shallowCopy();
+		else if(this.isNull())
+			return (INT)other.shallowCopy();
+		else if(other.m_hasValue && this.m_hasValue)
+			return new INT(other.m_primitiveValue < this.m_primitiveValue ? other.m_primitiveValue : this.m_primitiveValue);
+		else
+			return new INT(this.getValue());
 	}
 	
 	/**
@@ -150,8 +316,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() + other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue + other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -168,8 +334,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() + other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue + other.doubleValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -187,8 +353,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() - other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue - other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -205,8 +371,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() - other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue - other.doubleValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -223,8 +389,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() / other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue / other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -242,8 +408,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() / other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue / other.doubleValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -260,8 +426,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() * other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue * other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -279,8 +445,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() * other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue * other.doubleValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -298,8 +464,8 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() % other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue % other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -311,7 +477,7 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	 */
 	public INT increment() {
 
-		return this.add(new INT(1));
+		return this.add(ONE);
 		
 	}
 	
@@ -320,10 +486,23 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	 */
 	public INT decrement() {
 
-		return this.subtract(new INT(1));
+		return this.subtract(ONE);
 
 	}
 	
+	/**
+	 * Compare this INT to another PDV, INT values are compared without boxing
+	 */
+	@Override
+	public int compareTo(PDV<?> o) throws IllegalArgumentException {
+		if(o instanceof INT && this.m_hasValue && ((INT)o).m_hasValue)
+		{
+			int otherValue = ((INT)o).m_primitiveValue;
+			return this.m_primitiveValue < otherValue ? -1 : this.m_primitiveValue == otherValue ? 0 : 1;
+		}
+		return super.compareTo(o);
+	}
+	
 	/**
 	 * Represents the INT class as an integer
 	 */
@@ -336,7 +515,7 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
 	 */
 	@Override
 	public Double toDouble() {
-		return this.getValue().doubleValue();
+		return this.m_hasValue ? Double.valueOf(this.m_primitiveValue) : null;
 	}
 	
 	/**
@@ -369,7 +548,7 @@ public class INT extends QTY<Integer> implements IOrderedDataType<INT> {
         INT intOther = (INT)other;
         if (intOther == null)
             return BL.FALSE;
-        else if (intOther.getValue() != null && this.getValue() != null && intOther.getValue().equals(this.getValue()))
+        else if (intOther.m_hasValue && this.m_hasValue && intOther.m_primitiveValue == this.m_primitiveValue)
             return BL.TRUE;
         else if (intOther.getUncertainRange() != null && !intOther.getUncertainRange().isNull() &&
             this.getUncertainRange() != null && !this.getUncertainRange().isNull())
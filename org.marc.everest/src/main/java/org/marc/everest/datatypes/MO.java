@@ -67,6 +67,7 @@ public class MO extends QTY<BigDecimal> {
 	 * Sets the number of significant digits of the decimal representation
 	 */
 	public void setPrecision(int value) {
+		this.onModifying();
 		this.m_precision = value;
 	}
 	/**
@@ -80,6 +81,7 @@ public class MO extends QTY<BigDecimal> {
 	 * Sets the  ISO 4217 currency code representing the currency of the value
 	 */
 	public void setCurrency(String value) {
+		this.onModifying();
 		this.m_currency = value;
 	}
 	/** 
@@ -78,6 +78,156 @@ public class PQ extends QTY<BigDecimal> {
 		s_tickMap.put("a",    31557600000d ); // To match .NET impl
 	}
 	
+	/**
+	 * Accumulates the sum, count and range of quantities in a single unit without 
+	 * creating a PQ or BigDecimal per value. Quantities in other comparable units 
+	 * are converted to the unit of the accumulator
+	 */
+	public static class Accumulator {
+		
+		// The unit of the accumulated values
+		private String m_unit;
+		// The accumulated values in the unit
+		private final REAL.Accumulator m_values = new REAL.Accumulator();
+		
+		/**
+		 * Creates a new accumulator which takes its unit from the first value added
+		 */
+		public Accumulator() { }
+		
+		/**
+		 * Creates a new accumulator which accumulates values in the specified unit
+		 */
+		public Accumulator(String unit) 
+		{
+			this.m_unit = unit;
+		}
+		
+		/**
+		 * Add a value in the unit of the accumulator
+		 */
+		public Accumulator add(double value)
+		{
+			this.m_values.add(value);
+			return this;
+		}
+		
+		/**
+		 * Add a PQ to the accumulator, PQ instances without a value are counted as nulls
+		 * @throws UnsupportedOperationException When the unit of the value can't be converted to the unit of the accumulator
+		 */
+		public Accumulator add(PQ value)
+		{
+			if(value == null || value.getValue() == null || value.isNull())
+				this.m_values.add((REAL)null);
+			else if(this.m_unit == null && this.m_values.getCount() == 0 || HXIT.attributeEquals(this.m_unit, value.m_unit))
+			{
+				this.m_unit = value.m_unit;
+				this.m_values.add(value.getValue().doubleValue());
+			}
+			else if(this.m_unit == null || value.m_unit == null)
+				throw new UnsupportedOperationException(String.format("Cannot convert '%s' to '%s'", value.m_unit, this.m_unit));
+			else
+				this.m_values.add(value.convert(this.m_unit).getValue().doubleValue());
+			return this;
+		}
+		
+		/**
+		 * Add all of the values to the accumulator
+		 */
+		public Accumulator addAll(Iterable<? extends PQ> values)
+		{
+			for(PQ value : values)
+				this.add(value);
+			return this;
+		}
+		
+		/**
+		 * Add the values accumulated by another accumulator to this accumulator
+		 * @throws IllegalArgumentException When the other accumulator is in a different unit
+		 */
+		public Accumulator combine(Accumulator other)
+		{
+			if(this.m_values.getCount() == 0 && this.m_unit == null)
+				this.m_unit = other.m_unit;
+			else if(other.m_values.getCount() > 0 && !HXIT.attributeEquals(this.m_unit, other.m_unit))
+				throw new IllegalArgumentException("Accumulators must be in the same unit to be combined");
+			this.m_values.combine(other.m_values);
+			return this;
+		}
+		
+		/**
+		 * Gets the unit of the accumulated values
+		 */
+		public String getUnit() { return this.m_unit; }
+		/**
+		 * Gets the sum of the values
+		 */
+		public double getSum() { return this.m_values.getSum(); }
+		/**
+		 * Gets the number of values accumulated
+		 */
+		public int getCount() { return this.m_values.getCount(); }
+		/**
+		 * Gets the number of null values that were skipped
+		 */
+		public int getNullCount() { return this.m_values.getNullCount(); }
+		/**
+		 * Gets the mean of the values or NaN if there are no values
+		 */
+		public double getMean() { return this.m_values.getMean(); }
+		/**
+		 * Gets the minimum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public double getMin() { return this.m_values.getMin(); }
+		/**
+		 * Gets the maximum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public double getMax() { return this.m_values.getMax(); }
+		
+		/**
+		 * Gets the sum as a PQ, the PQ is null flavored when no values have been accumulated
+		 */
+		public PQ toSum()
+		{
+			return this.toPQ(this.m_values.getSum());
+		}
+		
+		/**
+		 * Gets the mean as a PQ, the PQ is null flavored when no values have been accumulated
+		 */
+		public PQ toMean()
+		{
+			return this.toPQ(this.m_values.getMean());
+		}
+		
+		/**
+		 * Create a PQ in the unit of this accumulator
+		 */
+		private PQ toPQ(double value)
+		{
+			PQ retVal = new PQ();
+			if(this.m_values.getCount() == 0)
+				retVal.setNullFlavor(NullFlavor.NoInformation);
+			else
+			{
+				retVal.setValue(BigDecimal.valueOf(value));
+				retVal.setUnit(this.m_unit);
+			}
+			return retVal;
+		}
+		
+		/**
+		 * Clears the accumulator
+		 */
+		public void reset()
+		{
+			this.m_values.reset();
+		}
+	}
+	
 	/**
 	 * Creates a new instance of PQ
 	 */
@@ -99,6 +249,7 @@ public class PQ extends QTY<BigDecimal> {
 	 * Sets the precision
 	 */
 	public void setPrecision(int precision) {
+		this.onModifying();
 		this.setValue(this.getValue().round(new MathContext(precision)));
 	}
 	/**
@@ -109,7 +260,7 @@ public class PQ extends QTY<BigDecimal> {
 	/**
 	 * Sets the unit associated with the quantity
 	 */
-	public void setUnit(String value) { this.m_unit = value; }
+	public void setUnit(String value) { this.onModifying(); this.m_unit = value; }
 	/**
 	 * Gets the rationale as to why this PQ or PQR is provided
 	 */
@@ -118,7 +269,7 @@ public class PQ extends QTY<BigDecimal> {
 	/**
 	 * Sets the rationale as to why this PQ or PQR is provided
 	 */
-	public void setCodingRationale(ISet<CS<CodingRationale>> value) { this.m_rationale = (SET<CS<CodingRationale>>)value; }
+	public void setCodingRationale(ISet<CS<CodingRationale>> value) { this.onModifying(); this.m_rationale = (SET<CS<CodingRationale>>)value; }
 	/**
 	 * Gets a set of alternate representations of the provisioned quantity
 	 */
@@ -128,7 +279,7 @@ public class PQ extends QTY<BigDecimal> {
 	 * Sets a set of alternate representations of the provisioned quantity
 	 * @param value
 	 */
-	public void setTranslation(SET<PQR> value) { this.m_translation = value; }
+	public void setTranslation(SET<PQR> value) { this.onModifying(); this.m_translation = value; }
 	
 	/**
 	 * Adds the value of this quantity with another quantity
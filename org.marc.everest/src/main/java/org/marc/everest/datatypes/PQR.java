@@ -57,7 +57,7 @@ public class PQR extends CV<String>  {
 	/**
 	 * Sets the value of the PQR instance
 	 */
-	public void setValue(BigDecimal value) { this.m_value = value; }
+	public void setValue(BigDecimal value) { this.onModifying(); this.m_value = value; }
 	
 	/**
 	 * Gets the precision of the BigDecimal that is the primary value of this PQ
@@ -32,12 +32,161 @@ import org.marc.everest.datatypes.interfaces.IRealValue;
  * Represent fractional numbers.
  * 
  * Typically used whenever quantities are measured with real numbers.
+ * <p>The value is stored as a primitive double, {@link #getValue()} boxes it on request. Use 
+ * {@link #doubleValue()} and {@link REAL.Accumulator} to work with values without boxing</p>
  */
 @Structure(name = "REAL", structureType = StructureType.DATATYPE)
 public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitInterval<REAL>  {
 
 	// Precision of the float
 	private int m_precision = 0;
+	// The value of the real
+	private double m_primitiveValue;
+	// True if the value is set
+	private boolean m_hasValue;
+	
+	/**
+	 * Accumulates the sum, count and range of real values without creating 
+	 * a REAL or Double per value. The sum is compensated (Kahan summation) so 
+	 * precision is not lost over large numbers of values
+	 */
+	public static class Accumulator {
+		
+		// Sum of the values
+		private double m_sum;
+		// Compensation for lost low-order bits of the sum
+		private double m_compensation;
+		// Number of values
+		private int m_count;
+		// Number of null values (or values without a value)
+		private int m_nullCount;
+		// Minimum value
+		private double m_min = Double.POSITIVE_INFINITY;
+		// Maximum value
+		private double m_max = Double.NEGATIVE_INFINITY;
+		
+		/**
+		 * Add a value to the accumulator
+		 */
+		public Accumulator add(double value)
+		{
+			this.addToSum(value);
+			this.m_count++;
+			if(value < this.m_min) this.m_min = value;
+			if(value > this.m_max) this.m_max = value;
+			return this;
+		}
+		
+		/**
+		 * Add the value to the compensated sum
+		 */
+		private void addToSum(double value)
+		{
+			double y = value - this.m_compensation,
+					t = this.m_sum + y;
+			this.m_compensation = (t - this.m_sum) - y;
+			this.m_sum = t;
+		}
+		
+		/**
+		 * Add a REAL to the accumulator, REAL instances without a value are counted as nulls
+		 */
+		public Accumulator add(REAL value)
+		{
+			if(value == null || !value.m_hasValue || value.isNull())
+				this.m_nullCount++;
+			else
+				this.add(value.m_primitiveValue);
+			return this;
+		}
+		
+		/**
+		 * Add all of the values to the accumulator
+		 */
+		public Accumulator addAll(Iterable<? extends REAL> values)
+		{
+			for(REAL value : values)
+				this.add(value);
+			return this;
+		}
+		
+		/**
+		 * Add the values accumulated by another accumulator to this accumulator
+		 */
+		public Accumulator combine(Accumulator other)
+		{
+			this.addToSum(other.m_sum);
+			this.addToSum(-other.m_compensation);
+			this.m_count += other.m_count;
+			this.m_nullCount += other.m_nullCount;
+			this.m_min = Math.min(this.m_min, other.m_min);
+			this.m_max = Math.max(this.m_max, other.m_max);
+			return this;
+		}
+		
+		/**
+		 * Gets the sum of the values
+		 */
+		public double getSum() { return this.m_sum; }
+		/**
+		 * Gets the number of values accumulated
+		 */
+		public int getCount() { return this.m_count; }
+		/**
+		 * Gets the number of null values that were skipped
+		 */
+		public int getNullCount() { return this.m_nullCount; }
+		/**
+		 * Gets the mean of the values or NaN if there are no values
+		 */
+		public double getMean() { return this.m_count == 0 ? Double.NaN : this.m_sum / this.m_count; }
+		
+		/**
+		 * Gets the minimum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public double getMin() 
+		{
+			if(this.m_count == 0)
+				throw new IllegalStateException("No values have been accumulated");
+			return this.m_min; 
+		}
+		
+		/**
+		 * Gets the maximum value
+		 * @throws IllegalStateException When no values have been accumulated
+		 */
+		public double getMax() 
+		{
+			if(this.m_count == 0)
+				throw new IllegalStateException("No values have been accumulated");
+			return this.m_max; 
+		}
+		
+		/**
+		 * Gets the sum as a REAL, the REAL is null flavored when no values have been accumulated
+		 */
+		public REAL toSum()
+		{
+			REAL retVal = new REAL();
+			if(this.m_count == 0)
+				retVal.setNullFlavor(NullFlavor.NoInformation);
+			else
+				retVal.setValue(this.m_sum);
+			return retVal;
+		}
+		
+		/**
+		 * Clears the accumulator
+		 */
+		public void reset()
+		{
+			this.m_sum = this.m_compensation = 0;
+			this.m_count = this.m_nullCount = 0;
+			this.m_min = Double.POSITIVE_INFINITY;
+			this.m_max = Double.NEGATIVE_INFINITY;
+		}
+	}
 	
 	/**
 	 * Creates a new instance of the REAL class
@@ -46,7 +195,49 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	/**
 	 * Creates a new instance of the REAL class with the specified value
 	 */
-	public REAL(Double value) {	super(value); }
+	public REAL(Double value) {	this.setValue(value); }
+	/**
+	 * Creates a new instance of the REAL class with the specified value
+	 */
+	public REAL(double value) {	this.setValue(value); }
+
+	/**
+	 * Gets the value of the real
+	 */
+	@Property(name = "value", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
+	@Override
+	public Double getValue() { return this.m_hasValue ? Double.valueOf(this.m_primitiveValue) : null; }
+	/**
+	 * Sets the value of the real
+	 */
+	@Override
+	public void setValue(Double value) {
+		this.onModifying();
+		this.m_hasValue = value != null;
+		this.m_primitiveValue = this.m_hasValue ? value.doubleValue() : 0;
+	}
+	/**
+	 * Sets the value of the real
+	 */
+	public void setValue(double value) {
+		this.onModifying();
+		this.m_hasValue = true;
+		this.m_primitiveValue = value;
+	}
+	/**
+	 * Returns true if the real has a value
+	 */
+	public boolean hasValue() { return this.m_hasValue; }
+	/**
+	 * Gets the value of the real without boxing
+	 * @throws IllegalStateException When the real has no value
+	 */
+	public double doubleValue()
+	{
+		if(!this.m_hasValue)
+			throw new IllegalStateException("REAL has no value");
+		return this.m_primitiveValue;
+	}
 
 	/**
 	 * Gets the precision of this REAL value
@@ -69,6 +260,7 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	 */
 	public void setPrecision(int value)
 	{
+		this.onModifying();
 		this.m_precision = value;
 		if(this.m_precision == 0)
 			this.p_floatingPointEqualityTolerance = 1e-15;
@@ -131,11 +323,11 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	public REAL max(REAL other) throws CloneNotSupportedException {
 		
 		if(other == null || other.isNull())
-			return (REAL)this.clone();
+			return (REAL)this.shallowCopy();
 		else if(this.isNull())
-			return (REAL)other.clone();
-		else if(other.getValue() > this.getValue())
-			return new REAL(other.getValue());
+			return (REAL)other.shallowCopy();
+		else if(other.m_hasValue && this.m_hasValue)
+			return new REAL(other.m_primitiveValue > this.m_primitiveValue ? other.m_primitiveValue : this.m_primitiveValue);
 		else
 			return new REAL(this.getValue()); 
 	}
@@ -144,15 +336,15 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	 * Gets the minimum value of this integer and another
 	 */
 	public REAL min(REAL other) throws CloneNotSupportedException {
-
+		
 		if(other == null || other.isNull())
-			return (REAL)this.clone();
+			return (REAL)this.shallowCopy();
 		else if(this.isNull())
-			return (REAL)other.clone();
-		else if(other.getValue() < this.getValue())
-			return new REAL(other.getValue());
-		else 
-			return new REAL(this.getValue());
+			return (REAL)other.shallowCopy();
+		else if(other.m_hasValue && this.m_hasValue)
+			return new REAL(other.m_primitiveValue < this.m_primitiveValue ? other.m_primitiveValue : this.m_primitiveValue);
+		else
+			return new REAL(this.getValue()); 
 	}
 	
 	/**
@@ -166,8 +358,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() + other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue + other.intValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -184,8 +376,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() + other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue + other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -203,8 +395,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() - other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue - other.intValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -221,8 +413,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() - other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue - other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -237,10 +429,10 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 		
 		if(other == null)
 			return null; // This differs from standard Java Integer + null as no boxing is performed
-		else if(this.isNull() || other.isNull() || other.getValue() == 0)
+		else if(this.isNull() || other.isNull() || other.hasValue() && other.intValue() == 0)
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() / other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue / other.intValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -256,10 +448,10 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 		
 		if(other == null)
 			return null; // This differs from standard Java Integer + null as no boxing is performed
-		else if(this.isNull() || other.isNull() || other.getValue() == 0)
+		else if(this.isNull() || other.isNull() || other.m_hasValue && other.m_primitiveValue == 0)
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() / other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue / other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -295,8 +487,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() * other.getValue());
+		else if(other.hasValue() && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue * other.intValue());
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -314,8 +506,8 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 			return null; // This differs from standard Java Integer + null as no boxing is performed
 		else if(this.isNull() || other.isNull())
 			retVal.setNullFlavor(NullFlavor.NoInformation);
-		else if(other.getValue() != null && this.getValue() != null)
-			retVal.setValue(this.getValue() * other.getValue());
+		else if(other.m_hasValue && this.m_hasValue)
+			retVal.setValue(this.m_primitiveValue * other.m_primitiveValue);
 		else 
 			retVal.setNullFlavor(NullFlavor.Other);
 		return retVal;
@@ -349,7 +541,7 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	 */
 	public static REAL fromInt(INT i)
 	{
-		return new REAL(i.getValue().doubleValue());
+		return new REAL((double)i.intValue());
 	}
 	
 	/**
@@ -357,8 +549,18 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 	 */
 	public INT toInt()
 	{
-		return new INT(this.getValue().intValue());
+		return new INT((int)this.doubleValue());
 	}
+	/**
+	 * Compare this REAL to another PDV, REAL values are compared without boxing
+	 */
+	@Override
+	public int compareTo(PDV<?> o) throws IllegalArgumentException {
+		if(o instanceof REAL && this.m_hasValue && ((REAL)o).m_hasValue)
+			return Double.compare(this.m_primitiveValue, ((REAL)o).m_primitiveValue);
+		return super.compareTo(o);
+	}
+	
 	/**
 	 * Represent as an integer
 	 */
@@ -425,7 +627,7 @@ public class REAL extends QTY<Double> implements IRealValue<Double>, IImplicitIn
 
         // Values are equal?
         REAL realOther = (REAL)other;
-        if (realOther.getValue() != null && this.getValue() != null && Math.abs(realOther.getValue().doubleValue() - this.getValue().doubleValue()) <= Math.abs(realOther.getValue().doubleValue() * this.p_floatingPointEqualityTolerance))
+        if (realOther.m_hasValue && this.m_hasValue && Math.abs(realOther.m_primitiveValue - this.m_primitiveValue) <= Math.abs(realOther.m_primitiveValue * this.p_floatingPointEqualityTolerance))
             return BL.TRUE;
         else if (realOther.getUncertainRange() != null && !realOther.getUncertainRange().isNull() &&
             this.getUncertainRange() != null && !this.getUncertainRange().isNull())
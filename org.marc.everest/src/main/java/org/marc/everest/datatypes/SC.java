@@ -77,6 +77,7 @@ public class SC extends ST {
 	 * Sets the contained code attached to the string
 	 */
 	public void setCode(CD<String> value) {
+		this.onModifying();
 		this.m_code = value;
 	}
 	
@@ -18,10 +18,15 @@
  */
 package org.marc.everest.datatypes;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.marc.everest.annotations.*;
 import org.marc.everest.datatypes.doc.*;
 import org.marc.everest.interfaces.IResultDetail;
@@ -36,7 +41,13 @@ import org.marc.everest.resultdetails.DatatypeValidationResultDetail;
 @Structure(name = "SD", structureType = StructureType.DATATYPE)
 public class SD extends ANY {
 
+	// Factory used to read raw content
+	private static final XMLInputFactory s_inputFactory = XMLInputFactory.newInstance();
+	
+	// Guarded by this, since raw content is read into nodes on first access from any thread
 	private List<org.marc.everest.datatypes.doc.StructDocNode> m_content;
+	// Raw XML of the content which has not yet been read into nodes, guarded by this
+	private String m_rawContent;
 	protected String m_language;
 	protected String m_id;
 	protected String m_styleCode;
@@ -102,18 +113,82 @@ public class SD extends ANY {
 	 * @return
 	 */
 	@Property(name = "content", conformance = ConformanceType.MANDATORY, propertyType = PropertyType.NONSTRUCTURAL)
-	public List<org.marc.everest.datatypes.doc.StructDocNode> getContent() {
+	public synchronized List<org.marc.everest.datatypes.doc.StructDocNode> getContent() {
+		if(this.m_rawContent != null)
+			this.readRawContent();
 		return m_content;
 	}
 	
 	/**
 	 * Sets the list of nodes within the structured document
 	 */
-	public void setContent(
+	public synchronized void setContent(
 			List<org.marc.everest.datatypes.doc.StructDocNode> value) {
+		this.m_rawContent = null;
 		this.m_content = value;
 	}
 	
+	/**
+	 * Gets the raw XML of the content if the content has not yet been read into nodes, 
+	 * or null if the content is held as nodes. 
+	 * <p>Raw content is a single wrapper element whose children are the content of the SD 
+	 * and which declares every namespace the content uses.</p>
+	 */
+	public synchronized String getRawContent() {
+		return this.m_rawContent;
+	}
+	
+	/**
+	 * Sets the raw XML of the content. The nodes are read from the raw XML only when 
+	 * the content is first accessed, until then formatters write the raw XML back as is
+	 * @see #getRawContent()
+	 */
+	public synchronized void setRawContent(String value) {
+		this.onModifying();
+		this.m_rawContent = value;
+		this.m_content = value == null ? new ArrayList<StructDocNode>() : null;
+	}
+	
+	/**
+	 * Returns true if the content is held as raw XML which has not been read into nodes
+	 */
+	public synchronized boolean hasRawContent() {
+		return this.m_rawContent != null;
+	}
+	
+	/**
+	 * Read the raw content into nodes, the caller holds the lock of this SD
+	 */
+	private void readRawContent()
+	{
+		List<StructDocNode> content = new ArrayList<StructDocNode>();
+		try
+		{
+			XMLStreamReader xr = s_inputFactory.createXMLStreamReader(new StringReader(this.m_rawContent));
+			xr.nextTag();
+			StructDocElementNode wrapper = new StructDocElementNode();
+			wrapper.readXml(xr);
+			xr.close();
+			for(StructDocNode nd : wrapper.getChildren())
+				if(!(nd instanceof StructDocAttributeNode))
+					content.add(nd);
+		}
+		catch(XMLStreamException e)
+		{
+			throw new IllegalStateException("Could not read the raw content of the SD", e);
+		}
+		this.m_content = content;
+		this.m_rawContent = null;
+	}
+	
+	/**
+	 * Returns true if there is content in this SD
+	 */
+	private synchronized boolean hasContent()
+	{
+		return this.m_rawContent != null || this.m_content != null && this.m_content.size() > 0;
+	}
+	
 	/**
 	 * Gets the language of the content. Valid codes are taken from IETF language/culture codes
 	 */
@@ -125,6 +200,7 @@ public class SD extends ANY {
 	 * Sets the language of the content. Valid codes are taken from IETF language/culture codes
 	 */
 	public void setLanguage(String value) {
+		this.onModifying();
 		this.m_language = value;
 	}
 	
@@ -139,6 +215,7 @@ public class SD extends ANY {
 	 * Sets the IDREF for this SD instance
 	 */
 	public void setId(String value) {
+		this.onModifying();
 		this.m_id = value;
 	}
 	/**
@@ -153,6 +230,7 @@ public class SD extends ANY {
 	 * @param value
 	 */
 	public void setStyleCode(String value) {
+		this.onModifying();
 		this.m_styleCode = value;
 	}
 	/**
@@ -167,6 +245,7 @@ public class SD extends ANY {
 	 * @param value
 	 */
 	public void setMediaType(String value) {
+		this.onModifying();
 		this.m_mediaType = value;
 	}
 
@@ -184,10 +263,15 @@ public class SD extends ANY {
         equals &= this.m_styleCode == otherSd.m_styleCode;
         equals &= this.m_id == otherSd.m_id;
 
-        if (this.m_content != null && otherSd.m_content != null &&
-            this.m_content.size() == otherSd.m_content.size())
-            for (int i = 0; i < this.m_content.size(); i++)
-                equals &= this.m_content.get(i).equals(otherSd.m_content.get(i));
+        String rawContent = this.getRawContent();
+        if (rawContent != null && rawContent.equals(otherSd.getRawContent()))
+        	return equals;
+        
+        List<StructDocNode> content = this.getContent(), otherContent = otherSd.getContent();
+        if (content != null && otherContent != null &&
+            content.size() == otherContent.size())
+            for (int i = 0; i < content.size(); i++)
+                equals &= content.get(i).equals(otherContent.get(i));
         else
             equals = false;
         return equals;
@@ -201,7 +285,7 @@ public class SD extends ANY {
 		Collection<IResultDetail> retVal = super.validateEx();
         if (!this.m_mediaType.equals("text/x-hl7-text+xml"))
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.WARNING, "SD", String.format(EverestValidationMessages.MSG_INVALID_VALUE, this.m_mediaType, "MediaType"), null));
-        else if (!(this.isNull() ^ (this.m_content.size() > 0)))
+        else if (!(this.isNull() ^ this.hasContent()))
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "SD", EverestValidationMessages.MSG_NULLFLAVOR_WITH_VALUE, null));
         return retVal;
 	}
@@ -211,7 +295,7 @@ public class SD extends ANY {
 	 */
 	@Override
 	public boolean validate() {
-		return super.validate() && (this.isNull() ^ (this.m_content.size() > 0)) &&
+		return super.validate() && (this.isNull() ^ this.hasContent()) &&
                 this.m_mediaType == "text/x-hl7-text+xml";
 	}
 
@@ -224,7 +308,7 @@ public class SD extends ANY {
 			id = id.substring(1);
 		
 		// Recursively find the node
-		for(StructDocNode node : this.m_content)
+		for(StructDocNode node : this.getContent())
 		{
 			StructDocNode res = node.findNodeById(id);
 			if(res != null)
@@ -84,7 +84,7 @@ public class ST extends PDV<String> {
 	/**
 	 * Sets the language of the character string data
 	 */
-	public void setLanguage(String value) { this.m_language = value; }
+	public void setLanguage(String value) { this.onModifying(); this.m_language = value; }
 	/**
 	 * Gets a set that contains translations of this string instance to other languages
 	 */
@@ -93,7 +93,7 @@ public class ST extends PDV<String> {
 	/**
 	 * Sets a set that contains translations of this string instance to other languages.
 	 */
-	public void setTranslation(SET<ST> value) { this.m_translation = value; }
+	public void setTranslation(SET<ST> value) { this.onModifying(); this.m_translation = value; }
 	/**
 	 * Gets the length of this character string. 0 if the value has not been set
 	 */
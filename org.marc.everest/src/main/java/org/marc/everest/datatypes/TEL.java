@@ -85,12 +85,13 @@ public class TEL extends PDV<String> implements ITelecommunicationsAddress {
 	 * Sets the set of TelecommunicationsAddressUse codes that describe the
 	 * circumstances under which the telecommunications address can be used
 	 */
-	public void setUse(SET<CS<TelecommunicationsAddressUse>> value) { this.m_use = value; }
+	public void setUse(SET<CS<TelecommunicationsAddressUse>> value) { this.onModifying(); this.m_use = value; }
 	/**
 	 * Populates the use based on a list of TelecommunicationsAddressUse codes
 	 * @param use
 	 */
 	public void setUse(TelecommunicationsAddressUse... use) {
+		this.onModifying();
 		this.m_use = new SET<CS<TelecommunicationsAddressUse>>();
 		for(TelecommunicationsAddressUse u : use)
 			this.m_use.add(new CS<TelecommunicationsAddressUse>(u));
@@ -104,12 +105,13 @@ public class TEL extends PDV<String> implements ITelecommunicationsAddress {
 	 * Sets a set that describes the capabilities of the device
 	 * attached to the telecommunications address
 	 */
-	public void setCapabilities(SET<CS<TelecommunicationsCapabilities>> value) { this.m_capabilities = value; }
+	public void setCapabilities(SET<CS<TelecommunicationsCapabilities>> value) { this.onModifying(); this.m_capabilities = value; }
 	/**
 	 * Sets a set that describes the capabilities of the device
 	 * attached to the telecommunications address
 	 */
 	public void setCapabilities(TelecommunicationsCapabilities... value) {
+		this.onModifying();
 		this.m_capabilities = new SET<CS<TelecommunicationsCapabilities>>();
 		for(TelecommunicationsCapabilities u : value)
 			this.m_capabilities.add(new CS<TelecommunicationsCapabilities>(u));	
@@ -124,7 +126,7 @@ public class TEL extends PDV<String> implements ITelecommunicationsAddress {
 	 * Sets a general timing specification that describes the segments
 	 * of time that a telecommunications address is available.
 	 */
-	public void setUsablePeriod(GTS value) { this.m_usablePeriod = value; }
+	public void setUsablePeriod(GTS value) { this.onModifying(); this.m_usablePeriod = value; }
 	
 	/**
 	 * Validate an instance of TEL to TEL.URL
@@ -236,6 +236,7 @@ public class TS extends QTY<String> implements IPointInTime, IPqTranslatable<TS>
 	 */
 	@Override
 	public void setValue(String value) {
+		this.onModifying();
 
 		
 		 try
@@ -318,7 +319,7 @@ public class TS extends QTY<String> implements IPointInTime, IPqTranslatable<TS>
 	 * Sets the value of the timestamp as a Java Date object
 	 * @param value The new Date to represent within this TS
 	 */
-	public void setDateValue(Calendar value) { this.m_dateValue = value; }
+	public void setDateValue(Calendar value) { this.onModifying(); this.m_dateValue = value; }
 	
 	/**
 	 * Gets the precision of the DateValue. For example, a date time of January 1, 2009 with precision
@@ -330,7 +331,7 @@ public class TS extends QTY<String> implements IPointInTime, IPqTranslatable<TS>
 	/**
 	 * Sets the precision of the DateValue 
 	 */
-	public void setDateValuePrecision(Integer value) { this.m_dateValuePrecision = value; }
+	public void setDateValuePrecision(Integer value) { this.onModifying(); this.m_dateValuePrecision = value; }
 	
 	/**
 	 * Gets the flavor of this instance 
@@ -409,6 +410,7 @@ public class TS extends QTY<String> implements IPointInTime, IPqTranslatable<TS>
 	 */
 	@Override
 	public void setFlavorId(String value) {
+		this.onModifying();
 		if(this.m_dateValuePrecision == null)
 		{
 			Integer tdprec = m_flavorPrecisions.get(value);
@@ -112,8 +112,8 @@ public abstract class StructDocNode {
         if(!equals) return false;
         
         StructDocNode otherNode = (StructDocNode)other;
-        equals &= otherNode.m_name.equals(this.m_name);
-        equals &= otherNode.m_value.equals(this.m_value);
+        equals &= otherNode.m_name == null ? this.m_name == null : otherNode.m_name.equals(this.m_name);
+        equals &= otherNode.m_value == null ? this.m_value == null : otherNode.m_value.equals(this.m_value);
         if (this.m_children != null && otherNode.m_children != null &&
             this.m_children.size() == otherNode.m_children.size())
         {
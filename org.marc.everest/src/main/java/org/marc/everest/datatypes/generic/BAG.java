@@ -21,6 +21,7 @@ package org.marc.everest.datatypes.generic;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.marc.everest.annotations.ConformanceType;
@@ -79,6 +80,29 @@ public class BAG<T extends IGraphable> extends COLL<T> implements IBag<T> {
 		return this.m_bag;
 	}
 
+	/**
+	 * Freezes this collection and the items it contains. The backing list
+	 * is replaced with a read-only view
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		this.m_bag = Collections.unmodifiableList(this.m_bag);
+		super.freeze();
+	}
+	
+	/**
+	 * Clone this instance. The clone receives its own modifiable list of the same items
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		BAG<T> retVal = (BAG<T>)super.clone();
+		retVal.m_bag = new ArrayList<T>(this.m_bag);
+		return retVal;
+	}
+	
 	/**
 	 * Determine if this instance of BAG semantically equals another
 	 * <p>Two non-null non null-flavored instances of BAG are semantically equal when both instances are empty or
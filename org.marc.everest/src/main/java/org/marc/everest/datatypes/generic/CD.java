@@ -121,7 +121,7 @@ public class CD<T> extends CE<T>  {
 	/**
 	 * Sets a list of codes that qualify the parent code phrase.
 	 */
-	public void setQualifier(LIST<CR<T>> value) { this.m_qualifier = value; }
+	public void setQualifier(LIST<CR<T>> value) { this.onModifying(); this.m_qualifier = value; }
 	
 	/**
 	 * Validates that the CD is valid. A CD is valid when:
@@ -154,6 +154,7 @@ public class CD<T> extends CE<T>  {
 	 * @param parse
 	 */
 	public void setQualifier(Iterable<? extends CR> qualifier) {
+		this.onModifying();
 		this.m_qualifier = new LIST<CR<T>>(qualifier);
 	}
 }
@@ -107,13 +107,13 @@ public class CE<T> extends CV<T> implements ICodedEquivalents<T> {
 	 * code systems or a synonym to the code
 	 */
 	@Override
-	public void setTranslation(SET<CD<T>> value) { this.m_translation = value; }
+	public void setTranslation(SET<CD<T>> value) { this.onModifying(); this.m_translation = value; }
 
 	/**
 	 * Set the other concept descriptors to a more generic defition. 
 	 * @param value
 	 */
-	public void setTranslation(Iterable<? extends CD> value) { this.m_translation = new SET<CD<T>>(value); }
+	public void setTranslation(Iterable<? extends CD> value) { this.onModifying(); this.m_translation = new SET<CD<T>>(value); }
 	/**
 	 * Validate the the CE is valid.
 	 * 
@@ -53,6 +53,17 @@ public abstract class COLL<T extends IGraphable> extends ANY implements ICollect
 	@Property(name = "item", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.NONSTRUCTURAL)
 	public abstract Collection<T> getItems();
 	
+	/**
+	 * Freezes this collection along with any datatype items it contains
+	 */
+	@Override
+	public void freeze() {
+		for(T item : this.getItems())
+			if(item instanceof org.marc.everest.datatypes.HXIT)
+				((org.marc.everest.datatypes.HXIT)item).freeze();
+		super.freeze();
+	}
+	
 	/**
 	 * Determines if this set contains all 
 	 */
@@ -67,6 +67,7 @@ public class CR<T> extends ANY {
 	 * @param value The new value of the concept qualifier name
 	 */
 	public void setName(CV<?> value) {
+		this.onModifying();
 		this.m_name = value;
 	}
 
@@ -81,6 +82,7 @@ public class CR<T> extends ANY {
 	 * Sets a value specifying the concept that modifies the primary code phrase
 	 */
 	public void setValue(CD<?> value) {
+		this.onModifying();
 		this.m_value = value;
 	}
 	
@@ -100,6 +102,7 @@ public class CR<T> extends ANY {
 	 */
 	public void setInverted(boolean value)
 	{
+		this.onModifying();
 		this.m_inverted = value;
 	}
 	
@@ -20,6 +20,8 @@ package org.marc.everest.datatypes.generic;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.marc.everest.annotations.*;
 import org.marc.everest.datatypes.*;
@@ -41,6 +43,9 @@ import org.marc.everest.resultdetails.DatatypeValidationResultDetail;
 @Structure(name = "CS", structureType = StructureType.DATATYPE, defaultTemplateType = java.lang.String.class)
 public class CS<T> extends ANY implements ICodedSimple {
 
+	// Frozen instances shared for each enumerated vocabulary constant
+	private static final ConcurrentMap<Enum<?>, CS<?>> s_sharedInstances = new ConcurrentHashMap<Enum<?>, CS<?>>();
+	
 	// backing field for code
 	private T m_code;
 	
@@ -54,6 +59,39 @@ public class CS<T> extends ANY implements ICodedSimple {
 	 */
 	public CS(T code) { super(); this.setCode(code); }
 	
+	/**
+	 * Gets the frozen CS instance shared by all holders of the specified enumerated vocabulary constant.
+	 * <p>Shared instances cannot be modified; use shallowCopy() to obtain a modifiable copy</p>
+	 * @param code The enumerated constant the instance carries
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> CS<T> getSharedInstance(T code)
+	{
+		if(!(code instanceof Enum))
+			throw new IllegalArgumentException("Shared CS instances are only available for enumerated vocabulary constants");
+		CS<?> retVal = s_sharedInstances.get(code);
+		if(retVal == null)
+		{
+			CS<T> instance = new CS<T>(code);
+			instance.freeze();
+			retVal = s_sharedInstances.putIfAbsent((Enum<?>)code, instance);
+			if(retVal == null)
+				retVal = instance;
+		}
+		return (CS<T>)retVal;
+	}
+	
+	/**
+	 * Returns the shared instance equal to this CS when this is a plain CS carrying only an enumerated
+	 * vocabulary code, otherwise returns this instance
+	 */
+	public CS<T> intern()
+	{
+		if(this.getClass() == CS.class && this.m_code instanceof Enum && !this.hasExtendedAttributes())
+			return getSharedInstance(this.m_code);
+		return this;
+	}
+	
 	/**
 	 * Gets the code value of the CS
 	 */
@@ -67,6 +105,7 @@ public class CS<T> extends ANY implements ICodedSimple {
 	@SuppressWarnings("unchecked")
 	@Override
 	public void setCode(Object value) {
+		this.onModifying();
 		((CS<T>)this).setCodeEx((T)value);
 	}
 	/**
@@ -74,6 +113,7 @@ public class CS<T> extends ANY implements ICodedSimple {
 	 */
 	public void setCodeEx(T value)
 	{
+		this.onModifying();
 		this.m_code = (T)value;
 	}
 	/**
@@ -120,7 +120,7 @@ public class CV<T> extends CS<T> implements ICodedValue<T> {
 	 * Sets the human readable name for the code mnemonic
 	 */
 	@Override
-	public void setDisplayName(String value) { this.m_displayName = value; }
+	public void setDisplayName(String value) { this.onModifying(); this.m_displayName = value; }
 	/**
 	 * Gets the text as seen and or selected by the user who entered the data
 	 */
@@ -130,12 +130,12 @@ public class CV<T> extends CS<T> implements ICodedValue<T> {
 	/**
 	 * Sets the text as seen and or selected by the user who entered the data
 	 */
-	public void setOriginalText(ED value) { this.m_originalText = value; }
+	public void setOriginalText(ED value) { this.onModifying(); this.m_originalText = value; }
 	/**
 	 * Sets the text as seen and or selected by the user who entered the data
 	 */
 	@Override
-	public void setOriginalText(IEncapsulatedData value) { this.m_originalText = (ED)value; }
+	public void setOriginalText(IEncapsulatedData value) { this.onModifying(); this.m_originalText = (ED)value; }
 	/**
 	 * Gets the reason the code was provided
 	 */
@@ -145,12 +145,12 @@ public class CV<T> extends CS<T> implements ICodedValue<T> {
 	/**
 	 * Sets the reason the code was provided
 	 */
-	public void setCodingRationale(SET<CS<CodingRationale>> value) { this.m_codingRationale = value; }
+	public void setCodingRationale(SET<CS<CodingRationale>> value) { this.onModifying(); this.m_codingRationale = value; }
 	/**
 	 * Sets the reason the code was provided
 	 */
 	@Override
-	public void setCodingRationale(ISet<CS<CodingRationale>> value) { this.m_codingRationale = (SET<CS<CodingRationale>>)value; }
+	public void setCodingRationale(ISet<CS<CodingRationale>> value) { this.onModifying(); this.m_codingRationale = (SET<CS<CodingRationale>>)value; }
 	
 	/**
 	 * Sets the code value of this CS.
@@ -163,6 +163,7 @@ public class CV<T> extends CS<T> implements ICodedValue<T> {
 	 */
 	@Override
 	public void setCodeEx(T value) {
+		this.onModifying();
 		// Set a code system if one is not set
 		if(this.m_codeSystem == null && value != null && value instanceof IEnumeratedVocabulary)
 			this.m_codeSystem = ((IEnumeratedVocabulary)value).getCodeSystem();
@@ -191,27 +192,27 @@ public class CV<T> extends CS<T> implements ICodedValue<T> {
 	 * @param value The new value of the codeSystem field
 	 */
 	@Override
-	public void setCodeSystem(String value) { this.m_codeSystem = value; }
+	public void setCodeSystem(String value) { this.onModifying(); this.m_codeSystem = value; }
 	
 	@Override
 	@Property(name = "codeSystemName", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
 	public String getCodeSystemName() { return this.m_codeSystemName; }
 	@Override
-	public void setCodeSystemName(String value) { this.m_codeSystemName = value; }
+	public void setCodeSystemName(String value) { this.onModifying(); this.m_codeSystemName = value; }
 	
 	@Override
 	@Property(name = "codeSystemVersion", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
 	public String getCodeSystemVersion() { return this.m_codeSystemVersion; }
 	@Override
-	public void setCodeSystemVersion(String value) { this.m_codeSystemVersion = value; }
+	public void setCodeSystemVersion(String value) { this.onModifying(); this.m_codeSystemVersion = value; }
 	
 	@Property(name = "valueSet", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
 	public String getValueSet() { return this.m_valueSet; }
-	public void setValueSet(String value) { this.m_valueSet = value; }
+	public void setValueSet(String value) { this.onModifying(); this.m_valueSet = value; }
 
 	@Property(name = "valueSetVersion", conformance = ConformanceType.OPTIONAL, propertyType = PropertyType.STRUCTURAL)
 	public String getValueSetVersion() { return this.m_valueSetVersion; }
-	public void setValueSetVersion(String value) { this.m_valueSetVersion = value; }
+	public void setValueSetVersion(String value) { this.onModifying(); this.m_valueSetVersion = value; }
 
 
 	/**
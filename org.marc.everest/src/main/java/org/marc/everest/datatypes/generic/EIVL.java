@@ -83,12 +83,12 @@ public class EIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	/**
 	 * Set the event around which this EIVL is bound
 	 */
-	public void setEvent(DomainTimingEvent value) { this.m_event = new CS<DomainTimingEvent>(value); }
+	public void setEvent(DomainTimingEvent value) { this.onModifying(); this.m_event = new CS<DomainTimingEvent>(value); }
 	
 	/**
 	 * Set the event around which this EIVL is bound
 	 */
-	public void setEvent(CS<DomainTimingEvent> value) { this.m_event = value; }
+	public void setEvent(CS<DomainTimingEvent> value) { this.onModifying(); this.m_event = value; }
 
 	/**
 	 * Gets the offset that specifies how long after (or before) the bound event the 
@@ -100,7 +100,7 @@ public class EIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets the offset that specifies how long after (or before) the bound event the
 	 * interval begins
 	 */
-	public void setOffset(IVL<PQ> value) { this.m_offset = value; }
+	public void setOffset(IVL<PQ> value) { this.onModifying(); this.m_offset = value; }
 	
 	/**
 	 * Gets a value which specifies the reasoning behind the selection of this particular representation of the EIVL
@@ -115,6 +115,7 @@ public class EIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 */
 	@Override
 	public void setOriginalText(IEncapsulatedData value) {
+		this.onModifying();
 		this.m_originalText = (ED)value;
 	}
 	/* (non-Javadoc)
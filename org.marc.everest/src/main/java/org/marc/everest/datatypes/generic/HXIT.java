@@ -55,7 +55,7 @@ public abstract class HXIT<T extends ANY> extends org.marc.everest.datatypes.HXI
 	/**
 	 * Set the value of the HXIT
 	 */
-	public void setValue(T value) { this.m_value = value; }
+	public void setValue(T value) { this.onModifying(); this.m_value = value; }
 
 	/**
 	 * Creates a new instance of the HXIT class
@@ -100,12 +100,12 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	/**
 	 * Sets the original text indicating where the interval was derived
 	 */
-	public void setOriginalText(ED value) { this.m_originalText = value; }
+	public void setOriginalText(ED value) { this.onModifying(); this.m_originalText = value; }
 	/**
 	 * Sets the original text indicating where the interval was derived
 	 */
 	@Override
-	public void setOriginalText(IEncapsulatedData value) { this.m_originalText = (ED)value; }
+	public void setOriginalText(IEncapsulatedData value) { this.onModifying(); this.m_originalText = (ED)value; }
 	/**
 	 * Gets the lower bound of the interval
 	 */
@@ -116,7 +116,7 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	 * Sets the lower bound of the interval
 	 */
 	@Override
-	public void setLow(T value) { this.m_low = value; }
+	public void setLow(T value) { this.onModifying(); this.m_low = value; }
 	/**
 	 * Gets a flag indicating if the lower bound of the interval is inclusive
 	 */
@@ -127,7 +127,7 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	 * Sets a flag indicating if the lower bound of the interval is inclusive
 	 */
 	@Override
-	public void setLowInclusive(Boolean value) { this.m_lowInclusive = value; }
+	public void setLowInclusive(Boolean value) { this.onModifying(); this.m_lowInclusive = value; }
 	/**
 	 * Get the upper bound of the interval
 	 */
@@ -138,7 +138,7 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	 * Set the upper bound of the interval
 	 */
 	@Override
-	public void setHigh(T value) { this.m_high = value;  }
+	public void setHigh(T value) { this.onModifying(); this.m_high = value;  }
 	/**
 	 * Gets a flag indicating if the upper bound of the interval is inclusive
 	 */
@@ -149,7 +149,7 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	 * Sets a flag indicating if the upper bound of the interval is inclusive
 	 */
 	@Override
-	public void setHighInclusive(Boolean value) { this.m_highInclusive = value; }
+	public void setHighInclusive(Boolean value) { this.onModifying(); this.m_highInclusive = value; }
 
 	/**
 	 * Gets the width of the interval
@@ -159,7 +159,7 @@ public class IVL<T extends IAny> extends SXCM<T> implements IInterval<T>, IPqTra
 	/**
 	 * Sets the width of the interval
 	 */
-	public void setWidth(PQ value) { this.m_width = value; }
+	public void setWidth(PQ value) { this.onModifying(); this.m_width = value; }
 	
 	/**
 	 * Determines if the interval is a valid width
@@ -21,6 +21,7 @@ package org.marc.everest.datatypes.generic;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -44,6 +45,8 @@ public class LIST<T extends IGraphable> extends COLL<T> implements List<T>, ISeq
 	
 	// List of items
 	private List<T> m_list = new ArrayList<T>();
+	// Hash code cached once the instance is frozen
+	private int m_frozenHashCode;
 	
 	/**
 	 * Get the items in the LIST instance
@@ -200,11 +203,39 @@ public class LIST<T extends IGraphable> extends COLL<T> implements List<T>, ISeq
 		return new LIST<T>(this.m_list.subList(start, end));
 	}
 
+	/**
+	 * Freezes this collection and the items it contains. The backing list
+	 * is replaced with a read-only view
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		this.m_list = Collections.unmodifiableList(this.m_list);
+		super.freeze();
+	}
+	
+	/**
+	 * Clone this instance. The clone receives its own modifiable list of the same items
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		LIST<T> retVal = (LIST<T>)super.clone();
+		retVal.m_list = new ArrayList<T>(this.m_list);
+		retVal.m_frozenHashCode = 0;
+		return retVal;
+	}
+	
 	@Override
 	public int hashCode() {
+		if(this.m_frozenHashCode != 0)
+			return this.m_frozenHashCode;
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result + ((m_list == null) ? 0 : m_list.hashCode());
+		if(this.isFrozen())
+			this.m_frozenHashCode = result;
 		return result;
 	}
 
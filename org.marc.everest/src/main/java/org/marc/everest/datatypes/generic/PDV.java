@@ -78,7 +78,7 @@ public abstract class PDV <T> extends ANY implements Comparable<PDV<?>>, IPrimit
 	 */
 	@Override
 	public void setValue(T value)  {
-		
+		this.onModifying();
 		this.m_value = value; 
 	}
 	
@@ -118,7 +118,8 @@ public abstract class PDV <T> extends ANY implements Comparable<PDV<?>>, IPrimit
 	public int hashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
-		result = prime * result + ((m_value == null) ? 0 : m_value.hashCode());
+		T value = this.getValue();
+		result = prime * result + ((value == null) ? 0 : value.hashCode());
 		return result;
 	}
 	
@@ -137,25 +138,26 @@ public abstract class PDV <T> extends ANY implements Comparable<PDV<?>>, IPrimit
 			return false;
 		}
 		PDV<?> other = (PDV<?>) obj;
-		if (m_value == null && other.m_value != null)
+		Object value = this.getValue(), otherValue = other.getValue();
+		if (value == null && otherValue != null)
 			return false;
-		else if (this.m_value instanceof Float || this.m_value instanceof Double)
+		else if (value instanceof Float || value instanceof Double)
 		{
 			// Sometimes when deserializing a real number some precision is lost. In this case we
 			// need to compensate by introducing a tolerance to the recognized precision
 			boolean result = true;
-			Double thisValue = (Double)this.m_value,
-				otherValue = (Double)other.getValue();
-			if(Double.isNaN(otherValue)) result &= Double.isNaN(thisValue);
-			else if(Double.isInfinite(otherValue)) result &= Double.isInfinite(thisValue);
-			else if(otherValue == 0) result &= thisValue == 0;
+			if(!(otherValue instanceof Number)) return false;
+			double thisDouble = ((Number)value).doubleValue(),
+				otherDouble = ((Number)otherValue).doubleValue();
+			if(Double.isNaN(otherDouble)) result &= Double.isNaN(thisDouble);
+			else if(Double.isInfinite(otherDouble)) result &= Double.isInfinite(thisDouble);
+			else if(otherDouble == 0) result &= thisDouble == 0;
 			else // Tolerance is the same (ie: precision is the same)
-				result &= Math.abs(otherValue - thisValue) <= Math.abs(otherValue * this.p_floatingPointEqualityTolerance);
+				result &= Math.abs(otherDouble - thisDouble) <= Math.abs(otherDouble * this.p_floatingPointEqualityTolerance);
 			return result;
 
 		}
-		else if (m_value == null && other.m_value != null || 
-				m_value != null && !m_value.equals(other.m_value)) 
+		else if (value != null && !value.equals(otherValue))
 			return false;
 		return true;
 	}
@@ -165,9 +167,9 @@ public abstract class PDV <T> extends ANY implements Comparable<PDV<?>>, IPrimit
 	@Override
 	public Collection<IResultDetail> validateEx() {
 		List<IResultDetail> retVal = new ArrayList<IResultDetail>(super.validateEx());
-        if (this.isNull() && this.m_value != null)
+        if (this.isNull() && this.getValue() != null)
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "PDV", EverestValidationMessages.MSG_NULLFLAVOR_WITH_VALUE, null));
-        else if (!this.isNull() && this.m_value == null)
+        else if (!this.isNull() && this.getValue() == null)
             retVal.add(new DatatypeValidationResultDetail(ResultDetailType.ERROR, "PDV", EverestValidationMessages.MSG_NULLFLAVOR_MISSING, null));
         return retVal;
 	}
@@ -101,6 +101,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets a value representing the interval
 	 */
 	public void setPhase(IVL<T> value) {
+		this.onModifying();
 		this.m_phase = value;
 	}
 
@@ -116,6 +117,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets a time duration specifying the reciprocal measure of the frequency at which the phase repeats
 	 */
 	public void setPeriod(PQ value) {
+		this.onModifying();
 		this.m_period = value;
 	}
 
@@ -131,6 +133,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets a value which specifies if and how the repetitions are aligned to the cycles of the underlying calendar
 	 */
 	public void setAlignment(CalendarCycle value) {
+		this.onModifying();
 		this.m_alignment = value;
 	}
 
@@ -146,6 +149,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets a value which indicates whether the exact timing is up to the party executing the schedule
 	 */
 	public void setInstitutionSpecified(Boolean value) {
+		this.onModifying();
 		this.m_institutionSpecified = value;
 	}
 
@@ -161,6 +165,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets a value indicating the maximum number of repetitions the period can repeat
 	 */
 	public void setCount(INT value) {
+		this.onModifying();
 		this.m_count = value;
 	}
 
@@ -176,6 +181,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 * Sets the value which indicates the frequency at which the interval repeats
 	 */
 	public void setFrequency(RTO<INT, PQ> value) {
+		this.onModifying();
 		this.m_frequency = value;
 	}
 
@@ -193,6 +199,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 */
 	@Override
 	public void setOriginalText(IEncapsulatedData value) {
+		this.onModifying();
 		this.m_originalText = (ED)value;
 	}
 
@@ -201,6 +208,7 @@ public class PIVL<T extends IAny> extends SXCM<T> implements IOriginalText {
 	 */
 	public void setOriginalText(ED value)
 	{
+		this.onModifying();
 		this.m_originalText = value;
 	}
 	/**
@@ -54,6 +54,7 @@ abstract class QSC<T extends IAny> extends QSET<T> implements Collection<ISetCom
 	 * Sets the list of terms that make up this QSET instance
 	 */
 	public void setTerms(List<ISetComponent<T>> value) {
+		this.onModifying();
 		this.p_terms = value;
 	}
 	
@@ -69,6 +70,7 @@ abstract class QSC<T extends IAny> extends QSET<T> implements Collection<ISetCom
 	 */
 	@Override
 	public void setContainedList(List<IGraphable> value) {
+		this.onModifying();
 		this.p_terms = new ArrayList<ISetComponent<T>>(new LIST<ISetComponent<T>>(value));
 	}
 	/**
@@ -72,6 +72,7 @@ public class QSD<T extends IAny> extends QSET<T> implements Iterable<ISetCompone
 	 * Sets the value representing the minuend of the difference expression
 	 */
 	public void setMinuend(ISetComponent<T> value) {
+		this.onModifying();
 		this.m_minuend = value;
 	}
 	/**
@@ -85,14 +86,21 @@ public class QSD<T extends IAny> extends QSET<T> implements Iterable<ISetCompone
 	 * Sets a value representing the subtrahend
 	 */
 	public void setSubtrahend(ISetComponent<T> value) {
+		this.onModifying();
 		this.m_subtrahend = value;
 	}
 	/**
-	 * Normalize the expression
+	 * Normalize and simplify the expression
+	 * @see SetExpressionSimplifier
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
 	public IGraphable normalize() {
+		ISetComponent<T> simplified = SetExpressionSimplifier.simplify(this);
+		if(simplified != null)
+			return simplified;
+
+		// The empty set has no QSET representation so only translate the terms
 		QSD<T> retVal = (QSD<T>)this.shallowCopy();
         if (retVal.m_minuend instanceof SXPR<?>)
             retVal.m_minuend = ((SXPR<T>)retVal.m_minuend).translateToQSET();
@@ -76,6 +76,7 @@ public abstract class QSET<T extends IAny> extends ANY implements ISetComponent<
 	 */
 	@Override
 	public void setOriginalText(IEncapsulatedData value) {
+		this.onModifying();
 		this.m_originalText = (ED)value;
 	}
 
@@ -85,6 +86,7 @@ public abstract class QSET<T extends IAny> extends ANY implements ISetComponent<
 	 */
 	public void setOriginalText(ED value)
 	{
+		this.onModifying();
 		this.m_originalText = value;
 	}
 
@@ -77,11 +77,17 @@ public class QSI<T extends IAny> extends QSC<T> implements Collection<ISetCompon
 	}
 
 	/**
-	 * Normalizes this expression so that all items only use the QS* components
+	 * Normalizes this expression so that all items only use the QS* components and simplifies the result
+	 * @see SetExpressionSimplifier
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
 	public IGraphable normalize() {
+		ISetComponent<T> simplified = SetExpressionSimplifier.simplify(this);
+		if(simplified != null)
+			return simplified;
+
+		// The empty set has no QSET representation so only translate the terms
 		QSI<T> retVal = (QSI<T>)this.shallowCopy();
 		retVal.setTerms(new ArrayList<ISetComponent<T>>(this.getTerms())); // re-reference array
 		for(int i = 0; i < retVal.getTerms().size(); i++)
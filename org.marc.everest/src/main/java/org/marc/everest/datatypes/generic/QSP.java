@@ -72,6 +72,7 @@ public class QSP<T extends IAny> extends QSET<T> implements Iterable<ISetCompone
 	 * Sets the value representing the low of the hull expression
 	 */
 	public void setLow(ISetComponent<T> value) {
+		this.onModifying();
 		this.m_low = value;
 	}
 	/**
@@ -85,14 +86,21 @@ public class QSP<T extends IAny> extends QSET<T> implements Iterable<ISetCompone
 	 * Sets a value representing the hull expression
 	 */
 	public void setHigh(ISetComponent<T> value) {
+		this.onModifying();
 		this.m_high = value;
 	}
 	/**
-	 * Normalize the expression
+	 * Normalize and simplify the expression
+	 * @see SetExpressionSimplifier
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
 	public IGraphable normalize() {
+		ISetComponent<T> simplified = SetExpressionSimplifier.simplify(this);
+		if(simplified != null)
+			return simplified;
+
+		// The empty set has no QSET representation so only translate the terms
 		QSP<T> retVal = (QSP<T>)this.shallowCopy();
         if (retVal.m_low instanceof SXPR<?>)
             retVal.m_low = ((SXPR<T>)retVal.m_low).translateToQSET();
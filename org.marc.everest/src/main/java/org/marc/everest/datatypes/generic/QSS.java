@@ -28,6 +28,7 @@ import org.marc.everest.annotations.*;
 import org.marc.everest.datatypes.EverestValidationMessages;
 import org.marc.everest.datatypes.SetOperator;
 import org.marc.everest.datatypes.interfaces.IAny;
+import org.marc.everest.datatypes.interfaces.ISetComponent;
 import org.marc.everest.datatypes.interfaces.IListContainer;
 import org.marc.everest.interfaces.IGraphable;
 import org.marc.everest.interfaces.IResultDetail;
@@ -73,16 +74,15 @@ public class QSS<T extends IAny> extends QSET<T> implements IListContainer, Coll
 	/**
 	 * Sets the terms in the collection
 	 */
-	public void setTerms(List<T> value) { this.m_terms = value; }
+	public void setTerms(List<T> value) { this.onModifying(); this.m_terms = value; }
 	
 	/**
-	 * Normalize the items
+	 * Normalize the items removing any duplicate values
+	 * @see SetExpressionSimplifier
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public IGraphable normalize() {
-		QSS<T> retVal = (QSS<T>)this.shallowCopy();
-		return retVal;
+		return SetExpressionSimplifier.simplify(this);
 	}
 
 	/**
@@ -98,6 +98,7 @@ public class QSS<T extends IAny> extends QSET<T> implements IListContainer, Coll
 	 */
 	@Override
 	public void setContainedList(List<IGraphable> value) {
+		this.onModifying();
 		this.m_terms = new ArrayList<T>(new LIST<T>(value));
 	}
 
@@ -72,12 +72,12 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	/**
 	 * Sets an expression that represents the value of the quantity
 	 */
-	public void setExpression(ED value) { this.m_expression = value; }
+	public void setExpression(ED value) { this.onModifying(); this.m_expression = value; }
 	/**
 	 * Sets an expression that represents the value of the quantity
 	 */
 	@Override
-	public void setExpression(IEncapsulatedData value) { this.m_expression = (ED)value; }
+	public void setExpression(IEncapsulatedData value) { this.onModifying(); this.m_expression = (ED)value; }
 	/**
 	 * Gets the language used for the expression
 	 */
@@ -86,7 +86,7 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	/**
 	 * Sets the language used for the expression
 	 */
-	public void setExpressionLanguage(String value) { this.m_expressionLanguage = value; }
+	public void setExpressionLanguage(String value) { this.onModifying(); this.m_expressionLanguage = value; }
 	/**
 	 * Gets a value that represents the original text that was used to derive the quantity 
 	 */
@@ -95,7 +95,7 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	/**
 	 * Sets the original text that was used to derive the quantity
 	 */
-	public void setOriginalText(ED value) { this.m_originalText = value; }
+	public void setOriginalText(ED value) { this.onModifying(); this.m_originalText = value; }
 	/**
 	 * Gets a value that represents the uncertainty of the quantity using a distribution function
 	 * and its parameters
@@ -107,7 +107,7 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	 * Sets a value that represents the uncertainty of the quantity using a distribution function
 	 * and its parameters
 	 */
-	public void setUncertainty(IQuantity value) { this.m_uncertainty = value; }
+	public void setUncertainty(IQuantity value) { this.onModifying(); this.m_uncertainty = value; }
 	/**
 	 * Gets a code specifying the type of probability distribution in uncertainty.
 	 */
@@ -117,7 +117,7 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	/**
 	 * Sets a code specifying the type of probability distribution in uncertainty.
 	 */
-	public void setUncertaintyType(QuantityUncertaintyType value) { this.m_uncertaintyType = value; }
+	public void setUncertaintyType(QuantityUncertaintyType value) { this.onModifying(); this.m_uncertaintyType = value; }
 	/**
 	 * Gets the value that indicates the value comes from a range of possible values
 	 * <p>The uncertain range is used where the actual value is not known,
@@ -131,7 +131,7 @@ public abstract class QTY<T> extends PDV<T> implements IQuantity {
 	 * <p>The uncertain range is used where the actual value is not known,
 	 * but a range of possible values are</p>
 	 */
-	public void setUncertainRange(IVL<IQuantity> value) { this.m_uncertaintyRange = value; }
+	public void setUncertainRange(IVL<IQuantity> value) { this.onModifying(); this.m_uncertaintyRange = value; }
 	
 	
 	/**
@@ -72,6 +72,7 @@ public class RTO<S extends IQuantity & IAny, T extends IQuantity & IAny> extends
 	 * Sets the value of the numerator
 	 */
 	public void setNumerator(S value) {
+		this.onModifying();
 		this.m_numerator = value;
 	}
 	
@@ -86,6 +87,7 @@ public class RTO<S extends IQuantity & IAny, T extends IQuantity & IAny> extends
 	 * Sets the value of the denominator
 	 */
 	public void setDenominator(T value) {
+		this.onModifying();
 		this.m_denominator = value;
 	}
 	@Override
@@ -67,6 +67,8 @@ public class SET<T extends IGraphable> extends COLL<T> implements Set<T>, ISet<T
 
 	// Backing set
 	private List<T> m_set = new ArrayList<T>();
+	// Hash code cached once the instance is frozen
+	private int m_frozenHashCode;
 	// Backing comparator
 	private Comparator<IGraphable> m_comparator = SET.defaultComparator;
 	
@@ -79,7 +81,7 @@ public class SET<T extends IGraphable> extends COLL<T> implements Set<T>, ISet<T
 	 * Sets a custom comparator for determining if duplicate entries have been
 	 * entered into this type
 	 */
-	public void setComparator(Comparator<IGraphable> value) { this.m_comparator = value; }
+	public void setComparator(Comparator<IGraphable> value) { this.onModifying(); this.m_comparator = value; }
 	
 	/**
 	 * Create a new instance of the set
@@ -149,6 +151,30 @@ public class SET<T extends IGraphable> extends COLL<T> implements Set<T>, ISet<T
 		return this.m_set;
 	}
 	
+	/**
+	 * Freezes this collection and the items it contains. The backing list
+	 * is replaced with a read-only view
+	 */
+	@Override
+	public void freeze() {
+		if(this.isFrozen())
+			return;
+		this.m_set = Collections.unmodifiableList(this.m_set);
+		super.freeze();
+	}
+	
+	/**
+	 * Clone this instance. The clone receives its own modifiable list of the same items
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		SET<T> retVal = (SET<T>)super.clone();
+		retVal.m_set = new ArrayList<T>(this.m_set);
+		retVal.m_frozenHashCode = 0;
+		return retVal;
+	}
+	
 	/**
 	 * Add an item to the collection.
 	 */
@@ -270,9 +296,13 @@ public class SET<T extends IGraphable> extends COLL<T> implements Set<T>, ISet<T
 	 */
 	@Override
 	public int hashCode() {
+		if(this.m_frozenHashCode != 0)
+			return this.m_frozenHashCode;
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result + ((m_set == null) ? 0 : m_set.hashCode());
+		if(this.isFrozen())
+			this.m_frozenHashCode = result;
 		return result;
 	}
 	/**
@@ -18,9 +18,11 @@
  */
 package org.marc.everest.datatypes.generic;
 
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.RandomAccess;
 
 import org.marc.everest.annotations.*;
 import org.marc.everest.datatypes.*;
@@ -31,17 +33,102 @@ import org.marc.everest.datatypes.interfaces.*;
  * Represents a list of sampled values with each new term 
  * scaled and translated from a list of previous samples. Used
  * to specify sampled biosignals
+ * <p>The digits are stored in a primitive int array, the INT instances returned 
+ * from {@link #getItems()} and the other collection methods are created on demand 
+ * and are not part of the list. Use the digit accessors (for example {@link #addDigit(int)}, 
+ * {@link #getDigits()} and {@link #toScaledValues()}) to work with large waveforms 
+ * without creating an INT per sample.</p>
  */
 @Structure(name = "SLIST", structureType = StructureType.DATATYPE)
 public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, ISampledList {
 
+	// Shared empty digit array
+	private static final int[] EMPTY_DIGITS = new int[0];
+	
 	// backing field for digits
-	private LIST<INT> m_digits = new LIST<INT>();
+	private int[] m_digits = EMPTY_DIGITS;
+	// number of digits used in the digits array
+	private int m_digitCount;
+	// view of the digits as INT instances
+	private DigitList m_items = new DigitList();
 	// backing field for the origin property
 	private T m_origin;
 	// backing field for the scale property
 	private IQuantity m_scale;
 	
+	/**
+	 * A view of the digits as a list of INT
+	 */
+	private class DigitList extends AbstractList<INT> implements RandomAccess {
+
+		/**
+		 * Get the digit at the specified index as an INT
+		 */
+		@Override
+		public INT get(int index) {
+			return new INT(getDigit(index));
+		}
+
+		/**
+		 * Replace the digit at the specified index
+		 */
+		@Override
+		public INT set(int index, INT element) {
+			SLIST.this.onModifying();
+			int digit = toDigit(element);
+			INT retVal = this.get(index);
+			m_digits[index] = digit;
+			return retVal;
+		}
+
+		/**
+		 * Insert a digit at the specified index
+		 */
+		@Override
+		public void add(int index, INT element) {
+			SLIST.this.onModifying();
+			if(index < 0 || index > m_digitCount)
+				throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, m_digitCount));
+			int digit = toDigit(element);
+			ensureCapacity(m_digitCount + 1);
+			System.arraycopy(m_digits, index, m_digits, index + 1, m_digitCount - index);
+			m_digits[index] = digit;
+			m_digitCount++;
+			this.modCount++;
+		}
+
+		/**
+		 * Remove the digit at the specified index
+		 */
+		@Override
+		public INT remove(int index) {
+			SLIST.this.onModifying();
+			INT retVal = this.get(index);
+			System.arraycopy(m_digits, index + 1, m_digits, index, m_digitCount - index - 1);
+			m_digitCount--;
+			this.modCount++;
+			return retVal;
+		}
+
+		/**
+		 * Remove all digits
+		 */
+		@Override
+		public void clear() {
+			SLIST.this.onModifying();
+			m_digitCount = 0;
+			this.modCount++;
+		}
+
+		/**
+		 * Get the number of digits
+		 */
+		@Override
+		public int size() {
+			return m_digitCount;
+		}
+	}
+	
 	/**
 	 * Creates a new instance of the sampled list class
 	 */
@@ -67,7 +154,19 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	public SLIST(T origin, IQuantity scale, Collection<INT> items)
 	{
 		this(origin, scale);
-		this.m_digits = new LIST<INT>(items);
+		this.addAll(items);
+	}
+	/**
+	 * Creates a new instance of the sampled list class with the specified origin, scale
+	 * and digits.
+	 * @param origin The origin (first reading in the list) which represents a zero-digit in the sequence
+	 * @param scale The ratio-scale quantity that is factored out of the digit sequence
+	 * @param digits The digits representing the readings or samples
+	 */
+	public SLIST(T origin, IQuantity scale, int[] digits)
+	{
+		this(origin, scale);
+		this.setDigits(digits);
 	}
 	/**
 	 * Creates a new sampled list class
@@ -81,6 +180,27 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 		return new SLIST<T>(origin, scale, Arrays.asList(items));
 	}
 
+	/**
+	 * Convert an INT to a digit
+	 */
+	private static int toDigit(INT value)
+	{
+		if(value == null || value.getValue() == null)
+			throw new IllegalArgumentException("SLIST digits must have a value");
+		return value.getValue();
+	}
+	
+	/**
+	 * Ensure the digits array can hold the specified number of digits
+	 */
+	private void ensureCapacity(int capacity)
+	{
+		if(capacity <= this.m_digits.length)
+			return;
+		int newCapacity = Math.max(this.m_digits.length + (this.m_digits.length >> 1), 16);
+		this.m_digits = Arrays.copyOf(this.m_digits, Math.max(newCapacity, capacity));
+	}
+	
 	/**
 	 * Gets the origin of the sampled list
 	 */
@@ -96,6 +216,7 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	@SuppressWarnings("unchecked")
 	@Override
 	public void setOrigin(IQuantity value) {
+		this.onModifying();
 		this.m_origin = (T)value;
 	}
 
@@ -113,24 +234,94 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	 */
 	@Override
 	public void setScale(IQuantity value) {
+		this.onModifying();
 		this.m_scale = value;
 	}
 
 	/**
-	 * Gets the items in the list
+	 * Gets the items in the list. The returned collection is a live view of the 
+	 * digits, changes to the INT instances it returns are not reflected in the list
 	 */
 	@Property(name = "digit", conformance = ConformanceType.REQUIRED, propertyType = PropertyType.STRUCTURAL)
 	@Override
 	public Collection<INT> getItems() {
-		return this.m_digits.getItems();
+		return this.m_items;
 	}
 
+	/**
+	 * Gets the digit at the specified index
+	 */
+	public int getDigit(int index)
+	{
+		if(index < 0 || index >= this.m_digitCount)
+			throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, this.m_digitCount));
+		return this.m_digits[index];
+	}
+	
+	/**
+	 * Gets a copy of the digits in the list
+	 */
+	public int[] getDigits()
+	{
+		return Arrays.copyOf(this.m_digits, this.m_digitCount);
+	}
+	
+	/**
+	 * Replaces the digits in the list with a copy of the specified digits
+	 */
+	public void setDigits(int[] digits)
+	{
+		this.onModifying();
+		this.m_digitCount = 0;
+		if(digits != null)
+			this.addDigits(digits, 0, digits.length);
+	}
+	
+	/**
+	 * Appends a digit to the list
+	 */
+	public void addDigit(int digit)
+	{
+		this.onModifying();
+		this.ensureCapacity(this.m_digitCount + 1);
+		this.m_digits[this.m_digitCount++] = digit;
+	}
+	
+	/**
+	 * Appends length digits from the specified array starting at offset
+	 */
+	public void addDigits(int[] digits, int offset, int length)
+	{
+		this.onModifying();
+		this.ensureCapacity(this.m_digitCount + length);
+		System.arraycopy(digits, offset, this.m_digits, this.m_digitCount, length);
+		this.m_digitCount += length;
+	}
+	
+	/**
+	 * Gets the value of each sample with the origin and scale applied 
+	 * (origin + scale * digit) in the units of the origin
+	 * @throws IllegalStateException When the origin or scale is not set
+	 */
+	public double[] toScaledValues()
+	{
+		Double origin = this.m_origin == null ? null : this.m_origin.toDouble(),
+				scale = this.m_scale == null ? null : this.m_scale.toDouble();
+		if(origin == null || scale == null)
+			throw new IllegalStateException("SLIST origin and scale must have values to calculate the sampled values");
+		
+		double[] retVal = new double[this.m_digitCount];
+		for(int i = 0; i < retVal.length; i++)
+			retVal[i] = origin + scale * this.m_digits[i];
+		return retVal;
+	}
+	
 	/**
 	 * Gets the first sample in the list
 	 */
 	@Override
 	public INT first() {
-		return this.m_digits.first();
+		return this.m_digitCount == 0 ? null : this.m_items.get(0);
 	}
 
 	/**
@@ -138,7 +329,7 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	 */
 	@Override
 	public INT last() {
-		return this.m_digits.last();
+		return this.m_digitCount == 0 ? null : this.m_items.get(this.m_digitCount - 1);
 	}
 
 	/**
@@ -146,7 +337,7 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	 */
 	@Override
 	public ISequence<INT> subSequence(int start, int end) {
-		return this.m_digits.subSequence(start, end);
+		return new LIST<INT>(this.m_items).subSequence(start, end);
 	}
 
 	/**
@@ -154,7 +345,7 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	 */
 	@Override
 	public ISequence<INT> subSequence(int start) {
-		return this.subSequence(start);
+		return this.subSequence(start, this.m_digitCount - 1);
 	}
 	
 	/**
@@ -162,105 +353,112 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	 */
 	@Override
 	public INT get(int index) {
-		return this.m_digits.get(index);
+		return this.m_items.get(index);
 	}
 	/**
 	 * Returns true if this sampled list contains all the samples in other
 	 */
 	@Override
 	public BL includesAll(ICollection<INT> other) {
-		return this.m_digits.includesAll(other);
+		return new BL(this.containsAll(other));
 	}
 	/**
 	 * Returns true if this sampled list contains none of the samples in other
 	 */
 	@Override
 	public BL excludesAll(ICollection<INT> other) {
-		return this.m_digits.excludesAll(other);
+		for(INT item : other)
+			if(this.contains(item))
+				return new BL(false);
+		return new BL(true);
 	}
 	/**
 	 * Returns true if the sampled list contains no samples
 	 */
 	@Override
 	public boolean isEmpty() {
-		return this.m_digits.isEmpty();
+		return this.m_digitCount == 0;
 	}
 	/**
 	 * Gets the iterator for this item
 	 */
 	@Override
 	public Iterator<INT> iterator() {
-		return this.m_digits.iterator();
+		return this.m_items.iterator();
 	}
 	/**
 	 * Add a sample to this SLIST
 	 */
 	@Override
 	public boolean add(INT e) {
-		return this.m_digits.add(e);
+		this.addDigit(toDigit(e));
+		return true;
 	}
 	/**
 	 * Adds all items in the collection to this sampled list
 	 */
 	@Override
 	public boolean addAll(Collection<? extends INT> c) {
-		return this.m_digits.addAll(c);
+		this.ensureCapacity(this.m_digitCount + c.size());
+		for(INT item : c)
+			this.add(item);
+		return c.size() > 0;
 	}
 	/**
 	 * Clears all items from this list
 	 */
 	@Override
 	public void clear() {
-		this.m_digits.clear();
+		this.m_items.clear();
 	}
 	/**
 	 * Returns true if the sampled list contains the object
 	 */
 	@Override
 	public boolean contains(Object o) {
-		return this.m_digits.contains(o);
+		return this.m_items.contains(o);
 	}
 	/**
 	 * Returns true if the sampled list contains all the items in the specified collection
 	 */
 	@Override
 	public boolean containsAll(Collection<?> c) {
-		return this.m_digits.containsAll(c);
+		return this.m_items.containsAll(c);
 	}
 	/**
 	 * Removes the specified sample from the list of samples
 	 */
 	@Override
 	public boolean remove(Object o) {
-		return this.m_digits.remove(o);
+		return this.m_items.remove(o);
 	}
 	/**
 	 * Removes all the samples contained in c from the list of samples
 	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
-		return this.m_digits.removeAll(c);
+		return this.m_items.removeAll(c);
 	}
 	/**
 	 * Performs the retainAll function against the collection of samples
 	 */
 	@Override
 	public boolean retainAll(Collection<?> c) {
-		return this.m_digits.retainAll(c);
+		return this.m_items.retainAll(c);
 	}
 	/**
 	 * Gets the number of samples in the sample list
 	 */
 	@Override
 	public int size() {
-		return this.m_digits.size();
+		return this.m_digitCount;
 	}
 	/**
 	 * Converts this list of samples to an array
 	 */
 	@Override
 	public Object[] toArray() {
-		return this.m_digits.toArray();
+		return this.m_items.toArray();
 	}
 	/**
 	 * Converts the list of samples to an array
@@ -268,9 +466,21 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	@SuppressWarnings({ "hiding" })
 	@Override
 	public <T> T[] toArray(T[] a) {
-		return this.m_digits.toArray(a);
+		return this.m_items.toArray(a);
 	}
 
+	/**
+	 * Creates a shallow copy of this sampled list, the copy has its own digits
+	 */
+	@Override
+	public ANY shallowCopy() {
+		@SuppressWarnings("unchecked")
+		SLIST<T> retVal = (SLIST<T>)super.shallowCopy();
+		retVal.m_digits = this.getDigits();
+		retVal.m_items = retVal.new DigitList();
+		return retVal;
+	}
+	
 	/** 
 	 * Calculates the hash code of this sampled list
 	 */
@@ -278,8 +488,10 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 	public int hashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
-		result = prime * result
-				+ ((m_digits == null) ? 0 : m_digits.hashCode());
+		int digitsHash = 1;
+		for(int i = 0; i < this.m_digitCount; i++)
+			digitsHash = prime * digitsHash + this.m_digits[i];
+		result = prime * result + digitsHash;
 		result = prime * result
 				+ ((m_origin == null) ? 0 : m_origin.hashCode());
 		result = prime * result + ((m_scale == null) ? 0 : m_scale.hashCode());
@@ -297,11 +509,11 @@ public class SLIST<T extends IQuantity> extends ANY implements ISequence<INT>, I
 		if (getClass() != obj.getClass())
 			return false;
 		SLIST<?> other = (SLIST<?>) obj;
-		if (m_digits == null) {
-			if (other.m_digits != null)
-				return false;
-		} else if (!m_digits.equals(other.m_digits))
+		if (m_digitCount != other.m_digitCount)
 			return false;
+		for (int i = 0; i < m_digitCount; i++)
+			if (m_digits[i] != other.m_digits[i])
+				return false;
 		if (m_origin == null) {
 			if (other.m_origin != null)
 				return false;
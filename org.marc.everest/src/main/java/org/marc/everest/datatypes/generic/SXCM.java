@@ -67,7 +67,7 @@ public class SXCM<T extends IAny> extends PDV<T> implements ISetComponent<T> {
 	 * Sets the operator that dictates how the component is included as part of the set
 	 * @param value The new operator for the set component
 	 */
-	public void setOperator(SetOperator value) { this.m_setOperator = value; }
+	public void setOperator(SetOperator value) { this.onModifying(); this.m_setOperator = value; }
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
@@ -461,6 +461,7 @@ public class SXPR<T extends IAny> extends SXCM<T> implements List<SXCM<T>>, ILis
 	 */
 	@Override
 	public void setContainedList(List<IGraphable> value) {
+		this.onModifying();
 		this.m_terms = new LIST<SXCM<T>>(value);
 	}
 
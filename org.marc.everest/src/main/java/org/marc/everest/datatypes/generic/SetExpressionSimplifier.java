@@ -0,0 +1,484 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.interfaces.IAny;
+import org.marc.everest.datatypes.interfaces.ISetComponent;
+
+/**
+ * Performs algebraic simplification of QSET and SXPR set expressions.
+ * <p>The simplifier translates any SXPR terms to their QSET equivalent and then:</p>
+ * <ul>
+ * <li>flattens nested unions and intersections (both operations are associative),</li>
+ * <li>merges overlapping or touching IVL terms of a union and folds the IVL terms of an intersection into one,</li>
+ * <li>removes duplicate terms from unions, intersections and QSS,</li>
+ * <li>drops empty terms from unions, differences with an empty subtrahend and differences of disjoint intervals, and</li>
+ * <li>replaces a union or intersection of a single term with that term.</li>
+ * </ul>
+ * <p>Rewrites are only applied when they cannot change the meaning of the expression. Set
+ * expressions carrying a null flavor, original text or other metadata are not collapsed into their
+ * parent, and interval bounds are only compared when they are of the same type (and for TS, the
+ * same precision)</p>
+ */
+public final class SetExpressionSimplifier {
+
+	/**
+	 * Static class
+	 */
+	private SetExpressionSimplifier() {}
+
+	/**
+	 * Simplify the specified set expression.
+	 * @return The simplified expression or null if the expression was determined to be the empty set
+	 */
+	public static <T extends IAny> ISetComponent<T> simplify(ISetComponent<T> expression)
+	{
+		return simplifyTerm(expression);
+	}
+
+	/**
+	 * Simplify the specified term returning null when the term is empty
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifyTerm(ISetComponent<T> term)
+	{
+		if(term == null || term.isNull())
+			return term;
+		else if(term instanceof SXPR<?>)
+			return simplifyTerm(((SXPR<T>)term).translateToQSET());
+		else if(term instanceof QSU<?>)
+			return simplifyUnion((QSU<T>)term);
+		else if(term instanceof QSI<?>)
+			return simplifyIntersection((QSI<T>)term);
+		else if(term instanceof QSD<?>)
+			return simplifyDifference((QSD<T>)term);
+		else if(term instanceof QSP<?>)
+			return simplifyHull((QSP<T>)term);
+		else if(term instanceof QSS<?>)
+			return simplifySet((QSS<T>)term);
+		else if(isMergeableIvl(term) && isEmptyIvl((IVL<T>)term))
+			return null;
+		return term;
+	}
+
+	/**
+	 * Simplify a union
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifyUnion(QSU<T> union)
+	{
+		List<ISetComponent<T>> terms = new ArrayList<ISetComponent<T>>(union.size());
+		List<IVL<T>> intervals = new ArrayList<IVL<T>>();
+		int intervalIndex = -1;
+
+		for(ISetComponent<T> term : flatten(union, QSU.class))
+		{
+			if(term == null) // Null terms are left for validation to report
+			{
+				terms.add(term);
+				continue;
+			}
+
+			ISetComponent<T> simplified = simplifyTerm(term);
+			if(simplified == null) // empty term contributes nothing to a union
+				continue;
+			else if(simplified instanceof QSU<?> && isPlain((QSU<T>)simplified))
+			{
+				for(ISetComponent<T> nested : (QSU<T>)simplified)
+					addUnionTerm(nested, terms, intervals);
+			}
+			else
+			{
+				if(intervalIndex == -1 && isMergeableIvl(simplified))
+					intervalIndex = terms.size();
+				addUnionTerm(simplified, terms, intervals);
+			}
+		}
+
+		if(intervalIndex == -1 && intervals.size() > 0) // intervals only came from nested unions
+			intervalIndex = terms.size();
+		if(intervals.size() > 0)
+			terms.addAll(Math.min(intervalIndex, terms.size()), intervals);
+
+		if(terms.size() == 0)
+			return null;
+		else if(terms.size() == 1 && isPlain(union))
+			return terms.get(0);
+
+		QSU<T> retVal = (QSU<T>)union.shallowCopy();
+		retVal.setTerms(terms);
+		return retVal;
+	}
+
+	/**
+	 * Add a term to a union merging it with any overlapping intervals
+	 */
+	private static <T extends IAny> void addUnionTerm(ISetComponent<T> term, List<ISetComponent<T>> terms, List<IVL<T>> intervals)
+	{
+		if(isMergeableIvl(term))
+		{
+			IVL<T> ivl = (IVL<T>)term;
+			for(int i = 0; i < intervals.size(); i++)
+			{
+				IVL<T> merged = union(intervals.get(i), ivl);
+				if(merged != null) // merged so the merged interval may now touch others
+				{
+					intervals.remove(i);
+					ivl = merged;
+					i = -1;
+				}
+			}
+			intervals.add(ivl);
+		}
+		else if(!terms.contains(term))
+			terms.add(term);
+	}
+
+	/**
+	 * Simplify an intersection
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifyIntersection(QSI<T> intersection)
+	{
+		List<ISetComponent<T>> terms = new ArrayList<ISetComponent<T>>(intersection.size());
+		List<IVL<T>> intervals = new ArrayList<IVL<T>>();
+		int intervalIndex = -1;
+
+		for(ISetComponent<T> term : flatten(intersection, QSI.class))
+		{
+			if(term == null)
+			{
+				terms.add(term);
+				continue;
+			}
+
+			ISetComponent<T> simplified = simplifyTerm(term);
+			if(simplified == null) // intersection with the empty set is empty
+				return null;
+			else if(simplified instanceof QSI<?> && isPlain((QSI<T>)simplified))
+			{
+				for(ISetComponent<T> nested : (QSI<T>)simplified)
+					if(!addIntersectionTerm(nested, terms, intervals))
+						return null;
+			}
+			else
+			{
+				if(intervalIndex == -1 && isMergeableIvl(simplified))
+					intervalIndex = terms.size();
+				if(!addIntersectionTerm(simplified, terms, intervals))
+					return null;
+			}
+		}
+
+		if(intervalIndex == -1 && intervals.size() > 0)
+			intervalIndex = terms.size();
+		if(intervals.size() > 0)
+			terms.addAll(Math.min(intervalIndex, terms.size()), intervals);
+
+		if(terms.size() == 0)
+			return null;
+		else if(terms.size() == 1 && isPlain(intersection))
+			return terms.get(0);
+
+		QSI<T> retVal = (QSI<T>)intersection.shallowCopy();
+		retVal.setTerms(terms);
+		return retVal;
+	}
+
+	/**
+	 * Add a term to an intersection folding it into any comparable intervals
+	 * @return False if the intersection was determined to be empty
+	 */
+	private static <T extends IAny> boolean addIntersectionTerm(ISetComponent<T> term, List<ISetComponent<T>> terms, List<IVL<T>> intervals)
+	{
+		if(isMergeableIvl(term))
+		{
+			IVL<T> ivl = (IVL<T>)term;
+			for(int i = 0; i < intervals.size(); i++)
+			{
+				IVL<T> folded = intersect(intervals.get(i), ivl);
+				if(folded == null) // not comparable
+					continue;
+				else if(isEmptyIvl(folded))
+					return false;
+				intervals.remove(i);
+				ivl = folded;
+				i = -1;
+			}
+			intervals.add(ivl);
+		}
+		else if(!terms.contains(term))
+			terms.add(term);
+		return true;
+	}
+
+	/**
+	 * Simplify a difference
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifyDifference(QSD<T> difference)
+	{
+		ISetComponent<T> minuend = difference.getMinuend(),
+				subtrahend = difference.getSubtrahend();
+		if(minuend != null)
+		{
+			minuend = simplifyTerm(minuend);
+			if(minuend == null) // nothing to subtract from
+				return null;
+		}
+		if(subtrahend != null)
+		{
+			subtrahend = simplifyTerm(subtrahend);
+			if(subtrahend == null && isPlain(difference)) // subtracting nothing
+				return minuend;
+			else if(subtrahend == null)
+				subtrahend = difference.getSubtrahend();
+		}
+
+		if(minuend != null && minuend.equals(subtrahend))
+			return null;
+		else if(isPlain(difference) && isMergeableIvl(minuend) && isMergeableIvl(subtrahend))
+		{
+			IVL<T> overlap = intersect((IVL<T>)minuend, (IVL<T>)subtrahend);
+			if(overlap != null && isEmptyIvl(overlap)) // disjoint
+				return minuend;
+		}
+
+		QSD<T> retVal = (QSD<T>)difference.shallowCopy();
+		retVal.setMinuend(minuend);
+		retVal.setSubtrahend(subtrahend);
+		return retVal;
+	}
+
+	/**
+	 * Simplify the terms of a periodic hull
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifyHull(QSP<T> hull)
+	{
+		QSP<T> retVal = (QSP<T>)hull.shallowCopy();
+		ISetComponent<T> low = simplifyTerm(hull.getLow()),
+				high = simplifyTerm(hull.getHigh());
+		if(low != null)
+			retVal.setLow(low);
+		if(high != null)
+			retVal.setHigh(high);
+		return retVal;
+	}
+
+	/**
+	 * Remove duplicate values from a QSS
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> ISetComponent<T> simplifySet(QSS<T> set)
+	{
+		if(set.getTerms() == null)
+			return set;
+		List<T> terms = new ArrayList<T>(set.getTerms().size());
+		for(T term : set.getTerms())
+			if(term == null || !terms.contains(term))
+				terms.add(term);
+		QSS<T> retVal = (QSS<T>)set.shallowCopy();
+		retVal.setTerms(terms);
+		return retVal;
+	}
+
+	/**
+	 * Gets the terms of a set expression, expanding directly nested expressions of the same
+	 * plain type so that (A u (B u C)) is treated as (A u B u C)
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> List<ISetComponent<T>> flatten(QSC<T> expression, Class<?> type)
+	{
+		List<ISetComponent<T>> retVal = new ArrayList<ISetComponent<T>>(expression.size());
+		for(ISetComponent<T> term : expression)
+		{
+			if(term != null && term.getClass().equals(type) && isPlain((QSC<T>)term))
+				retVal.addAll(flatten((QSC<T>)term, type));
+			else
+				retVal.add(term);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns true if the set expression carries no information other than its terms
+	 * and can therefore be merged into or replaced by other expressions
+	 */
+	private static boolean isPlain(QSET<?> expression)
+	{
+		return !expression.isNull() &&
+				expression.getOriginalText() == null &&
+				expression.getFlavorId() == null &&
+				expression.getUpdateMode() == null &&
+				expression.getValidTimeLow() == null &&
+				expression.getValidTimeHigh() == null &&
+				expression.getControlActRoot() == null &&
+				expression.getControlActExt() == null;
+	}
+
+	/**
+	 * Returns true if the term is an IVL with only comparable low and high bounds
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IAny> boolean isMergeableIvl(ISetComponent<T> term)
+	{
+		if(term == null || !term.getClass().equals(IVL.class))
+			return false;
+		IVL<T> ivl = (IVL<T>)term;
+		if(ivl.getLow() == null || ivl.getHigh() == null || ivl.getWidth() != null || compare(ivl.getLow(), ivl.getHigh()) == null)
+			return false;
+		// The IVL must carry nothing but its bounds
+		return ivl.equals(new IVL<T>(ivl.getLow(), ivl.getLowInclusive(), ivl.getHigh(), ivl.getHighInclusive(), ivl.getOperator()));
+	}
+
+	/**
+	 * Returns true if the interval contains no values
+	 */
+	private static <T extends IAny> boolean isEmptyIvl(IVL<T> ivl)
+	{
+		Integer order = compare(ivl.getLow(), ivl.getHigh());
+		if(order == null)
+			return false;
+		return order > 0 || order == 0 && !(isInclusive(ivl.getLowInclusive()) && isInclusive(ivl.getHighInclusive()));
+	}
+
+	/**
+	 * Union two mergeable intervals returning null if they do not overlap or touch
+	 */
+	private static <T extends IAny> IVL<T> union(IVL<T> a, IVL<T> b)
+	{
+		Integer lowOrder = compare(a.getLow(), b.getLow());
+		if(lowOrder == null)
+			return null;
+		else if(lowOrder > 0) // ensure a begins first
+		{
+			IVL<T> t = a;
+			a = b;
+			b = t;
+		}
+
+		Integer gapOrder = compare(b.getLow(), a.getHigh());
+		if(gapOrder == null || gapOrder > 0 || gapOrder == 0 && !isInclusive(b.getLowInclusive()) && !isInclusive(a.getHighInclusive()))
+			return null;
+
+		IVL<T> retVal = new IVL<T>(a.getLow(), a.getHigh(), a.getOperator());
+		retVal.setLowInclusive(lowOrder == 0 ? either(a.getLowInclusive(), b.getLowInclusive()) : a.getLowInclusive());
+		int highOrder = compare(a.getHigh(), b.getHigh());
+		if(highOrder < 0)
+		{
+			retVal.setHigh(b.getHigh());
+			retVal.setHighInclusive(b.getHighInclusive());
+		}
+		else if(highOrder == 0)
+			retVal.setHighInclusive(either(a.getHighInclusive(), b.getHighInclusive()));
+		else
+			retVal.setHighInclusive(a.getHighInclusive());
+		return retVal;
+	}
+
+	/**
+	 * Intersect two mergeable intervals returning null if the bounds are not comparable. The
+	 * result may be an empty interval
+	 */
+	private static <T extends IAny> IVL<T> intersect(IVL<T> a, IVL<T> b)
+	{
+		Integer lowOrder = compare(a.getLow(), b.getLow()),
+				highOrder = compare(a.getHigh(), b.getHigh());
+		if(lowOrder == null || highOrder == null)
+			return null;
+
+		IVL<T> retVal = new IVL<T>(null, null, a.getOperator());
+		if(lowOrder > 0)
+		{
+			retVal.setLow(a.getLow());
+			retVal.setLowInclusive(a.getLowInclusive());
+		}
+		else
+		{
+			retVal.setLow(b.getLow());
+			retVal.setLowInclusive(lowOrder == 0 ? both(a.getLowInclusive(), b.getLowInclusive()) : b.getLowInclusive());
+		}
+		if(highOrder < 0)
+		{
+			retVal.setHigh(a.getHigh());
+			retVal.setHighInclusive(a.getHighInclusive());
+		}
+		else
+		{
+			retVal.setHigh(b.getHigh());
+			retVal.setHighInclusive(highOrder == 0 ? both(a.getHighInclusive(), b.getHighInclusive()) : b.getHighInclusive());
+		}
+		return retVal;
+	}
+
+	/**
+	 * Compare two interval bounds returning null if they cannot be compared
+	 */
+	@SuppressWarnings("unchecked")
+	private static Integer compare(IAny a, IAny b)
+	{
+		if(a == null || b == null || a.isNull() || b.isNull() || !a.getClass().equals(b.getClass()) || !(a instanceof PDV<?>))
+			return null;
+		else if(((PDV<?>)a).getValue() == null || ((PDV<?>)b).getValue() == null)
+			return null;
+		else if(a instanceof TS && (((TS)a).getDateValuePrecision() == null || !((TS)a).getDateValuePrecision().equals(((TS)b).getDateValuePrecision())))
+			return null; // different precisions describe different extents
+
+		// Bounds are compared using their ordering
+		try
+		{
+			return ((Comparable<PDV<?>>)a).compareTo((PDV<?>)b);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Inclusive flags default to inclusive
+	 */
+	private static boolean isInclusive(Boolean inclusive)
+	{
+		return inclusive == null || inclusive;
+	}
+
+	/**
+	 * Combine two inclusive flags where either bound includes the value
+	 */
+	private static Boolean either(Boolean a, Boolean b)
+	{
+		if(a == null && b == null)
+			return null;
+		return isInclusive(a) || isInclusive(b);
+	}
+
+	/**
+	 * Combine two inclusive flags where both bounds must include the value
+	 */
+	private static Boolean both(Boolean a, Boolean b)
+	{
+		if(a == null && b == null)
+			return null;
+		return isInclusive(a) && isInclusive(b);
+	}
+}
@@ -67,12 +67,12 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	/**
 	 * Sets the original text indicating where the interval was derived
 	 */
-	public void setOriginalText(ED value) { this.m_originalText = value; }
+	public void setOriginalText(ED value) { this.onModifying(); this.m_originalText = value; }
 	/**
 	 * Sets the original text indicating where the interval was derived
 	 */
 	@Override
-	public void setOriginalText(IEncapsulatedData value) { this.m_originalText = (ED)value; }
+	public void setOriginalText(IEncapsulatedData value) { this.onModifying(); this.m_originalText = (ED)value; }
 	/**
 	 * Gets the lower bound of the interval
 	 */
@@ -83,7 +83,7 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	 * Sets the lower bound of the interval
 	 */
 	@Override
-	public void setLow(T value) { this.m_low = value; }
+	public void setLow(T value) { this.onModifying(); this.m_low = value; }
 	/**
 	 * Gets a flag indicating if the lower bound of the interval is inclusive
 	 */
@@ -94,7 +94,7 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	 * Sets a flag indicating if the lower bound of the interval is inclusive
 	 */
 	@Override
-	public void setLowInclusive(Boolean value) { this.m_lowInclusive = value; }
+	public void setLowInclusive(Boolean value) { this.onModifying(); this.m_lowInclusive = value; }
 	/**
 	 * Get the upper bound of the interval
 	 */
@@ -105,7 +105,7 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	 * Set the upper bound of the interval
 	 */
 	@Override
-	public void setHigh(T value) { this.m_high = value;  }
+	public void setHigh(T value) { this.onModifying(); this.m_high = value;  }
 	/**
 	 * Gets a flag indicating if the upper bound of the interval is inclusive
 	 */
@@ -116,7 +116,7 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	 * Sets a flag indicating if the upper bound of the interval is inclusive
 	 */
 	@Override
-	public void setHighInclusive(Boolean value) { this.m_highInclusive = value; }
+	public void setHighInclusive(Boolean value) { this.onModifying(); this.m_highInclusive = value; }
 
 	/**
 	 * Gets the width of the interval
@@ -126,7 +126,7 @@ public class URG<T extends IAny> extends UVP<T> implements IInterval<T> {
 	/**
 	 * Sets the width of the interval
 	 */
-	public void setWidth(PQ value) { this.m_width = value; }
+	public void setWidth(PQ value) { this.onModifying(); this.m_width = value; }
 	/**
 	 * Validate this instance of URG
 	 */
@@ -77,6 +77,7 @@ public class UVP<T extends IAny> extends ANY implements IProbability<T> {
 	 */
 	@Override
 	public void setProbability(Float value) {
+		this.onModifying();
 		this.m_probability = value;
 	}
 	
@@ -93,6 +94,7 @@ public class UVP<T extends IAny> extends ANY implements IProbability<T> {
 	 */
 	@Override
 	public void setValue(T value) {
+		this.onModifying();
 		this.m_value = value;
 	}
 
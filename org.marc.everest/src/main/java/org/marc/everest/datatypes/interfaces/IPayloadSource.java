@@ -0,0 +1,45 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.marc.everest.interfaces.IDisposable;
+
+/**
+ * Represents a source of the binary payload of an encapsulated data instance.
+ * <p>A payload source allows large attachments such as documents or images to be
+ * carried by an ED without loading them onto the heap. Each call to {@link #openStream()} 
+ * must return a new stream positioned at the start of the payload so that the payload
+ * can be read more than once (for example to compute an integrity check and then format it)</p>
+ * <p>Closing a payload source releases the resources it owns (such as a temporary file), the 
+ * payload cannot be opened once the source is closed</p>
+ */
+public interface IPayloadSource extends IDisposable {
+
+	/**
+	 * Open a new stream positioned at the start of the payload. The caller is responsible 
+	 * for closing the stream
+	 */
+	InputStream openStream() throws IOException;
+
+	/**
+	 * Gets the length of the payload in bytes or -1 if the length is not known
+	 */
+	long getLength();
+}
@@ -0,0 +1,69 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * A payload source backed by an array of bytes on the heap
+ */
+public class ByteArrayPayloadSource implements IPayloadSource {
+
+	// backing field for data
+	private final byte[] m_data;
+
+	/**
+	 * Creates a new payload source over the specified data
+	 */
+	public ByteArrayPayloadSource(byte[] data)
+	{
+		if(data == null)
+			throw new IllegalArgumentException("data is null");
+		this.m_data = data;
+	}
+
+	/**
+	 * Gets the data of this source
+	 */
+	public byte[] getData() { return this.m_data; }
+
+	/**
+	 * Open a stream over the data
+	 */
+	@Override
+	public InputStream openStream() {
+		return new ByteArrayInputStream(this.m_data);
+	}
+
+	/**
+	 * Gets the length of the data
+	 */
+	@Override
+	public long getLength() {
+		return this.m_data.length;
+	}
+
+	/**
+	 * The data is left to the garbage collector, there is nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
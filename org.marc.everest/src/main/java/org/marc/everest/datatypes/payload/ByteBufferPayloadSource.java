@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * A payload source backed by a ByteBuffer. 
+ * <p>Use this source with direct or memory mapped buffers to keep large payloads
+ * off the heap. The position and limit of the buffer at construction delimit the payload 
+ * and are not modified by reading</p>
+ */
+public class ByteBufferPayloadSource implements IPayloadSource {
+
+	// backing field for buffer
+	private final ByteBuffer m_buffer;
+
+	/**
+	 * Creates a new payload source over the remaining bytes of the specified buffer
+	 */
+	public ByteBufferPayloadSource(ByteBuffer buffer)
+	{
+		if(buffer == null)
+			throw new IllegalArgumentException("buffer is null");
+		this.m_buffer = buffer.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Open a stream over the buffer
+	 */
+	@Override
+	public InputStream openStream() {
+		final ByteBuffer buffer = this.m_buffer.duplicate();
+		return new InputStream() {
+			@Override
+			public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+			}
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if(len == 0)
+					return 0;
+				else if(!buffer.hasRemaining())
+					return -1;
+				len = Math.min(len, buffer.remaining());
+				buffer.get(b, off, len);
+				return len;
+			}
+			@Override
+			public int available() {
+				return buffer.remaining();
+			}
+		};
+	}
+
+	/**
+	 * Gets the length of the buffer
+	 */
+	@Override
+	public long getLength() {
+		return this.m_buffer.remaining();
+	}
+
+	/**
+	 * The buffer is left to the garbage collector, there is nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
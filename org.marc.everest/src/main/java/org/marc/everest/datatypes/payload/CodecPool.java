@@ -0,0 +1,145 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.marc.everest.datatypes.EncapsulatedDataIntegrityAlgorithm;
+
+/**
+ * A pool of compression and digest engines.
+ * <p>Deflaters and inflaters hold native memory which is expensive to allocate and is only 
+ * released when the engine is ended or finalized. Pooling the engines allows attachment 
+ * heavy workloads to reuse them rather than creating several per ED. Engines must be 
+ * returned with the release method matching the acquire method that created them</p>
+ */
+public final class CodecPool {
+
+	// The maximum number of idle engines of each kind kept in the pool
+	private static final int MAX_IDLE = 16;
+
+	// Idle deflaters keyed by level and wrapping
+	private static final ConcurrentMap<Integer, Queue<Deflater>> s_deflaters = new ConcurrentHashMap<Integer, Queue<Deflater>>();
+	// Idle inflaters keyed by wrapping
+	private static final ConcurrentMap<Boolean, Queue<Inflater>> s_inflaters = new ConcurrentHashMap<Boolean, Queue<Inflater>>();
+	// Idle digests keyed by algorithm
+	private static final ConcurrentMap<EncapsulatedDataIntegrityAlgorithm, Queue<MessageDigest>> s_digests = new ConcurrentHashMap<EncapsulatedDataIntegrityAlgorithm, Queue<MessageDigest>>();
+
+	/**
+	 * Static class
+	 */
+	private CodecPool() {}
+
+	/**
+	 * Gets the idle queue for the specified key creating it if necessary
+	 */
+	private static <K, V> Queue<V> getQueue(ConcurrentMap<K, Queue<V>> pool, K key)
+	{
+		Queue<V> retVal = pool.get(key);
+		if(retVal == null)
+		{
+			pool.putIfAbsent(key, new ConcurrentLinkedQueue<V>());
+			retVal = pool.get(key);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Gets the key of a deflater
+	 */
+	private static Integer deflaterKey(int level, boolean nowrap)
+	{
+		return level * 2 + (nowrap ? 1 : 0);
+	}
+
+	/**
+	 * Acquire a deflater with the specified level
+	 * @param nowrap True if the deflater should produce raw deflate data without the ZLIB wrapper
+	 */
+	public static Deflater acquireDeflater(int level, boolean nowrap)
+	{
+		Deflater retVal = getQueue(s_deflaters, deflaterKey(level, nowrap)).poll();
+		if(retVal == null)
+			retVal = new Deflater(level, nowrap);
+		return retVal;
+	}
+
+	/**
+	 * Return a deflater acquired with the specified level and wrapping to the pool
+	 */
+	public static void releaseDeflater(Deflater deflater, int level, boolean nowrap)
+	{
+		Queue<Deflater> idle = getQueue(s_deflaters, deflaterKey(level, nowrap));
+		deflater.reset();
+		if(idle.size() >= MAX_IDLE || !idle.offer(deflater))
+			deflater.end();
+	}
+
+	/**
+	 * Acquire an inflater
+	 * @param nowrap True if the inflater reads raw deflate data without the ZLIB wrapper
+	 */
+	public static Inflater acquireInflater(boolean nowrap)
+	{
+		Inflater retVal = getQueue(s_inflaters, nowrap).poll();
+		if(retVal == null)
+			retVal = new Inflater(nowrap);
+		return retVal;
+	}
+
+	/**
+	 * Return an inflater acquired with the specified wrapping to the pool
+	 */
+	public static void releaseInflater(Inflater inflater, boolean nowrap)
+	{
+		Queue<Inflater> idle = getQueue(s_inflaters, nowrap);
+		inflater.reset();
+		if(idle.size() >= MAX_IDLE || !idle.offer(inflater))
+			inflater.end();
+	}
+
+	/**
+	 * Acquire a message digest for the specified integrity check algorithm
+	 */
+	public static MessageDigest acquireDigest(EncapsulatedDataIntegrityAlgorithm algorithm) throws NoSuchAlgorithmException
+	{
+		if(algorithm == null)
+			throw new IllegalArgumentException("algorithm is null");
+		MessageDigest retVal = getQueue(s_digests, algorithm).poll();
+		if(retVal == null)
+			retVal = MessageDigest.getInstance(algorithm.getCode());
+		return retVal;
+	}
+
+	/**
+	 * Return a message digest to the pool
+	 */
+	public static void releaseDigest(MessageDigest digest, EncapsulatedDataIntegrityAlgorithm algorithm)
+	{
+		Queue<MessageDigest> idle = getQueue(s_digests, algorithm);
+		digest.reset();
+		if(idle.size() < MAX_IDLE)
+			idle.offer(digest);
+	}
+}
@@ -0,0 +1,118 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * A payload source backed by a file
+ */
+public class FilePayloadSource implements IPayloadSource {
+
+	// backing field for file
+	private final File m_file;
+	// True if the file is temporary and should be removed with this source
+	private final boolean m_temporary;
+	// True when the source is closed
+	private volatile boolean m_closed;
+
+	/**
+	 * Creates a new payload source which reads from the specified file
+	 */
+	public FilePayloadSource(File file)
+	{
+		this(file, false);
+	}
+
+	/**
+	 * Creates a new payload source which reads from the specified file
+	 * @param temporary When true the file is deleted when this source is closed (or, failing that, 
+	 * when the source is collected or the virtual machine exits)
+	 */
+	public FilePayloadSource(File file, boolean temporary)
+	{
+		if(file == null)
+			throw new IllegalArgumentException("file is null");
+		this.m_file = file;
+		this.m_temporary = temporary;
+		if(temporary)
+			file.deleteOnExit();
+	}
+
+	/**
+	 * Gets the file this source reads
+	 */
+	public File getFile() { return this.m_file; }
+
+	/**
+	 * Returns true if the file is a temporary file owned by this source
+	 */
+	public boolean isTemporary() { return this.m_temporary; }
+
+	/**
+	 * Open a stream over the file
+	 */
+	@Override
+	public InputStream openStream() throws IOException {
+		if(this.m_closed)
+			throw new IOException("Payload source is closed");
+		return new BufferedInputStream(new FileInputStream(this.m_file));
+	}
+
+	/**
+	 * Gets the length of the file or -1 once the source is closed
+	 */
+	@Override
+	public long getLength() {
+		if(this.m_closed)
+			return -1;
+		return this.m_file.length();
+	}
+
+	/**
+	 * Close the source, deleting the file if it is temporary
+	 */
+	@Override
+	public void close() {
+		if(this.m_closed)
+			return;
+		this.m_closed = true;
+		if(this.m_temporary)
+			this.m_file.delete();
+	}
+
+	/**
+	 * Remove the temporary file if the source was never closed
+	 */
+	@Override
+	protected void finalize() throws Throwable {
+		try
+		{
+			this.close();
+		}
+		finally
+		{
+			super.finalize();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * An output stream which collects a payload in memory until it exceeds a threshold
+ * and then spills the payload to a temporary file.
+ * <p>Formatters use this buffer when reading inline data so that the heap used to parse 
+ * an ED does not depend on the size of the attachment</p>
+ */
+public class PayloadBuffer extends OutputStream {
+
+	/**
+	 * The default number of bytes kept in memory before the buffer spills to disk
+	 */
+	public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+	// The number of bytes to hold in memory
+	private final int m_threshold;
+	// The in-memory buffer or null once spilled
+	private ByteArrayOutputStream m_memory = new ByteArrayOutputStream();
+	// The temporary file once spilled
+	private File m_file;
+	// The stream to the temporary file
+	private OutputStream m_fileStream;
+	// The number of bytes written
+	private long m_length;
+	// True when the buffer is closed
+	private boolean m_closed;
+
+	/**
+	 * Creates a new payload buffer with the default threshold
+	 */
+	public PayloadBuffer()
+	{
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a new payload buffer which spills to disk after the specified number of bytes
+	 */
+	public PayloadBuffer(int threshold)
+	{
+		if(threshold < 0)
+			throw new IllegalArgumentException("threshold must be positive");
+		this.m_threshold = threshold;
+	}
+
+	/**
+	 * Gets the number of bytes written to the buffer
+	 */
+	public long getLength() { return this.m_length; }
+
+	/**
+	 * Returns true if the buffer has spilled to a temporary file
+	 */
+	public boolean isSpilled() { return this.m_file != null; }
+
+	/**
+	 * Write a single byte
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		this.write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	/**
+	 * Write the specified bytes to the buffer
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(this.m_closed)
+			throw new IOException("Buffer is closed");
+		if(this.m_fileStream == null && this.m_length + len > this.m_threshold)
+			this.spill();
+
+		if(this.m_fileStream != null)
+			this.m_fileStream.write(b, off, len);
+		else
+			this.m_memory.write(b, off, len);
+		this.m_length += len;
+	}
+
+	/**
+	 * Move the buffered content to a temporary file
+	 */
+	private void spill() throws IOException
+	{
+		this.m_file = File.createTempFile("everest", ".payload");
+		this.m_file.deleteOnExit();
+		this.m_fileStream = new BufferedOutputStream(new FileOutputStream(this.m_file));
+		this.m_memory.writeTo(this.m_fileStream);
+		this.m_memory = null;
+	}
+
+	/**
+	 * Flush the buffer
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(this.m_fileStream != null)
+			this.m_fileStream.flush();
+	}
+
+	/**
+	 * Close the buffer
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.m_closed)
+			return;
+		this.m_closed = true;
+		if(this.m_fileStream != null)
+			this.m_fileStream.close();
+	}
+
+	/**
+	 * Gets the buffered content as a byte array
+	 * @throws IllegalStateException When the buffer has spilled to disk
+	 */
+	public byte[] toByteArray()
+	{
+		if(this.m_memory == null)
+			throw new IllegalStateException("Buffer has spilled to disk");
+		return this.m_memory.toByteArray();
+	}
+
+	/**
+	 * Close the buffer and get a payload source over its content. Once spilled the 
+	 * temporary file is owned by the returned source
+	 */
+	public IPayloadSource toPayloadSource() throws IOException
+	{
+		this.close();
+		if(this.m_file != null)
+			return new FilePayloadSource(this.m_file, true);
+		return new ByteArrayPayloadSource(this.m_memory.toByteArray());
+	}
+
+	/**
+	 * Close the buffer and discard its content
+	 */
+	public void discard()
+	{
+		try
+		{
+			this.close();
+		}
+		catch(IOException e) { // ignore
+		}
+		if(this.m_file != null)
+			this.m_file.delete();
+		this.m_memory = null;
+	}
+}
@@ -0,0 +1,484 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.marc.everest.datatypes.EncapsulatedDataCompression;
+import org.marc.everest.datatypes.EncapsulatedDataIntegrityAlgorithm;
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * Compresses or decompresses a payload and computes its integrity check in a single
+ * streaming pass.
+ * <p>The payload is read in fixed size chunks and written to a {@link PayloadBuffer}, so the
+ * heap used does not depend on the size of the payload. The integrity check is computed over 
+ * the output as it is written, so a compressed payload carries the integrity check of the 
+ * compressed data and a decompressed payload the integrity check of the decompressed data. 
+ * Deflaters, inflaters and digests are taken from the {@link CodecPool}.</p>
+ * <p>When an executor is provided, GZip compression of payloads larger than two blocks is 
+ * split into blocks which are compressed in parallel. Each block is written as a separate 
+ * GZip member (permitted by RFC 1952), the receiver must therefore support multi-member GZip 
+ * data.</p>
+ */
+public class PayloadPipeline {
+
+	/**
+	 * The default size of the blocks compressed in parallel
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	// GZip header with no flags, no modification time and unknown operating system
+	private static final byte[] GZIP_HEADER = new byte[] { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff };
+	// GZip header flags
+	private static final int GZIP_FHCRC = 2, GZIP_FEXTRA = 4, GZIP_FNAME = 8, GZIP_FCOMMENT = 16;
+
+	// backing field for compression
+	private EncapsulatedDataCompression m_compression;
+	// backing field for compression level
+	private int m_compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	// backing field for integrity check algorithm
+	private EncapsulatedDataIntegrityAlgorithm m_integrityCheckAlgorithm;
+	// backing field for the executor used for parallel compression
+	private ExecutorService m_executor;
+	// backing field for block size
+	private int m_blockSize = DEFAULT_BLOCK_SIZE;
+	// backing field for the in-memory threshold of the output
+	private int m_bufferThreshold = PayloadBuffer.DEFAULT_THRESHOLD;
+
+	/**
+	 * Creates a new payload pipeline
+	 */
+	public PayloadPipeline() {}
+
+	/**
+	 * Creates a new payload pipeline with the specified compression and integrity check algorithm
+	 * @param compression The compression to apply or remove, null for none
+	 * @param integrityCheckAlgorithm The algorithm of the integrity check, null for none
+	 */
+	public PayloadPipeline(EncapsulatedDataCompression compression, EncapsulatedDataIntegrityAlgorithm integrityCheckAlgorithm)
+	{
+		this.m_compression = compression;
+		this.m_integrityCheckAlgorithm = integrityCheckAlgorithm;
+	}
+
+	/**
+	 * Gets the compression algorithm
+	 */
+	public EncapsulatedDataCompression getCompression() { return this.m_compression; }
+	/**
+	 * Sets the compression algorithm
+	 */
+	public void setCompression(EncapsulatedDataCompression value) { this.m_compression = value; }
+	/**
+	 * Gets the compression level (0-9 or -1 for the default)
+	 */
+	public int getCompressionLevel() { return this.m_compressionLevel; }
+	/**
+	 * Sets the compression level (0-9 or -1 for the default)
+	 */
+	public void setCompressionLevel(int value) {
+		if(value < Deflater.DEFAULT_COMPRESSION || value > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Compression level must be between -1 and 9");
+		this.m_compressionLevel = value;
+	}
+	/**
+	 * Gets the integrity check algorithm
+	 */
+	public EncapsulatedDataIntegrityAlgorithm getIntegrityCheckAlgorithm() { return this.m_integrityCheckAlgorithm; }
+	/**
+	 * Sets the integrity check algorithm
+	 */
+	public void setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm value) { this.m_integrityCheckAlgorithm = value; }
+	/**
+	 * Gets the executor used to compress blocks in parallel
+	 */
+	public ExecutorService getExecutor() { return this.m_executor; }
+	/**
+	 * Sets the executor used to compress blocks in parallel, null to compress on the calling thread
+	 */
+	public void setExecutor(ExecutorService value) { this.m_executor = value; }
+	/**
+	 * Gets the size of blocks compressed in parallel
+	 */
+	public int getBlockSize() { return this.m_blockSize; }
+	/**
+	 * Sets the size of blocks compressed in parallel
+	 */
+	public void setBlockSize(int value) {
+		if(value <= 0)
+			throw new IllegalArgumentException("Block size must be positive");
+		this.m_blockSize = value;
+	}
+	/**
+	 * Gets the number of output bytes held in memory before the output is spilled to disk
+	 */
+	public int getBufferThreshold() { return this.m_bufferThreshold; }
+	/**
+	 * Sets the number of output bytes held in memory before the output is spilled to disk
+	 */
+	public void setBufferThreshold(int value) { this.m_bufferThreshold = value; }
+
+	/**
+	 * Compress the payload and compute the integrity check of the compressed data
+	 * @throws IllegalArgumentException When the compression algorithm is not supported
+	 */
+	public PayloadPipelineResult compress(IPayloadSource source) throws IOException, NoSuchAlgorithmException
+	{
+		if(this.m_compression != null && !isSupported(this.m_compression))
+			throw new IllegalArgumentException("unsupported compressionAlgorithm");
+
+		boolean parallel = this.m_executor != null && this.m_compression == EncapsulatedDataCompression.GZip &&
+				(source.getLength() < 0 || source.getLength() > 2L * this.m_blockSize);
+		return this.process(source, true, parallel);
+	}
+
+	/**
+	 * Decompress the payload and compute the integrity check of the decompressed data
+	 * @throws NoSuchAlgorithmException When the compression algorithm is not supported
+	 */
+	public PayloadPipelineResult decompress(IPayloadSource source) throws IOException, NoSuchAlgorithmException
+	{
+		if(this.m_compression == null)
+			throw new IllegalStateException("no compression algorithm is set on this pipeline");
+		else if(!isSupported(this.m_compression))
+			throw new NoSuchAlgorithmException();
+		return this.process(source, false, false);
+	}
+
+	/**
+	 * Returns true if the compression algorithm is supported by the pipeline
+	 */
+	public static boolean isSupported(EncapsulatedDataCompression compression)
+	{
+		return compression == EncapsulatedDataCompression.Deflate ||
+				compression == EncapsulatedDataCompression.ZLib ||
+				compression == EncapsulatedDataCompression.GZip;
+	}
+
+	/**
+	 * Run the source through the pipeline
+	 */
+	private PayloadPipelineResult process(IPayloadSource source, boolean compress, boolean parallel) throws IOException, NoSuchAlgorithmException
+	{
+		MessageDigest digest = this.m_integrityCheckAlgorithm == null ? null : CodecPool.acquireDigest(this.m_integrityCheckAlgorithm);
+		PayloadBuffer buffer = new PayloadBuffer(this.m_bufferThreshold);
+		InputStream in = source.openStream();
+		boolean success = false;
+		try
+		{
+			OutputStream out = digest == null ? buffer : new DigestOutputStream(buffer, digest);
+			if(this.m_compression == null)
+				PayloadUtil.copy(in, out);
+			else if(compress && parallel)
+				this.deflateParallel(in, out);
+			else if(compress)
+				this.deflate(in, out);
+			else
+				this.inflate(in, out);
+			out.close();
+			success = true;
+			return new PayloadPipelineResult(buffer.toPayloadSource(), digest == null ? null : digest.digest());
+		}
+		finally
+		{
+			in.close();
+			if(!success)
+				buffer.discard();
+			if(digest != null)
+				CodecPool.releaseDigest(digest, this.m_integrityCheckAlgorithm);
+		}
+	}
+
+	/**
+	 * Returns true if the compression uses raw deflate data (the GZip wrapper is written by the pipeline)
+	 */
+	private boolean isRawDeflate()
+	{
+		return this.m_compression == EncapsulatedDataCompression.GZip;
+	}
+
+	/**
+	 * Compress the input on the calling thread
+	 */
+	private void deflate(InputStream in, OutputStream out) throws IOException
+	{
+		boolean nowrap = this.isRawDeflate();
+		Deflater deflater = CodecPool.acquireDeflater(this.m_compressionLevel, nowrap);
+		try
+		{
+			CRC32 crc = nowrap ? new CRC32() : null;
+			if(nowrap)
+				out.write(GZIP_HEADER);
+
+			byte[] input = new byte[PayloadUtil.CHUNK_SIZE], output = new byte[PayloadUtil.CHUNK_SIZE];
+			long size = 0;
+			int read;
+			while((read = in.read(input)) >= 0)
+			{
+				if(read == 0)
+					continue;
+				deflater.setInput(input, 0, read);
+				if(crc != null)
+					crc.update(input, 0, read);
+				size += read;
+				while(!deflater.needsInput())
+					out.write(output, 0, deflater.deflate(output));
+			}
+			deflater.finish();
+			while(!deflater.finished())
+				out.write(output, 0, deflater.deflate(output));
+
+			if(nowrap)
+				writeGzipTrailer(out, crc, size);
+		}
+		finally
+		{
+			CodecPool.releaseDeflater(deflater, this.m_compressionLevel, nowrap);
+		}
+	}
+
+	/**
+	 * Compress the input in blocks on the executor writing each block as a GZip member
+	 */
+	private void deflateParallel(InputStream in, OutputStream out) throws IOException
+	{
+		// Bound the number of blocks held in memory
+		int maxInFlight = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+		Queue<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+		try
+		{
+			byte[] block = new byte[this.m_blockSize];
+			int read;
+			while((read = PayloadUtil.fill(in, block)) > 0)
+			{
+				final byte[] data = block;
+				final int length = read;
+				pending.add(this.m_executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						return compressMember(data, length);
+					}
+				}));
+				block = new byte[this.m_blockSize];
+				if(pending.size() >= maxInFlight)
+					out.write(pending.remove().get());
+				if(read < block.length)
+					break;
+			}
+			while(!pending.isEmpty())
+				out.write(pending.remove().get());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing payload", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IOException("Could not compress payload block", e.getCause());
+		}
+		finally
+		{
+			for(Future<byte[]> future : pending)
+				future.cancel(true);
+		}
+	}
+
+	/**
+	 * Compress a block into a complete GZip member
+	 */
+	private byte[] compressMember(byte[] data, int length) throws IOException
+	{
+		Deflater deflater = CodecPool.acquireDeflater(this.m_compressionLevel, true);
+		try
+		{
+			ByteArrayOutputStream retVal = new ByteArrayOutputStream(length / 2 + GZIP_HEADER.length + 8);
+			retVal.write(GZIP_HEADER);
+			byte[] output = new byte[PayloadUtil.CHUNK_SIZE];
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			while(!deflater.finished())
+				retVal.write(output, 0, deflater.deflate(output));
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			writeGzipTrailer(retVal, crc, length);
+			return retVal.toByteArray();
+		}
+		finally
+		{
+			CodecPool.releaseDeflater(deflater, this.m_compressionLevel, true);
+		}
+	}
+
+	/**
+	 * Decompress the input. GZip input may contain more than one member
+	 */
+	private void inflate(InputStream in, OutputStream out) throws IOException
+	{
+		boolean nowrap = this.isRawDeflate();
+		Inflater inflater = CodecPool.acquireInflater(nowrap);
+		try
+		{
+			PushbackInputStream source = new PushbackInputStream(in, PayloadUtil.CHUNK_SIZE);
+			byte[] input = new byte[PayloadUtil.CHUNK_SIZE], output = new byte[PayloadUtil.CHUNK_SIZE];
+			do
+			{
+				CRC32 crc = nowrap ? new CRC32() : null;
+				if(nowrap)
+					readGzipHeader(source);
+
+				inflater.reset();
+				int lastRead = 0;
+				while(!inflater.finished())
+				{
+					if(inflater.needsInput())
+					{
+						lastRead = source.read(input);
+						if(lastRead < 0)
+							throw new EOFException("Unexpected end of compressed data");
+						inflater.setInput(input, 0, lastRead);
+					}
+					int inflated = inflater.inflate(output);
+					if(inflated == 0 && inflater.needsDictionary())
+						throw new IOException("Compressed data requires a preset dictionary");
+					out.write(output, 0, inflated);
+					if(crc != null)
+						crc.update(output, 0, inflated);
+				}
+
+				// Return unused input to the stream
+				if(inflater.getRemaining() > 0)
+					source.unread(input, lastRead - inflater.getRemaining(), inflater.getRemaining());
+
+				if(nowrap)
+				{
+					readGzipTrailer(source, crc, inflater.getBytesWritten());
+					int next = source.read();
+					if(next < 0)
+						break;
+					source.unread(next);
+				}
+			} while(nowrap);
+		}
+		catch(DataFormatException e)
+		{
+			throw new IOException("Compressed data is invalid", e);
+		}
+		finally
+		{
+			CodecPool.releaseInflater(inflater, nowrap);
+		}
+	}
+
+	/**
+	 * Write the GZip trailer (CRC and size)
+	 */
+	private static void writeGzipTrailer(OutputStream out, CRC32 crc, long size) throws IOException
+	{
+		writeInt(out, crc.getValue());
+		writeInt(out, size);
+	}
+
+	/**
+	 * Write the lower four bytes of a value in little endian order
+	 */
+	private static void writeInt(OutputStream out, long value) throws IOException
+	{
+		out.write((int)(value & 0xff));
+		out.write((int)((value >> 8) & 0xff));
+		out.write((int)((value >> 16) & 0xff));
+		out.write((int)((value >> 24) & 0xff));
+	}
+
+	/**
+	 * Read a single byte failing at the end of the stream
+	 */
+	private static int readByte(InputStream in) throws IOException
+	{
+		int retVal = in.read();
+		if(retVal < 0)
+			throw new EOFException("Unexpected end of compressed data");
+		return retVal;
+	}
+
+	/**
+	 * Read a four byte little endian value
+	 */
+	private static long readInt(InputStream in) throws IOException
+	{
+		return readByte(in) | (readByte(in) << 8) | (readByte(in) << 16) | ((long)readByte(in) << 24);
+	}
+
+	/**
+	 * Read and skip the GZip header
+	 */
+	private static void readGzipHeader(InputStream in) throws IOException
+	{
+		if(readByte(in) != 0x1f || readByte(in) != 0x8b)
+			throw new IOException("Compressed data is not in GZip format");
+		if(readByte(in) != Deflater.DEFLATED)
+			throw new IOException("Unsupported GZip compression method");
+		int flags = readByte(in);
+		for(int i = 0; i < 6; i++) // modification time, extra flags and operating system
+			readByte(in);
+		if((flags & GZIP_FEXTRA) != 0)
+		{
+			int length = readByte(in) | (readByte(in) << 8);
+			for(int i = 0; i < length; i++)
+				readByte(in);
+		}
+		if((flags & GZIP_FNAME) != 0)
+			while(readByte(in) != 0);
+		if((flags & GZIP_FCOMMENT) != 0)
+			while(readByte(in) != 0);
+		if((flags & GZIP_FHCRC) != 0)
+		{
+			readByte(in);
+			readByte(in);
+		}
+	}
+
+	/**
+	 * Read and verify the GZip trailer
+	 */
+	private static void readGzipTrailer(InputStream in, CRC32 crc, long size) throws IOException
+	{
+		if(readInt(in) != crc.getValue())
+			throw new IOException("GZip data failed its CRC check");
+		if(readInt(in) != (size & 0xffffffffL))
+			throw new IOException("GZip data has an incorrect length");
+	}
+}
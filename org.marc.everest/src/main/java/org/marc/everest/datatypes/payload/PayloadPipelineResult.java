@@ -0,0 +1,50 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * The result of processing a payload with a payload pipeline
+ */
+public class PayloadPipelineResult {
+
+	// backing field for payload
+	private final IPayloadSource m_payload;
+	// backing field for integrity check
+	private final byte[] m_integrityCheck;
+
+	/**
+	 * Creates a new pipeline result
+	 */
+	public PayloadPipelineResult(IPayloadSource payload, byte[] integrityCheck)
+	{
+		this.m_payload = payload;
+		this.m_integrityCheck = integrityCheck;
+	}
+
+	/**
+	 * Gets the processed payload
+	 */
+	public IPayloadSource getPayload() { return this.m_payload; }
+
+	/**
+	 * Gets the integrity check computed over the processed payload or null if
+	 * no integrity check algorithm was specified
+	 */
+	public byte[] getIntegrityCheck() { return this.m_integrityCheck; }
+}
@@ -0,0 +1,180 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.payload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+
+/**
+ * Utilities for reading payload sources in fixed size chunks
+ */
+public final class PayloadUtil {
+
+	/**
+	 * The size of the chunks read from payload sources
+	 */
+	public static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Static class
+	 */
+	private PayloadUtil() {}
+
+	/**
+	 * Read the entire payload into memory
+	 */
+	public static byte[] readFully(IPayloadSource source) throws IOException
+	{
+		if(source instanceof ByteArrayPayloadSource)
+			return ((ByteArrayPayloadSource)source).getData();
+
+		long length = source.getLength();
+		if(length > Integer.MAX_VALUE)
+			throw new IOException("Payload is too large to be read into memory");
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(length > 0 ? (int)length : CHUNK_SIZE);
+		copy(source, bos);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Copy the payload to the specified output stream
+	 * @return The number of bytes copied
+	 */
+	public static long copy(IPayloadSource source, OutputStream out) throws IOException
+	{
+		InputStream in = source.openStream();
+		try
+		{
+			return copy(in, out);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Copy the input stream to the output stream
+	 * @return The number of bytes copied
+	 */
+	public static long copy(InputStream in, OutputStream out) throws IOException
+	{
+		byte[] buffer = new byte[CHUNK_SIZE];
+		long retVal = 0;
+		int read;
+		while((read = in.read(buffer)) >= 0)
+		{
+			out.write(buffer, 0, read);
+			retVal += read;
+		}
+		return retVal;
+	}
+
+	/**
+	 * Update the digest with the content of the payload and return the digest
+	 */
+	public static byte[] digest(IPayloadSource source, MessageDigest digest) throws IOException
+	{
+		InputStream in = source.openStream();
+		try
+		{
+			byte[] buffer = new byte[CHUNK_SIZE];
+			int read;
+			while((read = in.read(buffer)) >= 0)
+				digest.update(buffer, 0, read);
+			return digest.digest();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Compute the hash code of the payload. The result is the same as the hash code 
+	 * {@link java.util.Arrays#hashCode(byte[])} returns for the same content
+	 */
+	public static int hashCode(IPayloadSource source) throws IOException
+	{
+		InputStream in = source.openStream();
+		try
+		{
+			byte[] buffer = new byte[CHUNK_SIZE];
+			int retVal = 1, read;
+			while((read = in.read(buffer)) >= 0)
+				for(int i = 0; i < read; i++)
+					retVal = 31 * retVal + buffer[i];
+			return retVal;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Determine if two payloads have the same content
+	 */
+	public static boolean contentEquals(IPayloadSource a, IPayloadSource b) throws IOException
+	{
+		if(a == b)
+			return true;
+		else if(a.getLength() >= 0 && b.getLength() >= 0 && a.getLength() != b.getLength())
+			return false;
+
+		InputStream aStream = a.openStream(), bStream = null;
+		try
+		{
+			bStream = b.openStream();
+			byte[] aBuffer = new byte[CHUNK_SIZE], bBuffer = new byte[CHUNK_SIZE];
+			while(true)
+			{
+				int aRead = fill(aStream, aBuffer), bRead = fill(bStream, bBuffer);
+				if(aRead != bRead)
+					return false;
+				for(int i = 0; i < aRead; i++)
+					if(aBuffer[i] != bBuffer[i])
+						return false;
+				if(aRead < CHUNK_SIZE)
+					return true;
+			}
+		}
+		finally
+		{
+			aStream.close();
+			if(bStream != null)
+				bStream.close();
+		}
+	}
+
+	/**
+	 * Read from the stream until the buffer is full or the stream ends
+	 * @return The number of bytes read
+	 */
+	public static int fill(InputStream in, byte[] buffer) throws IOException
+	{
+		int retVal = 0, read;
+		while(retVal < buffer.length && (read = in.read(buffer, retVal, buffer.length - retVal)) >= 0)
+			retVal += read;
+		return retVal;
+	}
+}
@@ -0,0 +1,56 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+/**
+ * A cursor which merges overlapping or adjacent spans produced by another cursor
+ * so that consumers always see disjoint, ascending spans.
+ */
+class CoalescingCursor extends TimingCursor {
+
+	// The source cursor
+	private final TimingCursor m_source;
+
+	/**
+	 * Creates a new coalescing cursor over the source
+	 */
+	CoalescingCursor(TimingCursor source)
+	{
+		this.m_source = source;
+	}
+
+	/**
+	 * Fetch the next merged span
+	 */
+	@Override
+	protected TimingSpan fetch() {
+		if(!this.m_source.hasNext())
+			return null;
+		TimingSpan current = this.m_source.next();
+		long low = current.getLow(), high = current.getHigh();
+		while(this.m_source.hasNext() && this.m_source.peek().getLow() <= high)
+		{
+			TimingSpan next = this.m_source.next();
+			if(next.getHigh() > high)
+				high = next.getHigh();
+		}
+		if(low == current.getLow() && high == current.getHigh())
+			return current;
+		return new TimingSpan(low, high);
+	}
+
+}
@@ -0,0 +1,98 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+/**
+ * A plan representing the difference of two plans (QSD, or exclusive SXCM terms)
+ */
+class DifferenceTimingPlan extends TimingPlan {
+
+	// The minuend
+	private final TimingPlan m_minuend;
+	// The subtrahend
+	private final TimingPlan m_subtrahend;
+
+	/**
+	 * Creates a new difference plan
+	 */
+	DifferenceTimingPlan(TimingPlan minuend, TimingPlan subtrahend)
+	{
+		this.m_minuend = minuend;
+		this.m_subtrahend = subtrahend;
+	}
+
+	/**
+	 * Open a cursor which removes the subtrahend spans from each minuend span
+	 */
+	@Override
+	public TimingCursor open(long from, long to) {
+		final TimingCursor minuend = new CoalescingCursor(this.m_minuend.open(from, to));
+		final TimingPlan subtrahend = this.m_subtrahend;
+		return new TimingCursor() {
+			// The subtrahend spans overlapping the current minuend span
+			private TimingCursor m_current;
+			// The start of the portion of the current minuend span not yet emitted
+			private long m_remainder;
+			@Override
+			protected TimingSpan fetch() {
+				while(minuend.hasNext())
+				{
+					TimingSpan m = minuend.peek();
+					if(this.m_current == null) // starting a new minuend span
+					{
+						this.m_current = new CoalescingCursor(subtrahend.open(m.getLow(), m.getHigh()));
+						this.m_remainder = m.getLow();
+					}
+
+					long low = this.m_remainder;
+					TimingSpan s = null;
+					while(this.m_current.hasNext() && (s = this.m_current.next()).getHigh() <= low)
+						s = null;
+
+					if(s == null || s.getLow() >= m.getHigh()) // nothing more is removed from this span
+					{
+						minuend.next();
+						this.m_current = null;
+						if(low < m.getHigh())
+							return new TimingSpan(low, m.getHigh());
+					}
+					else
+					{
+						this.m_remainder = Math.max(low, s.getHigh());
+						if(s.getLow() > low) // portion before the subtrahend survives
+							return new TimingSpan(low, Math.min(s.getLow(), m.getHigh()));
+						else if(this.m_remainder >= m.getHigh())
+						{
+							minuend.next();
+							this.m_current = null;
+						}
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * The instant is contained when the minuend contains it and the subtrahend does not
+	 */
+	@Override
+	public boolean contains(long instant) {
+		return this.m_minuend.contains(instant) && !this.m_subtrahend.contains(instant);
+	}
+
+}
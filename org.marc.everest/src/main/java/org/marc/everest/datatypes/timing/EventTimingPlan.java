@@ -0,0 +1,78 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.marc.everest.datatypes.generic.DomainTimingEvent;
+
+/**
+ * A plan representing an EIVL: an offset interval anchored on each occurrence of a
+ * domain timing event. The event instants are supplied by an {@link ITimingEventResolver}
+ */
+class EventTimingPlan extends TimingPlan {
+
+	// The event being resolved
+	private final DomainTimingEvent m_event;
+	// The resolver for event instants
+	private final ITimingEventResolver m_resolver;
+	// Offset from the event to the start of the occurrence
+	private final long m_offsetLow;
+	// Offset from the event to the end of the occurrence (exclusive)
+	private final long m_offsetHigh;
+
+	/**
+	 * Creates a new event timing plan
+	 */
+	EventTimingPlan(DomainTimingEvent event, ITimingEventResolver resolver, long offsetLow, long offsetHigh)
+	{
+		this.m_event = event;
+		this.m_resolver = resolver;
+		this.m_offsetLow = offsetLow;
+		this.m_offsetHigh = offsetHigh;
+	}
+
+	/**
+	 * Open a cursor over the occurrences overlapping [from, to)
+	 */
+	@Override
+	public TimingCursor open(long from, long to) {
+		List<Long> events = this.m_resolver.resolve(this.m_event, from - this.m_offsetHigh + 1, to - this.m_offsetLow);
+		if(events == null)
+			return TimingCursor.empty();
+		final Iterator<Long> iterator = events.iterator();
+		return new CoalescingCursor(new TimingCursor() {
+			@Override
+			protected TimingSpan fetch() {
+				if(!iterator.hasNext())
+					return null;
+				long event = iterator.next();
+				return new TimingSpan(event + m_offsetLow, event + m_offsetHigh);
+			}
+		});
+	}
+
+	/**
+	 * Determine if the instant falls in the offset window of any event
+	 */
+	@Override
+	public boolean contains(long instant) {
+		return this.open(instant, instant + 1).hasNext();
+	}
+
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+/**
+ * A plan representing the periodic hull of two plans (QSP, or periodic hull SXCM terms).
+ * <p>For every occurrence of low, the hull spans from the start of that occurrence to the
+ * end of the first occurrence of high which starts at or after it</p>
+ */
+class HullTimingPlan extends TimingPlan {
+
+	// The low side of the hull
+	private final TimingPlan m_low;
+	// The high side of the hull
+	private final TimingPlan m_high;
+
+	/**
+	 * Creates a new periodic hull plan
+	 */
+	HullTimingPlan(TimingPlan low, TimingPlan high)
+	{
+		this.m_low = low;
+		this.m_high = high;
+	}
+
+	/**
+	 * Gets the hull which starts with the specified occurrence of low, or null if
+	 * high never occurs after it
+	 */
+	private TimingSpan hullOf(TimingSpan low)
+	{
+		// Search forward through exponentially growing windows so that plans backed by
+		// a resolver are never asked for an unbounded range
+		long lookAhead = 86400000L; // one day
+		while(true)
+		{
+			long to = lookAhead >= MAX_INSTANT - low.getLow() ? MAX_INSTANT : low.getLow() + lookAhead;
+			TimingCursor high = this.m_high.open(low.getLow(), to);
+			while(high.hasNext())
+			{
+				TimingSpan candidate = high.next();
+				if(candidate.getLow() >= low.getLow())
+					return new TimingSpan(low.getLow(), Math.max(candidate.getHigh(), low.getHigh()));
+			}
+			if(to == MAX_INSTANT)
+				return null;
+			lookAhead = lookAhead > MAX_INSTANT ? Long.MAX_VALUE : lookAhead * 4;
+		}
+	}
+
+	/**
+	 * Open a cursor over the hulls overlapping [from, to)
+	 */
+	@Override
+	public TimingCursor open(final long from, long to) {
+		// A hull starting before the window may still reach into it
+		TimingSpan first = new CoalescingTimingPlan(this.m_low).floor(from);
+		final TimingCursor low = new CoalescingCursor(this.m_low.open(first == null ? from : first.getLow(), to));
+		return new CoalescingCursor(new TimingCursor() {
+			@Override
+			protected TimingSpan fetch() {
+				while(low.hasNext())
+				{
+					TimingSpan hull = hullOf(low.next());
+					if(hull != null && hull.overlaps(from, MAX_INSTANT))
+						return hull;
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * The instant is contained when the hull of the last occurrence of low starting at
+	 * or before the instant reaches it
+	 */
+	@Override
+	public boolean contains(long instant) {
+		TimingSpan low = new CoalescingTimingPlan(this.m_low).floor(instant);
+		if(low == null)
+			return false;
+		TimingSpan hull = this.hullOf(low);
+		return hull != null && hull.contains(instant);
+	}
+
+	/**
+	 * Adapts a plan so that floor() sees merged occurrences
+	 */
+	private static class CoalescingTimingPlan extends TimingPlan {
+
+		// The wrapped plan
+		private final TimingPlan m_plan;
+
+		/**
+		 * Wrap the specified plan
+		 */
+		CoalescingTimingPlan(TimingPlan plan)
+		{
+			this.m_plan = plan;
+		}
+
+		/**
+		 * Open a merged cursor
+		 */
+		@Override
+		public TimingCursor open(long from, long to) {
+			return new CoalescingCursor(this.m_plan.open(from, to));
+		}
+
+		/**
+		 * Containment is unaffected by merging
+		 */
+		@Override
+		public boolean contains(long instant) {
+			return this.m_plan.contains(instant);
+		}
+	}
+}
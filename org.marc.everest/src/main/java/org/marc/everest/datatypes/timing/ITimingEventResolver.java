@@ -0,0 +1,36 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.List;
+
+import org.marc.everest.datatypes.generic.DomainTimingEvent;
+
+/**
+ * Resolves the instants at which a domain timing event (meal, sleep, etc.) occurs.
+ * <p>The HL7 datatypes do not carry the actual time of a patient's meals or sleep, so an
+ * EIVL can only be evaluated when the application supplies a resolver that knows them</p>
+ */
+public interface ITimingEventResolver {
+
+	/**
+	 * Gets the instants (milliseconds since the epoch, ascending) at which the specified
+	 * event occurs between from (inclusive) and to (exclusive)
+	 */
+	List<Long> resolve(DomainTimingEvent event, long from, long to);
+
+}
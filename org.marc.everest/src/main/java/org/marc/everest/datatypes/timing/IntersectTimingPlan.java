@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+/**
+ * A plan representing the intersection of two plans (QSI, or intersect SXCM terms)
+ */
+class IntersectTimingPlan extends TimingPlan {
+
+	// The left side of the intersection
+	private final TimingPlan m_left;
+	// The right side of the intersection
+	private final TimingPlan m_right;
+
+	/**
+	 * Creates a new intersection plan
+	 */
+	IntersectTimingPlan(TimingPlan left, TimingPlan right)
+	{
+		this.m_left = left;
+		this.m_right = right;
+	}
+
+	/**
+	 * Open a cursor which walks both sides and emits the overlapping portions
+	 */
+	@Override
+	public TimingCursor open(long from, long to) {
+		final TimingCursor left = new CoalescingCursor(this.m_left.open(from, to)),
+				right = new CoalescingCursor(this.m_right.open(from, to));
+		return new TimingCursor() {
+			@Override
+			protected TimingSpan fetch() {
+				while(left.hasNext() && right.hasNext())
+				{
+					TimingSpan l = left.peek(), r = right.peek();
+					long low = Math.max(l.getLow(), r.getLow()),
+							high = Math.min(l.getHigh(), r.getHigh());
+					// Advance whichever ends first
+					if(l.getHigh() <= r.getHigh())
+						left.next();
+					else
+						right.next();
+					if(low < high)
+						return new TimingSpan(low, high);
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * The instant is contained when both sides contain it
+	 */
+	@Override
+	public boolean contains(long instant) {
+		return this.m_left.contains(instant) && this.m_right.contains(instant);
+	}
+
+}
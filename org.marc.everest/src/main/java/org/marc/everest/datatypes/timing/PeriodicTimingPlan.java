@@ -0,0 +1,157 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.Calendar;
+
+/**
+ * A plan representing a PIVL: a phase of fixed width that repeats every period.
+ * <p>Occurrence k starts at phase.low + k * period. Periods expressed in calendar units
+ * (days, weeks, months, years) or aligned to a calendar cycle are stepped on the calendar
+ * of the phase rather than by a fixed number of milliseconds, so an occurrence scheduled
+ * at 08:00 remains at 08:00 wall-clock time on either side of a daylight saving change.
+ * Every occurrence is computed from the phase directly (never cumulatively) so there is
+ * no drift, and the occurrence containing an instant is found arithmetically.</p>
+ */
+class PeriodicTimingPlan extends TimingPlan {
+
+	// The calendar of the phase low, used as the base for calendar stepping
+	private final Calendar m_phase;
+	// The instant the phase begins
+	private final long m_phaseLow;
+	// The width of each occurrence in milliseconds
+	private final long m_width;
+	// The period in milliseconds (exact for fixed periods, approximate for calendar periods)
+	private final long m_period;
+	// The calendar field to step on, or -1 when the period is fixed
+	private final int m_calendarField;
+	// The number of calendar fields per period
+	private final int m_calendarAmount;
+	// The maximum number of occurrences or -1 when unbounded
+	private final long m_count;
+
+	/**
+	 * Creates a periodic plan with a fixed period
+	 */
+	PeriodicTimingPlan(Calendar phase, long width, long period, long count)
+	{
+		this(phase, width, period, -1, 0, count);
+	}
+
+	/**
+	 * Creates a periodic plan stepping on the specified calendar field
+	 */
+	PeriodicTimingPlan(Calendar phase, long width, long approximatePeriod, int calendarField, int calendarAmount, long count)
+	{
+		if(approximatePeriod <= 0)
+			throw new IllegalArgumentException("PIVL period must be a positive duration");
+		this.m_phase = (Calendar)phase.clone();
+		this.m_phaseLow = phase.getTimeInMillis();
+		this.m_width = width;
+		this.m_period = approximatePeriod;
+		this.m_calendarField = calendarField;
+		this.m_calendarAmount = calendarAmount;
+		this.m_count = count;
+	}
+
+	/**
+	 * Gets the start of occurrence k
+	 */
+	private long lowOf(long k)
+	{
+		if(this.m_calendarField == -1)
+			return this.m_phaseLow + k * this.m_period;
+		Calendar cal = (Calendar)this.m_phase.clone();
+		cal.add(this.m_calendarField, (int)(k * this.m_calendarAmount));
+		return cal.getTimeInMillis();
+	}
+
+	/**
+	 * Returns true if k is a valid occurrence index
+	 */
+	private boolean isValidIndex(long k)
+	{
+		return k >= 0 && (this.m_count < 0 || k < this.m_count);
+	}
+
+	/**
+	 * Gets the index of the last occurrence starting at or before the instant (may be negative)
+	 */
+	private long floorIndex(long instant)
+	{
+		if(instant < this.m_phaseLow) // before the first occurrence
+			return -1;
+		long k = (instant - this.m_phaseLow) / this.m_period;
+		if(this.m_calendarField != -1) // approximation: correct by stepping
+		{
+			while(this.lowOf(k) > instant)
+				k--;
+			while(this.lowOf(k + 1) <= instant)
+				k++;
+		}
+		return k;
+	}
+
+	/**
+	 * Open a cursor over occurrences overlapping [from, to)
+	 */
+	@Override
+	public TimingCursor open(long from, final long to) {
+		long k = this.floorIndex(from);
+		// Back up over any earlier occurrences that are wide enough to still overlap
+		while(this.isValidIndex(k - 1) && this.lowOf(k - 1) + this.m_width > from)
+			k--;
+		if(k < 0)
+			k = 0;
+		else if(this.lowOf(k) + this.m_width <= from)
+			k++;
+		final long start = k;
+		return new TimingCursor() {
+			private long m_index = start;
+			@Override
+			protected TimingSpan fetch() {
+				if(!isValidIndex(this.m_index))
+					return null;
+				long low = lowOf(this.m_index);
+				if(low >= to)
+					return null;
+				this.m_index++;
+				return new TimingSpan(low, low + m_width);
+			}
+		};
+	}
+
+	/**
+	 * Determine if the instant is within an occurrence
+	 */
+	@Override
+	public boolean contains(long instant) {
+		long k = this.floorIndex(instant);
+		if(this.m_count >= 0 && k >= this.m_count)
+			k = this.m_count - 1;
+		for(; this.isValidIndex(k); k--)
+		{
+			long low = this.lowOf(k);
+			if(instant < low + this.m_width)
+				return instant >= low;
+			else if(this.m_width <= this.m_period)
+				return false; // occurrences do not overlap so no earlier one can contain the instant
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,110 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A plan consisting of a fixed, finite list of spans (IVL, QSS or a single TS).
+ * <p>The spans are sorted and merged at compile time so membership is a binary
+ * search over the span bounds</p>
+ */
+class SpanListTimingPlan extends TimingPlan {
+
+	// Lower bounds of the merged spans
+	private final long[] m_lows;
+	// Upper bounds of the merged spans
+	private final long[] m_highs;
+
+	/**
+	 * Creates a new plan from the specified (unordered) spans
+	 */
+	SpanListTimingPlan(List<TimingSpan> spans)
+	{
+		List<TimingSpan> sorted = new ArrayList<TimingSpan>(spans);
+		Collections.sort(sorted);
+
+		List<TimingSpan> merged = new ArrayList<TimingSpan>(sorted.size());
+		for(TimingSpan span : sorted)
+		{
+			if(merged.size() > 0 && merged.get(merged.size() - 1).getHigh() >= span.getLow())
+			{
+				TimingSpan last = merged.get(merged.size() - 1);
+				if(span.getHigh() > last.getHigh())
+					merged.set(merged.size() - 1, new TimingSpan(last.getLow(), span.getHigh()));
+			}
+			else
+				merged.add(span);
+		}
+
+		this.m_lows = new long[merged.size()];
+		this.m_highs = new long[merged.size()];
+		for(int i = 0; i < merged.size(); i++)
+		{
+			this.m_lows[i] = merged.get(i).getLow();
+			this.m_highs[i] = merged.get(i).getHigh();
+		}
+	}
+
+	/**
+	 * Gets the index of the first span whose upper bound is after the instant
+	 */
+	private int firstEndingAfter(long instant)
+	{
+		int lo = 0, hi = this.m_highs.length;
+		while(lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if(this.m_highs[mid] > instant)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Open a cursor over the spans overlapping [from, to)
+	 */
+	@Override
+	public TimingCursor open(final long from, final long to) {
+		final int start = this.firstEndingAfter(from);
+		return new TimingCursor() {
+			private int m_index = start;
+			@Override
+			protected TimingSpan fetch() {
+				if(this.m_index >= m_lows.length || m_lows[this.m_index] >= to)
+					return null;
+				TimingSpan retVal = new TimingSpan(m_lows[this.m_index], m_highs[this.m_index]);
+				this.m_index++;
+				return retVal;
+			}
+		};
+	}
+
+	/**
+	 * Determine if the instant is within one of the spans
+	 */
+	@Override
+	public boolean contains(long instant) {
+		int idx = this.firstEndingAfter(instant);
+		return idx < this.m_lows.length && this.m_lows[idx] <= instant;
+	}
+
+}
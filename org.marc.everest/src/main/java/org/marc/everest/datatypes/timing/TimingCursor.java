@@ -0,0 +1,93 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A forward-only cursor over the occurrences of a compiled timing plan.
+ * <p>Cursors yield spans ordered by their lower bound and compute each span
+ * only when it is requested, so enumerating a long running schedule over a small
+ * window costs only the occurrences actually inside the window</p>
+ */
+public abstract class TimingCursor implements Iterator<TimingSpan> {
+
+	// The span that has been fetched but not yet consumed
+	private TimingSpan m_peeked;
+	// True when the underlying source is exhausted
+	private boolean m_exhausted;
+
+	/**
+	 * Fetch the next span from the source or null when there are no more spans
+	 */
+	protected abstract TimingSpan fetch();
+
+	/**
+	 * Peek at the next span without consuming it
+	 */
+	public TimingSpan peek()
+	{
+		if(this.m_peeked == null && !this.m_exhausted)
+		{
+			this.m_peeked = this.fetch();
+			this.m_exhausted = this.m_peeked == null;
+		}
+		return this.m_peeked;
+	}
+
+	/**
+	 * Returns true when there is another span
+	 */
+	@Override
+	public boolean hasNext() {
+		return this.peek() != null;
+	}
+
+	/**
+	 * Consume the next span
+	 */
+	@Override
+	public TimingSpan next() {
+		TimingSpan retVal = this.peek();
+		if(retVal == null)
+			throw new NoSuchElementException();
+		this.m_peeked = null;
+		return retVal;
+	}
+
+	/**
+	 * Cursors are read-only
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets a cursor that contains no spans
+	 */
+	public static TimingCursor empty()
+	{
+		return new TimingCursor() {
+			@Override
+			protected TimingSpan fetch() {
+				return null;
+			}
+		};
+	}
+}
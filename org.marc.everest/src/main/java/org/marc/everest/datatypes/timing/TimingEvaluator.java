@@ -0,0 +1,401 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.marc.everest.datatypes.GTS;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.SetOperator;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.EIVL;
+import org.marc.everest.datatypes.generic.IVL;
+import org.marc.everest.datatypes.generic.PIVL;
+import org.marc.everest.datatypes.generic.QSD;
+import org.marc.everest.datatypes.generic.QSI;
+import org.marc.everest.datatypes.generic.QSP;
+import org.marc.everest.datatypes.generic.QSS;
+import org.marc.everest.datatypes.generic.QSU;
+import org.marc.everest.datatypes.generic.SXCM;
+import org.marc.everest.datatypes.generic.SXPR;
+import org.marc.everest.datatypes.interfaces.IAny;
+import org.marc.everest.datatypes.interfaces.ISetComponent;
+
+/**
+ * Compiles timing structures into {@link TimingPlan} instances that can be evaluated.
+ * <p>The following structures are supported when bound to TS:</p>
+ * <ul>
+ * 	<li>IVL - A single occurrence from low to high</li>
+ *  <li>PIVL - Occurrences of the phase repeating by period or frequency (optionally limited by count)</li>
+ *  <li>EIVL - Occurrences relative to a domain timing event (requires an {@link ITimingEventResolver})</li>
+ *  <li>SXPR - Terms combined in order using each term's set operator</li>
+ *  <li>QSU, QSI, QSD, QSP and QSS - Union, intersection, difference, periodic hull and enumerated sets</li>
+ *  <li>GTS - The plan of the hull</li>
+ * </ul>
+ * <p>TS values with less than full precision cover the entire unit of precision, for example a TS
+ * of 20140601 represents the entire day of June 1, 2014.</p>
+ */
+public final class TimingEvaluator {
+
+	// The resolver for EIVL events
+	private final ITimingEventResolver m_resolver;
+	// The time zone of the first timestamp encountered
+	private TimeZone m_timeZone;
+
+	/**
+	 * Creates a new evaluator with the specified event resolver
+	 */
+	private TimingEvaluator(ITimingEventResolver resolver)
+	{
+		this.m_resolver = resolver;
+	}
+
+	/**
+	 * Compiles the specified timing structure into an evaluation plan
+	 * @throws UnsupportedOperationException When the structure contains a component which cannot be evaluated
+	 */
+	public static TimingPlan compile(ISetComponent<?> component)
+	{
+		return compile(component, null);
+	}
+
+	/**
+	 * Compiles the specified timing structure into an evaluation plan, using the specified
+	 * resolver to locate the occurrences of events referenced by EIVL components
+	 * @throws UnsupportedOperationException When the structure contains a component which cannot be evaluated
+	 */
+	public static TimingPlan compile(ISetComponent<?> component, ITimingEventResolver resolver)
+	{
+		TimingEvaluator evaluator = new TimingEvaluator(resolver);
+		TimingPlan retVal = evaluator.compileComponent(component);
+		if(evaluator.m_timeZone != null)
+			retVal.setTimeZone(evaluator.m_timeZone);
+		return retVal;
+	}
+
+	/**
+	 * Compile any component
+	 */
+	@SuppressWarnings("unchecked")
+	private TimingPlan compileComponent(IAny component)
+	{
+		if(component == null || component.isNull())
+			throw new UnsupportedOperationException("Cannot evaluate a null or null-flavored timing component");
+
+		if(component instanceof GTS)
+			return this.compileComponent(((GTS)component).getHull());
+		else if(component instanceof TS)
+			return this.compileSpans(this.toSpan((TS)component));
+		else if(component instanceof IVL<?>)
+			return this.compileSpans(this.toSpan((IVL<TS>)component));
+		else if(component instanceof PIVL<?>)
+			return this.compilePivl((PIVL<TS>)component);
+		else if(component instanceof EIVL<?>)
+			return this.compileEivl((EIVL<TS>)component);
+		else if(component instanceof SXPR<?>)
+			return this.compileSxpr((SXPR<TS>)component);
+		else if(component instanceof QSU<?>)
+		{
+			List<TimingPlan> terms = new ArrayList<TimingPlan>();
+			for(ISetComponent<TS> term : (QSU<TS>)component)
+				terms.add(this.compileComponent(term));
+			return new UnionTimingPlan(terms);
+		}
+		else if(component instanceof QSI<?>)
+		{
+			TimingPlan retVal = null;
+			for(ISetComponent<TS> term : (QSI<TS>)component)
+				retVal = retVal == null ? this.compileComponent(term) : new IntersectTimingPlan(retVal, this.compileComponent(term));
+			if(retVal == null)
+				throw new UnsupportedOperationException("QSI must contain terms to be evaluated");
+			return retVal;
+		}
+		else if(component instanceof QSD<?>)
+		{
+			QSD<TS> qsd = (QSD<TS>)component;
+			return new DifferenceTimingPlan(this.compileComponent(qsd.getMinuend()), this.compileComponent(qsd.getSubtrahend()));
+		}
+		else if(component instanceof QSP<?>)
+		{
+			QSP<TS> qsp = (QSP<TS>)component;
+			return new HullTimingPlan(this.compileComponent(qsp.getLow()), this.compileComponent(qsp.getHigh()));
+		}
+		else if(component instanceof QSS<?>)
+		{
+			List<TimingSpan> spans = new ArrayList<TimingSpan>();
+			for(TS term : (QSS<TS>)component)
+				spans.add(this.toSpan(term));
+			return new SpanListTimingPlan(spans);
+		}
+		else if(component instanceof SXCM<?> && ((SXCM<?>)component).getValue() instanceof TS)
+			return this.compileSpans(this.toSpan((TS)((SXCM<?>)component).getValue()));
+
+		throw new UnsupportedOperationException(String.format("Cannot evaluate timing component of type %s", component.getClass().getName()));
+	}
+
+	/**
+	 * Compile a single span
+	 */
+	private TimingPlan compileSpans(TimingSpan span)
+	{
+		List<TimingSpan> spans = new ArrayList<TimingSpan>(1);
+		spans.add(span);
+		return new SpanListTimingPlan(spans);
+	}
+
+	/**
+	 * Compile a set expression by applying each term's operator in order
+	 */
+	private TimingPlan compileSxpr(SXPR<TS> sxpr)
+	{
+		TimingPlan retVal = null;
+		for(SXCM<TS> term : sxpr)
+		{
+			TimingPlan termPlan = this.compileComponent(term);
+			SetOperator operator = term.getOperator() == null ? SetOperator.Inclusive : term.getOperator();
+			if(retVal == null)
+			{
+				retVal = termPlan;
+				continue;
+			}
+
+			switch(operator)
+			{
+				case Inclusive:
+				{
+					List<TimingPlan> union = new ArrayList<TimingPlan>(2);
+					union.add(retVal);
+					union.add(termPlan);
+					retVal = new UnionTimingPlan(union);
+					break;
+				}
+				case Exclusive:
+					retVal = new DifferenceTimingPlan(retVal, termPlan);
+					break;
+				case Intersect:
+					retVal = new IntersectTimingPlan(retVal, termPlan);
+					break;
+				case PeriodicHull:
+					retVal = new HullTimingPlan(retVal, termPlan);
+					break;
+				default:
+					throw new UnsupportedOperationException(String.format("Cannot evaluate set operator %s", operator));
+			}
+		}
+
+		if(retVal == null)
+			throw new UnsupportedOperationException("SXPR must contain terms to be evaluated");
+		return retVal;
+	}
+
+	/**
+	 * Compile a PIVL
+	 */
+	private TimingPlan compilePivl(PIVL<TS> pivl)
+	{
+		IVL<TS> phase = pivl.getPhase();
+		if(phase == null || phase.getLow() == null || phase.getLow().isNull())
+			throw new UnsupportedOperationException("Cannot evaluate a PIVL that is not bound with a Phase having a Low");
+
+		// A phase carrying only a low covers the precision of the low
+		TimingSpan phaseSpan = phase.getHigh() == null && phase.getWidth() == null ? this.toSpan(phase.getLow()) : this.toSpan(phase);
+		Calendar phaseLow = (Calendar)this.toCalendar(phase.getLow()).clone();
+		phaseLow.setTimeInMillis(phaseSpan.getLow());
+		long width = phaseSpan.getHigh() - phaseSpan.getLow();
+
+		long count = -1;
+		if(pivl.getCount() != null && pivl.getCount().getValue() != null)
+			count = pivl.getCount().getValue();
+
+		// Period
+		PQ period = pivl.getPeriod();
+		if(period == null && pivl.getFrequency() != null && pivl.getFrequency().getNumerator() != null && pivl.getFrequency().getDenominator() != null)
+		{
+			long numerator = pivl.getFrequency().getNumerator().getValue(),
+					denominator = toMillis(pivl.getFrequency().getDenominator());
+			if(numerator <= 0)
+				throw new UnsupportedOperationException("PIVL frequency must be positive");
+			return new PeriodicTimingPlan(phaseLow, width, denominator / numerator, count);
+		}
+		else if(period == null || period.getValue() == null)
+			throw new UnsupportedOperationException("Cannot evaluate a PIVL without a period or frequency");
+
+		// Calendar units (or an explicit alignment) step on the calendar so that wall-clock times are
+		// preserved across daylight saving and month lengths are honoured
+		BigDecimal periodValue = period.getValue();
+		boolean isWhole = periodValue.signum() > 0 && periodValue.stripTrailingZeros().scale() <= 0;
+		int field = -1, multiplier = 1;
+		if("d".equals(period.getUnit()))
+			field = Calendar.DATE;
+		else if("wk".equals(period.getUnit()))
+		{
+			field = Calendar.DATE;
+			multiplier = 7;
+		}
+		else if("mo".equals(period.getUnit()))
+			field = Calendar.MONTH;
+		else if("a".equals(period.getUnit()))
+			field = Calendar.YEAR;
+		else if(pivl.getAlignment() != null && "h".equals(period.getUnit()))
+			field = Calendar.HOUR_OF_DAY;
+		else if(pivl.getAlignment() != null && "min".equals(period.getUnit()))
+			field = Calendar.MINUTE;
+
+		long periodMs = toMillis(period);
+		if(field != -1 && isWhole)
+			return new PeriodicTimingPlan(phaseLow, width, periodMs, field, periodValue.intValue() * multiplier, count);
+		return new PeriodicTimingPlan(phaseLow, width, periodMs, count);
+	}
+
+	/**
+	 * Compile an EIVL
+	 */
+	private TimingPlan compileEivl(EIVL<TS> eivl)
+	{
+		if(this.m_resolver == null)
+			throw new UnsupportedOperationException("Cannot evaluate an EIVL without an ITimingEventResolver");
+		else if(eivl.getEvent() == null || eivl.getEvent().getCode() == null)
+			throw new UnsupportedOperationException("Cannot evaluate an EIVL without an event");
+
+		long offsetLow = 0, offsetHigh = 1;
+		IVL<PQ> offset = eivl.getOffset();
+		if(offset != null && !offset.isNull())
+		{
+			if(offset.getLow() != null && !offset.getLow().isNull())
+				offsetLow = toMillis(offset.getLow());
+			if(offset.getHigh() != null && !offset.getHigh().isNull())
+				offsetHigh = toMillis(offset.getHigh());
+			else if(offset.getWidth() != null && !offset.getWidth().isNull())
+				offsetHigh = offsetLow + toMillis(offset.getWidth());
+			else
+				offsetHigh = offsetLow + 1;
+			if(offsetHigh <= offsetLow)
+				offsetHigh = offsetLow + 1;
+		}
+		return new EventTimingPlan(eivl.getEvent().getCode(), this.m_resolver, offsetLow, offsetHigh);
+	}
+
+	/**
+	 * Gets the calendar of a timestamp, recording its time zone
+	 */
+	private Calendar toCalendar(TS ts)
+	{
+		if(ts == null || ts.isNull() || ts.getDateValue() == null)
+			throw new UnsupportedOperationException("Cannot evaluate a timestamp without a value");
+		if(this.m_timeZone == null)
+			this.m_timeZone = ts.getDateValue().getTimeZone();
+		return ts.getDateValue();
+	}
+
+	/**
+	 * Gets the instant at which the unit of precision of the timestamp ends
+	 */
+	private long precisionEnd(TS ts)
+	{
+		Calendar cal = (Calendar)this.toCalendar(ts).clone();
+		int precision = ts.getDateValuePrecision() == null ? TS.FULL : ts.getDateValuePrecision();
+		switch(precision)
+		{
+			case TS.YEAR:
+				cal.add(Calendar.YEAR, 1);
+				break;
+			case TS.MONTH:
+				cal.add(Calendar.MONTH, 1);
+				break;
+			case TS.DAY:
+				cal.add(Calendar.DATE, 1);
+				break;
+			case TS.HOUR:
+			case TS.HOURNOTIMEZONE:
+				cal.add(Calendar.HOUR_OF_DAY, 1);
+				break;
+			case TS.MINUTE:
+			case TS.MINUTENOTIMEZONE:
+				cal.add(Calendar.MINUTE, 1);
+				break;
+			case TS.SECOND:
+			case TS.SECONDNOTIMEZONE:
+				cal.add(Calendar.SECOND, 1);
+				break;
+			default:
+				cal.add(Calendar.MILLISECOND, 1);
+				break;
+		}
+		return cal.getTimeInMillis();
+	}
+
+	/**
+	 * Represent a timestamp as the span covering its precision
+	 */
+	private TimingSpan toSpan(TS ts)
+	{
+		return new TimingSpan(this.toCalendar(ts).getTimeInMillis(), this.precisionEnd(ts));
+	}
+
+	/**
+	 * Represent an interval of timestamps as a span
+	 */
+	private TimingSpan toSpan(IVL<TS> ivl)
+	{
+		if(ivl.isNull())
+			throw new UnsupportedOperationException("Cannot evaluate a null-flavored IVL");
+
+		TS low = ivl.getLow() == null || ivl.getLow().isNull() ? null : ivl.getLow(),
+				high = ivl.getHigh() == null || ivl.getHigh().isNull() ? null : ivl.getHigh();
+		if(low == null && high == null && ivl.getValue() != null)
+			return this.toSpan(ivl.getValue());
+
+		Long width = ivl.getWidth() == null || ivl.getWidth().isNull() ? null : toMillis(ivl.getWidth());
+		boolean lowInclusive = ivl.getLowInclusive() == null || ivl.getLowInclusive(),
+				highInclusive = ivl.getHighInclusive() == null || ivl.getHighInclusive();
+
+		long lowMs, highMs;
+		if(low != null)
+			lowMs = lowInclusive ? this.toCalendar(low).getTimeInMillis() : this.precisionEnd(low);
+		else if(high != null && width != null)
+			lowMs = this.toCalendar(high).getTimeInMillis() - width;
+		else
+			lowMs = TimingPlan.MIN_INSTANT;
+
+		if(high != null)
+			highMs = highInclusive ? this.precisionEnd(high) : this.toCalendar(high).getTimeInMillis();
+		else if(low != null && width != null)
+			highMs = lowMs + width;
+		else
+			highMs = TimingPlan.MAX_INSTANT;
+
+		if(highMs <= lowMs)
+			highMs = lowMs + 1;
+		return new TimingSpan(lowMs, highMs);
+	}
+
+	/**
+	 * Convert a time quantity to milliseconds
+	 */
+	private static long toMillis(PQ pq)
+	{
+		if(pq.getValue() == null)
+			throw new UnsupportedOperationException("Cannot evaluate a duration without a value");
+		else if(!PQ.isValidTimeFlavor(pq))
+			throw new UnsupportedOperationException(String.format("Unit '%s' is not a unit of time", pq.getUnit()));
+		return pq.convert("ms").getValue().longValue();
+	}
+}
@@ -0,0 +1,115 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.IVL;
+
+/**
+ * Represents a timing structure (GTS, PIVL, EIVL, SXPR, QSET) that has been compiled
+ * into an interval arithmetic plan.
+ * <p>Plans are immutable once compiled and may be evaluated many times (and from many
+ * threads). Use {@link TimingEvaluator#compile(org.marc.everest.datatypes.interfaces.ISetComponent)}
+ * to obtain a plan</p>
+ */
+public abstract class TimingPlan {
+
+	/**
+	 * The lowest instant a plan will ever be asked about
+	 */
+	protected static final long MIN_INSTANT = Long.MIN_VALUE / 4;
+	/**
+	 * The highest instant a plan will ever be asked about
+	 */
+	protected static final long MAX_INSTANT = Long.MAX_VALUE / 4;
+
+	// The time zone used to represent occurrences
+	private TimeZone m_timeZone = TimeZone.getDefault();
+
+	/**
+	 * Opens a cursor over the occurrences of this plan which overlap [from, to)
+	 * <p>Occurrences are ordered by their lower bound and are not clipped to the window</p>
+	 */
+	public abstract TimingCursor open(long from, long to);
+
+	/**
+	 * Returns true if the specified instant falls within an occurrence of this plan
+	 */
+	public abstract boolean contains(long instant);
+
+	/**
+	 * Gets the time zone in which occurrences are represented
+	 */
+	public TimeZone getTimeZone() { return this.m_timeZone; }
+	/**
+	 * Sets the time zone in which occurrences are represented
+	 */
+	void setTimeZone(TimeZone value) { this.m_timeZone = value; }
+
+	/**
+	 * Returns true if the specified timestamp falls within an occurrence of this plan
+	 */
+	public boolean contains(TS instant)
+	{
+		if(instant == null || instant.isNull() || instant.getDateValue() == null)
+			return false;
+		return this.contains(instant.getDateValue().getTimeInMillis());
+	}
+
+	/**
+	 * Gets a list of all occurrences of this plan that overlap the window [from, to)
+	 */
+	public List<IVL<TS>> getOccurrences(TS from, TS to)
+	{
+		if(from == null || to == null || from.getDateValue() == null || to.getDateValue() == null)
+			throw new IllegalArgumentException("A bound window is required to enumerate occurrences");
+		List<IVL<TS>> retVal = new ArrayList<IVL<TS>>();
+		TimingCursor cursor = this.open(from.getDateValue().getTimeInMillis(), to.getDateValue().getTimeInMillis());
+		while(cursor.hasNext())
+			retVal.add(cursor.next().toIvl(this.m_timeZone));
+		return retVal;
+	}
+
+	/**
+	 * Finds the last occurrence whose lower bound is at or before the instant, searching
+	 * back through exponentially growing windows. Returns null if there is none
+	 */
+	protected TimingSpan floor(long instant)
+	{
+		long lookBack = 3600000L; // one hour
+		while(true)
+		{
+			long from = lookBack >= instant - MIN_INSTANT ? MIN_INSTANT : instant - lookBack;
+			TimingSpan retVal = null;
+			TimingCursor cursor = this.open(from, instant + 1);
+			while(cursor.hasNext())
+			{
+				TimingSpan span = cursor.next();
+				if(span.getLow() > instant)
+					break;
+				retVal = span;
+			}
+			if(retVal != null || from == MIN_INSTANT)
+				return retVal;
+			lookBack = lookBack > MAX_INSTANT ? Long.MAX_VALUE : lookBack * 4;
+		}
+	}
+}
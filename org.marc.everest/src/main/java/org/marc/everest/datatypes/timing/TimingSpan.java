@@ -0,0 +1,131 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.IVL;
+
+/**
+ * Represents a single occurrence produced by a compiled timing plan.
+ * <p>A span is a half-open range of instants [low, high) expressed in milliseconds
+ * since the epoch. Spans always cover at least one millisecond and are immutable so
+ * they may be shared between cursors</p>
+ */
+public final class TimingSpan implements Comparable<TimingSpan> {
+
+	// backing field for low
+	private final long m_low;
+	// backing field for high
+	private final long m_high;
+
+	/**
+	 * Creates a new timing span covering [low, high)
+	 * @param low The inclusive lower bound of the span
+	 * @param high The exclusive upper bound of the span
+	 */
+	public TimingSpan(long low, long high)
+	{
+		if(high <= low)
+			throw new IllegalArgumentException("high must be greater than low");
+		this.m_low = low;
+		this.m_high = high;
+	}
+
+	/**
+	 * Gets the inclusive lower bound of the span
+	 */
+	public long getLow() { return this.m_low; }
+	/**
+	 * Gets the exclusive upper bound of the span
+	 */
+	public long getHigh() { return this.m_high; }
+
+	/**
+	 * Returns true if the instant is contained in this span
+	 */
+	public boolean contains(long instant)
+	{
+		return instant >= this.m_low && instant < this.m_high;
+	}
+
+	/**
+	 * Returns true if this span overlaps [from, to)
+	 */
+	public boolean overlaps(long from, long to)
+	{
+		return this.m_low < to && this.m_high > from;
+	}
+
+	/**
+	 * Represent this span as an IVL of TS in the specified time zone
+	 */
+	public IVL<TS> toIvl(TimeZone zone)
+	{
+		Calendar low = Calendar.getInstance(zone), high = Calendar.getInstance(zone);
+		low.setTimeInMillis(this.m_low);
+		high.setTimeInMillis(this.m_high);
+		return new IVL<TS>(new TS(low), true, new TS(high), false);
+	}
+
+	/**
+	 * Compare by lower bound then upper bound
+	 */
+	@Override
+	public int compareTo(TimingSpan o) {
+		if(this.m_low != o.m_low)
+			return this.m_low < o.m_low ? -1 : 1;
+		else if(this.m_high != o.m_high)
+			return this.m_high < o.m_high ? -1 : 1;
+		return 0;
+	}
+
+	/**
+	 * Calculate the hash code
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (m_high ^ (m_high >>> 32));
+		result = prime * result + (int) (m_low ^ (m_low >>> 32));
+		return result;
+	}
+
+	/**
+	 * Determine value equality
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof TimingSpan))
+			return false;
+		TimingSpan other = (TimingSpan) obj;
+		return this.m_low == other.m_low && this.m_high == other.m_high;
+	}
+
+	/**
+	 * Represent the span as a string
+	 */
+	@Override
+	public String toString() {
+		return String.format("[%d .. %d)", this.m_low, this.m_high);
+	}
+}
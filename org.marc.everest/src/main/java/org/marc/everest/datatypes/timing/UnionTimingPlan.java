@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.datatypes.timing;
+
+import java.util.List;
+
+/**
+ * A plan representing the union of its terms (QSU, or inclusive SXCM terms)
+ */
+class UnionTimingPlan extends TimingPlan {
+
+	// The terms of the union
+	private final TimingPlan[] m_terms;
+
+	/**
+	 * Creates a new union of the specified terms
+	 */
+	UnionTimingPlan(List<TimingPlan> terms)
+	{
+		this.m_terms = terms.toArray(new TimingPlan[terms.size()]);
+	}
+
+	/**
+	 * Open a cursor which merges the cursors of each term in order
+	 */
+	@Override
+	public TimingCursor open(long from, long to) {
+		final TimingCursor[] cursors = new TimingCursor[this.m_terms.length];
+		for(int i = 0; i < cursors.length; i++)
+			cursors[i] = this.m_terms[i].open(from, to);
+		return new CoalescingCursor(new TimingCursor() {
+			@Override
+			protected TimingSpan fetch() {
+				TimingCursor lowest = null;
+				for(TimingCursor cursor : cursors)
+					if(cursor.hasNext() && (lowest == null || cursor.peek().compareTo(lowest.peek()) < 0))
+						lowest = cursor;
+				return lowest == null ? null : lowest.next();
+			}
+		});
+	}
+
+	/**
+	 * The instant is contained if any term contains it
+	 */
+	@Override
+	public boolean contains(long instant) {
+		for(TimingPlan term : this.m_terms)
+			if(term.contains(instant))
+				return true;
+		return false;
+	}
+
+}
@@ -0,0 +1,209 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.formatters;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.marc.everest.datatypes.BL;
+import org.marc.everest.datatypes.ED;
+import org.marc.everest.datatypes.GTS;
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.SC;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.datatypes.TEL;
+import org.marc.everest.datatypes.generic.IVL;
+import org.marc.everest.datatypes.interfaces.IFlavorValidator;
+
+/**
+ * A registry of the flavor validators known to Everest.
+ * <p>The registry is populated from a static table of typed validators which call the 
+ * flavor methods of the data types directly, so validating a flavor neither scans the 
+ * class path nor invokes validators reflectively. Flavor names are matched without regard 
+ * to case.</p>
+ */
+public final class FlavorValidatorRegistry {
+
+	/**
+	 * A registered validator and the type of instance it accepts
+	 */
+	private static final class Registration<T> {
+		
+		// The type of instance the validator accepts
+		private final Class<T> m_type;
+		// The validator
+		private final IFlavorValidator<? super T> m_validator;
+		
+		/**
+		 * Creates a new registration
+		 */
+		Registration(Class<T> type, IFlavorValidator<? super T> validator)
+		{
+			this.m_type = type;
+			this.m_validator = validator;
+		}
+		
+		/**
+		 * Validate the instance, an instance of the wrong type does not conform
+		 */
+		boolean validate(Object instance)
+		{
+			return this.m_type.isInstance(instance) && this.m_validator.validate(this.m_type.cast(instance));
+		}
+	}
+	
+	// The registered validators, replaced (never modified) on registration so lookups need no lock
+	private static volatile Map<String, Registration<?>> s_validators = new TreeMap<String, Registration<?>>(String.CASE_INSENSITIVE_ORDER);
+	
+	static {
+		register("BL.NONNULL", BL.class, new IFlavorValidator<BL>() {
+			public boolean validate(BL instance) { return BL.isValidNonNullFlavor(instance); }
+		});
+		register("ED.TEXT", ED.class, new IFlavorValidator<ED>() {
+			public boolean validate(ED instance) { return ED.isValidTextFlavor(instance); }
+		});
+		register("ED.IMAGE", ED.class, new IFlavorValidator<ED>() {
+			public boolean validate(ED instance) { return ED.isValidImageFlavor(instance); }
+		});
+		register("ED.SIGNATURE", ED.class, new IFlavorValidator<ED>() {
+			public boolean validate(ED instance) { return ED.isValidSignatureFlavor(instance); }
+		});
+		register("GTS.BOUNDEDPIVL", GTS.class, new IFlavorValidator<GTS>() {
+			public boolean validate(GTS instance) { return GTS.IsBoundedPivlFlavor(instance); }
+		});
+		register("II.TOKEN", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidTokenFlavor(instance); }
+		});
+		register("II.PUBLIC", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidPublicFlavor(instance); }
+		});
+		register("II.OID", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidOidFlavor(instance); }
+		});
+		register("II.BUS", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidBusFlavor(instance); }
+		});
+		register("II.VER", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidVerFlavor(instance); }
+		});
+		register("II.BUS_AND_VER", II.class, new IFlavorValidator<II>() {
+			public boolean validate(II instance) { return II.isValidBusAndVerFlavor(instance); }
+		});
+		register("INT.POS", INT.class, new IFlavorValidator<INT>() {
+			public boolean validate(INT instance) { return INT.isValidPosFlavor(instance); }
+		});
+		register("INT.NONNEG", INT.class, new IFlavorValidator<INT>() {
+			public boolean validate(INT instance) { return INT.isValidNonNegFlavor(instance); }
+		});
+		register("IVL.WIDTH", IVL.class, new IFlavorValidator<IVL<?>>() {
+			public boolean validate(IVL<?> instance) { return IVL.isValidWidthFlavor(instance); }
+		});
+		register("IVL.HIGH", IVL.class, new IFlavorValidator<IVL<?>>() {
+			public boolean validate(IVL<?> instance) { return IVL.isValidHighFlavor(instance); }
+		});
+		register("IVL.LOW", IVL.class, new IFlavorValidator<IVL<?>>() {
+			public boolean validate(IVL<?> instance) { return IVL.isValidLowFlavor(instance); }
+		});
+		register("PQ.TIME", PQ.class, new IFlavorValidator<PQ>() {
+			public boolean validate(PQ instance) { return PQ.isValidTimeFlavor(instance); }
+		});
+		register("SC.NT", SC.class, new IFlavorValidator<SC>() {
+			public boolean validate(SC instance) { return SC.isValidNtFlavor(instance); }
+		});
+		register("ST.NT", ST.class, new IFlavorValidator<ST>() {
+			public boolean validate(ST instance) { return ST.isValidNoTranslationsFlavor(instance); }
+		});
+		register("ST.SIMPLE", ST.class, new IFlavorValidator<ST>() {
+			public boolean validate(ST instance) { return ST.isValidSimpleFlavor(instance); }
+		});
+		register("TEL.URL", TEL.class, new IFlavorValidator<TEL>() {
+			public boolean validate(TEL instance) { return TEL.isValidUrlFlavor(instance); }
+		});
+		register("TEL.URI", TEL.class, new IFlavorValidator<TEL>() {
+			public boolean validate(TEL instance) { return TEL.isValidUriFlavor(instance); }
+		});
+		register("TEL.PERSON", TEL.class, new IFlavorValidator<TEL>() {
+			public boolean validate(TEL instance) { return TEL.isValidPersonFlavor(instance); }
+		});
+		register("TEL.PHONE", TEL.class, new IFlavorValidator<TEL>() {
+			public boolean validate(TEL instance) { return TEL.isValidPhoneFlavor(instance); }
+		});
+		register("TEL.EMAIL", TEL.class, new IFlavorValidator<TEL>() {
+			public boolean validate(TEL instance) { return TEL.isValidEMailFlavor(instance); }
+		});
+	}
+	
+	/**
+	 * Static class
+	 */
+	private FlavorValidatorRegistry() { }
+	
+	/**
+	 * Register a validator for the specified flavor, replacing any existing validator
+	 * @param flavor The name of the flavor (for example II.OID)
+	 * @param type The type of instance the validator accepts
+	 * @param validator The validator
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static <T> void register(String flavor, Class<? super T> type, IFlavorValidator<T> validator)
+	{
+		if(flavor == null)
+			throw new IllegalArgumentException("flavor");
+		else if(type == null)
+			throw new IllegalArgumentException("type");
+		else if(validator == null)
+			throw new IllegalArgumentException("validator");
+		
+		synchronized (FlavorValidatorRegistry.class) {
+			Map<String, Registration<?>> validators = new TreeMap<String, Registration<?>>(String.CASE_INSENSITIVE_ORDER);
+			validators.putAll(s_validators);
+			validators.put(flavor, new Registration(type, validator));
+			s_validators = validators;
+		}
+	}
+	
+	/**
+	 * Returns true if a validator is registered for the specified flavor
+	 */
+	public static boolean isRegistered(String flavor)
+	{
+		return flavor != null && s_validators.containsKey(flavor);
+	}
+	
+	/**
+	 * Validate the instance against the specified flavor.
+	 * @return True if the instance conforms to the flavor or if the flavor is not known
+	 */
+	public static boolean validate(String flavor, Object instance)
+	{
+		if(flavor == null)
+			return true;
+		Registration<?> registration = s_validators.get(flavor);
+		if(registration == null)
+			return true; // couldn't find flavor
+		try
+		{
+			return registration.validate(instance);
+		}
+		catch(RuntimeException e)
+		{
+			return false;
+		}
+	}
+}
@@ -6,8 +6,9 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.marc.everest.annotations.ConformanceType;
 import org.marc.everest.annotations.Properties;
@@ -34,7 +35,7 @@ public class FormatterElementContext {
 	// Value context
 	private Object m_instance;
 	// Cached method scan
-	private static HashMap<Class<?>, List<Method>> s_cachedMethodScan = new HashMap<Class<?>, List<Method>>();
+	private static ConcurrentMap<Class<?>, List<Method>> s_cachedMethodScan = new ConcurrentHashMap<Class<?>, List<Method>>();
 	
 	/**
 	 * @return the instance
@@ -396,16 +397,19 @@ public class FormatterElementContext {
 	/**
 	 * Deep scan a class for methods
 	 */
-	private synchronized List<Method> deepScanMethods(Class<?> clazz)
+	private List<Method> deepScanMethods(Class<?> clazz)
 	{
 		
-		// Cached check
-		if(s_cachedMethodScan.containsKey(clazz))
-			return s_cachedMethodScan.get(clazz);
+		// Cached check, the cache is shared by every context so formatters may scan concurrently
+		List<Method> cached = s_cachedMethodScan.get(clazz);
+		if(cached != null)
+			return cached;
 		
 		List<Method> retVal = new ArrayList<Method>();
 		for(Method m : clazz.getMethods())
 		{
+			if(m.isBridge()) // Covariant overrides also carry the annotation
+				continue;
 			Property prop = m.getAnnotation(Property.class);
 			Properties props = m.getAnnotation(Properties.class);
 			if(prop != null || props != null)
@@ -414,10 +418,9 @@ public class FormatterElementContext {
 		if(clazz.getSuperclass() != null)
 			retVal.addAll(deepScanMethods(FormatterUtil.getClassForType(clazz.getGenericSuperclass(), this)));
 		
-		// Put the cache method
-		s_cachedMethodScan.put(clazz, retVal);
-		
-		return retVal;
+		// Put the cache method, keeping the scan of another thread which got there first
+		cached = s_cachedMethodScan.putIfAbsent(clazz, retVal);
+		return cached != null ? cached : retVal;
 	}
 	
 	/**
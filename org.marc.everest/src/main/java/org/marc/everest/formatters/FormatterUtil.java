@@ -34,8 +34,12 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.stream.XMLInputFactory;
@@ -43,19 +47,16 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
-import org.marc.everest.annotations.Flavor;
 import org.marc.everest.annotations.Property;
 import org.marc.everest.annotations.Structure;
 import org.marc.everest.annotations.StructureType;
 import org.marc.everest.annotations.TypeMap;
 import org.marc.everest.annotations.TypeMaps;
-import org.marc.everest.datatypes.II;
 import org.marc.everest.datatypes.generic.PIVL;
 import org.marc.everest.datatypes.interfaces.ICodedSimple;
 import org.marc.everest.exceptions.FormatterException;
 import org.marc.everest.exceptions.VocabularyException;
 import org.marc.everest.interfaces.IEnumeratedVocabulary;
-import org.marc.everest.util.ClassEnumerator;
 import org.marc.everest.xml.XMLStateStreamWriter;
 
 
@@ -65,11 +66,9 @@ import org.marc.everest.xml.XMLStateStreamWriter;
 public class FormatterUtil {
 
 	// Wire mapping shortcut
-	private static HashMap<String, Method> s_wireMaps = new HashMap<String, Method>();
-	// Flavor validators
-	private static HashMap<String, Method> s_flavorValidators = new HashMap<String, Method>();
-	// Setter methods
-	private static HashMap<Class<?>, HashMap<String, Method>> s_setMethods = new HashMap<Class<?>, HashMap<String,Method>>();
+	private static ConcurrentMap<String, Method> s_wireMaps = new ConcurrentHashMap<String, Method>();
+	// Setter methods, the setters of a class are kept in a synchronized map as a getter may have no setter
+	private static ConcurrentMap<Class<?>, Map<String, Method>> s_setMethods = new ConcurrentHashMap<Class<?>, Map<String,Method>>();
 	
 	/**
 	 * Returns true when the class implements an interface
@@ -211,10 +210,7 @@ public class FormatterUtil {
 				mi = findConverter(DatatypeConverter.class, value.getClass(), rawDestType);
 			
 			if(mi != null)
-				synchronized (s_wireMaps) {
-					if(!s_wireMaps.containsKey(converterName))
-					s_wireMaps.put(converterName, mi);
-				}
+				s_wireMaps.putIfAbsent(converterName, mi);
 			else // uh-oh, what to do here? I don't know
 				;
 		}
@@ -479,17 +475,18 @@ public class FormatterUtil {
 	public static Method getSetterMethod(String getterName, Class<?> returnType, Class<?> containingClass)
 	{
 		// Has this class been scanned before?
-		HashMap<String, Method> cachedSetters = s_setMethods.get(containingClass);
+		Map<String, Method> cachedSetters = s_setMethods.get(containingClass);
 		
 		// yes?
 		if(cachedSetters != null && cachedSetters.containsKey(getterName))
 			return cachedSetters.get(getterName);
-		else
-			synchronized (s_setMethods) {
-				cachedSetters = new HashMap<String, Method>();
-				if(!s_setMethods.containsKey(containingClass))
-					s_setMethods.put(containingClass, cachedSetters);	
-			}
+		else if(cachedSetters == null)
+		{
+			cachedSetters = Collections.synchronizedMap(new HashMap<String, Method>());
+			Map<String, Method> existing = s_setMethods.putIfAbsent(containingClass, cachedSetters);
+			if(existing != null)
+				cachedSetters = existing;
+		}
 			
 		// The more expensive operations
 		if(!getterName.startsWith("get"))
@@ -514,9 +511,7 @@ public class FormatterUtil {
 		}
 		
 		// register
-		synchronized (cachedSetters) {
-			cachedSetters.put(getterName, rv);
-		}
+		cachedSetters.put(getterName, rv);
 
 		return rv;
 		/*
@@ -594,47 +589,10 @@ public class FormatterUtil {
 
 	/**
 	 * Validate results
+	 * @see FlavorValidatorRegistry#validate(String, Object)
 	 */
 	public static boolean validateFlavor(String flavor, Object instance) {
-        
-        // JF - Makes this much faster
-        Method validatorMi = findFlavorValidator(flavor);
-        if (validatorMi != null)
-			try {
-				return (Boolean)validatorMi.invoke(null, instance);
-			} catch (Exception e) {
-				return false;
-			}
-
-        return true; // couldn't find flavor
-	}
-
-	/**
-	 * Find a flavor validator
-	 */
-	private static Method findFlavorValidator(String flavor) {
-
-		// Has there been any flavor validators loaded?
-		if(s_flavorValidators.size() == 0)
-			synchronized (s_flavorValidators) {
-				if(s_flavorValidators.size() == 0)
-				{
-					for(Class<?> clazz : ClassEnumerator.loadClassesInPackage(II.class))
-					{
-						if(clazz.getAnnotation(Structure.class) != null)
-							for(Method meth : clazz.getMethods())
-								if(Modifier.isStatic(meth.getModifiers()) &&
-										meth.getParameterTypes().length == 1 &&
-										meth.getReturnType().equals(Boolean.class) &&
-										meth.getAnnotation(Flavor.class) != null
-									)
-								{
-									s_flavorValidators.put(meth.getAnnotation(Flavor.class).name(), meth);
-								}
-					}
-				}
-			}
-		return s_flavorValidators.get(flavor);
+		return FlavorValidatorRegistry.validate(flavor, instance);
 	}
 
 	/**
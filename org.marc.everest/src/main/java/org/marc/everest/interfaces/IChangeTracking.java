@@ -0,0 +1,33 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.interfaces;
+
+/**
+ * Identifies that a class tracks whether it has been modified. 
+ * <p>Instances carry a modification stamp which increases each time one of their setters is 
+ * called. Consumers such as validation caches record the stamp once they have processed the 
+ * instance so that later passes can skip instances whose stamp has not moved since, without
+ * modifying the instance. Generated structures can implement this interface by incrementing 
+ * a counter in each setter</p>
+ */
+public interface IChangeTracking {
+
+	/**
+	 * Gets the modification stamp of the object, which increases each time the object is modified
+	 */
+	long getModificationStamp();
+}
@@ -0,0 +1,78 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import java.io.ByteArrayInputStream;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.interfaces.IStructureFormatter;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * A pipeline stage which parses raw messages with a formatter such as the XmlIts1Formatter.
+ * The result has the same form as a message received from a connector so the stages after
+ * it can be shared with pipelines fed by a connector.
+ */
+public class ParseStage implements IPipelineStage<byte[], IReceiveResult> {
+
+	// The formatter used to parse messages
+	private final IStructureFormatter m_formatter;
+	
+	/**
+	 * Creates a new parse stage using the specified formatter
+	 */
+	public ParseStage(IStructureFormatter formatter)
+	{
+		if(formatter == null)
+			throw new IllegalArgumentException("formatter");
+		this.m_formatter = formatter;
+	}
+	
+	/**
+	 * Gets the formatter used to parse messages
+	 */
+	public IStructureFormatter getFormatter() {
+		return this.m_formatter;
+	}
+	
+	/**
+	 * Parse the message
+	 */
+	@Override
+	public IReceiveResult process(byte[] input) {
+		final IFormatterParseResult result = this.m_formatter.parse(new ByteArrayInputStream(input));
+		return new IReceiveResult() {
+			@Override
+			public ResultCodeType getCode() {
+				return result.getCode();
+			}
+			@Override
+			public Iterable<IResultDetail> getDetails() {
+				return result.getDetails();
+			}
+			@Override
+			public IGraphable getStructure() {
+				return result.getStructure();
+			}
+		};
+	}
+
+}
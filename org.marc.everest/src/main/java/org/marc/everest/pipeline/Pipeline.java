@@ -0,0 +1,343 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.IReceivingConnector;
+import org.marc.everest.interfaces.IDisposable;
+import org.marc.everest.pipeline.interfaces.ICorrelationKeySelector;
+import org.marc.everest.pipeline.interfaces.IPipelineErrorHandler;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * Represents a chain of stages which process messages concurrently.
+ * <p>Each stage runs on its own worker threads with bounded queues, so a message can be parsed 
+ * while the previous one is validated and the one before that is dispatched. When a stage falls
+ * behind its queues fill and the stages before it (and finally submit) wait, which keeps memory
+ * use and latency predictable under load. Messages with the same correlation key pass through 
+ * every stage in the order they were submitted, messages with different keys are processed in
+ * parallel.</p>
+ * <p>The output of each stage is handed to the next, a stage returning null ends the processing
+ * of that message. The future returned by submit completes with the output of the last stage, or
+ * with the error of the stage which failed. The following example receives messages from a connector,
+ * validates them and routes them by interaction type:</p>
+ * <pre>
+ * RouteStage router = new RouteStage();
+ * router.addRoute(PRPA_IN101301UV02.class, registrationHandler);
+ * Pipeline&lt;IReceiveResult&gt; pipeline = new Pipeline&lt;IReceiveResult&gt;();
+ * pipeline.addStage("validate", new ValidateStage(), 2, 100);
+ * pipeline.addStage("route", router, 8, 100);
+ * pipeline.addStage("respond", new SendStage(responseConnector), 1, 100);
+ * pipeline.open();
+ * pipeline.connect(receivingConnector);
+ * </pre>
+ * @param <I> The type of message submitted to the pipeline
+ */
+public class Pipeline<I> implements IDisposable {
+
+	// The number of pipelines created, used to name threads
+	private static final AtomicInteger s_pipelineCount = new AtomicInteger();
+	
+	// Selects the correlation key of submitted messages, may be null
+	private final ICorrelationKeySelector<? super I> m_keySelector;
+	// The stages
+	private final List<StageRunner> m_stages = new ArrayList<StageRunner>();
+	// Threads receiving messages from connectors
+	private final List<Thread> m_pumps = new ArrayList<Thread>();
+	// Notified when a stage fails, may be null
+	private IPipelineErrorHandler m_errorHandler;
+	// Prevents messages being submitted while the pipeline is opened or closed
+	private final ReadWriteLock m_openLock = new ReentrantReadWriteLock();
+	// True when the pipeline is open
+	private volatile boolean m_isOpen;
+	
+	/**
+	 * Creates a new pipeline which processes messages in any order
+	 */
+	public Pipeline()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Creates a new pipeline which processes messages with the same correlation key in order
+	 */
+	public Pipeline(ICorrelationKeySelector<? super I> keySelector)
+	{
+		this.m_keySelector = keySelector;
+	}
+	
+	/**
+	 * Add a stage to the end of the pipeline
+	 * @param name The name of the stage, used to name threads and report errors
+	 * @param stage The stage
+	 * @param concurrency The number of worker threads running the stage
+	 * @param queueSize The number of messages each worker thread can hold before the previous stage waits
+	 */
+	public void addStage(String name, IPipelineStage<?, ?> stage, int concurrency, int queueSize)
+	{
+		this.addStage(name, stage, concurrency, queueSize, 1);
+	}
+	
+	/**
+	 * Add a stage to the end of the pipeline which processes up to batchSize waiting messages at once
+	 * @param name The name of the stage, used to name threads and report errors
+	 * @param stage The stage, batches are only passed to an IBatchPipelineStage
+	 * @param concurrency The number of worker threads running the stage
+	 * @param queueSize The number of messages each worker thread can hold before the previous stage waits
+	 * @param batchSize The maximum number of messages processed at once
+	 */
+	public void addStage(String name, IPipelineStage<?, ?> stage, int concurrency, int queueSize, int batchSize)
+	{
+		if(name == null)
+			throw new IllegalArgumentException("name");
+		else if(stage == null)
+			throw new IllegalArgumentException("stage");
+		else if(concurrency < 1 || queueSize < 1 || batchSize < 1)
+			throw new IllegalArgumentException("concurrency, queueSize and batchSize must be positive");
+		
+		this.m_openLock.writeLock().lock();
+		try
+		{
+			if(this.m_isOpen)
+				throw new IllegalStateException("Stages cannot be added to an open pipeline");
+			this.m_stages.add(new StageRunner(name, stage, concurrency, queueSize, batchSize));
+		}
+		finally
+		{
+			this.m_openLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Sets the handler notified when a stage fails to process a message
+	 */
+	public void setErrorHandler(IPipelineErrorHandler errorHandler) {
+		this.m_errorHandler = errorHandler;
+	}
+	
+	/**
+	 * Gets the handler notified when a stage fails to process a message
+	 */
+	public IPipelineErrorHandler getErrorHandler() {
+		return this.m_errorHandler;
+	}
+	
+	/**
+	 * Gets the names of the stages in order
+	 */
+	public List<String> getStageNames() {
+		List<String> retVal = new ArrayList<String>(this.m_stages.size());
+		for(StageRunner stage : this.m_stages)
+			retVal.add(stage.getName());
+		return retVal;
+	}
+	
+	/**
+	 * Start the worker threads of every stage
+	 */
+	public void open() {
+		this.m_openLock.writeLock().lock();
+		try
+		{
+			if(this.m_isOpen)
+				return;
+			else if(this.m_stages.isEmpty())
+				throw new IllegalStateException("The pipeline has no stages");
+			
+			String threadPrefix = String.format("Pipeline-%d", s_pipelineCount.incrementAndGet());
+			for(int i = this.m_stages.size() - 1; i >= 0; i--)
+				this.m_stages.get(i).start(threadPrefix, i + 1 < this.m_stages.size() ? this.m_stages.get(i + 1) : null, this.m_errorHandler);
+			this.m_isOpen = true;
+		}
+		finally
+		{
+			this.m_openLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Submit a message to the first stage, waiting while the first stage is full
+	 * @return A future which completes with the output of the last stage the message passed through
+	 */
+	public Future<Object> submit(I input) throws InterruptedException {
+		PipelineMessage message = new PipelineMessage(this.m_keySelector == null ? null : this.m_keySelector.getKey(input), input);
+		this.m_openLock.readLock().lock();
+		try
+		{
+			if(!this.m_isOpen)
+				throw new IllegalStateException("Pipeline not open");
+			this.m_stages.get(0).put(message);
+		}
+		finally
+		{
+			this.m_openLock.readLock().unlock();
+		}
+		return message.getFuture();
+	}
+	
+	/**
+	 * Submit every message received by the connector to the pipeline on a background thread. The first stage
+	 * must accept IReceiveResult. The connector should be closed before the pipeline so the background thread
+	 * is not left waiting for a message.
+	 * <p>A message taken from the connector is always handed to the first stage, even when the pipeline is
+	 * closed meanwhile, since close waits for the background thread before stopping the stages. Errors receiving
+	 * or submitting a message are reported to the error handler under the name of the thread, and the thread 
+	 * continues with the next message.</p>
+	 */
+	public void connect(final IReceivingConnector connector) {
+		if(connector == null)
+			throw new IllegalArgumentException("connector");
+		else if(!this.m_isOpen)
+			throw new IllegalStateException("Pipeline not open");
+		
+		final String pumpName = String.format("Pipeline-%s", connector.getClass().getSimpleName());
+		Thread pump = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				pump(pumpName, connector);
+			}
+		}, pumpName);
+		pump.setDaemon(true);
+		synchronized (this.m_pumps) {
+			this.m_pumps.add(pump);
+		}
+		pump.start();
+	}
+	
+	/**
+	 * Receive messages from the connector and hand them to the first stage until either is closed
+	 */
+	@SuppressWarnings("unchecked")
+	private void pump(String pumpName, IReceivingConnector connector) {
+		while(this.m_isOpen && connector.isOpen())
+		{
+			IReceiveResult received = null;
+			try
+			{
+				received = connector.receive();
+				if(received == null)
+					continue;
+				PipelineMessage message = new PipelineMessage(this.m_keySelector == null ? null : this.m_keySelector.getKey((I)received), received);
+				this.handOff(message);
+			}
+			catch(Throwable e)
+			{
+				// Receiving fails once the connector or pipeline is closed
+				if(this.m_isOpen && connector.isOpen())
+					this.reportError(pumpName, received, e);
+			}
+		}
+	}
+	
+	/**
+	 * Hand a message which has already been taken from a connector to the first stage. The pump is 
+	 * interrupted when closing, the stages keep running until it finishes so the message is still
+	 * handed over
+	 */
+	private void handOff(PipelineMessage message) {
+		boolean interrupted = false;
+		try
+		{
+			while(true)
+				try
+				{
+					this.m_stages.get(0).put(message);
+					return;
+				}
+				catch(InterruptedException e)
+				{
+					interrupted = true;
+				}
+		}
+		finally
+		{
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Notify the error handler of a failure outside of a stage
+	 */
+	private void reportError(String name, Object input, Throwable error) {
+		IPipelineErrorHandler errorHandler = this.m_errorHandler;
+		if(errorHandler != null)
+			try
+			{
+				errorHandler.handleError(name, input, error);
+			}
+			catch(Throwable e)
+			{
+				// A failing error handler must not stop the pump
+			}
+	}
+	
+	/**
+	 * Close the pipeline once the messages already submitted have passed through every stage
+	 */
+	@Override
+	public void close() {
+		this.m_openLock.writeLock().lock();
+		try
+		{
+			if(!this.m_isOpen)
+				return;
+			this.m_isOpen = false;
+		}
+		finally
+		{
+			this.m_openLock.writeLock().unlock();
+		}
+		
+		try
+		{
+			// Wait for the pumps so messages they have received are handed over before the stages stop
+			List<Thread> pumps = null;
+			synchronized (this.m_pumps) {
+				pumps = new ArrayList<Thread>(this.m_pumps);
+				this.m_pumps.clear();
+			}
+			for(Thread pump : pumps)
+				pump.interrupt();
+			for(Thread pump : pumps)
+				pump.join();
+			// Each stage only receives messages from the one before it, so once a stage has
+			// stopped the next can be stopped after draining what it was given
+			for(StageRunner stage : this.m_stages)
+				stage.stop();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * True when the pipeline is open
+	 */
+	public boolean isOpen() {
+		return this.m_isOpen;
+	}
+}
@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A message travelling through a pipeline
+ */
+class PipelineMessage {
+
+	/**
+	 * Marks the end of the messages for a lane
+	 */
+	static final PipelineMessage STOP = new PipelineMessage(null, null);
+	
+	// The correlation key
+	private final Object m_key;
+	// The current value of the message
+	private Object m_value;
+	// Completes when the message leaves the pipeline
+	private final Completion m_completion = new Completion();
+	
+	/**
+	 * Creates a new message
+	 */
+	PipelineMessage(Object key, Object value)
+	{
+		this.m_key = key;
+		this.m_value = value;
+	}
+	
+	/**
+	 * Gets the correlation key
+	 */
+	Object getKey() {
+		return this.m_key;
+	}
+	
+	/**
+	 * Gets the current value of the message
+	 */
+	Object getValue() {
+		return this.m_value;
+	}
+	
+	/**
+	 * Sets the value of the message produced by a stage
+	 */
+	void setValue(Object value) {
+		this.m_value = value;
+	}
+	
+	/**
+	 * Gets the future which completes when the message leaves the pipeline
+	 */
+	Future<Object> getFuture() {
+		return this.m_completion;
+	}
+	
+	/**
+	 * Complete the message with the output of the last stage it passed through
+	 */
+	void complete(Object output) {
+		this.m_completion.set(output);
+	}
+	
+	/**
+	 * Complete the message with the error of the stage which failed
+	 */
+	void fail(Throwable error) {
+		this.m_completion.setException(error);
+	}
+	
+	/**
+	 * A future which is completed by the pipeline rather than by running a task
+	 */
+	private static class Completion extends FutureTask<Object> {
+		
+		/**
+		 * Creates a new completion
+		 */
+		Completion()
+		{
+			super(new Callable<Object>() {
+				@Override
+				public Object call() {
+					throw new UnsupportedOperationException();
+				}
+			});
+		}
+		
+		/**
+		 * Complete with the specified value
+		 */
+		@Override
+		protected void set(Object v) {
+			super.set(v);
+		}
+		
+		/**
+		 * Complete with the specified error
+		 */
+		@Override
+		protected void setException(Throwable t) {
+			super.setException(t);
+		}
+	}
+}
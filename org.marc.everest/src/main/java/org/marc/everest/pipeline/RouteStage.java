@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * A pipeline stage which dispatches each message to the handler registered for its type.
+ * The handler registered for the closest superclass of the message is used when there is 
+ * none for the exact type, then the default handler.
+ */
+public class RouteStage implements IPipelineStage<IGraphable, Object> {
+
+	// The handlers registered by type
+	private final ConcurrentMap<Class<?>, IPipelineStage<IGraphable, ?>> m_routes = new ConcurrentHashMap<Class<?>, IPipelineStage<IGraphable, ?>>();
+	// The handlers resolved for types without a registration of their own
+	private final ConcurrentMap<Class<?>, IPipelineStage<IGraphable, ?>> m_resolved = new ConcurrentHashMap<Class<?>, IPipelineStage<IGraphable, ?>>();
+	// The handler used when no other matches, may be null
+	private volatile IPipelineStage<IGraphable, ?> m_defaultRoute;
+	
+	/**
+	 * Register the handler for messages of the specified type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IGraphable> void addRoute(Class<T> type, IPipelineStage<? super T, ?> handler) {
+		if(type == null)
+			throw new IllegalArgumentException("type");
+		else if(handler == null)
+			throw new IllegalArgumentException("handler");
+		this.m_routes.put(type, (IPipelineStage<IGraphable, ?>)handler);
+		this.m_resolved.clear();
+	}
+	
+	/**
+	 * Remove the handler for messages of the specified type
+	 */
+	public void removeRoute(Class<? extends IGraphable> type) {
+		this.m_routes.remove(type);
+		this.m_resolved.clear();
+	}
+	
+	/**
+	 * Sets the handler used when no other handler matches the message
+	 */
+	public void setDefaultRoute(IPipelineStage<IGraphable, ?> handler) {
+		this.m_defaultRoute = handler;
+	}
+	
+	/**
+	 * Gets the handler used when no other handler matches the message
+	 */
+	public IPipelineStage<IGraphable, ?> getDefaultRoute() {
+		return this.m_defaultRoute;
+	}
+	
+	/**
+	 * Dispatch the message to its handler
+	 */
+	@Override
+	public Object process(IGraphable input) throws Exception {
+		IPipelineStage<IGraphable, ?> handler = this.resolve(input.getClass());
+		if(handler == null)
+			handler = this.m_defaultRoute;
+		if(handler == null)
+			throw new UnsupportedOperationException(String.format("No route is registered for %s", input.getClass().getName()));
+		return handler.process(input);
+	}
+	
+	/**
+	 * Find the handler registered for the type or its closest superclass
+	 */
+	private IPipelineStage<IGraphable, ?> resolve(Class<?> type) {
+		IPipelineStage<IGraphable, ?> retVal = this.m_resolved.get(type);
+		if(retVal != null)
+			return retVal;
+		
+		for(Class<?> current = type; current != null && retVal == null; current = current.getSuperclass())
+			retVal = this.m_routes.get(current);
+		if(retVal != null)
+			this.m_resolved.put(type, retVal);
+		return retVal;
+	}
+}
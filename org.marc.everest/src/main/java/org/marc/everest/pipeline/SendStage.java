@@ -0,0 +1,58 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.connectors.interfaces.ISendingConnector;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * A pipeline stage which sends each message over a connector, typically the last stage
+ * which sends responses. Pass a BatchSendingConnector to send responses in batches.
+ */
+public class SendStage implements IPipelineStage<IGraphable, ISendResult> {
+
+	// The connector messages are sent over
+	private final ISendingConnector m_connector;
+	
+	/**
+	 * Creates a new send stage over the specified connector, which must be opened by the caller
+	 */
+	public SendStage(ISendingConnector connector)
+	{
+		if(connector == null)
+			throw new IllegalArgumentException("connector");
+		this.m_connector = connector;
+	}
+	
+	/**
+	 * Gets the connector messages are sent over
+	 */
+	public ISendingConnector getConnector() {
+		return this.m_connector;
+	}
+	
+	/**
+	 * Send the message
+	 */
+	@Override
+	public ISendResult process(IGraphable input) {
+		return this.m_connector.send(input);
+	}
+
+}
@@ -0,0 +1,236 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.marc.everest.pipeline.interfaces.IBatchPipelineStage;
+import org.marc.everest.pipeline.interfaces.IPipelineErrorHandler;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * Runs one stage of a pipeline.
+ * <p>The stage is run by a number of lanes, each of which is a worker thread with its own bounded
+ * queue. Messages with a correlation key always use the same lane so they are processed in the order
+ * they arrive, messages without a key are spread over the lanes in turn. Handing a message to a full
+ * lane blocks, which holds back the previous stage.</p>
+ */
+class StageRunner {
+
+	// The name of the stage
+	private final String m_name;
+	// The stage
+	private final IPipelineStage<Object, Object> m_stage;
+	// The number of lanes
+	private final int m_concurrency;
+	// The capacity of each lane
+	private final int m_queueSize;
+	// The maximum number of messages processed at once
+	private final int m_batchSize;
+	
+	// The queue of each lane
+	private List<BlockingQueue<PipelineMessage>> m_lanes;
+	// The worker of each lane
+	private List<Thread> m_workers;
+	// The stage messages are handed to, null if this is the last stage
+	private StageRunner m_next;
+	// Notified of failures, may be null
+	private IPipelineErrorHandler m_errorHandler;
+	// Spreads messages without a key over the lanes
+	private final AtomicInteger m_nextLane = new AtomicInteger();
+	
+	/**
+	 * Creates a new stage runner
+	 */
+	@SuppressWarnings("unchecked")
+	StageRunner(String name, IPipelineStage<?, ?> stage, int concurrency, int queueSize, int batchSize)
+	{
+		this.m_name = name;
+		this.m_stage = (IPipelineStage<Object, Object>)stage;
+		this.m_concurrency = concurrency;
+		this.m_queueSize = queueSize;
+		this.m_batchSize = batchSize;
+	}
+	
+	/**
+	 * Gets the name of the stage
+	 */
+	String getName() {
+		return this.m_name;
+	}
+	
+	/**
+	 * Start the workers
+	 * @param threadPrefix The prefix of worker thread names
+	 * @param next The stage messages are handed to, null if this is the last stage
+	 * @param errorHandler Notified of failures, may be null
+	 */
+	void start(String threadPrefix, StageRunner next, IPipelineErrorHandler errorHandler)
+	{
+		this.m_next = next;
+		this.m_errorHandler = errorHandler;
+		this.m_lanes = new ArrayList<BlockingQueue<PipelineMessage>>(this.m_concurrency);
+		this.m_workers = new ArrayList<Thread>(this.m_concurrency);
+		for(int i = 0; i < this.m_concurrency; i++)
+		{
+			final BlockingQueue<PipelineMessage> lane = new ArrayBlockingQueue<PipelineMessage>(this.m_queueSize);
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work(lane);
+				}
+			}, String.format("%s-%s-%d", threadPrefix, this.m_name, i + 1));
+			worker.setDaemon(true);
+			this.m_lanes.add(lane);
+			this.m_workers.add(worker);
+		}
+		for(Thread worker : this.m_workers)
+			worker.start();
+	}
+	
+	/**
+	 * Hand a message to this stage, waiting while its lane is full
+	 */
+	void put(PipelineMessage message) throws InterruptedException
+	{
+		int lane = message.getKey() == null ? 
+				(this.m_nextLane.getAndIncrement() & Integer.MAX_VALUE) % this.m_concurrency :
+				(message.getKey().hashCode() & Integer.MAX_VALUE) % this.m_concurrency;
+		this.m_lanes.get(lane).put(message);
+	}
+	
+	/**
+	 * Stop the workers once the messages already handed to this stage have been processed
+	 */
+	void stop() throws InterruptedException
+	{
+		for(BlockingQueue<PipelineMessage> lane : this.m_lanes)
+			lane.put(PipelineMessage.STOP);
+		for(Thread worker : this.m_workers)
+			worker.join();
+		this.m_lanes = null;
+		this.m_workers = null;
+	}
+	
+	/**
+	 * Process the messages of a lane until stopped
+	 */
+	private void work(BlockingQueue<PipelineMessage> lane) {
+		List<PipelineMessage> batch = new ArrayList<PipelineMessage>(this.m_batchSize);
+		try
+		{
+			while(true)
+			{
+				batch.clear();
+				batch.add(lane.take());
+				if(this.m_batchSize > 1)
+					lane.drainTo(batch, this.m_batchSize - 1);
+				
+				// The stop marker is always the last message of a lane
+				boolean stop = batch.get(batch.size() - 1) == PipelineMessage.STOP;
+				if(stop)
+					batch.remove(batch.size() - 1);
+				if(!batch.isEmpty())
+					this.process(batch);
+				if(stop)
+					return;
+			}
+		}
+		catch(InterruptedException e)
+		{
+			for(PipelineMessage message : batch)
+				this.fail(message, e);
+		}
+	}
+	
+	/**
+	 * Process a batch of messages and hand the output to the next stage
+	 */
+	@SuppressWarnings("unchecked")
+	private void process(List<PipelineMessage> batch) throws InterruptedException {
+		
+		if(batch.size() > 1 && this.m_stage instanceof IBatchPipelineStage)
+		{
+			List<Object> inputs = new ArrayList<Object>(batch.size());
+			for(PipelineMessage message : batch)
+				inputs.add(message.getValue());
+			List<Object> outputs = null;
+			try
+			{
+				outputs = ((IBatchPipelineStage<Object, Object>)this.m_stage).processBatch(inputs);
+				if(outputs == null || outputs.size() != inputs.size())
+					throw new IllegalStateException(String.format("Stage %s returned %s outputs for %d messages", this.m_name, outputs == null ? "no" : String.valueOf(outputs.size()), inputs.size()));
+			}
+			catch(Throwable e)
+			{
+				for(PipelineMessage message : batch)
+					this.fail(message, e);
+				return;
+			}
+			for(int i = 0; i < batch.size(); i++)
+				this.forward(batch.get(i), outputs.get(i));
+		}
+		else
+			for(PipelineMessage message : batch)
+			{
+				Object output = null;
+				try
+				{
+					output = this.m_stage.process(message.getValue());
+				}
+				catch(Throwable e)
+				{
+					this.fail(message, e);
+					continue;
+				}
+				this.forward(message, output);
+			}
+	}
+	
+	/**
+	 * Hand the output of this stage to the next stage, or complete the message
+	 */
+	private void forward(PipelineMessage message, Object output) throws InterruptedException {
+		if(output == null || this.m_next == null)
+			message.complete(output);
+		else
+		{
+			message.setValue(output);
+			this.m_next.put(message);
+		}
+	}
+	
+	/**
+	 * Fail a message and notify the error handler
+	 */
+	private void fail(PipelineMessage message, Throwable error) {
+		message.fail(error);
+		if(this.m_errorHandler != null)
+			try
+			{
+				this.m_errorHandler.handleError(this.m_name, message.getValue(), error);
+			}
+			catch(Throwable e)
+			{
+				// A failing error handler must not stop the lane
+			}
+	}
+}
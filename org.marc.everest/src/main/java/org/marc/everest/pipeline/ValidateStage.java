@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.exceptions.MessageValidationException;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.interfaces.ResultDetailType;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+/**
+ * A pipeline stage which passes on the structure of messages that were parsed successfully 
+ * and fails the others with a MessageValidationException
+ */
+public class ValidateStage implements IPipelineStage<IReceiveResult, IGraphable> {
+
+	// True if non-conformant messages are passed on
+	private final boolean m_allowNonConformant;
+	
+	/**
+	 * Creates a new validation stage which passes on non-conformant messages
+	 */
+	public ValidateStage()
+	{
+		this(true);
+	}
+	
+	/**
+	 * Creates a new validation stage
+	 * @param allowNonConformant True if messages which were parsed but did not conform to the model are passed on
+	 */
+	public ValidateStage(boolean allowNonConformant)
+	{
+		this.m_allowNonConformant = allowNonConformant;
+	}
+	
+	/**
+	 * Validate the message
+	 */
+	@Override
+	public IGraphable process(IReceiveResult input) {
+		ResultCodeType code = input.getCode();
+		if(input.getStructure() != null && (code == ResultCodeType.Accepted || code == ResultCodeType.AcceptedNonConformant && this.m_allowNonConformant))
+			return input.getStructure();
+		
+		// Report the first error
+		String message = String.format("Message was not accepted (%s)", code);
+		if(input.getDetails() != null)
+			for(IResultDetail detail : input.getDetails())
+				if(detail.getType() == ResultDetailType.ERROR)
+				{
+					message = String.format("%s: %s", message, detail.getMessage());
+					break;
+				}
+		throw new MessageValidationException(message, input.getStructure());
+	}
+
+}
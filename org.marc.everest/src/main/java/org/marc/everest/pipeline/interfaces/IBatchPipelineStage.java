@@ -0,0 +1,35 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline.interfaces;
+
+import java.util.List;
+
+/**
+ * Represents a pipeline stage which can process several messages at once, for example to
+ * write them to a database in one transaction
+ * @param <I> The type of message the stage accepts
+ * @param <O> The type of message the stage produces
+ */
+public interface IBatchPipelineStage<I, O> extends IPipelineStage<I, O> {
+
+	/**
+	 * Process a batch of messages
+	 * @param inputs The messages in the order they were received
+	 * @return The output for each message in the same order, null entries stop processing of that message
+	 */
+	List<O> processBatch(List<I> inputs) throws Exception;
+}
@@ -0,0 +1,31 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline.interfaces;
+
+/**
+ * Selects the key of a message which determines its ordering in a pipeline. Messages
+ * with equal keys pass through each stage in the order they were submitted.
+ * @param <I> The type of message submitted to the pipeline
+ */
+public interface ICorrelationKeySelector<I> {
+
+	/**
+	 * Gets the correlation key of the message
+	 * @return The key, or null if the message may be processed in any order
+	 */
+	Object getKey(I input);
+}
@@ -0,0 +1,31 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline.interfaces;
+
+/**
+ * Represents a class which is notified when a pipeline stage fails to process a message
+ */
+public interface IPipelineErrorHandler {
+
+	/**
+	 * Called when a stage fails to process a message
+	 * @param stageName The name of the stage that failed
+	 * @param input The message the stage was processing
+	 * @param error The error thrown by the stage
+	 */
+	void handleError(String stageName, Object input, Throwable error);
+}
@@ -0,0 +1,32 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.pipeline.interfaces;
+
+/**
+ * Represents a stage of a pipeline which transforms each message it is given
+ * @param <I> The type of message the stage accepts
+ * @param <O> The type of message the stage produces
+ */
+public interface IPipelineStage<I, O> {
+
+	/**
+	 * Process a message
+	 * @param input The message produced by the previous stage
+	 * @return The message to hand to the next stage, or null to stop processing the message
+	 */
+	O process(I input) throws Exception;
+}
@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.util;
+
+import org.marc.everest.datatypes.ANY;
+import org.marc.everest.datatypes.UpdateMode;
+import org.marc.everest.datatypes.generic.CS;
+
+/**
+ * Represents a single difference between two graphs as identified by GraphUtil.diff
+ */
+public final class GraphChange {
+
+	// The path of the property which changed
+	private final String m_path;
+	// The value in the original graph
+	private final Object m_oldValue;
+	// The value in the updated graph
+	private final Object m_newValue;
+	// The update mode describing the change
+	private final UpdateMode m_updateMode;
+	
+	/**
+	 * Creates a new change
+	 */
+	GraphChange(String path, Object oldValue, Object newValue, UpdateMode updateMode)
+	{
+		this.m_path = path;
+		this.m_oldValue = oldValue;
+		this.m_newValue = newValue;
+		this.m_updateMode = updateMode;
+	}
+	
+	/**
+	 * Gets the path of the property that changed, for example "telecom[1]" or "name.part[0]"
+	 */
+	public String getPath() { return this.m_path; }
+	/**
+	 * Gets the value in the original graph (null when the value was added)
+	 */
+	public Object getOldValue() { return this.m_oldValue; }
+	/**
+	 * Gets the value in the updated graph (null when the value was removed)
+	 */
+	public Object getNewValue() { return this.m_newValue; }
+	/**
+	 * Gets the update mode (Add, Remove or Replace) that describes this change
+	 */
+	public UpdateMode getUpdateMode() { return this.m_updateMode; }
+	
+	/**
+	 * Sets the update mode of the changed datatype to the update mode of this change. The 
+	 * new value is marked for Add or Replace and the old value is marked for Remove.
+	 * @return True if the value was a datatype and was marked
+	 * @throws UnsupportedOperationException When the value is frozen
+	 */
+	public boolean applyUpdateMode()
+	{
+		Object target = this.m_updateMode == UpdateMode.Remove ? this.m_oldValue : this.m_newValue;
+		if(!(target instanceof ANY))
+			return false;
+		((ANY)target).setUpdateMode(CS.getSharedInstance(this.m_updateMode));
+		return true;
+	}
+	
+	/**
+	 * Represent the change as a string
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s %s: %s -> %s", this.m_updateMode, this.m_path, this.m_oldValue, this.m_newValue);
+	}
+}
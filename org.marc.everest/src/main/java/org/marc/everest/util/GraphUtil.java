@@ -0,0 +1,559 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.util;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.marc.everest.annotations.Properties;
+import org.marc.everest.annotations.Property;
+import org.marc.everest.datatypes.ANY;
+import org.marc.everest.datatypes.ED;
+import org.marc.everest.datatypes.HXIT;
+import org.marc.everest.datatypes.UpdateMode;
+import org.marc.everest.datatypes.generic.COLL;
+import org.marc.everest.datatypes.generic.LIST;
+import org.marc.everest.datatypes.interfaces.IListContainer;
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+import org.marc.everest.datatypes.payload.PayloadBuffer;
+import org.marc.everest.datatypes.payload.PayloadUtil;
+import org.marc.everest.interfaces.IGraphable;
+
+/**
+ * Utilities which operate over a complete graph of IGraphable instances (freezing, deep copying and comparing).
+ * <p>The graph is discovered the same way the formatters discover it, through the 
+ * getters annotated with @Property (or @Properties)</p>
+ */
+public final class GraphUtil {
+
+	// Cached property getters by class
+	private static final ConcurrentMap<Class<?>, Method[]> s_propertyGetters = new ConcurrentHashMap<Class<?>, Method[]>();
+	// Cached copy plans by class
+	private static final ConcurrentMap<Class<?>, CopyPlan> s_copyPlans = new ConcurrentHashMap<Class<?>, CopyPlan>();
+	
+	/**
+	 * A precomputed plan for copying instances of a class: the property getters, 
+	 * their matching setters and the constructor used for non-datatype classes
+	 */
+	private static final class CopyPlan {
+		
+		// The property getters
+		final Method[] getters;
+		// The setter matching each getter or null when the property is read-only
+		final Method[] setters;
+		// The default constructor or null for datatypes (which are copied with shallowCopy)
+		final Constructor<?> constructor;
+		
+		/**
+		 * Creates the copy plan for the specified class
+		 */
+		CopyPlan(Class<?> clazz)
+		{
+			this.getters = getPropertyGetters(clazz);
+			this.setters = new Method[this.getters.length];
+			for(int i = 0; i < this.getters.length; i++)
+				this.setters[i] = findSetter(clazz, this.getters[i]);
+			
+			if(ANY.class.isAssignableFrom(clazz))
+				this.constructor = null;
+			else
+			{
+				try {
+					this.constructor = clazz.getDeclaredConstructor();
+					this.constructor.setAccessible(true);
+				} catch (NoSuchMethodException e) {
+					throw new UnsupportedOperationException(String.format("Cannot copy %s as it has no default constructor", clazz.getName()), e);
+				}
+			}
+		}
+		
+		/**
+		 * Find the setter for the property exposed by the getter
+		 */
+		private static Method findSetter(Class<?> clazz, Method getter)
+		{
+			String name = getter.getName();
+			if(name.startsWith("get"))
+				name = name.substring(3);
+			else if(name.startsWith("is"))
+				name = name.substring(2);
+			else
+				return null;
+			
+			Method retVal = null;
+			for(String prefix : new String[] { "set", "override" })
+			{
+				for(Method m : clazz.getMethods())
+				{
+					if(!m.getName().equals(prefix + name) || m.isBridge() || m.getParameterTypes().length != 1 ||
+							!m.getParameterTypes()[0].isAssignableFrom(getter.getReturnType()))
+						continue;
+					else if(m.getParameterTypes()[0].equals(getter.getReturnType()))
+						return m; // exact match
+					else if(retVal == null)
+						retVal = m;
+				}
+				if(retVal != null)
+					return retVal;
+			}
+			return null;
+		}
+		
+		/**
+		 * Creates a new instance of the class
+		 */
+		Object newInstance()
+		{
+			try {
+				return this.constructor.newInstance();
+			} catch (InvocationTargetException e) {
+				throw new IllegalStateException(String.format("Could not create an instance of %s", this.constructor.getDeclaringClass().getName()), e.getCause());
+			} catch (Exception e) {
+				throw new IllegalStateException(String.format("Could not create an instance of %s", this.constructor.getDeclaringClass().getName()), e);
+			}
+		}
+	}
+	
+	/**
+	 * Static utility class
+	 */
+	private GraphUtil() {}
+	
+	/**
+	 * Gets the getters of the specified class which are annotated with @Property or @Properties
+	 */
+	static Method[] getPropertyGetters(Class<?> clazz)
+	{
+		Method[] retVal = s_propertyGetters.get(clazz);
+		if(retVal != null)
+			return retVal;
+		
+		List<Method> getters = new ArrayList<Method>();
+		for(Method m : clazz.getMethods())
+		{
+			if(m.isBridge() || Modifier.isStatic(m.getModifiers()) || m.getParameterTypes().length != 0 || m.getReturnType().equals(Void.TYPE))
+				continue;
+			if(m.getAnnotation(Property.class) != null || m.getAnnotation(Properties.class) != null)
+				getters.add(m);
+		}
+		retVal = getters.toArray(new Method[getters.size()]);
+		s_propertyGetters.putIfAbsent(clazz, retVal);
+		return retVal;
+	}
+	
+	/**
+	 * Returns true if a getter with the specified return type can return part of the graph
+	 */
+	static boolean canReturnGraphable(Class<?> returnType)
+	{
+		return returnType.isInterface() || 
+				IGraphable.class.isAssignableFrom(returnType) || 
+				Iterable.class.isAssignableFrom(returnType) ||
+				returnType.equals(Object.class);
+	}
+	
+	/**
+	 * Gets the value of the specified property getter
+	 */
+	static Object getPropertyValue(Method getter, Object instance)
+	{
+		return invoke(getter, instance);
+	}
+	
+	/**
+	 * Invoke the specified property method, unwrapping runtime exceptions
+	 */
+	private static Object invoke(Method method, Object instance, Object... parameters)
+	{
+		try {
+			return method.invoke(instance, parameters);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(String.format("Could not invoke %s", method.getName()), e);
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException(String.format("Could not invoke %s", method.getName()), e.getCause());
+		}
+	}
+	
+	/**
+	 * Adds the graphable children of the specified node to the list 
+	 */
+	static void addChildren(IGraphable node, Deque<IGraphable> children)
+	{
+		for(Method getter : getPropertyGetters(node.getClass()))
+		{
+			if(!canReturnGraphable(getter.getReturnType()))
+				continue;
+			Object value = getPropertyValue(getter, node);
+			if(value instanceof IGraphable)
+				children.push((IGraphable)value);
+			else if(value instanceof Iterable)
+				for(Object item : (Iterable<?>)value)
+					if(item instanceof IGraphable)
+						children.push((IGraphable)item);
+		}
+		if(node instanceof IListContainer) // Set expressions hold their terms outside of any property
+			for(IGraphable item : ((IListContainer)node).getContainedList())
+				if(item != null)
+					children.push(item);
+	}
+	
+	/**
+	 * Freezes every datatype reachable from the specified graph so that the graph
+	 * can be shared safely between threads and caches.
+	 * <p>Every datatype in the graph (anything extending HXIT or ANY) is frozen, after which 
+	 * its setters and collection mutators throw UnsupportedOperationException and 
+	 * types which cache their hash code (SET, LIST, EN, AD and ED) compute it only once. 
+	 * Other IGraphable nodes, such as RMIM classes, carry no frozen flag; they are traversed
+	 * so the datatypes they contain are frozen but they remain modifiable themselves</p>
+	 * @param graph The root of the graph to freeze
+	 * @return The graph
+	 */
+	public static <T extends IGraphable> T freeze(T graph)
+	{
+		if(graph == null)
+			return null;
+		
+		Set<IGraphable> visited = Collections.newSetFromMap(new IdentityHashMap<IGraphable, Boolean>());
+		Deque<IGraphable> pending = new ArrayDeque<IGraphable>();
+		pending.push(graph);
+		while(!pending.isEmpty())
+		{
+			IGraphable node = pending.pop();
+			if(!visited.add(node))
+				continue;
+			addChildren(node, pending);
+			if(node instanceof HXIT)
+				((HXIT)node).freeze();
+		}
+		return graph;
+	}
+	
+	/**
+	 * Determines whether every node of the specified graph is a frozen datatype, in which
+	 * case no part of the graph can change
+	 * @param graph The root of the graph
+	 * @return True when the graph is frozen throughout
+	 */
+	public static boolean isFrozen(IGraphable graph)
+	{
+		Set<IGraphable> visited = Collections.newSetFromMap(new IdentityHashMap<IGraphable, Boolean>());
+		Deque<IGraphable> pending = new ArrayDeque<IGraphable>();
+		pending.push(graph);
+		while(!pending.isEmpty())
+		{
+			IGraphable node = pending.pop();
+			if(!visited.add(node))
+				continue;
+			if(!(node instanceof HXIT) || !((HXIT)node).isFrozen())
+				return false;
+			addChildren(node, pending);
+		}
+		return true;
+	}
+	
+	/**
+	 * Creates a deep copy of the specified graph.
+	 * <p>Each class is copied using a plan computed once from its @Property metadata. Datatypes
+	 * start from shallowCopy() and have their graphable and collection properties replaced with 
+	 * copies (an ED also gets its own copy of its data); other classes are created with their default constructor and have every property 
+	 * copied through its setter. Frozen datatypes are immutable so they are shared between the 
+	 * original and the copy rather than copied (copy on write), and objects referenced more than 
+	 * once in the original are referenced the same way in the copy.</p>
+	 * @param graph The root of the graph to copy
+	 * @return The copy
+	 * @throws UnsupportedOperationException When a class in the graph cannot be instantiated
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends IGraphable> T deepCopy(T graph)
+	{
+		return (T)copyNode(graph, new IdentityHashMap<Object, Object>());
+	}
+	
+	/**
+	 * Gets the copy plan for the specified class
+	 */
+	private static CopyPlan getCopyPlan(Class<?> clazz)
+	{
+		CopyPlan retVal = s_copyPlans.get(clazz);
+		if(retVal == null)
+		{
+			retVal = new CopyPlan(clazz);
+			s_copyPlans.putIfAbsent(clazz, retVal);
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Copy a node of the graph
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object copyNode(IGraphable node, Map<Object, Object> copies)
+	{
+		if(node == null || node instanceof HXIT && ((HXIT)node).isFrozen())
+			return node;
+		Object retVal = copies.get(node);
+		if(retVal != null)
+			return retVal;
+		
+		CopyPlan plan = getCopyPlan(node.getClass());
+		boolean isDatatype = node instanceof ANY;
+		retVal = isDatatype ? ((ANY)node).shallowCopy() : plan.newInstance();
+		copies.put(node, retVal);
+		
+		for(int i = 0; i < plan.getters.length; i++)
+		{
+			Method getter = plan.getters[i], setter = plan.setters[i];
+			if(isDatatype && !canReturnGraphable(getter.getReturnType()))
+				continue; // Already carried by the shallow copy
+			
+			Object value = getPropertyValue(getter, node);
+			if(value == null)
+				continue;
+			Object copy = copyValue(value, copies);
+			if(isDatatype && copy == value)
+				continue;
+			
+			if(setter != null)
+				invoke(setter, retVal, copy);
+			else if(copy instanceof Collection && !(copy instanceof IGraphable))
+			{
+				Collection target = (Collection)getPropertyValue(getter, retVal);
+				if(target == value)
+					throw new IllegalStateException(String.format("The copy of %s shares the collection returned by %s with the original", node.getClass().getName(), getter.getName()));
+				else if(target != null)
+				{
+					target.clear();
+					target.addAll((Collection)copy);
+				}
+			}
+		}
+		
+		if(node instanceof IListContainer)
+			((IListContainer)retVal).setContainedList((List<IGraphable>)copyValue(((IListContainer)node).getContainedList(), copies));
+		if(node instanceof ED)
+			copyData((ED)node, (ED)retVal);
+		return retVal;
+	}
+	
+	/**
+	 * Give the copy of an ED its own data and integrity check, the shallow copy shares the 
+	 * byte arrays and payload source of the original
+	 * @throws IllegalStateException When the payload of the original cannot be read
+	 */
+	private static void copyData(ED original, ED copy)
+	{
+		IPayloadSource payload = original.getPayload();
+		if(payload != null)
+		{
+			PayloadBuffer buffer = new PayloadBuffer();
+			try
+			{
+				PayloadUtil.copy(payload, buffer);
+				copy.setPayload(buffer.toPayloadSource());
+			}
+			catch(IOException e)
+			{
+				buffer.discard();
+				throw new IllegalStateException("Could not copy the ED payload", e);
+			}
+		}
+		else if(original.getData() != null)
+			copy.setData(original.getData().clone());
+		
+		if(original.getIntegrityCheck() != null)
+			copy.setIntegrityCheck(original.getIntegrityCheck().clone());
+	}
+	
+	/**
+	 * Copy a property value, collections are copied into new collections with their items copied
+	 */
+	private static Object copyValue(Object value, Map<Object, Object> copies)
+	{
+		if(value instanceof IGraphable)
+			return copyNode((IGraphable)value, copies);
+		else if(!(value instanceof Collection))
+			return value; // Strings, numbers, enumerations
+		
+		Collection<Object> retVal = value instanceof Set ? new LinkedHashSet<Object>() : new ArrayList<Object>(((Collection<?>)value).size());
+		for(Object item : (Collection<?>)value)
+			retVal.add(copyValue(item, copies));
+		return retVal;
+	}
+	
+	/**
+	 * Compares two graphs and returns the changes needed to turn the original into the updated graph.
+	 * <p>Non-datatype nodes (such as RMIM classes) are compared property by property using their 
+	 * @Property metadata, and lists of them are compared by position. Datatypes are compared as 
+	 * values, except that the items of a LIST are compared by position and the items of a SET or BAG 
+	 * are matched regardless of position, so a changed item is reported as the removal of the old 
+	 * item and the addition of the new one. Collections whose items match but whose flavor or update 
+	 * mode differ are replaced. Identical subtrees are skipped without being walked: shared instances (such 
+	 * as frozen values left shared by deepCopy) by identity, and datatypes by their hash code,
+	 * which frozen datatypes cache.</p>
+	 * <p>An empty result means the update is a no-op</p>
+	 * @param original The original graph
+	 * @param updated The updated graph
+	 * @return The list of changes, each carrying the UpdateMode which describes it
+	 */
+	public static List<GraphChange> diff(IGraphable original, IGraphable updated)
+	{
+		List<GraphChange> retVal = new ArrayList<GraphChange>();
+		diffValue("", original, updated, retVal, Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+		return retVal;
+	}
+	
+	/**
+	 * Gets the name of the property exposed by the getter
+	 */
+	private static String getPropertyName(Method getter)
+	{
+		Property property = getter.getAnnotation(Property.class);
+		if(property == null)
+			property = getter.getAnnotation(Properties.class).value()[0];
+		return property.name();
+	}
+	
+	/**
+	 * Compute the differences between two values at the specified path
+	 */
+	private static void diffValue(String path, Object original, Object updated, List<GraphChange> changes, Set<Object> visited)
+	{
+		if(original == updated)
+			return;
+		else if(original == null)
+			changes.add(new GraphChange(path, null, updated, UpdateMode.Add));
+		else if(updated == null)
+			changes.add(new GraphChange(path, original, null, UpdateMode.Remove));
+		else if(!original.getClass().equals(updated.getClass()))
+			changes.add(new GraphChange(path, original, updated, UpdateMode.Replace));
+		else if(original instanceof ANY)
+		{
+			if(original.hashCode() == updated.hashCode() && original.equals(updated))
+				return;
+			else if(original instanceof COLL && !((ANY)original).isNull() && !((ANY)updated).isNull())
+			{
+				int changeCount = changes.size();
+				if(original instanceof LIST)
+					diffOrdered(path, (LIST<?>)original, (LIST<?>)updated, changes, visited);
+				else
+					diffUnordered(path, (COLL<?>)original, (COLL<?>)updated, changes);
+				// The items match but the collections themselves differ
+				if(changes.size() == changeCount && !attributesEqual((ANY)original, (ANY)updated))
+					changes.add(new GraphChange(path, original, updated, UpdateMode.Replace));
+			}
+			else
+				changes.add(new GraphChange(path, original, updated, UpdateMode.Replace));
+		}
+		else if(original instanceof IGraphable)
+		{
+			if(!visited.add(original))
+				return;
+			for(Method getter : getPropertyGetters(original.getClass()))
+			{
+				String name = getPropertyName(getter);
+				diffValue(path.length() == 0 ? name : path + "." + name, getPropertyValue(getter, original), getPropertyValue(getter, updated), changes, visited);
+			}
+		}
+		else if(original instanceof List)
+			diffOrdered(path, (List<?>)original, (List<?>)updated, changes, visited);
+		else if(original instanceof Collection)
+			diffUnordered(path, (Collection<?>)original, (Collection<?>)updated, changes);
+		else if(!original.equals(updated))
+			changes.add(new GraphChange(path, original, updated, UpdateMode.Replace));
+	}
+	
+	/**
+	 * Determines whether two datatypes carry the same flavor, null flavor and update mode
+	 */
+	private static boolean attributesEqual(ANY original, ANY updated)
+	{
+		return (original.getFlavorId() == null ? updated.getFlavorId() == null : original.getFlavorId().equals(updated.getFlavorId())) &&
+				(original.getNullFlavor() == null ? updated.getNullFlavor() == null : original.getNullFlavor().equals(updated.getNullFlavor())) &&
+				(original.getUpdateMode() == null ? updated.getUpdateMode() == null : original.getUpdateMode().equals(updated.getUpdateMode()));
+	}
+	
+	/**
+	 * Compute the differences between two lists whose items are matched by position
+	 */
+	private static void diffOrdered(String path, List<?> original, List<?> updated, List<GraphChange> changes, Set<Object> visited)
+	{
+		for(int i = 0; i < Math.max(original.size(), updated.size()); i++)
+			diffValue(String.format("%s[%s]", path, i), 
+					i < original.size() ? original.get(i) : null, 
+					i < updated.size() ? updated.get(i) : null, 
+					changes, visited);
+	}
+	
+	/**
+	 * Compute the differences between two collections whose items are matched by equality rather than position
+	 */
+	private static void diffUnordered(String path, Collection<?> original, Collection<?> updated, List<GraphChange> changes)
+	{
+		// Index the updated items by value
+		Map<Object, Deque<Integer>> unmatched = new HashMap<Object, Deque<Integer>>();
+		List<Object> updatedItems = new ArrayList<Object>(updated);
+		for(int i = 0; i < updatedItems.size(); i++)
+		{
+			Deque<Integer> positions = unmatched.get(updatedItems.get(i));
+			if(positions == null)
+			{
+				positions = new ArrayDeque<Integer>();
+				unmatched.put(updatedItems.get(i), positions);
+			}
+			positions.add(i);
+		}
+		
+		// Removed items
+		int i = 0;
+		for(Object item : original)
+		{
+			Deque<Integer> positions = unmatched.get(item);
+			if(positions == null || positions.isEmpty())
+				changes.add(new GraphChange(String.format("%s[%s]", path, i), item, null, UpdateMode.Remove));
+			else
+				positions.poll();
+			i++;
+		}
+		
+		// Added items, in the order they appear
+		boolean[] added = new boolean[updatedItems.size()];
+		for(Deque<Integer> positions : unmatched.values())
+			for(Integer position : positions)
+				added[position] = true;
+		for(i = 0; i < added.length; i++)
+			if(added[i])
+				changes.add(new GraphChange(String.format("%s[%s]", path, i), null, updatedItems.get(i), UpdateMode.Add));
+	}
+}
@@ -0,0 +1,203 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * A content handler which appends the SAX events it receives as nodes beneath a DOM node
+ */
+class XMLDomContentHandler implements ContentHandler, LexicalHandler {
+
+	// The document which owns the created nodes
+	private final Document m_document;
+	// The node the events are appended to
+	private final Node m_root;
+	// The node before which top level nodes are inserted, may be null
+	private final Node m_nextSibling;
+	// The node currently being appended to
+	private Node m_current;
+	// Namespaces declared for the next element (prefix, uri pairs)
+	private final List<String> m_pendingNamespaces = new ArrayList<String>();
+	// True when inside a CDATA section
+	private boolean m_inCData;
+	
+	/**
+	 * Creates a new handler appending to the specified node
+	 */
+	XMLDomContentHandler(Node root, Node nextSibling)
+	{
+		this.m_root = root;
+		this.m_nextSibling = nextSibling;
+		this.m_current = root;
+		this.m_document = root instanceof Document ? (Document)root : root.getOwnerDocument();
+	}
+	
+	/**
+	 * Append a node to the current node
+	 */
+	private void append(Node node)
+	{
+		if(this.m_current == this.m_root && this.m_nextSibling != null)
+			this.m_root.insertBefore(node, this.m_nextSibling);
+		else
+			this.m_current.appendChild(node);
+	}
+	
+	/**
+	 * Append character data
+	 */
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		// Documents cannot contain text
+		if(this.m_current.getNodeType() == Node.DOCUMENT_NODE)
+			return;
+		String text = new String(ch, start, length);
+		if(this.m_inCData)
+			this.append(this.m_document.createCDATASection(text));
+		else
+			this.append(this.m_document.createTextNode(text));
+	}
+
+	/**
+	 * Append an element
+	 */
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		Element element = this.m_document.createElementNS(uri.length() == 0 ? null : uri, qName);
+		for(int i = 0; i < this.m_pendingNamespaces.size(); i += 2)
+		{
+			String prefix = this.m_pendingNamespaces.get(i);
+			element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix.length() == 0 ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, this.m_pendingNamespaces.get(i + 1));
+		}
+		this.m_pendingNamespaces.clear();
+		
+		for(int i = 0; i < atts.getLength(); i++)
+		{
+			String attUri = atts.getURI(i);
+			element.setAttributeNS(attUri.length() == 0 ? null : attUri, atts.getQName(i), atts.getValue(i));
+		}
+		this.append(element);
+		this.m_current = element;
+	}
+
+	/**
+	 * Close the current element
+	 */
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		this.m_current = this.m_current.getParentNode();
+	}
+
+	/**
+	 * Record a namespace to be declared on the next element
+	 */
+	@Override
+	public void startPrefixMapping(String prefix, String uri) throws SAXException {
+		this.m_pendingNamespaces.add(prefix);
+		this.m_pendingNamespaces.add(uri);
+	}
+
+	/**
+	 * Append a processing instruction
+	 */
+	@Override
+	public void processingInstruction(String target, String data) throws SAXException {
+		this.append(this.m_document.createProcessingInstruction(target, data));
+	}
+
+	/**
+	 * Append a comment
+	 */
+	@Override
+	public void comment(char[] ch, int start, int length) throws SAXException {
+		this.append(this.m_document.createComment(new String(ch, start, length)));
+	}
+
+	/**
+	 * Append an entity reference
+	 */
+	@Override
+	public void skippedEntity(String name) throws SAXException {
+		this.append(this.m_document.createEntityReference(name));
+	}
+
+	/**
+	 * Start a CDATA section
+	 */
+	@Override
+	public void startCDATA() throws SAXException {
+		this.m_inCData = true;
+	}
+
+	/**
+	 * End a CDATA section
+	 */
+	@Override
+	public void endCDATA() throws SAXException {
+		this.m_inCData = false;
+	}
+
+	@Override
+	public void endPrefixMapping(String prefix) throws SAXException {
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+	}
+
+	@Override
+	public void setDocumentLocator(Locator locator) {
+	}
+
+	@Override
+	public void startDocument() throws SAXException {
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+	}
+
+	@Override
+	public void startDTD(String name, String publicId, String systemId) throws SAXException {
+	}
+
+	@Override
+	public void endDTD() throws SAXException {
+	}
+
+	@Override
+	public void startEntity(String name) throws SAXException {
+	}
+
+	@Override
+	public void endEntity(String name) throws SAXException {
+	}
+
+}
@@ -0,0 +1,732 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * An XMLStreamReader which walks a DOM node rather than parsing text.
+ * <p>The reader reports the node as a document: it begins at START_DOCUMENT and finishes 
+ * with END_DOCUMENT. CDATA sections are reported as CHARACTERS, and namespace declaration
+ * attributes are reported as namespaces rather than attributes.</p>
+ */
+public class XMLDomStreamReader implements XMLStreamReader {
+
+	// Location returned by the reader, DOM nodes have no position
+	private static final Location s_location = new Location() {
+		@Override
+		public int getLineNumber() { return -1; }
+		@Override
+		public int getColumnNumber() { return -1; }
+		@Override
+		public int getCharacterOffset() { return -1; }
+		@Override
+		public String getPublicId() { return null; }
+		@Override
+		public String getSystemId() { return null; }
+	};
+	
+	// The node being read
+	private final Node m_root;
+	// The current node
+	private Node m_current;
+	// The current event
+	private int m_event = START_DOCUMENT;
+	// Attributes of the current element
+	private List<Attr> m_attributes;
+	// Namespace declarations of the current element
+	private List<Attr> m_namespaces;
+	
+	/**
+	 * Creates a new reader over the specified document, fragment or element
+	 */
+	public XMLDomStreamReader(Node root)
+	{
+		if(root == null)
+			throw new IllegalArgumentException("root");
+		this.m_root = root;
+	}
+	
+	/**
+	 * Move to the specified node
+	 */
+	private void moveTo(Node node, int event)
+	{
+		this.m_current = node;
+		this.m_event = event;
+		this.m_attributes = null;
+		this.m_namespaces = null;
+	}
+	
+	/**
+	 * Move to the start of the specified node
+	 */
+	private void moveTo(Node node)
+	{
+		switch(node.getNodeType())
+		{
+			case Node.ELEMENT_NODE:
+				this.moveTo(node, START_ELEMENT);
+				break;
+			case Node.COMMENT_NODE:
+				this.moveTo(node, COMMENT);
+				break;
+			case Node.PROCESSING_INSTRUCTION_NODE:
+				this.moveTo(node, PROCESSING_INSTRUCTION);
+				break;
+			case Node.ENTITY_REFERENCE_NODE:
+				this.moveTo(node, ENTITY_REFERENCE);
+				break;
+			case Node.DOCUMENT_TYPE_NODE:
+				this.moveTo(node, DTD);
+				break;
+			default:
+				this.moveTo(node, CHARACTERS);
+				break;
+		}
+	}
+	
+	/**
+	 * Move to the next event
+	 */
+	private void moveNext() 
+	{
+		Node node = this.m_current;
+		if(this.m_event == START_DOCUMENT)
+		{
+			// Elements are reported themselves, documents and fragments by their children
+			if(this.m_root.getNodeType() == Node.ELEMENT_NODE)
+				this.moveTo(this.m_root);
+			else if(this.m_root.getFirstChild() != null)
+				this.moveTo(this.m_root.getFirstChild());
+			else
+				this.moveTo(this.m_root, END_DOCUMENT);
+		}
+		else if(this.m_event == START_ELEMENT)
+		{
+			if(node.getFirstChild() != null)
+				this.moveTo(node.getFirstChild());
+			else
+				this.moveTo(node, END_ELEMENT);
+		}
+		else if(node == this.m_root)
+			this.moveTo(node, END_DOCUMENT);
+		else if(node.getNextSibling() != null)
+			this.moveTo(node.getNextSibling());
+		else if(node.getParentNode() == this.m_root && this.m_root.getNodeType() != Node.ELEMENT_NODE)
+			this.moveTo(this.m_root, END_DOCUMENT);
+		else
+			this.moveTo(node.getParentNode(), END_ELEMENT);
+	}
+	
+	/**
+	 * Sort the attributes of the current element into attributes and namespaces
+	 */
+	private void loadAttributes()
+	{
+		if(this.m_attributes != null)
+			return;
+		if(this.m_event != START_ELEMENT && this.m_event != END_ELEMENT)
+			throw new IllegalStateException("Attributes and namespaces are only available on elements");
+		
+		NamedNodeMap map = this.m_current.getAttributes();
+		this.m_attributes = new ArrayList<Attr>(map.getLength());
+		this.m_namespaces = new ArrayList<Attr>();
+		for(int i = 0; i < map.getLength(); i++)
+		{
+			Attr attr = (Attr)map.item(i);
+			String name = attr.getNodeName();
+			if(XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI()) || 
+					name.equals(XMLConstants.XMLNS_ATTRIBUTE) || 
+					name.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ":"))
+				this.m_namespaces.add(attr);
+			else
+				this.m_attributes.add(attr);
+		}
+	}
+	
+	/**
+	 * Gets the local name of a node, which may not have been created namespace aware
+	 */
+	private static String getLocalName(Node node)
+	{
+		String retVal = node.getLocalName();
+		if(retVal == null)
+		{
+			retVal = node.getNodeName();
+			retVal = retVal.substring(retVal.indexOf(':') + 1);
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Gets the prefix of a node, which may not have been created namespace aware
+	 */
+	private static String getPrefix(Node node)
+	{
+		if(node.getLocalName() != null)
+			return node.getPrefix();
+		String name = node.getNodeName();
+		int colon = name.indexOf(':');
+		return colon == -1 ? null : name.substring(0, colon);
+	}
+	
+	/**
+	 * Gets the namespace of a node, which may not have been created namespace aware
+	 */
+	private static String getNamespaceURI(Node node)
+	{
+		if(node.getLocalName() != null)
+			return node.getNamespaceURI();
+		String prefix = getPrefix(node);
+		if(prefix == null && node.getNodeType() == Node.ATTRIBUTE_NODE)
+			return null;
+		return lookupNamespaceURI(node.getNodeType() == Node.ATTRIBUTE_NODE ? ((Attr)node).getOwnerElement() : node, prefix);
+	}
+	
+	/**
+	 * Resolve a prefix in scope of the specified node
+	 */
+	private static String lookupNamespaceURI(Node node, String prefix)
+	{
+		if(XMLConstants.XML_NS_PREFIX.equals(prefix))
+			return XMLConstants.XML_NS_URI;
+		else if(XMLConstants.XMLNS_ATTRIBUTE.equals(prefix))
+			return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+		else if(node == null)
+			return null;
+		return node.lookupNamespaceURI(prefix == null || prefix.length() == 0 ? null : prefix);
+	}
+	
+	/**
+	 * Gets the element in scope of the current node
+	 */
+	private Node getScopeElement()
+	{
+		Node node = this.m_current;
+		while(node != null && node.getNodeType() != Node.ELEMENT_NODE)
+			node = node.getParentNode();
+		return node;
+	}
+	
+	/**
+	 * Gets the declared prefix of a namespace declaration
+	 */
+	private static String getDeclaredPrefix(Attr attr)
+	{
+		String name = attr.getNodeName();
+		return name.length() == XMLConstants.XMLNS_ATTRIBUTE.length() ? null : name.substring(XMLConstants.XMLNS_ATTRIBUTE.length() + 1);
+	}
+	
+	/**
+	 * Closes the reader, the DOM is not affected
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+	}
+
+	/**
+	 * Gets the number of attributes on the current element
+	 */
+	@Override
+	public int getAttributeCount() {
+		if(this.m_event != START_ELEMENT)
+			throw new IllegalStateException("Attributes are only available on start elements");
+		this.loadAttributes();
+		return this.m_attributes.size();
+	}
+
+	/**
+	 * Gets the local name of the attribute
+	 */
+	@Override
+	public String getAttributeLocalName(int index) {
+		this.getAttributeCount();
+		return getLocalName(this.m_attributes.get(index));
+	}
+
+	/**
+	 * Gets the qualified name of the attribute
+	 */
+	@Override
+	public QName getAttributeName(int index) {
+		String ns = this.getAttributeNamespace(index), 
+				prefix = this.getAttributePrefix(index);
+		return new QName(ns == null ? "" : ns, this.getAttributeLocalName(index), prefix == null ? "" : prefix);
+	}
+
+	/**
+	 * Gets the namespace of the attribute
+	 */
+	@Override
+	public String getAttributeNamespace(int index) {
+		this.getAttributeCount();
+		return getNamespaceURI(this.m_attributes.get(index));
+	}
+
+	/**
+	 * Gets the prefix of the attribute
+	 */
+	@Override
+	public String getAttributePrefix(int index) {
+		this.getAttributeCount();
+		return getPrefix(this.m_attributes.get(index));
+	}
+
+	/**
+	 * Gets the type of the attribute, DOM does not retain types so all attributes are CDATA
+	 */
+	@Override
+	public String getAttributeType(int index) {
+		this.getAttributeCount();
+		this.m_attributes.get(index);
+		return "CDATA";
+	}
+
+	/**
+	 * Gets the value of the attribute
+	 */
+	@Override
+	public String getAttributeValue(int index) {
+		this.getAttributeCount();
+		return this.m_attributes.get(index).getValue();
+	}
+
+	/**
+	 * Gets the value of the specified attribute
+	 */
+	@Override
+	public String getAttributeValue(String namespaceURI, String localName) {
+		int count = this.getAttributeCount();
+		for(int i = 0; i < count; i++)
+		{
+			Attr attr = this.m_attributes.get(i);
+			if(!localName.equals(getLocalName(attr)))
+				continue;
+			String ns = getNamespaceURI(attr);
+			if(namespaceURI == null || namespaceURI.equals(ns == null ? "" : ns))
+				return attr.getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * The encoding is not known
+	 */
+	@Override
+	public String getCharacterEncodingScheme() {
+		return null;
+	}
+
+	/**
+	 * Reads the text content of a text only element
+	 */
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if(this.m_event != START_ELEMENT)
+			throw new XMLStreamException("Parser must be on START_ELEMENT to read next text", this.getLocation());
+		
+		StringBuilder content = new StringBuilder();
+		int eventType = this.next();
+		while(eventType != END_ELEMENT)
+		{
+			if(eventType == CHARACTERS || eventType == CDATA || eventType == SPACE || eventType == ENTITY_REFERENCE)
+				content.append(this.getText());
+			else if(eventType == END_DOCUMENT)
+				throw new XMLStreamException("Unexpected end of document when reading element text content", this.getLocation());
+			else if(eventType == START_ELEMENT)
+				throw new XMLStreamException("Element text content may not contain START_ELEMENT", this.getLocation());
+			else if(eventType != PROCESSING_INSTRUCTION && eventType != COMMENT)
+				throw new XMLStreamException("Unexpected event type " + eventType, this.getLocation());
+			eventType = this.next();
+		}
+		return content.toString();
+	}
+
+	/**
+	 * The encoding is not known
+	 */
+	@Override
+	public String getEncoding() {
+		return null;
+	}
+
+	/**
+	 * Gets the current event
+	 */
+	@Override
+	public int getEventType() {
+		return this.m_event;
+	}
+
+	/**
+	 * Gets the local name of the current element or entity reference
+	 */
+	@Override
+	public String getLocalName() {
+		if(this.m_event == ENTITY_REFERENCE)
+			return this.m_current.getNodeName();
+		else if(this.m_event != START_ELEMENT && this.m_event != END_ELEMENT)
+			throw new IllegalStateException("Names are only available on elements and entity references");
+		return getLocalName(this.m_current);
+	}
+
+	/**
+	 * DOM nodes have no location
+	 */
+	@Override
+	public Location getLocation() {
+		return s_location;
+	}
+
+	/**
+	 * Gets the qualified name of the current element
+	 */
+	@Override
+	public QName getName() {
+		String ns = this.getNamespaceURI(), 
+				prefix = this.getPrefix();
+		return new QName(ns == null ? "" : ns, this.getLocalName(), prefix == null ? "" : prefix);
+	}
+
+	/**
+	 * Gets the namespace context of the current node
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		final Node scope = this.getScopeElement();
+		return new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				String retVal = lookupNamespaceURI(scope, prefix);
+				return retVal == null ? XMLConstants.NULL_NS_URI : retVal;
+			}
+			@Override
+			public String getPrefix(String namespaceURI) {
+				if(XMLConstants.XML_NS_URI.equals(namespaceURI))
+					return XMLConstants.XML_NS_PREFIX;
+				else if(XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespaceURI))
+					return XMLConstants.XMLNS_ATTRIBUTE;
+				else if(scope == null)
+					return null;
+				else if(scope.isDefaultNamespace(namespaceURI))
+					return XMLConstants.DEFAULT_NS_PREFIX;
+				return scope.lookupPrefix(namespaceURI);
+			}
+			@SuppressWarnings("rawtypes")
+			@Override
+			public Iterator getPrefixes(String namespaceURI) {
+				String prefix = this.getPrefix(namespaceURI);
+				return prefix == null ? Collections.emptyList().iterator() : Collections.singletonList(prefix).iterator();
+			}
+		};
+	}
+
+	/**
+	 * Gets the number of namespaces declared on the current element
+	 */
+	@Override
+	public int getNamespaceCount() {
+		this.loadAttributes();
+		return this.m_namespaces.size();
+	}
+
+	/**
+	 * Gets the prefix of the namespace declaration
+	 */
+	@Override
+	public String getNamespacePrefix(int index) {
+		this.loadAttributes();
+		return getDeclaredPrefix(this.m_namespaces.get(index));
+	}
+
+	/**
+	 * Gets the namespace of the current element
+	 */
+	@Override
+	public String getNamespaceURI() {
+		if(this.m_event != START_ELEMENT && this.m_event != END_ELEMENT)
+			return null;
+		return getNamespaceURI(this.m_current);
+	}
+
+	/**
+	 * Resolve the specified prefix in scope of the current node
+	 */
+	@Override
+	public String getNamespaceURI(String prefix) {
+		if(prefix == null)
+			throw new IllegalArgumentException("prefix");
+		return lookupNamespaceURI(this.getScopeElement(), prefix);
+	}
+
+	/**
+	 * Gets the URI of the namespace declaration
+	 */
+	@Override
+	public String getNamespaceURI(int index) {
+		this.loadAttributes();
+		return this.m_namespaces.get(index).getValue();
+	}
+
+	/**
+	 * Gets the data of the current processing instruction
+	 */
+	@Override
+	public String getPIData() {
+		return this.m_event == PROCESSING_INSTRUCTION ? ((ProcessingInstruction)this.m_current).getData() : null;
+	}
+
+	/**
+	 * Gets the target of the current processing instruction
+	 */
+	@Override
+	public String getPITarget() {
+		return this.m_event == PROCESSING_INSTRUCTION ? ((ProcessingInstruction)this.m_current).getTarget() : null;
+	}
+
+	/**
+	 * Gets the prefix of the current element
+	 */
+	@Override
+	public String getPrefix() {
+		if(this.m_event != START_ELEMENT && this.m_event != END_ELEMENT)
+			return null;
+		return getPrefix(this.m_current);
+	}
+
+	/**
+	 * No properties are supported
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		if(name == null)
+			throw new IllegalArgumentException("name");
+		return null;
+	}
+
+	/**
+	 * Gets the text of the current node
+	 */
+	@Override
+	public String getText() {
+		switch(this.m_event)
+		{
+			case CHARACTERS:
+			case CDATA:
+			case SPACE:
+			case COMMENT:
+				return this.m_current.getNodeValue();
+			case ENTITY_REFERENCE:
+				return this.m_current.getTextContent();
+			case DTD:
+				return "";
+			default:
+				throw new IllegalStateException("The current event has no text");
+		}
+	}
+
+	/**
+	 * Gets the text of the current node
+	 */
+	@Override
+	public char[] getTextCharacters() {
+		return this.getText().toCharArray();
+	}
+
+	/**
+	 * Copy the text of the current node
+	 */
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+		String text = this.getText();
+		if(sourceStart >= text.length())
+			return 0;
+		int copied = Math.min(length, text.length() - sourceStart);
+		text.getChars(sourceStart, sourceStart + copied, target, targetStart);
+		return copied;
+	}
+
+	/**
+	 * Gets the length of the text of the current node
+	 */
+	@Override
+	public int getTextLength() {
+		return this.getText().length();
+	}
+
+	/**
+	 * Text always starts at the beginning of the array returned by getTextCharacters
+	 */
+	@Override
+	public int getTextStart() {
+		return 0;
+	}
+
+	/**
+	 * The version is not known
+	 */
+	@Override
+	public String getVersion() {
+		return null;
+	}
+
+	/**
+	 * Returns true if the current event is an element
+	 */
+	@Override
+	public boolean hasName() {
+		return this.m_event == START_ELEMENT || this.m_event == END_ELEMENT;
+	}
+
+	/**
+	 * Returns true if there are more events
+	 */
+	@Override
+	public boolean hasNext() throws XMLStreamException {
+		return this.m_event != END_DOCUMENT;
+	}
+
+	/**
+	 * Returns true if the current event has text
+	 */
+	@Override
+	public boolean hasText() {
+		return this.m_event == CHARACTERS || this.m_event == CDATA || this.m_event == SPACE || 
+				this.m_event == COMMENT || this.m_event == ENTITY_REFERENCE || this.m_event == DTD;
+	}
+
+	/**
+	 * All attributes in the DOM are reported as specified unless the DOM says otherwise
+	 */
+	@Override
+	public boolean isAttributeSpecified(int index) {
+		this.getAttributeCount();
+		return this.m_attributes.get(index).getSpecified();
+	}
+
+	/**
+	 * Returns true if the current event is character data
+	 */
+	@Override
+	public boolean isCharacters() {
+		return this.m_event == CHARACTERS;
+	}
+
+	/**
+	 * Returns true if the current event is an end element
+	 */
+	@Override
+	public boolean isEndElement() {
+		return this.m_event == END_ELEMENT;
+	}
+
+	/**
+	 * Standalone is not known
+	 */
+	@Override
+	public boolean isStandalone() {
+		return false;
+	}
+
+	/**
+	 * Returns true if the current event is a start element
+	 */
+	@Override
+	public boolean isStartElement() {
+		return this.m_event == START_ELEMENT;
+	}
+
+	/**
+	 * Returns true if the current event is character data consisting only of white space
+	 */
+	@Override
+	public boolean isWhiteSpace() {
+		if(this.m_event == SPACE)
+			return true;
+		else if(this.m_event != CHARACTERS)
+			return false;
+		String text = this.getText();
+		for(int i = 0; i < text.length(); i++)
+			if(!Character.isWhitespace(text.charAt(i)))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Move to the next event
+	 */
+	@Override
+	public int next() throws XMLStreamException {
+		if(this.m_event == END_DOCUMENT)
+			throw new NoSuchElementException();
+		this.moveNext();
+		return this.m_event;
+	}
+
+	/**
+	 * Skip white space, comments and processing instructions to the next element
+	 */
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int eventType = this.next();
+		while((eventType == CHARACTERS && this.isWhiteSpace()) || eventType == SPACE || 
+				eventType == PROCESSING_INSTRUCTION || eventType == COMMENT)
+			eventType = this.next();
+		if(eventType != START_ELEMENT && eventType != END_ELEMENT)
+			throw new XMLStreamException("Expected start or end tag", this.getLocation());
+		return eventType;
+	}
+
+	/**
+	 * Ensure the current event matches
+	 */
+	@Override
+	public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+		if(type != this.m_event)
+			throw new XMLStreamException(String.format("Expected event %s but was %s", type, this.m_event), this.getLocation());
+		else if(namespaceURI != null && !namespaceURI.equals(this.getNamespaceURI()))
+			throw new XMLStreamException(String.format("Expected namespace '%s' but was '%s'", namespaceURI, this.getNamespaceURI()), this.getLocation());
+		else if(localName != null && !localName.equals(this.getLocalName()))
+			throw new XMLStreamException(String.format("Expected element '%s' but was '%s'", localName, this.getLocalName()), this.getLocation());
+	}
+
+	/**
+	 * Standalone is not known
+	 */
+	@Override
+	public boolean standaloneSet() {
+		return false;
+	}
+
+}
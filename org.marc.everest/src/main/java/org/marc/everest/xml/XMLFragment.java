@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+/**
+ * A repetition of a child element of the root element found by the XMLFragmentScanner
+ */
+public final class XMLFragment {
+
+	// The position of the fragment amongst the repetitions
+	private final int m_index;
+	// The qualified name of the element as written
+	private final String m_name;
+	// The offset of the start of the element
+	private final int m_offset;
+	// The length of the element in bytes
+	private final int m_length;
+	// The line the element starts on
+	private final int m_lineNumber;
+	
+	/**
+	 * Creates a new fragment
+	 */
+	XMLFragment(int index, String name, int offset, int length, int lineNumber)
+	{
+		this.m_index = index;
+		this.m_name = name;
+		this.m_offset = offset;
+		this.m_length = length;
+		this.m_lineNumber = lineNumber;
+	}
+	
+	/**
+	 * Gets the zero based position of the fragment amongst the repetitions
+	 */
+	public int getIndex() { return this.m_index; }
+	
+	/**
+	 * Gets the qualified name of the element as written
+	 */
+	public String getName() { return this.m_name; }
+	
+	/**
+	 * Gets the local name of the element
+	 */
+	public String getLocalName() { 
+		return this.m_name.substring(this.m_name.indexOf(':') + 1);
+	}
+	
+	/**
+	 * Gets the prefix of the element, or an empty string when the element has none
+	 */
+	public String getPrefix() {
+		int colon = this.m_name.indexOf(':');
+		return colon == -1 ? "" : this.m_name.substring(0, colon);
+	}
+	
+	/**
+	 * Gets the offset of the start of the element in the scanned data
+	 */
+	public int getOffset() { return this.m_offset; }
+	
+	/**
+	 * Gets the length in bytes of the element, from its start tag to the end of its end tag
+	 */
+	public int getLength() { return this.m_length; }
+	
+	/**
+	 * Gets the one based line number the element starts on
+	 */
+	public int getLineNumber() { return this.m_lineNumber; }
+	
+	/**
+	 * Represent the fragment as a string
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s[%s] at line %s", this.m_name, this.m_index + 1, this.m_lineNumber);
+	}
+}
@@ -0,0 +1,368 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the repetitions of a child element of the root element of an XML document by scanning its
+ * bytes, without parsing it. Each repetition can then be parsed on its own, for example on another
+ * thread, with the namespaces declared on the root element in scope. 
+ * <p>
+ * Only documents in an encoding which is compatible with ASCII (such as UTF-8 or ISO-8859-1) and 
+ * which have no document type declaration can be scanned, for other documents no fragments are found.
+ * </p>
+ */
+public class XMLFragmentScanner {
+
+	// The data being scanned
+	private final byte[] m_data;
+	// The encoding of the data
+	private Charset m_charset = Charset.forName("UTF-8");
+	// The qualified name of the root element as written
+	private String m_rootName;
+	// The namespaces declared on the root element
+	private final Map<String, String> m_namespaces = new LinkedHashMap<String, String>();
+	// The children of the root element, null until scanned
+	private List<XMLFragment> m_children;
+	// The fragments found by the last scan
+	private List<XMLFragment> m_fragments = Collections.emptyList();
+	
+	/**
+	 * Creates a new scanner over the specified document
+	 */
+	public XMLFragmentScanner(byte[] data)
+	{
+		if(data == null)
+			throw new IllegalArgumentException("data");
+		this.m_data = data;
+	}
+	
+	/**
+	 * Find the repetitions of the specified child element of the root element 
+	 * @param localName The local name of the repeating element, or null to find the child element which repeats most
+	 * @return The repetitions in document order, empty if the document can't be scanned or the element doesn't repeat 
+	 */
+	public List<XMLFragment> scan(String localName)
+	{
+		if(this.m_children == null)
+		{
+			this.m_children = this.scanChildren();
+			if(this.m_children == null)
+				this.m_children = Collections.emptyList();
+		}
+		
+		// Find the name which repeats most
+		String name = null;
+		if(localName == null)
+		{
+			Map<String, Integer> counts = new HashMap<String, Integer>();
+			int most = 1;
+			for(XMLFragment child : this.m_children)
+			{
+				Integer count = counts.get(child.getName());
+				count = count == null ? 1 : count + 1;
+				counts.put(child.getName(), count);
+				if(count > most)
+				{
+					most = count;
+					name = child.getName();
+				}
+			}
+		}
+		
+		List<XMLFragment> retVal = new ArrayList<XMLFragment>();
+		for(XMLFragment child : this.m_children)
+			if(name != null ? child.getName().equals(name) : child.getLocalName().equals(localName))
+				retVal.add(new XMLFragment(retVal.size(), child.getName(), child.getOffset(), child.getLength(), child.getLineNumber()));
+		this.m_fragments = Collections.unmodifiableList(retVal);
+		return this.m_fragments;
+	}
+	
+	/**
+	 * Gets the qualified name of the root element as written, null if it has not been found
+	 */
+	public String getRootName() { return this.m_rootName; }
+	
+	/**
+	 * Gets the namespaces declared on the root element keyed by prefix, the default namespace has an
+	 * empty prefix. Values are as written in the document
+	 */
+	public Map<String, String> getNamespaces() { return Collections.unmodifiableMap(this.m_namespaces); }
+	
+	/**
+	 * Gets the name of the encoding of the document
+	 */
+	public String getEncoding() { return this.m_charset.name(); }
+	
+	/**
+	 * Open the document with the fragments found by the last scan removed
+	 */
+	public InputStream openEnvelope()
+	{
+		List<InputStream> segments = new ArrayList<InputStream>(this.m_fragments.size() + 1);
+		int offset = 0;
+		for(XMLFragment fragment : this.m_fragments)
+		{
+			segments.add(new ByteArrayInputStream(this.m_data, offset, fragment.getOffset() - offset));
+			offset = fragment.getOffset() + fragment.getLength();
+		}
+		segments.add(new ByteArrayInputStream(this.m_data, offset, this.m_data.length - offset));
+		return new SequenceInputStream(Collections.enumeration(segments));
+	}
+	
+	/**
+	 * Open the specified fragment as a document. The fragment is enclosed in an element with the name 
+	 * of the root element which declares the namespaces declared by the root element, and has no XML
+	 * declaration so it must be read with the encoding returned by getEncoding
+	 */
+	public InputStream openFragment(XMLFragment fragment)
+	{
+		StringBuilder start = new StringBuilder("<").append(this.m_rootName);
+		for(Map.Entry<String, String> ns : this.m_namespaces.entrySet())
+		{
+			start.append(ns.getKey().isEmpty() ? " xmlns" : " xmlns:").append(ns.getKey());
+			start.append("=\"").append(ns.getValue().replace("\"", "&quot;")).append("\"");
+		}
+		start.append(">");
+		
+		return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(start.toString().getBytes(this.m_charset)),
+				new ByteArrayInputStream(this.m_data, fragment.getOffset(), fragment.getLength()),
+				new ByteArrayInputStream(String.format("</%s>", this.m_rootName).getBytes(this.m_charset))
+			)));
+	}
+	
+	/**
+	 * Find the child elements of the root element, returning null if the document can't be scanned
+	 */
+	private List<XMLFragment> scanChildren()
+	{
+		byte[] d = this.m_data;
+		int pos = 0, line = 1, depth = 0, childStart = -1, childLine = 0;
+		String childName = null;
+		List<XMLFragment> retVal = new ArrayList<XMLFragment>();
+		
+		// Byte order mark
+		if(d.length >= 3 && d[0] == (byte)0xEF && d[1] == (byte)0xBB && d[2] == (byte)0xBF)
+			pos = 3;
+		else if(d.length >= 2 && (d[0] == (byte)0xFE || d[0] == (byte)0xFF || d[0] == 0 || d[1] == 0)) // UTF-16 or UTF-32
+			return null;
+		
+		while(pos < d.length)
+		{
+			if(d[pos] == '\n')
+				line++;
+			if(d[pos] != '<')
+			{
+				pos++;
+				continue;
+			}
+			
+			int tagLine = line, end;
+			if(this.startsWith(pos, "<?"))
+			{
+				end = this.indexOf(pos, "?>");
+				if(end == -1)
+					return null;
+				else if(this.m_rootName == null && this.startsWith(pos, "<?xml ") && !this.readEncoding(pos, end))
+					return null;
+				end += 1;
+			}
+			else if(this.startsWith(pos, "<!--"))
+				end = this.indexOf(pos + 4, "-->") + 2;
+			else if(this.startsWith(pos, "<![CDATA["))
+				end = this.indexOf(pos + 9, "]]>") + 2;
+			else if(this.startsWith(pos, "<!")) // document type declarations can declare entities
+				return null;
+			else if(this.startsWith(pos, "</"))
+			{
+				end = this.indexOf(pos, ">");
+				if(end == -1)
+					return null;
+				else if(--depth == 1)
+					retVal.add(new XMLFragment(retVal.size(), childName, childStart, end + 1 - childStart, childLine));
+				else if(depth == 0)
+					return retVal;
+			}
+			else
+			{
+				end = this.tagEnd(pos);
+				if(end == -1)
+					return null;
+				
+				boolean isEmpty = d[end - 1] == '/';
+				int nameEnd = pos + 1;
+				while(nameEnd < end && d[nameEnd] != '/' && d[nameEnd] > ' ')
+					nameEnd++;
+				String name = new String(d, pos + 1, nameEnd - pos - 1, this.m_charset);
+				
+				if(depth == 0)
+				{
+					if(this.m_rootName != null) // more than one root
+						return null;
+					this.m_rootName = name;
+					this.readNamespaces(nameEnd, isEmpty ? end - 1 : end);
+					if(isEmpty)
+						return retVal;
+				}
+				else if(depth == 1 && isEmpty)
+					retVal.add(new XMLFragment(retVal.size(), name, pos, end + 1 - pos, tagLine));
+				else if(depth == 1)
+				{
+					childName = name;
+					childStart = pos;
+					childLine = tagLine;
+				}
+				
+				if(!isEmpty)
+					depth++;
+			}
+			
+			if(end < pos) // unterminated comment or CDATA section
+				return null;
+			for(int i = pos + 1; i <= end; i++)
+				if(d[i] == '\n')
+					line++;
+			pos = end + 1;
+		}
+		
+		// The root element was never closed
+		return null;
+	}
+	
+	/**
+	 * True if the data at offset starts with the specified ASCII text
+	 */
+	private boolean startsWith(int offset, String text)
+	{
+		if(offset + text.length() > this.m_data.length)
+			return false;
+		for(int i = 0; i < text.length(); i++)
+			if(this.m_data[offset + i] != text.charAt(i))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Find the specified ASCII text at or after offset, returning -1 if it isn't found
+	 */
+	private int indexOf(int offset, String text)
+	{
+		for(int i = offset; i <= this.m_data.length - text.length(); i++)
+			if(this.startsWith(i, text))
+				return i;
+		return -1;
+	}
+	
+	/**
+	 * Find the closing angle bracket of the tag starting at offset, skipping quoted attribute values 
+	 */
+	private int tagEnd(int offset)
+	{
+		byte quote = 0;
+		for(int i = offset + 1; i < this.m_data.length; i++)
+		{
+			byte b = this.m_data[i];
+			if(quote != 0)
+			{
+				if(b == quote)
+					quote = 0;
+			}
+			else if(b == '"' || b == '\'')
+				quote = b;
+			else if(b == '>')
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Read the attributes between start and end, returning them in the order written
+	 */
+	private List<String[]> readAttributes(int start, int end)
+	{
+		List<String[]> retVal = new ArrayList<String[]>();
+		int pos = start;
+		while(pos < end)
+		{
+			while(pos < end && this.m_data[pos] <= ' ')
+				pos++;
+			int nameStart = pos;
+			while(pos < end && this.m_data[pos] != '=' && this.m_data[pos] > ' ')
+				pos++;
+			int nameEnd = pos;
+			while(pos < end && this.m_data[pos] != '"' && this.m_data[pos] != '\'')
+				pos++;
+			if(pos == end || nameEnd == nameStart)
+				break;
+			byte quote = this.m_data[pos];
+			int valueStart = ++pos;
+			while(pos < end && this.m_data[pos] != quote)
+				pos++;
+			retVal.add(new String[] {
+					new String(this.m_data, nameStart, nameEnd - nameStart, this.m_charset),
+					new String(this.m_data, valueStart, pos - valueStart, this.m_charset)
+			});
+			pos++;
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Read the namespace declarations of the root element
+	 */
+	private void readNamespaces(int start, int end)
+	{
+		for(String[] attribute : this.readAttributes(start, end))
+			if(attribute[0].equals("xmlns"))
+				this.m_namespaces.put("", attribute[1]);
+			else if(attribute[0].startsWith("xmlns:"))
+				this.m_namespaces.put(attribute[0].substring(6), attribute[1]);
+	}
+	
+	/**
+	 * Read the encoding from the XML declaration, returning false if the encoding isn't compatible with ASCII
+	 */
+	private boolean readEncoding(int start, int end)
+	{
+		for(String[] attribute : this.readAttributes(start + 5, end))
+			if(attribute[0].equals("encoding"))
+				try
+				{
+					Charset charset = Charset.forName(attribute[1]);
+					if(!Arrays.equals("<?xml".getBytes(charset), "<?xml".getBytes(this.m_charset)))
+						return false;
+					this.m_charset = charset;
+				}
+				catch(IllegalArgumentException e) // illegal or unsupported charset
+				{
+					return false;
+				}
+		return true;
+	}
+}
@@ -0,0 +1,470 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * An XMLStreamWriter which records the calls made to it so they can be replayed onto another 
+ * writer later. Prefixes which are not bound by the recorded calls are resolved with the namespace
+ * context of the writer the recording will be replayed onto, which must not be written to until every
+ * recording made from it is complete. Recordings made on different threads read the parent one at a 
+ * time.
+ */
+class XMLRecordingStreamWriter implements XMLStreamWriter {
+
+	/**
+	 * A recorded call
+	 */
+	private static abstract class Event {
+		/**
+		 * Make the call on the specified writer
+		 */
+		abstract void replay(XMLStreamWriter xw) throws XMLStreamException;
+	}
+	
+	// The recorded calls
+	private final List<Event> m_events = new ArrayList<Event>();
+	// Prefixes bound by the recorded calls
+	private final NamespaceSupport m_bindings = new NamespaceSupport();
+	// The writer the recording will be replayed onto
+	private final XMLStreamWriter m_parent;
+	
+	/**
+	 * Creates a new recording writer
+	 * @param parent The writer the recording will be replayed onto
+	 */
+	XMLRecordingStreamWriter(XMLStreamWriter parent)
+	{
+		this.m_parent = parent;
+	}
+	
+	/**
+	 * Bind a prefix which the parent writer will have declared by the time the recording is replayed
+	 */
+	void declarePrefix(String prefix, String namespaceURI) {
+		this.m_bindings.declarePrefix(prefix == null ? "" : prefix, namespaceURI);
+	}
+	
+	/**
+	 * True when no calls have been recorded
+	 */
+	boolean isEmpty() {
+		return this.m_events.isEmpty();
+	}
+	
+	/**
+	 * Make the recorded calls on the specified writer
+	 */
+	void replay(XMLStreamWriter xw) throws XMLStreamException {
+		for(Event event : this.m_events)
+			event.replay(xw);
+	}
+	
+	/**
+	 * Writes a start element
+	 */
+	@Override
+	public void writeStartElement(final String localName) throws XMLStreamException {
+		this.m_bindings.pushContext();
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeStartElement(localName);
+			}
+		});
+	}
+
+	/**
+	 * Writes a start element in the specified namespace
+	 */
+	@Override
+	public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+		this.m_bindings.pushContext();
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeStartElement(namespaceURI, localName);
+			}
+		});
+	}
+
+	/**
+	 * Writes a start element with the specified prefix
+	 */
+	@Override
+	public void writeStartElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+		this.m_bindings.pushContext();
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeStartElement(prefix, localName, namespaceURI);
+			}
+		});
+	}
+
+	/**
+	 * Writes an empty element
+	 */
+	@Override
+	public void writeEmptyElement(final String localName) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeEmptyElement(localName);
+			}
+		});
+	}
+
+	/**
+	 * Writes an empty element in the specified namespace
+	 */
+	@Override
+	public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeEmptyElement(namespaceURI, localName);
+			}
+		});
+	}
+
+	/**
+	 * Writes an empty element with the specified prefix
+	 */
+	@Override
+	public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeEmptyElement(prefix, localName, namespaceURI);
+			}
+		});
+	}
+
+	/**
+	 * Writes an end element
+	 */
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		this.m_bindings.popContext();
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeEndElement();
+			}
+		});
+	}
+
+	/**
+	 * Writes an attribute
+	 */
+	@Override
+	public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeAttribute(localName, value);
+			}
+		});
+	}
+
+	/**
+	 * Writes an attribute in the specified namespace
+	 */
+	@Override
+	public void writeAttribute(final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeAttribute(namespaceURI, localName, value);
+			}
+		});
+	}
+
+	/**
+	 * Writes an attribute with the specified prefix
+	 */
+	@Override
+	public void writeAttribute(final String prefix, final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeAttribute(prefix, namespaceURI, localName, value);
+			}
+		});
+	}
+
+	/**
+	 * Writes a namespace declaration
+	 */
+	@Override
+	public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+		this.m_bindings.declarePrefix(prefix == null ? "" : prefix, namespaceURI);
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeNamespace(prefix, namespaceURI);
+			}
+		});
+	}
+
+	/**
+	 * Writes the default namespace declaration
+	 */
+	@Override
+	public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+		this.m_bindings.declarePrefix("", namespaceURI);
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeDefaultNamespace(namespaceURI);
+			}
+		});
+	}
+
+	/**
+	 * Writes a comment
+	 */
+	@Override
+	public void writeComment(final String data) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeComment(data);
+			}
+		});
+	}
+
+	/**
+	 * Writes a processing instruction
+	 */
+	@Override
+	public void writeProcessingInstruction(final String target) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeProcessingInstruction(target);
+			}
+		});
+	}
+
+	/**
+	 * Writes a processing instruction with data
+	 */
+	@Override
+	public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeProcessingInstruction(target, data);
+			}
+		});
+	}
+
+	/**
+	 * Writes a CDATA section
+	 */
+	@Override
+	public void writeCData(final String data) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeCData(data);
+			}
+		});
+	}
+
+	/**
+	 * Document type declarations cannot appear within an element
+	 */
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		throw new XMLStreamException("A DTD cannot be written to a buffer");
+	}
+
+	/**
+	 * Writes an entity reference
+	 */
+	@Override
+	public void writeEntityRef(final String name) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeEntityRef(name);
+			}
+		});
+	}
+
+	/**
+	 * The document has already been started
+	 */
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+	}
+
+	/**
+	 * The document has already been started
+	 */
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+	}
+
+	/**
+	 * The document has already been started
+	 */
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+	}
+
+	/**
+	 * The document is ended by the writer the recording is replayed onto
+	 */
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+	}
+
+	/**
+	 * Writes characters
+	 */
+	@Override
+	public void writeCharacters(final String text) throws XMLStreamException {
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.writeCharacters(text);
+			}
+		});
+	}
+
+	/**
+	 * Writes characters, copying them as the array may be reused by the caller
+	 */
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		this.writeCharacters(new String(text, start, len));
+	}
+
+	/**
+	 * Gets the prefix bound to the namespace
+	 */
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return this.getNamespaceContext().getPrefix(uri);
+	}
+
+	/**
+	 * Binds the prefix to the namespace in the current scope
+	 */
+	@Override
+	public void setPrefix(final String prefix, final String uri) throws XMLStreamException {
+		this.m_bindings.declarePrefix(prefix, uri);
+		this.m_events.add(new Event() {
+			@Override
+			void replay(XMLStreamWriter xw) throws XMLStreamException {
+				xw.setPrefix(prefix, uri);
+			}
+		});
+	}
+
+	/**
+	 * Binds the default namespace in the current scope
+	 */
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		this.setPrefix("", uri);
+	}
+
+	/**
+	 * The namespace context of a buffer is inherited from the writer it will be replayed onto
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		throw new UnsupportedOperationException("The namespace context of a buffer cannot be replaced");
+	}
+
+	/**
+	 * Gets the namespace context, the prefixes bound by the recorded calls followed by those of the parent
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				String retVal = m_bindings.getURI(prefix);
+				if(retVal == null)
+					synchronized (m_parent) {
+						retVal = m_parent.getNamespaceContext().getNamespaceURI(prefix);
+					}
+				return retVal;
+			}
+			@Override
+			public String getPrefix(String namespaceURI) {
+				String retVal = m_bindings.getPrefix(namespaceURI);
+				if(retVal == null && namespaceURI != null && namespaceURI.equals(m_bindings.getURI("")))
+					retVal = XMLConstants.DEFAULT_NS_PREFIX;
+				if(retVal == null)
+					synchronized (m_parent) {
+						retVal = m_parent.getNamespaceContext().getPrefix(namespaceURI);
+					}
+				return retVal;
+			}
+			@Override
+			@SuppressWarnings("rawtypes")
+			public Iterator getPrefixes(String namespaceURI) {
+				String prefix = this.getPrefix(namespaceURI);
+				List<String> retVal = new ArrayList<String>(1);
+				if(prefix != null)
+					retVal.add(prefix);
+				return retVal.iterator();
+			}
+		};
+	}
+
+	/**
+	 * Gets a property of the writer the recording will be replayed onto
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		synchronized (this.m_parent) {
+			return this.m_parent.getProperty(name);
+		}
+	}
+
+	/**
+	 * Nothing to flush
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+	}
+
+	/**
+	 * Nothing to close
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+	}
+}
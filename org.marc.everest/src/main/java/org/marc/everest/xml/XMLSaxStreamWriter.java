@@ -0,0 +1,582 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * An XMLStreamWriter which emits SAX events to a content handler rather than text.
+ * <p>Start elements are held until their attributes and namespaces have been written, 
+ * and any prefix used by an element or attribute which has not been declared by
+ * writeNamespace is declared when the element is emitted, so the handler always receives
+ * namespace well-formed events.</p>
+ */
+public class XMLSaxStreamWriter implements XMLStreamWriter {
+
+	// The handler receiving events
+	private final ContentHandler m_handler;
+	// The handler receiving comments and CDATA sections, may be null
+	private final LexicalHandler m_lexicalHandler;
+	// Prefixes bound by setPrefix and writeNamespace
+	private final NamespaceSupport m_bindings = new NamespaceSupport();
+	// Prefixes which have been reported to the handler
+	private final NamespaceSupport m_declarations = new NamespaceSupport();
+	// The elements which are open
+	private final List<String[]> m_openElements = new ArrayList<String[]>();
+	// Root namespace context set by the caller
+	private NamespaceContext m_rootContext;
+	
+	// The start element awaiting its attributes (uri, local name, qname)
+	private String[] m_pendingElement;
+	// True if the pending element is empty
+	private boolean m_pendingEmpty;
+	// Attributes of the pending element
+	private final AttributesImpl m_pendingAttributes = new AttributesImpl();
+	// Namespaces written on the pending element (prefix, uri pairs)
+	private final List<String> m_pendingNamespaces = new ArrayList<String>();
+	
+	/**
+	 * Creates a new writer which emits events to the specified handler
+	 */
+	public XMLSaxStreamWriter(ContentHandler handler)
+	{
+		this(handler, handler instanceof LexicalHandler ? (LexicalHandler)handler : null);
+	}
+	
+	/**
+	 * Creates a new writer which emits events to the specified handler and lexical handler
+	 */
+	public XMLSaxStreamWriter(ContentHandler handler, LexicalHandler lexicalHandler)
+	{
+		if(handler == null)
+			throw new IllegalArgumentException("handler");
+		this.m_handler = handler;
+		this.m_lexicalHandler = lexicalHandler;
+	}
+	
+	/**
+	 * Emit the pending start element
+	 */
+	private void flushStartElement() throws XMLStreamException
+	{
+		if(this.m_pendingElement == null)
+			return;
+		
+		String[] element = this.m_pendingElement;
+		boolean isEmpty = this.m_pendingEmpty;
+		this.m_pendingElement = null;
+		this.m_pendingEmpty = false;
+		
+		try
+		{
+			for(int i = 0; i < this.m_pendingNamespaces.size(); i += 2)
+				this.m_handler.startPrefixMapping(this.m_pendingNamespaces.get(i), this.m_pendingNamespaces.get(i + 1));
+			this.m_pendingNamespaces.clear();
+			
+			// Declare any prefix which is used but was never written
+			this.repairNamespace(getPrefixOf(element[2]), element[0]);
+			for(int i = 0; i < this.m_pendingAttributes.getLength(); i++)
+				if(this.m_pendingAttributes.getURI(i).length() > 0)
+					this.repairNamespace(getPrefixOf(this.m_pendingAttributes.getQName(i)), this.m_pendingAttributes.getURI(i));
+			
+			this.m_handler.startElement(element[0], element[1], element[2], this.m_pendingAttributes);
+			this.m_pendingAttributes.clear();
+			this.m_openElements.add(element);
+			
+			if(isEmpty)
+				this.writeEndElement();
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+	
+	/**
+	 * Report the prefix to the handler if it is not already in scope
+	 */
+	private void repairNamespace(String prefix, String uri) throws SAXException
+	{
+		String declared = this.m_declarations.getURI(prefix);
+		if(declared == null ? uri.length() > 0 : !declared.equals(uri))
+		{
+			this.m_declarations.declarePrefix(prefix, uri);
+			this.m_handler.startPrefixMapping(prefix, uri);
+		}
+	}
+	
+	/**
+	 * Gets the prefix of a qualified name
+	 */
+	private static String getPrefixOf(String qName)
+	{
+		int colon = qName.indexOf(':');
+		return colon == -1 ? "" : qName.substring(0, colon);
+	}
+	
+	/**
+	 * Gets the URI bound to a prefix
+	 */
+	private String getNamespaceURI(String prefix)
+	{
+		String retVal = this.m_bindings.getURI(prefix);
+		if(retVal == null && this.m_rootContext != null)
+			retVal = this.m_rootContext.getNamespaceURI(prefix);
+		if(retVal == null && prefix.length() == 0)
+			retVal = "";
+		return retVal;
+	}
+	
+	/**
+	 * Start a new element
+	 */
+	private void startElement(String prefix, String localName, String namespaceURI, boolean isEmpty) throws XMLStreamException
+	{
+		this.flushStartElement();
+		if(prefix == null)
+			prefix = "";
+		if(namespaceURI == null)
+			namespaceURI = "";
+		
+		this.m_bindings.pushContext();
+		this.m_declarations.pushContext();
+		if(namespaceURI.length() > 0 && !namespaceURI.equals(this.getNamespaceURI(prefix)))
+			this.m_bindings.declarePrefix(prefix, namespaceURI);
+		
+		this.m_pendingElement = new String[] { namespaceURI, localName, prefix.length() == 0 ? localName : prefix + ":" + localName };
+		this.m_pendingEmpty = isEmpty;
+	}
+	
+	/**
+	 * Ensure there is a start element which can accept attributes or namespaces 
+	 */
+	private void throwIfNoStartElement() throws XMLStreamException
+	{
+		if(this.m_pendingElement == null)
+			throw new XMLStreamException("Attributes and namespaces can only be written directly after a start element");
+	}
+	
+	/**
+	 * Closes the writer, this does not close the underlying handler
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+	}
+
+	/**
+	 * Flush the writer, events are passed to the handler as they are written
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+	}
+
+	/**
+	 * Gets the namespace context of the writer
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				if(XMLConstants.XMLNS_ATTRIBUTE.equals(prefix))
+					return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+				return XMLSaxStreamWriter.this.getNamespaceURI(prefix);
+			}
+			@Override
+			public String getPrefix(String namespaceURI) {
+				try {
+					return XMLSaxStreamWriter.this.getPrefix(namespaceURI);
+				} catch (XMLStreamException e) {
+					return null;
+				}
+			}
+			@SuppressWarnings("rawtypes")
+			@Override
+			public Iterator getPrefixes(String namespaceURI) {
+				List<String> retVal = new ArrayList<String>();
+				for(Enumeration<?> e = m_bindings.getPrefixes(namespaceURI); e.hasMoreElements();)
+					retVal.add((String)e.nextElement());
+				if(namespaceURI.equals(m_bindings.getURI("")))
+					retVal.add("");
+				return retVal.iterator();
+			}
+		};
+	}
+
+	/**
+	 * Gets the prefix bound to the specified URI
+	 */
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		String defaultUri = this.m_bindings.getURI("");
+		if(uri.equals(defaultUri) || uri.length() == 0 && defaultUri == null)
+			return "";
+		String retVal = this.m_bindings.getPrefix(uri);
+		if(retVal == null && this.m_rootContext != null)
+			retVal = this.m_rootContext.getPrefix(uri);
+		return retVal;
+	}
+
+	/**
+	 * Properties are not supported
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		if(XMLOutputFactory.IS_REPAIRING_NAMESPACES.equals(name))
+			return Boolean.FALSE;
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Sets the default namespace
+	 */
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		this.setPrefix("", uri);
+	}
+
+	/**
+	 * Sets the namespace context used to resolve prefixes not bound on this writer
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		if(!this.m_openElements.isEmpty() || this.m_pendingElement != null)
+			throw new XMLStreamException("The namespace context can only be set before the first element");
+		this.m_rootContext = context;
+	}
+
+	/**
+	 * Binds a prefix in the current scope
+	 */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		this.m_bindings.declarePrefix(prefix == null ? "" : prefix, uri == null ? "" : uri);
+	}
+
+	/**
+	 * Write an attribute in no namespace
+	 */
+	@Override
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		this.writeAttribute("", "", localName, value);
+	}
+
+	/**
+	 * Write an attribute in the specified namespace
+	 */
+	@Override
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		String prefix = "";
+		if(namespaceURI != null && namespaceURI.length() > 0)
+		{
+			prefix = this.getPrefix(namespaceURI);
+			if(prefix == null || prefix.length() == 0)
+				throw new XMLStreamException(String.format("Namespace '%s' is not bound to a prefix", namespaceURI));
+		}
+		this.writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	/**
+	 * Write an attribute
+	 */
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		this.throwIfNoStartElement();
+		if(prefix == null)
+			prefix = "";
+		this.m_pendingAttributes.addAttribute(namespaceURI == null ? "" : namespaceURI, localName, prefix.length() == 0 ? localName : prefix + ":" + localName, "CDATA", value);
+	}
+
+	/**
+	 * Write a CDATA section
+	 */
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		this.flushStartElement();
+		try
+		{
+			if(this.m_lexicalHandler != null)
+				this.m_lexicalHandler.startCDATA();
+			this.m_handler.characters(data.toCharArray(), 0, data.length());
+			if(this.m_lexicalHandler != null)
+				this.m_lexicalHandler.endCDATA();
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Write characters
+	 */
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		this.writeCharacters(text.toCharArray(), 0, text.length());
+	}
+
+	/**
+	 * Write characters
+	 */
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		this.flushStartElement();
+		try
+		{
+			this.m_handler.characters(text, start, len);
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Write a comment, comments are only passed to a lexical handler
+	 */
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		this.flushStartElement();
+		if(this.m_lexicalHandler == null)
+			return;
+		try
+		{
+			this.m_lexicalHandler.comment(data.toCharArray(), 0, data.length());
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Document type declarations cannot be passed as SAX events and are ignored
+	 */
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+	}
+
+	/**
+	 * Write the default namespace on the current element
+	 */
+	@Override
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		this.writeNamespace("", namespaceURI);
+	}
+
+	/**
+	 * Write an empty element in no namespace
+	 */
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		this.startElement("", localName, this.getNamespaceURI(""), true);
+	}
+
+	/**
+	 * Write an empty element in the specified namespace
+	 */
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		String prefix = this.getPrefix(namespaceURI);
+		if(prefix == null)
+			throw new XMLStreamException(String.format("Namespace '%s' is not bound to a prefix", namespaceURI));
+		this.startElement(prefix, localName, namespaceURI, true);
+	}
+
+	/**
+	 * Write an empty element
+	 */
+	@Override
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		this.startElement(prefix, localName, namespaceURI, true);
+	}
+
+	/**
+	 * Close all open elements and end the document
+	 */
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		this.flushStartElement();
+		while(!this.m_openElements.isEmpty())
+			this.writeEndElement();
+		try
+		{
+			this.m_handler.endDocument();
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Close the current element
+	 */
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		this.flushStartElement();
+		if(this.m_openElements.isEmpty())
+			throw new XMLStreamException("No element is open");
+		
+		String[] element = this.m_openElements.remove(this.m_openElements.size() - 1);
+		try
+		{
+			this.m_handler.endElement(element[0], element[1], element[2]);
+			for(Enumeration<?> e = this.m_declarations.getDeclaredPrefixes(); e.hasMoreElements();)
+				this.m_handler.endPrefixMapping((String)e.nextElement());
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+		this.m_declarations.popContext();
+		this.m_bindings.popContext();
+	}
+
+	/**
+	 * Write an entity reference, which is reported to the handler as a skipped entity
+	 */
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		this.flushStartElement();
+		try
+		{
+			this.m_handler.skippedEntity(name);
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Write a namespace declaration on the current element
+	 */
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		this.throwIfNoStartElement();
+		if(prefix == null || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix))
+			prefix = "";
+		if(namespaceURI == null)
+			namespaceURI = "";
+		
+		this.m_bindings.declarePrefix(prefix, namespaceURI);
+		if(this.m_declarations.declarePrefix(prefix, namespaceURI))
+		{
+			this.m_pendingNamespaces.add(prefix);
+			this.m_pendingNamespaces.add(namespaceURI);
+		}
+	}
+
+	/**
+	 * Write a processing instruction
+	 */
+	@Override
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		this.writeProcessingInstruction(target, "");
+	}
+
+	/**
+	 * Write a processing instruction
+	 */
+	@Override
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		this.flushStartElement();
+		try
+		{
+			this.m_handler.processingInstruction(target, data);
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Start the document
+	 */
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		try
+		{
+			this.m_handler.startDocument();
+		}
+		catch(SAXException e)
+		{
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Start the document, the version is not reported to SAX handlers
+	 */
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		this.writeStartDocument();
+	}
+
+	/**
+	 * Start the document, the version and encoding are not reported to SAX handlers
+	 */
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		this.writeStartDocument();
+	}
+
+	/**
+	 * Write a start element in the default namespace
+	 */
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		this.startElement("", localName, this.getNamespaceURI(""), false);
+	}
+
+	/**
+	 * Write a start element in the specified namespace
+	 */
+	@Override
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		String prefix = this.getPrefix(namespaceURI);
+		if(prefix == null)
+			throw new XMLStreamException(String.format("Namespace '%s' is not bound to a prefix", namespaceURI));
+		this.startElement(prefix, localName, namespaceURI, false);
+	}
+
+	/**
+	 * Write a start element
+	 */
+	@Override
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		this.startElement(prefix, localName, namespaceURI, false);
+	}
+
+}
@@ -374,6 +374,20 @@ public class XMLStateStreamWriter implements XMLStreamWriter {
 		this.m_currentPath.push(new QNameFlushable(namespaceURI, localName, prefix));
 	}
 
+	/**
+	 * Get the prefix to write an element with. The prefix the element was written with is used 
+	 * when it is declared on the element itself, otherwise the prefix in scope for its namespace
+	 */
+	private String getElementPrefix(QName elementName) throws XMLStreamException
+	{
+		for(IXMLBufferedNode buf : this.m_attributeBuffer)
+			if(buf instanceof XmlBufferedNamespaceDecl && 
+					elementName.getNamespaceURI().equals(buf.getNodeValue()) &&
+					elementName.getPrefix().equals(buf.getNodeName() == null ? "" : buf.getNodeName()))
+				return elementName.getPrefix();
+		return this.getPrefix(elementName.getNamespaceURI());
+	}
+	
 	/**
 	 * Flush attributes
 	 */
@@ -394,10 +408,11 @@ public class XMLStateStreamWriter implements XMLStreamWriter {
 				m_underlyingStream.writeStartElement(elementName.getLocalPart());
 			else
 			{
-				if(this.getPrefix(elementName.getNamespaceURI()) == null)
+				String prefix = this.getElementPrefix(elementName);
+				if(prefix == null)
 					m_underlyingStream.writeStartElement(elementName.getLocalPart());
 				else
-					m_underlyingStream.writeStartElement(this.getPrefix(elementName.getNamespaceURI()), elementName.getLocalPart(),  elementName.getNamespaceURI());
+					m_underlyingStream.writeStartElement(prefix, elementName.getLocalPart(),  elementName.getNamespaceURI());
 			}
 		}
 		else
@@ -409,7 +424,13 @@ public class XMLStateStreamWriter implements XMLStreamWriter {
 				if(elementName.getNamespaceURI() == "" || elementName.getNamespaceURI() == null)
 					m_underlyingStream.writeEmptyElement(elementName.getLocalPart());
 				else
-					m_underlyingStream.writeEmptyElement(this.getPrefix(elementName.getNamespaceURI()), elementName.getLocalPart(), elementName.getNamespaceURI());
+				{
+					String prefix = this.getElementPrefix(elementName);
+					if(prefix == null)
+						m_underlyingStream.writeEmptyElement(elementName.getLocalPart());
+					else
+						m_underlyingStream.writeEmptyElement(prefix, elementName.getLocalPart(), elementName.getNamespaceURI());
+				}
 			}
 		}	
 		
@@ -441,6 +462,57 @@ public class XMLStateStreamWriter implements XMLStreamWriter {
 		}
 	}
 
+	/**
+	 * Create a writer which records what is written to it so that it can be written on another thread
+	 * and appended to this writer with writeBuffer. The buffer starts at the current element of this
+	 * writer and resolves prefixes with the namespace context of this writer, so this writer must not
+	 * be written to, including by writeBuffer, until every buffer created from it is complete.
+	 */
+	public XMLStateStreamWriter createBuffer()
+	{
+		XMLRecordingStreamWriter recording = new XMLRecordingStreamWriter(this.m_underlyingStream);
+		XMLStateStreamWriter retVal = new XMLStateStreamWriter(recording);
+		// Namespaces declared on the current element which have not been flushed yet
+		for(IXMLBufferedNode buf : this.m_attributeBuffer)
+			if(buf instanceof XmlBufferedNamespaceDecl)
+				recording.declarePrefix(buf.getNodeName(), buf.getNodeValue());
+		for(QNameFlushable element : this.m_currentPath)
+		{
+			QNameFlushable copy = new QNameFlushable(element.getNamespaceURI(), element.getLocalPart(), element.getPrefix());
+			copy.setFlushed();
+			copy.setHasInnerElements();
+			retVal.m_currentPath.push(copy);
+		}
+		return retVal;
+	}
+
+	/**
+	 * True if this writer is a buffer created by createBuffer
+	 */
+	public boolean isBuffer()
+	{
+		return this.m_underlyingStream instanceof XMLRecordingStreamWriter;
+	}
+
+	/**
+	 * Append what was written to a buffer created by createBuffer. The output is identical to
+	 * writing the same content to this writer directly.
+	 */
+	public void writeBuffer(XMLStateStreamWriter buffer) throws XMLStreamException
+	{
+		if(!buffer.isBuffer())
+			throw new IllegalArgumentException("buffer was not created by createBuffer");
+		else if(buffer.m_currentPath.size() != this.m_currentPath.size())
+			throw new IllegalStateException("buffer has elements which have not been ended");
+
+		XMLRecordingStreamWriter recording = (XMLRecordingStreamWriter)buffer.m_underlyingStream;
+		if(recording.isEmpty())
+			return;
+		if(this.m_currentPath.size() > 0) // Flush
+			this.flushAttributes(true);
+		recording.replay(this.m_underlyingStream);
+	}
+
 	/**
 	 * Get current element path
 	 */
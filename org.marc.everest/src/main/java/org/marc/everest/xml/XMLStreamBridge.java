@@ -0,0 +1,130 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.xml;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stax.StAXResult;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Creates XML stream readers and writers directly over TrAX sources and results.
+ * <p>This allows a formatter to write into a SAX handler or DOM node, and read from
+ * a DOM node, without serializing the instance to text and parsing it again</p>
+ */
+public final class XMLStreamBridge {
+
+	// Factory used to create readers over streams
+	private static final XMLInputFactory s_inputFactory = XMLInputFactory.newInstance();
+	
+	/**
+	 * Static class
+	 */
+	private XMLStreamBridge() { }
+	
+	/**
+	 * Creates a writer which writes directly into the specified result.
+	 * @return The writer or null if the result cannot be written to directly
+	 */
+	public static XMLStreamWriter createWriter(Result result) throws XMLStreamException
+	{
+		if(result instanceof StAXResult)
+			return ((StAXResult)result).getXMLStreamWriter();
+		else if(result instanceof SAXResult)
+		{
+			SAXResult saxResult = (SAXResult)result;
+			if(saxResult.getHandler() == null)
+				return null;
+			else if(saxResult.getLexicalHandler() != null)
+				return new XMLSaxStreamWriter(saxResult.getHandler(), saxResult.getLexicalHandler());
+			return new XMLSaxStreamWriter(saxResult.getHandler());
+		}
+		else if(result instanceof DOMResult)
+		{
+			DOMResult domResult = (DOMResult)result;
+			if(domResult.getNode() == null)
+			{
+				try
+				{
+					DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+					factory.setNamespaceAware(true);
+					domResult.setNode(factory.newDocumentBuilder().newDocument());
+				}
+				catch(ParserConfigurationException e)
+				{
+					throw new XMLStreamException(e);
+				}
+			}
+			return new XMLSaxStreamWriter(new XMLDomContentHandler(domResult.getNode(), domResult.getNextSibling()));
+		}
+		return null;
+	}
+	
+	/**
+	 * Creates a reader which reads directly from the specified source.
+	 * @return The reader or null if the source cannot be read from directly
+	 */
+	public static XMLStreamReader createReader(Source source) throws XMLStreamException
+	{
+		if(source instanceof DOMSource)
+		{
+			Node node = ((DOMSource)source).getNode();
+			return node == null ? null : new XMLDomStreamReader(node);
+		}
+		else if(source instanceof StAXSource)
+			return ((StAXSource)source).getXMLStreamReader();
+		else if(source instanceof SAXSource)
+		{
+			// A SAX source backed by a stream can be read without the SAX parser
+			SAXSource saxSource = (SAXSource)source;
+			InputSource input = saxSource.getInputSource();
+			if(saxSource.getXMLReader() != null || input == null)
+				return null;
+			else if(input.getCharacterStream() != null)
+				return s_inputFactory.createXMLStreamReader(input.getSystemId(), input.getCharacterStream());
+			else if(input.getByteStream() != null)
+				return input.getEncoding() == null ? 
+						s_inputFactory.createXMLStreamReader(input.getSystemId(), input.getByteStream()) :
+						s_inputFactory.createXMLStreamReader(input.getByteStream(), input.getEncoding());
+			return null;
+		}
+		else if(source instanceof StreamSource)
+		{
+			StreamSource streamSource = (StreamSource)source;
+			if(streamSource.getReader() != null)
+				return s_inputFactory.createXMLStreamReader(streamSource.getSystemId(), streamSource.getReader());
+			else if(streamSource.getInputStream() != null)
+				return s_inputFactory.createXMLStreamReader(streamSource.getSystemId(), streamSource.getInputStream());
+			return null;
+		}
+		return null;
+	}
+}
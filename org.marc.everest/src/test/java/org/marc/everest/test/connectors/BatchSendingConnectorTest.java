@@ -0,0 +1,251 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.BatchSendResult;
+import org.marc.everest.connectors.BatchSendingConnector;
+import org.marc.everest.connectors.interfaces.IBatchWrapper;
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.ISendCallback;
+import org.marc.everest.connectors.interfaces.ISendResult;
+import org.marc.everest.connectors.interfaces.ISendingConnector;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.generic.LIST;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+
+public class BatchSendingConnectorTest {
+
+	/**
+	 * A connector which records the batches sent over it
+	 */
+	private static class RecordingConnector implements ISendingConnector {
+		
+		// The batches sent
+		final List<IGraphable> m_batches = Collections.synchronizedList(new ArrayList<IGraphable>());
+		// True when open
+		boolean m_isOpen;
+		
+		@Override
+		public ISendResult send(final IGraphable data) {
+			this.m_batches.add(data);
+			return new ISendResult() {
+				@Override
+				public ResultCodeType getCode() {
+					return ResultCodeType.Accepted;
+				}
+				@Override
+				public Iterable<IResultDetail> getDetails() {
+					return null;
+				}
+			};
+		}
+		@Override
+		public void setConnectionString(String connectionString) { }
+		@Override
+		public String getConnectionString() { return null; }
+		@Override
+		public void open() { this.m_isOpen = true; }
+		@Override
+		public void close() { this.m_isOpen = false; }
+		@Override
+		public boolean isOpen() { return this.m_isOpen; }
+	}
+	
+	/**
+	 * Wraps interactions in a LIST and rejects odd numbers
+	 */
+	private static class ListWrapper implements IBatchWrapper {
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		@Override
+		public IGraphable wrap(List<IGraphable> interactions) {
+			return new LIST(interactions);
+		}
+		@Override
+		public List<ISendResult> unwrap(List<IGraphable> interactions, ISendResult batchResult, IReceiveResult acknowledgement) {
+			List<ISendResult> retVal = new ArrayList<ISendResult>();
+			for(int i = 0; i < interactions.size(); i++)
+				retVal.add(new BatchSendResult(((INT)interactions.get(i)).toInteger() % 2 == 0 ? ResultCodeType.Accepted : ResultCodeType.Rejected, null, batchResult, i));
+			return retVal;
+		}
+	}
+	
+	/**
+	 * Batches are sent when full and the acknowledgement is fanned out to each interaction
+	 */
+	@Test
+	public void BatchSendingConnectorCountTest() throws Exception {
+		RecordingConnector connector = new RecordingConnector();
+		BatchSendingConnector batcher = new BatchSendingConnector(connector, new ListWrapper(), "maxBatchCount=3;maxDelay=0");
+		batcher.open();
+		Assert.assertTrue(connector.isOpen());
+		
+		List<Future<ISendResult>> results = new ArrayList<Future<ISendResult>>();
+		for(int i = 0; i < 7; i++)
+			results.add(batcher.sendAsync(new INT(i)));
+		
+		results.get(5).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals(2, connector.m_batches.size());
+		Assert.assertEquals(1, batcher.getPendingCount());
+		Assert.assertFalse(results.get(6).isDone());
+		
+		batcher.close();
+		Assert.assertEquals(3, connector.m_batches.size());
+		for(int i = 0; i < results.size(); i++)
+		{
+			BatchSendResult result = (BatchSendResult)results.get(i).get();
+			Assert.assertEquals(i % 2 == 0 ? ResultCodeType.Accepted : ResultCodeType.Rejected, result.getCode());
+			Assert.assertEquals(i % 3, result.getIndex());
+		}
+	}
+	
+	/**
+	 * A partial batch is sent once it has waited for the maximum delay
+	 */
+	@Test
+	public void BatchSendingConnectorDelayTest() throws Exception {
+		RecordingConnector connector = new RecordingConnector();
+		BatchSendingConnector batcher = new BatchSendingConnector(connector, new ListWrapper(), "maxBatchCount=100;maxDelay=50");
+		batcher.open();
+		Future<ISendResult> result = batcher.sendAsync(new INT(2));
+		Assert.assertEquals(ResultCodeType.Accepted, result.get(5, TimeUnit.SECONDS).getCode());
+		Assert.assertEquals(1, connector.m_batches.size());
+		batcher.close();
+	}
+	
+	/**
+	 * Every send of a batch which could not be sent fails, whatever the connector throws
+	 */
+	@Test
+	public void BatchSendingConnectorErrorTest() throws Exception {
+		RecordingConnector connector = new RecordingConnector() {
+			@Override
+			public ISendResult send(IGraphable data) {
+				throw new AssertionError("send failed");
+			}
+		};
+		final List<ISendResult> callbackResults = Collections.synchronizedList(new ArrayList<ISendResult>());
+		BatchSendingConnector batcher = new BatchSendingConnector(connector, new ListWrapper(), "maxBatchCount=2;maxDelay=0");
+		batcher.open();
+		List<Future<ISendResult>> results = new ArrayList<Future<ISendResult>>();
+		for(int i = 0; i < 4; i++)
+			results.add(batcher.sendAsync(new INT(i), new ISendCallback() {
+				@Override
+				public void sendCompleted(IGraphable data, ISendResult result) {
+					callbackResults.add(result);
+				}
+			}));
+		batcher.close();
+		
+		for(Future<ISendResult> result : results)
+			try
+			{
+				result.get(5, TimeUnit.SECONDS);
+				Assert.fail();
+			}
+			catch(ExecutionException e)
+			{
+				Assert.assertTrue(e.getCause() instanceof AssertionError);
+			}
+		Assert.assertEquals(4, callbackResults.size());
+		for(ISendResult result : callbackResults)
+			Assert.assertEquals(ResultCodeType.Error, result.getCode());
+	}
+	
+	/**
+	 * Adding to a batch waits while the maximum number of batches are waiting to be sent
+	 */
+	@Test
+	public void BatchSendingConnectorPendingBatchesTest() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		RecordingConnector connector = new RecordingConnector() {
+			@Override
+			public ISendResult send(IGraphable data) {
+				try
+				{
+					release.await();
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return super.send(data);
+			}
+		};
+		final BatchSendingConnector batcher = new BatchSendingConnector(connector, new ListWrapper(), "maxBatchCount=1;maxDelay=0;maxPendingBatches=1");
+		batcher.open();
+		Future<ISendResult> first = batcher.sendAsync(new INT(0));
+		final CountDownLatch added = new CountDownLatch(1);
+		Thread second = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				batcher.sendAsync(new INT(2));
+				added.countDown();
+			}
+		});
+		second.start();
+		
+		Assert.assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		Assert.assertTrue(added.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(ResultCodeType.Accepted, first.get(5, TimeUnit.SECONDS).getCode());
+		batcher.close();
+		Assert.assertEquals(2, connector.m_batches.size());
+	}
+	
+	/**
+	 * Callbacks may send more interactions while another thread waits for a batch to be sent
+	 */
+	@Test
+	public void BatchSendingConnectorCallbackResendTest() throws Exception {
+		RecordingConnector connector = new RecordingConnector();
+		final BatchSendingConnector batcher = new BatchSendingConnector(connector, new ListWrapper(), "maxBatchCount=1;maxDelay=0;maxPendingBatches=1");
+		batcher.open();
+		final CountDownLatch completed = new CountDownLatch(40);
+		final ISendCallback counter = new ISendCallback() {
+			@Override
+			public void sendCompleted(IGraphable data, ISendResult result) {
+				completed.countDown();
+			}
+		};
+		ISendCallback resender = new ISendCallback() {
+			@Override
+			public void sendCompleted(IGraphable data, ISendResult result) {
+				if(batcher.isOpen() && batcher.getPendingCount() >= 0)
+					batcher.sendAsync(new INT(((INT)data).toInteger() + 1), counter);
+				completed.countDown();
+			}
+		};
+		for(int i = 0; i < 20; i++)
+			batcher.sendAsync(new INT(i * 2), resender);
+		
+		Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+		batcher.close();
+		Assert.assertEquals(40, connector.m_batches.size());
+	}
+}
@@ -0,0 +1,97 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.CorrelationStore;
+
+public class CorrelationStoreTest {
+
+	/**
+	 * Values are collected once by their correlation identifier
+	 */
+	@Test
+	public void CorrelationStoreTakeTest() {
+		CorrelationStore<String> store = new CorrelationStore<String>();
+		store.put("a", "1");
+		Assert.assertEquals("1", store.peek("a"));
+		Assert.assertEquals("1", store.take("a"));
+		Assert.assertNull(store.take("a"));
+		Assert.assertEquals(0, store.size());
+		Assert.assertEquals(1, store.getHitCount());
+		Assert.assertEquals(1, store.getMissCount());
+	}
+
+	/**
+	 * The oldest entries are evicted once the store is full
+	 */
+	@Test
+	public void CorrelationStoreMaxSizeTest() {
+		CorrelationStore<Integer> store = new CorrelationStore<Integer>(2, 1, TimeUnit.HOURS);
+		for(int i = 0; i < 5; i++)
+			store.put(String.valueOf(i), i);
+		Assert.assertEquals(2, store.size());
+		Assert.assertEquals(3, store.getEvictionCount());
+		Assert.assertNull(store.take("0"));
+		Assert.assertEquals(Integer.valueOf(4), store.take("4"));
+	}
+
+	/**
+	 * Entries which outlive the time to live are not returned
+	 */
+	@Test
+	public void CorrelationStoreExpiryTest() throws Exception {
+		CorrelationStore<String> store = new CorrelationStore<String>(10, 1, TimeUnit.MILLISECONDS);
+		store.put("a", "1");
+		Thread.sleep(5);
+		Assert.assertNull(store.take("a"));
+		Assert.assertEquals(1, store.getExpirationCount());
+		store.put("b", "2");
+		Thread.sleep(5);
+		store.purge();
+		Assert.assertEquals(0, store.size());
+	}
+
+	/**
+	 * Values which have been taken or replaced are not retained by the store
+	 */
+	@Test
+	public void CorrelationStoreReleasesTakenValuesTest() throws Exception {
+		CorrelationStore<Object> store = new CorrelationStore<Object>(10, 1, TimeUnit.HOURS);
+		Object taken = new Object(), replaced = new Object();
+		WeakReference<Object> takenRef = new WeakReference<Object>(taken), 
+				replacedRef = new WeakReference<Object>(replaced);
+		store.put("a", taken);
+		store.put("b", replaced);
+		store.put("b", "2");
+		Assert.assertSame(taken, store.take("a"));
+		taken = null;
+		replaced = null;
+		for(int i = 0; i < 50 && (takenRef.get() != null || replacedRef.get() != null); i++)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertNull(takenRef.get());
+		Assert.assertNull(replacedRef.get());
+		Assert.assertEquals("2", store.take("b"));
+	}
+}
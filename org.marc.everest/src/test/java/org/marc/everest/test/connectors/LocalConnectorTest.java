@@ -0,0 +1,256 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.connectors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.local.FileConnector;
+import org.marc.everest.connectors.local.LocalConnector;
+import org.marc.everest.connectors.local.QueueConnector;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.formatters.interfaces.IFormatterGraphResult;
+import org.marc.everest.formatters.interfaces.IFormatterParseResult;
+import org.marc.everest.formatters.interfaces.IStructureFormatter;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+
+public class LocalConnectorTest {
+
+	/**
+	 * A formatter which represents an INT as its value in text
+	 */
+	private static class IntTextFormatter implements IStructureFormatter {
+		
+		@Override
+		public IFormatterGraphResult graph(OutputStream s, IGraphable o) {
+			try
+			{
+				s.write(((INT)o).getValue().toString().getBytes("UTF-8"));
+			}
+			catch(IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+			return new IFormatterGraphResult() {
+				@Override
+				public ResultCodeType getCode() { return ResultCodeType.Accepted; }
+				@Override
+				public Iterable<IResultDetail> getDetails() { return null; }
+			};
+		}
+		@Override
+		public IFormatterParseResult parse(InputStream s) {
+			ByteArrayOutputStream text = new ByteArrayOutputStream();
+			try
+			{
+				for(int b = s.read(); b != -1; b = s.read())
+					text.write(b);
+				final INT value = new INT(Integer.parseInt(text.toString("UTF-8")));
+				return new IFormatterParseResult() {
+					@Override
+					public ResultCodeType getCode() { return ResultCodeType.Accepted; }
+					@Override
+					public Iterable<IResultDetail> getDetails() { return null; }
+					@Override
+					public IGraphable getStructure() { return value; }
+				};
+			}
+			catch(IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		@Override
+		public List<IStructureFormatter> getGraphAides() { return null; }
+		@Override
+		public IStructureFormatter getHost() { return null; }
+		@Override
+		public void setHost(IStructureFormatter value) { }
+		@Override
+		public List<String> getHandledStructures() { return null; }
+		@Override
+		public void close() { }
+	}
+	
+	// The spool directory
+	private File m_directory;
+	
+	/**
+	 * Create an empty spool directory
+	 */
+	@Before
+	public void setUp() throws IOException {
+		this.m_directory = File.createTempFile("spool", "");
+		this.m_directory.delete();
+		this.m_directory.mkdir();
+	}
+	
+	/**
+	 * Remove the spool directory
+	 */
+	@After
+	public void tearDown() {
+		for(File file : this.m_directory.listFiles())
+			file.delete();
+		this.m_directory.delete();
+	}
+	
+	/**
+	 * Send the values over one connector and receive them over another
+	 */
+	private static Set<Integer> sendAndReceive(LocalConnector sender, LocalConnector receiver, int count)
+	{
+		sender.setFormatter(new IntTextFormatter());
+		receiver.setFormatter(new IntTextFormatter());
+		sender.open();
+		receiver.open();
+		try
+		{
+			for(int i = 0; i < count; i++)
+				Assert.assertEquals(ResultCodeType.Accepted, sender.send(new INT(i)).getCode());
+			Set<Integer> retVal = new HashSet<Integer>();
+			for(int i = 0; i < count; i++)
+			{
+				IReceiveResult result = receiver.receive(10, TimeUnit.SECONDS);
+				Assert.assertNotNull(result);
+				Assert.assertEquals(ResultCodeType.Accepted, result.getCode());
+				retVal.add(((INT)result.getStructure()).getValue());
+			}
+			return retVal;
+		}
+		finally
+		{
+			sender.close();
+			receiver.close();
+		}
+	}
+	
+	/**
+	 * Messages sent to a directory are received and removed, whether read or memory-mapped
+	 */
+	@Test
+	public void FileConnectorRoundTripTest() {
+		for(String mapThreshold : new String[] { "0", "1048576" })
+		{
+			String connectionString = String.format("directory=%s;pollInterval=50;maxConcurrency=3;queueSize=4;mapThreshold=%s", this.m_directory.getPath(), mapThreshold);
+			Set<Integer> received = sendAndReceive(new FileConnector(connectionString), new FileConnector(connectionString), 20);
+			Assert.assertEquals(20, received.size());
+			Assert.assertEquals(0, this.m_directory.listFiles().length);
+		}
+	}
+	
+	/**
+	 * Files claimed but not received are returned to the directory on close
+	 */
+	@Test
+	public void FileConnectorCloseReturnsFilesTest() throws Exception {
+		String connectionString = String.format("directory=%s;pollInterval=50;queueSize=2", this.m_directory.getPath());
+		FileConnector sender = new FileConnector(connectionString), receiver = new FileConnector(connectionString);
+		sender.setFormatter(new IntTextFormatter());
+		receiver.setFormatter(new IntTextFormatter());
+		sender.open();
+		receiver.open();
+		for(int i = 0; i < 5; i++)
+			sender.send(new INT(i));
+		for(int i = 0; i < 100 && !receiver.hasData(); i++)
+			Thread.sleep(50);
+		receiver.close();
+		sender.close();
+		
+		String[] names = this.m_directory.list();
+		Assert.assertEquals(5, names.length);
+		for(String name : names)
+			Assert.assertTrue(name.endsWith(".xml"));
+	}
+	
+	/**
+	 * Claimed and processed files are not received again when the pattern matches them
+	 */
+	@Test
+	public void FileConnectorIgnoresClaimedFilesTest() throws Exception {
+		String connectionString = String.format("directory=%s;pollInterval=20;pattern=*;keepFiles=true", this.m_directory.getPath());
+		FileConnector sender = new FileConnector(connectionString), receiver = new FileConnector(connectionString);
+		Set<Integer> received = sendAndReceive(sender, receiver, 3);
+		Assert.assertEquals(3, received.size());
+		
+		receiver.open();
+		try
+		{
+			Assert.assertNull(receiver.receive(200, TimeUnit.MILLISECONDS));
+		}
+		finally
+		{
+			receiver.close();
+		}
+		String[] names = this.m_directory.list();
+		Assert.assertEquals(3, names.length);
+		for(String name : names)
+			Assert.assertTrue(name.endsWith(".xml.processed"));
+	}
+	
+	/**
+	 * Closing a receiver reports the messages which could not be returned to a full queue
+	 */
+	@Test
+	public void QueueConnectorCloseReportsLostMessagesTest() throws Exception {
+		QueueConnector sender = new QueueConnector("queue=lost;capacity=2"), receiver = new QueueConnector("queue=lost;queueSize=2");
+		sender.setFormatter(new IntTextFormatter());
+		receiver.setFormatter(new IntTextFormatter());
+		sender.open();
+		receiver.open();
+		sender.send(new INT(1));
+		sender.send(new INT(2));
+		for(int i = 0; i < 100 && (!receiver.hasData() || sender.getQueueDepth() > 0); i++)
+			Thread.sleep(50);
+		Assert.assertEquals(0, sender.getQueueDepth());
+		
+		// Refill the queue so the parsed messages can't be returned
+		sender.send(new INT(3));
+		sender.send(new INT(4));
+		try
+		{
+			receiver.close();
+			Assert.fail("Lost messages were not reported");
+		}
+		catch(ConnectorException e) { }
+		Assert.assertFalse(receiver.isOpen());
+		Assert.assertEquals(2, sender.getQueueDepth());
+		sender.close();
+	}
+	
+	/**
+	 * Messages sent to a named queue are received by another connector on the same queue
+	 */
+	@Test
+	public void QueueConnectorRoundTripTest() {
+		Set<Integer> received = sendAndReceive(new QueueConnector("queue=test;capacity=50"), new QueueConnector("queue=test;queueSize=2"), 20);
+		Assert.assertEquals(20, received.size());
+	}
+}
@@ -0,0 +1,100 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.BL;
+import org.marc.everest.datatypes.NullFlavor;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.CS;
+
+public class ANYTest {
+
+	/**
+	 * Extended attributes are independent between shallow copies and do not affect equality when unset
+	 */
+	@Test
+	public void ANYExtendedAttributesTest() throws Exception {
+		ST a = new ST("value"), b = new ST("value");
+		b.setFlavorId(null);
+		Assert.assertEquals(a, b);
+		Assert.assertEquals(a.hashCode(), b.hashCode());
+		
+		b.setNullFlavor(NullFlavor.Other);
+		b.setValidTimeLow(TS.valueOf("20140721"));
+		ST c = (ST)b.shallowCopy();
+		c.setNullFlavor((org.marc.everest.datatypes.generic.CS<NullFlavor>)null);
+		c.setValidTimeLow(null);
+		Assert.assertTrue(b.isNull());
+		Assert.assertNotNull(b.getValidTimeLow());
+		Assert.assertFalse(c.isNull());
+		Assert.assertEquals(a, c);
+		Assert.assertEquals(a.hashCode(), c.hashCode());
+	}
+
+	/**
+	 * Shared instances are frozen, and copies of them are not
+	 */
+	@Test
+	public void ANYFrozenSharedInstanceTest() throws Exception {
+		ST a = new ST("value"), b = new ST("value");
+		a.setNullFlavor(NullFlavor.Other);
+		b.setNullFlavor(NullFlavor.Other);
+		Assert.assertSame(a.getNullFlavor(), b.getNullFlavor());
+		Assert.assertTrue(a.getNullFlavor().isFrozen());
+		Assert.assertSame(BL.TRUE, new BL(true).intern());
+		try
+		{
+			BL.TRUE.setValue(false);
+			Assert.fail("Frozen instance was modified");
+		}
+		catch(UnsupportedOperationException e) { }
+		CS<NullFlavor> copy = (CS<NullFlavor>)a.getNullFlavor().shallowCopy();
+		copy.setCode(NullFlavor.Unknown);
+		Assert.assertEquals(NullFlavor.Other, b.getNullFlavor().getCode());
+		Assert.assertEquals(Boolean.FALSE, BL.TRUE.not().getValue());
+	}
+
+	/**
+	 * The modification stamp advances with each setter call and is not reset by reading it
+	 */
+	@Test
+	public void ANYModificationStampTest() throws Exception {
+		ST a = new ST("value");
+		long stamp = a.getModificationStamp();
+		Assert.assertEquals(stamp, a.getModificationStamp());
+		a.setValue("other");
+		Assert.assertTrue(a.getModificationStamp() > stamp);
+		stamp = a.getModificationStamp();
+		a.setNullFlavor(NullFlavor.Other);
+		a.setNullFlavor((CS<NullFlavor>)null);
+		Assert.assertEquals(stamp + 2, a.getModificationStamp());
+		
+		// Frozen instances keep their stamp
+		CS<NullFlavor> shared = CS.getSharedInstance(NullFlavor.Other);
+		stamp = shared.getModificationStamp();
+		try
+		{
+			shared.setCode(NullFlavor.Unknown);
+			Assert.fail("Frozen instance was modified");
+		}
+		catch(UnsupportedOperationException e) { }
+		Assert.assertEquals(stamp, shared.getModificationStamp());
+	}
+}
@@ -0,0 +1,176 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.ED;
+import org.marc.everest.datatypes.EncapsulatedDataCompression;
+import org.marc.everest.datatypes.EncapsulatedDataIntegrityAlgorithm;
+import org.marc.everest.datatypes.interfaces.IPayloadSource;
+import org.marc.everest.datatypes.payload.ByteBufferPayloadSource;
+import org.marc.everest.datatypes.payload.FilePayloadSource;
+import org.marc.everest.datatypes.payload.PayloadBuffer;
+import org.marc.everest.datatypes.payload.PayloadPipeline;
+import org.marc.everest.datatypes.payload.PayloadUtil;
+
+public class EDTest {
+
+	/**
+	 * Creates test data of the specified length
+	 */
+	private static byte[] createData(int length)
+	{
+		byte[] retVal = new byte[length];
+		for(int i = 0; i < length; i++)
+			retVal[i] = (byte)(i * 31);
+		return retVal;
+	}
+
+	/**
+	 * An ED backed by a payload source equals an ED carrying the same bytes
+	 */
+	@Test
+	public void EDPayloadEqualsDataTest() throws Exception {
+		byte[] data = createData(20000);
+		ED inline = new ED(data, "application/octet-stream"),
+				buffered = new ED(new byte[0], "application/octet-stream");
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data).flip();
+		buffered.setPayload(new ByteBufferPayloadSource(direct));
+		Assert.assertEquals(inline, buffered);
+		Assert.assertEquals(inline.hashCode(), buffered.hashCode());
+		Assert.assertEquals(data.length, buffered.getDataLength());
+		Assert.assertTrue(Arrays.equals(data, buffered.getData()));
+	}
+
+	/**
+	 * The integrity check of a payload is computed without reading it into memory
+	 */
+	@Test
+	public void EDPayloadIntegrityCheckTest() throws Exception {
+		byte[] data = createData(20000);
+		ED inline = new ED(data, "application/octet-stream");
+		inline.setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm.Sha256);
+		ED buffered = new ED(new byte[0], "application/octet-stream");
+		buffered.setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm.Sha256);
+		buffered.setPayload(new ByteBufferPayloadSource(ByteBuffer.wrap(data)));
+		Assert.assertTrue(Arrays.equals(inline.computeIntegrityCheck(), buffered.computeIntegrityCheck()));
+	}
+
+	/**
+	 * A payload buffer spills to a temporary file once its threshold is exceeded
+	 */
+	@Test
+	public void EDPayloadBufferSpillTest() throws Exception {
+		byte[] data = createData(5000);
+		PayloadBuffer buffer = new PayloadBuffer(1024);
+		buffer.write(data, 0, 1000);
+		Assert.assertFalse(buffer.isSpilled());
+		buffer.write(data, 1000, 4000);
+		Assert.assertTrue(buffer.isSpilled());
+
+		IPayloadSource source = buffer.toPayloadSource();
+		Assert.assertTrue(source instanceof FilePayloadSource);
+		Assert.assertEquals(data.length, source.getLength());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		InputStream in = source.openStream();
+		PayloadUtil.copy(in, bos);
+		in.close();
+		Assert.assertTrue(Arrays.equals(data, bos.toByteArray()));
+		source.close();
+	}
+
+	/**
+	 * Closing an ED deletes the temporary file of its spilled payload
+	 */
+	@Test
+	public void EDPayloadCloseTest() throws Exception {
+		byte[] data = createData(5000);
+		PayloadBuffer buffer = new PayloadBuffer(1024);
+		buffer.write(data, 0, data.length);
+		FilePayloadSource source = (FilePayloadSource)buffer.toPayloadSource();
+		Assert.assertTrue(source.isTemporary());
+		Assert.assertTrue(source.getFile().exists());
+
+		ED ed = new ED();
+		ed.setPayload(source);
+		Assert.assertTrue(Arrays.equals(data, ed.getData()));
+		ed.close();
+		Assert.assertFalse(source.getFile().exists());
+		Assert.assertEquals(-1, source.getLength());
+		try
+		{
+			source.openStream();
+			Assert.fail("A closed payload source was opened");
+		}
+		catch(IOException e)
+		{
+		}
+		ed.close();
+	}
+
+	/**
+	 * Compression computes the integrity check of the compressed data and decompression
+	 * restores the original data
+	 */
+	@Test
+	public void EDCompressRoundTripTest() throws Exception {
+		byte[] data = createData(100000);
+		for(EncapsulatedDataCompression compression : new EncapsulatedDataCompression[] { EncapsulatedDataCompression.GZip, EncapsulatedDataCompression.Deflate })
+		{
+			ED ed = new ED(data, "application/octet-stream");
+			ed.setIntegrityCheckAlgorithm(EncapsulatedDataIntegrityAlgorithm.Sha1);
+			ED compressed = ed.compress(compression, 9);
+			Assert.assertEquals(compression, compressed.getCompression());
+			Assert.assertTrue(compressed.getDataLength() < data.length);
+			Assert.assertTrue(compressed.validateIntegrityCheck());
+			ED uncompressed = compressed.unCompress();
+			Assert.assertTrue(Arrays.equals(data, uncompressed.getData()));
+			Assert.assertTrue(uncompressed.validateIntegrityCheck());
+		}
+	}
+
+	/**
+	 * Blocks compressed in parallel decompress to the original data
+	 */
+	@Test
+	public void EDCompressParallelTest() throws Exception {
+		byte[] data = createData(100000);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			PayloadPipeline pipeline = new PayloadPipeline(EncapsulatedDataCompression.GZip, null);
+			pipeline.setExecutor(executor);
+			pipeline.setBlockSize(16384);
+			ED compressed = new ED(data, "application/octet-stream").compress(pipeline);
+			Assert.assertTrue(Arrays.equals(data, compressed.unCompress().getData()));
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
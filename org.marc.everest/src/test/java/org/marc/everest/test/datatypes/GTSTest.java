@@ -0,0 +1,189 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.GTS;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.SetOperator;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.DomainTimingEvent;
+import org.marc.everest.datatypes.generic.EIVL;
+import org.marc.everest.datatypes.generic.IVL;
+import org.marc.everest.datatypes.generic.PIVL;
+import org.marc.everest.datatypes.generic.QSP;
+import org.marc.everest.datatypes.generic.SXPR;
+import org.marc.everest.datatypes.timing.ITimingEventResolver;
+import org.marc.everest.datatypes.timing.TimingEvaluator;
+import org.marc.everest.datatypes.timing.TimingPlan;
+import org.marc.everest.util.GraphUtil;
+
+public class GTSTest {
+
+	// The default time zone before the test
+	private TimeZone m_defaultZone;
+
+	/**
+	 * Run tests in a time zone with daylight saving
+	 */
+	@Before
+	public void setUp() {
+		this.m_defaultZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("America/Toronto"));
+	}
+
+	/**
+	 * Restore the time zone
+	 */
+	@After
+	public void tearDown() {
+		TimeZone.setDefault(this.m_defaultZone);
+	}
+
+	/**
+	 * Creates a PIVL of one hour starting at the specified time repeating daily
+	 */
+	private static PIVL<TS> createDailyPivl(String start, String end) throws Exception
+	{
+		IVL<TS> phase = new IVL<TS>(TS.valueOf(start), TS.valueOf(end));
+		phase.setHighInclusive(false);
+		return new PIVL<TS>(phase, new PQ(BigDecimal.ONE, "d"));
+	}
+
+	/**
+	 * Daily occurrences keep their wall-clock time across a daylight saving change
+	 */
+	@Test
+	public void GTSPivlAcrossDaylightSavingTest() throws Exception {
+		GTS gts = new GTS(createDailyPivl("201403010800", "201403010900"));
+		List<IVL<TS>> occurrences = gts.getOccurrences(TS.valueOf("20140308"), TS.valueOf("20140311"));
+		Assert.assertEquals(3, occurrences.size());
+		for(IVL<TS> occurrence : occurrences)
+			Assert.assertEquals(8, occurrence.getLow().getDateValue().get(java.util.Calendar.HOUR_OF_DAY));
+	}
+
+	/**
+	 * Membership of a PIVL
+	 */
+	@Test
+	public void GTSPivlContainsTest() throws Exception {
+		GTS gts = new GTS(createDailyPivl("201403010800", "201403010900"));
+		Assert.assertTrue(gts.contains(TS.valueOf("201403100830")));
+		Assert.assertFalse(gts.contains(TS.valueOf("201403100930")));
+		Assert.assertFalse(gts.contains(TS.valueOf("201402280830")));
+	}
+
+	/**
+	 * Count limits the number of repetitions
+	 */
+	@Test
+	public void GTSPivlCountTest() throws Exception {
+		PIVL<TS> pivl = createDailyPivl("201403010800", "201403010900");
+		pivl.setCount(new INT(2));
+		List<IVL<TS>> occurrences = new GTS(pivl).getOccurrences(TS.valueOf("2014"), TS.valueOf("2015"));
+		Assert.assertEquals(2, occurrences.size());
+	}
+
+	/**
+	 * Set expressions apply the operator of each term in order
+	 */
+	@Test
+	public void GTSSxprOperatorTest() throws Exception {
+		SXPR<TS> sxpr = new SXPR<TS>();
+		sxpr.add(createDailyPivl("201403010800", "201403010900"));
+		sxpr.add(new IVL<TS>(TS.valueOf("20140305"), TS.valueOf("20140308"), SetOperator.Intersect));
+		sxpr.add(new IVL<TS>(TS.valueOf("20140306"), TS.valueOf("20140306"), SetOperator.Exclusive));
+		GTS gts = new GTS(sxpr);
+		Assert.assertEquals(3, gts.getOccurrences(TS.valueOf("20140301"), TS.valueOf("20140401")).size());
+		Assert.assertFalse(gts.contains(TS.valueOf("201403060830")));
+		Assert.assertTrue(gts.contains(TS.valueOf("201403070830")));
+	}
+
+	/**
+	 * Periodic hull spans from each low to the next high
+	 */
+	@Test
+	public void GTSPeriodicHullTest() throws Exception {
+		QSP<TS> qsp = new QSP<TS>(createDailyPivl("201403010800", "201403010801"), createDailyPivl("201403011200", "201403011201"));
+		TimingPlan plan = TimingEvaluator.compile(qsp);
+		Assert.assertTrue(plan.contains(TS.valueOf("201403021000")));
+		Assert.assertFalse(plan.contains(TS.valueOf("201403021300")));
+		Assert.assertEquals(2, plan.getOccurrences(TS.valueOf("201403020900"), TS.valueOf("20140304")).size());
+	}
+
+	/**
+	 * The compiled plan is cached only once the hull is frozen, changes anywhere in a hull which 
+	 * is not frozen are evaluated
+	 */
+	@Test
+	public void GTSPlanCacheTest() throws Exception {
+		PIVL<TS> pivl = createDailyPivl("201403010800", "201403010900");
+		SXPR<TS> sxpr = new SXPR<TS>();
+		sxpr.add(pivl);
+		GTS gts = new GTS(sxpr);
+		Assert.assertTrue(gts.contains(TS.valueOf("201403020830")));
+		pivl.getPhase().setLow(TS.valueOf("201403011000"));
+		pivl.getPhase().setHigh(TS.valueOf("201403011100"));
+		Assert.assertFalse(gts.contains(TS.valueOf("201403020830")));
+		pivl.setCount(new INT(1));
+		Assert.assertFalse(gts.contains(TS.valueOf("201403021030")));
+		
+		GraphUtil.freeze(sxpr);
+		TimingPlan plan = gts.getTimingPlan();
+		Assert.assertSame(plan, gts.getTimingPlan());
+		Assert.assertTrue(plan.contains(TS.valueOf("201403011030")));
+		gts.setHull(createDailyPivl("201403010800", "201403010900"));
+		Assert.assertNotSame(plan, gts.getTimingPlan());
+	}
+
+	/**
+	 * EIVL components are evaluated with the resolver supplied by the caller
+	 */
+	@Test
+	public void GTSEivlResolverTest() throws Exception {
+		final List<Long> breakfasts = new ArrayList<Long>();
+		for(String day : new String[] { "20140301", "20140302", "20140303" })
+			breakfasts.add(TS.valueOf(day + "0700").getDateValue().getTimeInMillis());
+		ITimingEventResolver resolver = new ITimingEventResolver() {
+			@Override
+			public List<Long> resolve(DomainTimingEvent event, long from, long to) {
+				List<Long> retVal = new ArrayList<Long>();
+				for(Long instant : breakfasts)
+					if(event == DomainTimingEvent.BeforeBreakfast && instant >= from && instant < to)
+						retVal.add(instant);
+				return retVal;
+			}
+		};
+		GTS gts = new GTS(new EIVL<TS>(DomainTimingEvent.BeforeBreakfast, new IVL<PQ>(new PQ(BigDecimal.ZERO, "min"), new PQ(new BigDecimal(30), "min"))));
+		Assert.assertTrue(gts.contains(TS.valueOf("201403020710"), resolver));
+		Assert.assertFalse(gts.contains(TS.valueOf("201403020800"), resolver));
+		Assert.assertEquals(3, gts.getOccurrences(TS.valueOf("20140301"), TS.valueOf("20140304"), resolver).size());
+		try
+		{
+			gts.contains(TS.valueOf("201403020710"));
+			Assert.fail("EIVL evaluated without a resolver");
+		}
+		catch(UnsupportedOperationException e) { }
+	}
+}
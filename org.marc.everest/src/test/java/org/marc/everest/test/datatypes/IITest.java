@@ -0,0 +1,66 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.II;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.formatters.FlavorValidatorRegistry;
+
+public class IITest {
+
+	/**
+	 * OID roots are runs of digits separated by single dots
+	 */
+	@Test
+	public void IIRootOidTest() {
+		Assert.assertTrue(II.isRootOid(new II("1.2.3")));
+		Assert.assertTrue(II.isRootOid(new II("2.16.840.1.113883")));
+		Assert.assertFalse(II.isRootOid(new II("1")));
+		Assert.assertFalse(II.isRootOid(new II("1..2")));
+		Assert.assertFalse(II.isRootOid(new II("1.2.")));
+		Assert.assertFalse(II.isRootOid(new II(".1.2")));
+		Assert.assertFalse(II.isRootOid(new II("1.2a")));
+	}
+
+	/**
+	 * UUID roots may be braced, dashed or undashed
+	 */
+	@Test
+	public void IIRootUuidTest() {
+		Assert.assertTrue(II.isRootUuid(new II("6f1dca93-1d4a-4f5e-8a1c-0e6b3b1d2c4f")));
+		Assert.assertTrue(II.isRootUuid(new II("{6F1DCA93-1D4A-4F5E-8A1C-0E6B3B1D2C4F}")));
+		Assert.assertTrue(II.isRootUuid(new II("6f1dca931d4a4f5e8a1c0e6b3b1d2c4f")));
+		Assert.assertFalse(II.isRootUuid(new II("6f1dca93-1d4a-4f5e-8a1c-0e6b3b1d2c4")));
+		Assert.assertFalse(II.isRootUuid(new II("6f1dca93--1d4a-4f5e-8a1c-0e6b3b1d2c4f")));
+		Assert.assertFalse(II.isRootUuid(new II("1.2.3")));
+	}
+
+	/**
+	 * Flavor names are matched without regard to case and unknown flavors pass
+	 */
+	@Test
+	public void IIFlavorRegistryTest() {
+		II oid = new II("1.2.3");
+		Assert.assertTrue(FlavorValidatorRegistry.validate("II.OID", oid));
+		Assert.assertTrue(FlavorValidatorRegistry.validate("ii.oid", oid));
+		Assert.assertFalse(FlavorValidatorRegistry.validate("II.OID", new II("1.2.3", "ext")));
+		Assert.assertFalse(FlavorValidatorRegistry.validate("II.OID", new INT(1)));
+		Assert.assertTrue(FlavorValidatorRegistry.validate("II.UNKNOWN", oid));
+	}
+}
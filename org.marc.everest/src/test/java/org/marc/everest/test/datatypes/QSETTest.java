@@ -0,0 +1,106 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.ED;
+import org.marc.everest.datatypes.GTS;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.SetOperator;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.generic.IVL;
+import org.marc.everest.datatypes.generic.QSD;
+import org.marc.everest.datatypes.generic.QSI;
+import org.marc.everest.datatypes.generic.QSU;
+import org.marc.everest.datatypes.generic.SXPR;
+
+public class QSETTest {
+
+	/**
+	 * Creates an interval of integers
+	 */
+	private static IVL<INT> ivl(int low, int high)
+	{
+		return new IVL<INT>(new INT(low), new INT(high));
+	}
+
+	/**
+	 * Overlapping and touching intervals in a union are merged
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void QSUMergeOverlappingTest() {
+		QSU<INT> union = QSU.createQSU(ivl(1, 5), ivl(10, 12), ivl(4, 8), ivl(12, 15));
+		QSU<INT> normalized = (QSU<INT>)union.normalize();
+		Assert.assertEquals(2, normalized.size());
+		Assert.assertTrue(normalized.contains(ivl(1, 8)));
+		Assert.assertTrue(normalized.contains(ivl(10, 15)));
+		Assert.assertEquals(4, union.size());
+	}
+
+	/**
+	 * Nested unions are flattened and a union of a single term is replaced by the term
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void QSUFlattenTest() {
+		QSU<INT> union = QSU.createQSU(ivl(1, 3), QSU.createQSU(ivl(3, 5), ivl(2, 4)));
+		Assert.assertEquals(ivl(1, 5), union.normalize());
+	}
+
+	/**
+	 * Unions carrying original text are not collapsed
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void QSUPreserveMetadataTest() {
+		QSU<INT> union = QSU.createQSU(ivl(1, 3), ivl(2, 5));
+		union.setOriginalText(new ED("Days one to five"));
+		QSU<INT> normalized = (QSU<INT>)union.normalize();
+		Assert.assertEquals(1, normalized.size());
+		Assert.assertEquals(union.getOriginalText(), normalized.getOriginalText());
+	}
+
+	/**
+	 * Subtracting an empty intersection leaves the minuend
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void QSDEmptySubtrahendTest() {
+		QSD<INT> difference = new QSD<INT>(ivl(1, 10), QSI.createQSI(ivl(1, 2), ivl(5, 6)));
+		Assert.assertEquals(ivl(1, 10), difference.normalize());
+	}
+
+	/**
+	 * A GTS with a redundant set expression is transmitted in the simplified form while
+	 * an expression that cannot be simplified is left as is
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void GTSNormalizeTest() throws Exception {
+		SXPR<TS> sxpr = SXPR.createSXPR(
+				new IVL<TS>(TS.valueOf("20140301"), TS.valueOf("20140310")),
+				new IVL<TS>(TS.valueOf("20140305"), TS.valueOf("20140315"), SetOperator.Inclusive));
+		GTS normalized = (GTS)new GTS(sxpr).normalize();
+		Assert.assertEquals(new IVL<TS>(TS.valueOf("20140301"), TS.valueOf("20140315")), normalized.getHull());
+
+		sxpr.set(1, new IVL<TS>(TS.valueOf("20140320"), TS.valueOf("20140325"), SetOperator.Inclusive));
+		GTS unchanged = new GTS(sxpr);
+		Assert.assertSame(unchanged, unchanged.normalize());
+	}
+}
@@ -0,0 +1,102 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.NullFlavor;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.REAL;
+
+public class QTYTest {
+
+	/**
+	 * Primitive backed INT and REAL keep the value semantics of the boxed types
+	 */
+	@Test
+	public void QTYPrimitiveValueTest() {
+		INT a = new INT(7), b = new INT(Integer.valueOf(7)), none = new INT();
+		Assert.assertEquals(a, b);
+		Assert.assertEquals(a.hashCode(), b.hashCode());
+		Assert.assertNull(none.getValue());
+		Assert.assertEquals(Integer.valueOf(10), a.add(new INT(3)).getValue());
+		Assert.assertEquals(0, a.compareTo(b));
+		Assert.assertEquals(new INT(9), a.max(new INT(9)));
+		Assert.assertEquals(3.5, a.divide(new REAL(2.0)).doubleValue(), 0.0);
+		Assert.assertTrue(new REAL(1.0).compareTo(new REAL(2.0)) < 0);
+	}
+
+	/**
+	 * Accumulators aggregate values and skip nulls
+	 */
+	@Test
+	public void QTYAccumulatorTest() {
+		INT nullInt = new INT();
+		nullInt.setNullFlavor(NullFlavor.Unknown);
+		INT.Accumulator ints = new INT.Accumulator().addAll(Arrays.asList(new INT(2), nullInt, new INT(-4), new INT(8)));
+		Assert.assertEquals(6, ints.getSum());
+		Assert.assertEquals(3, ints.getCount());
+		Assert.assertEquals(1, ints.getNullCount());
+		Assert.assertEquals(-4, ints.getMin());
+		Assert.assertEquals(8, ints.getMax());
+
+		REAL.Accumulator reals = new REAL.Accumulator();
+		for(int i = 0; i < 10000; i++)
+			reals.add(0.1);
+		Assert.assertEquals(1000.0, reals.getSum(), 1e-12);
+
+		PQ.Accumulator durations = new PQ.Accumulator("min");
+		durations.add(new PQ(BigDecimal.ONE, "h")).add(new PQ(new BigDecimal("30"), "min"));
+		Assert.assertEquals(new PQ(BigDecimal.valueOf(90.0), "min"), durations.toSum());
+	}
+
+	/**
+	 * Unitless quantities accumulate, and empty accumulators have no range
+	 */
+	@Test
+	public void QTYAccumulatorUnitlessTest() throws Exception {
+		PQ.Accumulator counts = new PQ.Accumulator();
+		counts.add(new PQ(BigDecimal.ONE, null)).add(new PQ(new BigDecimal("2"), null));
+		Assert.assertEquals(3.0, counts.getSum(), 0.0);
+		Assert.assertNull(counts.getUnit());
+		try
+		{
+			counts.add(new PQ(BigDecimal.ONE, "min"));
+			Assert.fail("Unit was added to unitless accumulator");
+		}
+		catch(UnsupportedOperationException e) { }
+		
+		Object[] empty = { new INT.Accumulator(), new REAL.Accumulator(), new PQ.Accumulator() };
+		for(Object accumulator : empty)
+			for(String method : new String[] { "getMin", "getMax" })
+				try
+				{
+					accumulator.getClass().getMethod(method).invoke(accumulator);
+					Assert.fail(method + " of an empty accumulator returned a value");
+				}
+				catch(InvocationTargetException e)
+				{
+					Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+				}
+		Assert.assertTrue(Double.isNaN(new REAL.Accumulator().getMean()));
+	}
+}
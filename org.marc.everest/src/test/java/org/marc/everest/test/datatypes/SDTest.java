@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.SD;
+import org.marc.everest.datatypes.doc.StructDocElementNode;
+import org.marc.everest.datatypes.doc.StructDocNode;
+
+public class SDTest {
+
+	// Raw content as captured by a formatter
+	private static final String RAW_CONTENT = "<text xmlns=\"urn:hl7-org:v3\"><paragraph ID=\"p1\">Hello <content>world</content></paragraph></text>";
+
+	/**
+	 * Raw content is only read into nodes when the content is accessed
+	 */
+	@Test
+	public void SDRawContentLazyReadTest() {
+		SD sd = new SD();
+		sd.setRawContent(RAW_CONTENT);
+		Assert.assertTrue(sd.hasRawContent());
+		Assert.assertTrue(sd.validateEx().isEmpty());
+		Assert.assertEquals(1, sd.getContent().size());
+		Assert.assertFalse(sd.hasRawContent());
+		Assert.assertEquals("paragraph", sd.findNodeById("#p1").getName());
+		Assert.assertEquals("Hello world", sd.toPlainString().trim());
+	}
+
+	/**
+	 * Raw content equals the same content held as nodes
+	 */
+	@Test
+	public void SDRawContentEqualsTest() {
+		SD raw = new SD();
+		raw.setRawContent(RAW_CONTENT);
+		StructDocElementNode paragraph = new StructDocElementNode("paragraph");
+		paragraph.addAttribute("ID", "p1");
+		paragraph.addText("Hello ");
+		paragraph.addElement("content").addText("world");
+		Assert.assertEquals(new SD(paragraph), raw);
+	}
+
+	/**
+	 * Threads accessing raw content at the same time all see the nodes read once
+	 */
+	@Test
+	public void SDRawContentConcurrentReadTest() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			for(int n = 0; n < 50; n++)
+			{
+				final SD sd = new SD();
+				sd.setRawContent(RAW_CONTENT);
+				final CountDownLatch start = new CountDownLatch(1);
+				List<Future<List<StructDocNode>>> results = new ArrayList<Future<List<StructDocNode>>>();
+				for(int i = 0; i < 8; i++)
+					results.add(executor.submit(new Callable<List<StructDocNode>>() {
+						@Override
+						public List<StructDocNode> call() throws Exception {
+							start.await();
+							return sd.getContent();
+						}
+					}));
+				start.countDown();
+				List<StructDocNode> content = results.get(0).get();
+				Assert.assertEquals(1, content.size());
+				for(Future<List<StructDocNode>> result : results)
+					Assert.assertSame(content, result.get());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
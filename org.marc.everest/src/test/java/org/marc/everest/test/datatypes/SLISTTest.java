@@ -0,0 +1,53 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.datatypes;
+
+import java.math.BigDecimal;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.PQ;
+import org.marc.everest.datatypes.generic.SLIST;
+
+public class SLISTTest {
+
+	/**
+	 * The INT view reflects the digits
+	 */
+	@Test
+	public void SLISTItemsViewTest() {
+		SLIST<PQ> slist = SLIST.CreateSLIST(new PQ(BigDecimal.ZERO, "mV"), new PQ(BigDecimal.ONE, "mV"), new INT(1), new INT(2));
+		slist.addDigit(3);
+		Assert.assertEquals(3, slist.getItems().size());
+		Assert.assertEquals(new INT(3), slist.last());
+		Assert.assertTrue(slist.getItems().remove(new INT(2)));
+		Assert.assertArrayEquals(new int[] { 1, 3 }, slist.getDigits());
+	}
+
+	/**
+	 * Scaled values apply the origin and scale to each digit
+	 */
+	@Test
+	public void SLISTScaledValuesTest() {
+		SLIST<PQ> slist = new SLIST<PQ>(new PQ(new BigDecimal("10"), "mV"), new PQ(new BigDecimal("0.5"), "mV"), new int[] { 0, 2, -4 });
+		double[] values = slist.toScaledValues();
+		Assert.assertEquals(10.0, values[0], 0.0);
+		Assert.assertEquals(11.0, values[1], 0.0);
+		Assert.assertEquals(8.0, values[2], 0.0);
+	}
+}
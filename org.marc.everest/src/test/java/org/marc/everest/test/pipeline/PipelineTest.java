@@ -0,0 +1,286 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import org.marc.everest.connectors.interfaces.IReceiveResult;
+import org.marc.everest.connectors.interfaces.IReceivingConnector;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.ST;
+import org.marc.everest.exceptions.ConnectorException;
+import org.marc.everest.interfaces.IGraphable;
+import org.marc.everest.interfaces.IResultDetail;
+import org.marc.everest.interfaces.ResultCodeType;
+import org.marc.everest.pipeline.Pipeline;
+import org.marc.everest.pipeline.RouteStage;
+import org.marc.everest.pipeline.interfaces.IBatchPipelineStage;
+import org.marc.everest.pipeline.interfaces.ICorrelationKeySelector;
+import org.marc.everest.pipeline.interfaces.IPipelineErrorHandler;
+import org.marc.everest.pipeline.interfaces.IPipelineStage;
+
+public class PipelineTest {
+
+	/**
+	 * Messages with the same key leave the pipeline in the order they were submitted
+	 */
+	@Test
+	public void PipelineKeyOrderingTest() throws Exception {
+		final List<List<Integer>> seen = new ArrayList<List<Integer>>();
+		for(int i = 0; i < 3; i++)
+			seen.add(Collections.synchronizedList(new ArrayList<Integer>()));
+		
+		Pipeline<Integer> pipeline = new Pipeline<Integer>(new ICorrelationKeySelector<Integer>() {
+			@Override
+			public Object getKey(Integer input) {
+				return input % 3;
+			}
+		});
+		pipeline.addStage("delay", new IPipelineStage<Integer, Integer>() {
+			@Override
+			public Integer process(Integer input) throws Exception {
+				Thread.sleep(input % 2);
+				return input;
+			}
+		}, 4, 2);
+		pipeline.addStage("record", new IPipelineStage<Integer, Integer>() {
+			@Override
+			public Integer process(Integer input) {
+				seen.get(input % 3).add(input);
+				return input;
+			}
+		}, 3, 2);
+		pipeline.open();
+		for(int i = 0; i < 60; i++)
+			pipeline.submit(i);
+		pipeline.close();
+		
+		for(int key = 0; key < 3; key++)
+		{
+			Assert.assertEquals(20, seen.get(key).size());
+			for(int i = 0; i < 20; i++)
+				Assert.assertEquals(Integer.valueOf(key + i * 3), seen.get(key).get(i));
+		}
+	}
+	
+	/**
+	 * Batch stages receive the waiting messages together
+	 */
+	@Test
+	public void PipelineBatchTest() throws Exception {
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		// Holds the stage until every message is waiting so the batches don't depend on timing
+		final CountDownLatch submitted = new CountDownLatch(1);
+		Pipeline<Integer> pipeline = new Pipeline<Integer>();
+		pipeline.addStage("double", new IBatchPipelineStage<Integer, Integer>() {
+			@Override
+			public Integer process(Integer input) throws Exception {
+				submitted.await();
+				batchSizes.add(1);
+				return input * 2;
+			}
+			@Override
+			public List<Integer> processBatch(List<Integer> inputs) throws Exception {
+				submitted.await();
+				batchSizes.add(inputs.size());
+				List<Integer> retVal = new ArrayList<Integer>();
+				for(Integer input : inputs)
+					retVal.add(input * 2);
+				return retVal;
+			}
+		}, 1, 50, 10);
+		pipeline.open();
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for(int i = 0; i < 40; i++)
+			results.add(pipeline.submit(i));
+		submitted.countDown();
+		for(int i = 0; i < 40; i++)
+			Assert.assertEquals(i * 2, results.get(i).get(5, TimeUnit.SECONDS));
+		pipeline.close();
+		
+		// Only the first batch can be taken before every message is waiting
+		int total = 0;
+		for(Integer size : batchSizes)
+			total += size;
+		Assert.assertEquals(40, total);
+		for(int i = 1; i < batchSizes.size() - 1; i++)
+			Assert.assertEquals(Integer.valueOf(10), batchSizes.get(i));
+		Assert.assertTrue(batchSizes.toString(), batchSizes.size() >= 4 && batchSizes.size() <= 5);
+	}
+	
+	/**
+	 * Messages are routed by type and failures complete the future with the error
+	 */
+	@Test
+	public void PipelineRouteTest() throws Exception {
+		RouteStage router = new RouteStage();
+		router.addRoute(INT.class, new IPipelineStage<INT, Object>() {
+			@Override
+			public Object process(INT input) {
+				return input.getValue() + 1;
+			}
+		});
+		Pipeline<IGraphable> pipeline = new Pipeline<IGraphable>();
+		pipeline.addStage("route", router, 2, 10);
+		pipeline.open();
+		Future<Object> routed = pipeline.submit(new INT(1)), unrouted = pipeline.submit(new ST("text"));
+		Assert.assertEquals(2, routed.get(5, TimeUnit.SECONDS));
+		try
+		{
+			unrouted.get(5, TimeUnit.SECONDS);
+			Assert.fail();
+		}
+		catch(ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof UnsupportedOperationException);
+		}
+		pipeline.close();
+	}
+	
+	/**
+	 * A stage throwing an error fails only that message, the lane keeps running and the pipeline closes
+	 */
+	@Test
+	public void PipelineStageErrorTest() throws Exception {
+		Pipeline<Integer> pipeline = new Pipeline<Integer>();
+		pipeline.addStage("fail", new IPipelineStage<Integer, Integer>() {
+			@Override
+			public Integer process(Integer input) {
+				if(input % 2 == 0)
+					throw new AssertionError(input);
+				return input;
+			}
+		}, 1, 1);
+		pipeline.open();
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for(int i = 0; i < 10; i++)
+			results.add(pipeline.submit(i));
+		for(int i = 0; i < 10; i++)
+			try
+			{
+				Assert.assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+				Assert.assertTrue(i % 2 == 1);
+			}
+			catch(ExecutionException e)
+			{
+				Assert.assertTrue(e.getCause() instanceof AssertionError);
+				Assert.assertTrue(i % 2 == 0);
+			}
+		pipeline.close();
+		Assert.assertFalse(pipeline.isOpen());
+	}
+	
+	/**
+	 * A connected connector keeps being pumped after a failed receive, and the failure is reported
+	 */
+	@Test
+	public void PipelineConnectErrorTest() throws Exception {
+		final List<Object> processed = Collections.synchronizedList(new ArrayList<Object>());
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final CountDownLatch done = new CountDownLatch(2);
+		Pipeline<IReceiveResult> pipeline = new Pipeline<IReceiveResult>();
+		pipeline.addStage("record", new IPipelineStage<IReceiveResult, Object>() {
+			@Override
+			public Object process(IReceiveResult input) {
+				processed.add(input.getStructure());
+				done.countDown();
+				return input;
+			}
+		}, 1, 1);
+		pipeline.setErrorHandler(new IPipelineErrorHandler() {
+			@Override
+			public void handleError(String stageName, Object input, Throwable error) {
+				errors.add(error);
+			}
+		});
+		pipeline.open();
+		
+		ScriptedConnector connector = new ScriptedConnector();
+		connector.open();
+		connector.m_script.add(new INT(1));
+		connector.m_script.add(new IllegalStateException("receive failed"));
+		connector.m_script.add(new INT(2));
+		pipeline.connect(connector);
+		
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		pipeline.close();
+		Assert.assertEquals(2, processed.size());
+		Assert.assertEquals(new INT(1), processed.get(0));
+		Assert.assertEquals(new INT(2), processed.get(1));
+		Assert.assertEquals(1, errors.size());
+		Assert.assertTrue(errors.get(0) instanceof IllegalStateException);
+	}
+	
+	/**
+	 * A connector which receives the structures, or throws the exceptions, it has been given
+	 */
+	private static class ScriptedConnector implements IReceivingConnector {
+		
+		// The structures to receive and exceptions to throw
+		final BlockingQueue<Object> m_script = new LinkedBlockingQueue<Object>();
+		// True when open
+		private volatile boolean m_isOpen;
+		
+		@Override
+		public IReceiveResult receive() {
+			Object next = null;
+			try
+			{
+				next = this.m_script.take();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new ConnectorException("Interrupted while waiting to receive", e);
+			}
+			if(next instanceof RuntimeException)
+				throw (RuntimeException)next;
+			final IGraphable structure = (IGraphable)next;
+			return new IReceiveResult() {
+				@Override
+				public ResultCodeType getCode() { return ResultCodeType.Accepted; }
+				@Override
+				public Iterable<IResultDetail> getDetails() { return Collections.<IResultDetail>emptyList(); }
+				@Override
+				public IGraphable getStructure() { return structure; }
+			};
+		}
+		
+		@Override
+		public boolean hasData() { return !this.m_script.isEmpty(); }
+		@Override
+		public void setConnectionString(String connectionString) { }
+		@Override
+		public String getConnectionString() { return null; }
+		@Override
+		public void open() { this.m_isOpen = true; }
+		@Override
+		public void close() { this.m_isOpen = false; }
+		@Override
+		public boolean isOpen() { return this.m_isOpen; }
+	}
+}
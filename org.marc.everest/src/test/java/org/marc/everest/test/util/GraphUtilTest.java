@@ -0,0 +1,162 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.*;
+
+import org.marc.everest.datatypes.ED;
+import org.marc.everest.datatypes.EN;
+import org.marc.everest.datatypes.INT;
+import org.marc.everest.datatypes.ENXP;
+import org.marc.everest.datatypes.EntityNamePartType;
+import org.marc.everest.datatypes.EntityNameUse;
+import org.marc.everest.datatypes.NullFlavor;
+import org.marc.everest.datatypes.SetOperator;
+import org.marc.everest.datatypes.TEL;
+import org.marc.everest.datatypes.TS;
+import org.marc.everest.datatypes.UpdateMode;
+import org.marc.everest.datatypes.generic.IVL;
+import org.marc.everest.datatypes.generic.LIST;
+import org.marc.everest.datatypes.generic.SET;
+import org.marc.everest.datatypes.generic.SXPR;
+import org.marc.everest.datatypes.payload.PayloadBuffer;
+import org.marc.everest.util.GraphChange;
+import org.marc.everest.util.GraphUtil;
+
+public class GraphUtilTest {
+
+	/**
+	 * Freezing a graph freezes every datatype within it, copies remain modifiable
+	 */
+	@Test
+	public void GraphUtilFreezeTest() throws Exception {
+		EN name = EN.createEN(EntityNameUse.Legal, new ENXP("John", EntityNamePartType.Given), new ENXP("Smith", EntityNamePartType.Family));
+		SET<EN> names = GraphUtil.freeze(new SET<EN>(name));
+		Assert.assertTrue(names.isFrozen());
+		Assert.assertTrue(name.getParts().get(0).isFrozen());
+		Assert.assertTrue(name.getUse().isFrozen());
+		Assert.assertEquals(names.hashCode(), names.hashCode());
+		try
+		{
+			name.getParts().add(new ENXP("Jr"));
+			Assert.fail("Frozen name was modified");
+		}
+		catch(UnsupportedOperationException e) { }
+		EN copy = (EN)name.shallowCopy();
+		copy.getParts().add(new ENXP("Jr"));
+		Assert.assertEquals(2, name.getParts().size());
+		Assert.assertFalse(copy.equals(name));
+	}
+
+	/**
+	 * Deep copies are equal but independent of the original, frozen values are shared
+	 */
+	@Test
+	public void GraphUtilDeepCopyTest() throws Exception {
+		EN name = EN.createEN(EntityNameUse.Legal, new ENXP("John", EntityNamePartType.Given));
+		name.getParts().get(0).setNullFlavor(NullFlavor.Masked);
+		SXPR<TS> sxpr = new SXPR<TS>();
+		sxpr.add(new IVL<TS>(TS.valueOf("20140101"), TS.valueOf("20140201")));
+		sxpr.add(new IVL<TS>(TS.valueOf("20140110"), TS.valueOf("20140111"), SetOperator.Exclusive));
+		
+		EN nameCopy = GraphUtil.deepCopy(name);
+		SXPR<TS> sxprCopy = GraphUtil.deepCopy(sxpr);
+		Assert.assertEquals(name, nameCopy);
+		Assert.assertEquals(sxpr, sxprCopy);
+		Assert.assertNotSame(name.getParts().get(0), nameCopy.getParts().get(0));
+		Assert.assertNotSame(name.getUse(), nameCopy.getUse());
+		Assert.assertSame(name.getParts().get(0).getNullFlavor(), nameCopy.getParts().get(0).getNullFlavor());
+		Assert.assertNotSame(sxpr.get(0), sxprCopy.get(0));
+		
+		nameCopy.getParts().get(0).setValue("Jim");
+		((IVL<TS>)sxprCopy.get(0)).setLow(TS.valueOf("20140102"));
+		Assert.assertEquals("John", name.getParts().get(0).getValue());
+		Assert.assertEquals(TS.valueOf("20140101"), ((IVL<TS>)sxpr.get(0)).getLow());
+	}
+
+	/**
+	 * The copy of an ED has its own data and payload, closing or changing the copy leaves the original intact
+	 */
+	@Test
+	public void GraphUtilDeepCopyDataTest() throws Exception {
+		ED ed = new ED(new byte[] { 1, 2, 3 }, "application/octet-stream");
+		ED copy = GraphUtil.deepCopy(ed);
+		Assert.assertEquals(ed, copy);
+		Assert.assertNotSame(ed.getData(), copy.getData());
+		copy.getData()[0] = 9;
+		Assert.assertEquals(1, ed.getData()[0]);
+		
+		byte[] data = new byte[5000];
+		PayloadBuffer buffer = new PayloadBuffer(1024);
+		buffer.write(data, 0, data.length);
+		ed.setPayload(buffer.toPayloadSource());
+		copy = GraphUtil.deepCopy(ed);
+		Assert.assertNotSame(ed.getPayload(), copy.getPayload());
+		copy.close();
+		Assert.assertTrue(Arrays.equals(data, ed.getData()));
+		ed.close();
+	}
+
+	/**
+	 * A changed item of a set is reported as a removal and an addition 
+	 */
+	@Test
+	public void GraphUtilDiffTest() throws Exception {
+		SET<TEL> original = GraphUtil.freeze(SET.createSET(new TEL("tel:+1-905-555-1212"), new TEL("mailto:a@b.com")));
+		SET<TEL> updated = GraphUtil.deepCopy(original);
+		Assert.assertTrue(GraphUtil.diff(original, updated).isEmpty());
+		
+		updated = SET.createSET(new TEL("tel:+1-905-555-1212"), new TEL("mailto:c@d.com"));
+		List<GraphChange> changes = GraphUtil.diff(original, updated);
+		Assert.assertEquals(2, changes.size());
+		Assert.assertEquals(UpdateMode.Remove, changes.get(0).getUpdateMode());
+		Assert.assertEquals("[1]", changes.get(0).getPath());
+		Assert.assertEquals(UpdateMode.Add, changes.get(1).getUpdateMode());
+		Assert.assertTrue(changes.get(1).applyUpdateMode());
+		Assert.assertEquals(UpdateMode.Add, updated.get(1).getUpdateMode().getCode());
+	}
+	
+	/**
+	 * The items of a list are compared by position so reordering a list is a change 
+	 */
+	@Test
+	public void GraphUtilDiffListTest() throws Exception {
+		LIST<INT> original = LIST.createLIST(new INT(1), new INT(2));
+		Assert.assertTrue(GraphUtil.diff(original, LIST.createLIST(new INT(1), new INT(2))).isEmpty());
+		
+		List<GraphChange> changes = GraphUtil.diff(original, LIST.createLIST(new INT(2), new INT(1)));
+		Assert.assertEquals(2, changes.size());
+		Assert.assertEquals("[0]", changes.get(0).getPath());
+		Assert.assertEquals(UpdateMode.Replace, changes.get(0).getUpdateMode());
+		Assert.assertEquals("[1]", changes.get(1).getPath());
+		Assert.assertEquals(UpdateMode.Replace, changes.get(1).getUpdateMode());
+		
+		// The same items in another order are no change to a set
+		Assert.assertTrue(GraphUtil.diff(SET.createSET(new INT(1), new INT(2)), SET.createSET(new INT(2), new INT(1))).isEmpty());
+		
+		// Lists with the same items which differ otherwise are replaced
+		LIST<INT> updated = LIST.createLIST(new INT(1), new INT(2));
+		updated.setFlavorId("LIST.NONNULL");
+		changes = GraphUtil.diff(original, updated);
+		Assert.assertEquals(1, changes.size());
+		Assert.assertEquals("", changes.get(0).getPath());
+		Assert.assertEquals(UpdateMode.Replace, changes.get(0).getUpdateMode());
+	}
+}
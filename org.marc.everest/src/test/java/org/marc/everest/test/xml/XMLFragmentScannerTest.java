@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.*;
+
+import org.marc.everest.xml.XMLFragment;
+import org.marc.everest.xml.XMLFragmentScanner;
+
+public class XMLFragmentScannerTest {
+
+	// A batch with comments, CDATA and quoted angle brackets which must not be mistaken for elements
+	private static final String BATCH = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" +
+			"<hl7:Batch xmlns:hl7=\"urn:hl7-org:v3\" xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'>\n" +
+			"<hl7:id root=\"1.2.3\"/>\n" +
+			"<!-- <hl7:message> -->\n" +
+			"<hl7:message seq=\"a>b\"><hl7:text><![CDATA[</hl7:message>]]></hl7:text></hl7:message>\n" +
+			"<hl7:message seq=\"2\"><hl7:message/></hl7:message>\n" +
+			"<hl7:message seq=\"3\"/>\n" +
+			"</hl7:Batch>";
+
+	/**
+	 * Read the specified stream as a string
+	 */
+	private static String read(InputStream s) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		int b;
+		while((b = s.read()) != -1)
+			bos.write(b);
+		return bos.toString("ISO-8859-1");
+	}
+	
+	/**
+	 * The repeating child of the root is found in document order with its line number
+	 */
+	@Test
+	public void XMLFragmentScannerScanTest() throws Exception {
+		XMLFragmentScanner scanner = new XMLFragmentScanner(BATCH.getBytes("ISO-8859-1"));
+		List<XMLFragment> fragments = scanner.scan(null);
+		Assert.assertEquals(3, fragments.size());
+		Assert.assertEquals("hl7:Batch", scanner.getRootName());
+		Assert.assertEquals("urn:hl7-org:v3", scanner.getNamespaces().get("hl7"));
+		Assert.assertEquals("ISO-8859-1", scanner.getEncoding());
+		Assert.assertEquals("message", fragments.get(0).getLocalName());
+		Assert.assertEquals(5, fragments.get(0).getLineNumber());
+		Assert.assertEquals(2, fragments.get(2).getIndex());
+		Assert.assertEquals("<hl7:message seq=\"3\"/>", BATCH.substring(fragments.get(2).getOffset(), fragments.get(2).getOffset() + fragments.get(2).getLength()));
+		Assert.assertEquals(1, scanner.scan("id").size());
+	}
+
+	/**
+	 * Fragments are readable with the namespaces of the root in scope and the envelope omits them
+	 */
+	@Test
+	public void XMLFragmentScannerOpenTest() throws Exception {
+		XMLFragmentScanner scanner = new XMLFragmentScanner(BATCH.getBytes("ISO-8859-1"));
+		List<XMLFragment> fragments = scanner.scan("message");
+		
+		XMLStreamReader xr = XMLInputFactory.newInstance().createXMLStreamReader(scanner.openFragment(fragments.get(0)), scanner.getEncoding());
+		xr.nextTag();
+		xr.nextTag();
+		Assert.assertEquals("message", xr.getLocalName());
+		Assert.assertEquals("urn:hl7-org:v3", xr.getNamespaceURI());
+		Assert.assertEquals("a>b", xr.getAttributeValue(null, "seq"));
+		xr.nextTag();
+		Assert.assertEquals("</hl7:message>", xr.getElementText());
+		
+		String envelope = read(scanner.openEnvelope());
+		Assert.assertFalse(envelope.contains("seq="));
+		Assert.assertTrue(envelope.contains("<hl7:id root=\"1.2.3\"/>"));
+		Assert.assertTrue(envelope.endsWith("</hl7:Batch>"));
+	}
+	
+	/**
+	 * Documents which can't be split at the byte level have no fragments
+	 */
+	@Test
+	public void XMLFragmentScannerUnsupportedTest() throws Exception {
+		Assert.assertEquals(0, new XMLFragmentScanner(BATCH.replace("ISO-8859-1", "UTF-16").getBytes("UTF-16")).scan(null).size());
+		Assert.assertEquals(0, new XMLFragmentScanner(BATCH.replace("?>\n", "?>\n<!DOCTYPE Batch>").getBytes("ISO-8859-1")).scan(null).size());
+		Assert.assertEquals(0, new XMLFragmentScanner(BATCH.replace("</hl7:Batch>", "").getBytes("ISO-8859-1")).scan(null).size());
+	}
+}
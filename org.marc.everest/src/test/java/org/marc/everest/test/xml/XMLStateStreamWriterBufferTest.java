@@ -0,0 +1,133 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.xml;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.*;
+
+import org.marc.everest.xml.XMLStateStreamWriter;
+
+public class XMLStateStreamWriterBufferTest {
+
+	// HL7 namespace
+	private static final String NS_HL7 = "urn:hl7-org:v3";
+
+	/**
+	 * Create a state writer over the specified string writer
+	 */
+	private static XMLStateStreamWriter createWriter(StringWriter sw) throws Exception
+	{
+		XMLStreamWriter xw = XMLOutputFactory.newInstance().createXMLStreamWriter(sw);
+		return new XMLStateStreamWriter(xw);
+	}
+	
+	/**
+	 * Write the root element of the test document
+	 */
+	private static void writeRoot(XMLStateStreamWriter xw) throws XMLStreamException
+	{
+		xw.writeStartElement("hl7", "Doc", NS_HL7);
+		xw.writeNamespace("hl7", NS_HL7);
+		xw.writeAttribute("classCode", "DOC");
+	}
+	
+	/**
+	 * Write one entry of the test document
+	 */
+	private static void writeEntry(XMLStateStreamWriter xw, int i) throws XMLStreamException
+	{
+		xw.writeStartElement("hl7", "entry", NS_HL7);
+		xw.writeAttribute("seq", String.valueOf(i));
+		if(i % 2 == 0)
+		{
+			xw.writeStartElement("hl7", "text", NS_HL7);
+			xw.writeCharacters("entry <" + i + ">");
+			xw.writeEndElement();
+		}
+		xw.writeEndElement();
+	}
+	
+	/**
+	 * Buffers filled on other threads and written in order produce the same output as writing directly
+	 */
+	@Test
+	public void XMLStateStreamWriterParallelBufferTest() throws Exception {
+		StringWriter expected = new StringWriter();
+		XMLStateStreamWriter xw = createWriter(expected);
+		writeRoot(xw);
+		for(int i = 0; i < 50; i++)
+			writeEntry(xw, i);
+		xw.writeEndElement();
+		xw.close();
+		
+		StringWriter actual = new StringWriter();
+		final XMLStateStreamWriter pw = createWriter(actual);
+		writeRoot(pw);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<XMLStateStreamWriter>> futures = new ArrayList<Future<XMLStateStreamWriter>>();
+			for(int i = 0; i < 50; i++)
+			{
+				final int seq = i;
+				final XMLStateStreamWriter buffer = pw.createBuffer();
+				Assert.assertTrue(buffer.isBuffer());
+				futures.add(executor.submit(new Callable<XMLStateStreamWriter>() {
+					public XMLStateStreamWriter call() throws Exception {
+						writeEntry(buffer, seq);
+						return buffer;
+					}
+				}));
+			}
+			for(Future<XMLStateStreamWriter> future : futures)
+				pw.writeBuffer(future.get());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		pw.writeEndElement();
+		pw.close();
+		
+		Assert.assertFalse(pw.isBuffer());
+		Assert.assertEquals(expected.toString(), actual.toString());
+	}
+	
+	/**
+	 * A buffer may only be written at the depth it was created at
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void XMLStateStreamWriterBufferDepthTest() throws Exception {
+		XMLStateStreamWriter xw = createWriter(new StringWriter());
+		writeRoot(xw);
+		XMLStateStreamWriter buffer = xw.createBuffer();
+		writeEntry(buffer, 0);
+		xw.writeStartElement("hl7", "entry", NS_HL7);
+		xw.writeBuffer(buffer);
+	}
+}
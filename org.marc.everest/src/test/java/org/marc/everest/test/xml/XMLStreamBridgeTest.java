@@ -0,0 +1,111 @@
+/* 
+ * Copyright 2008-2014 Mohawk College of Applied Arts and Technology
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you 
+ * may not use this file except in compliance with the License. You may 
+ * obtain a copy of the License at 
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ * 
+ */
+package org.marc.everest.test.xml;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+
+import org.junit.*;
+
+import org.marc.everest.xml.XMLStreamBridge;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+public class XMLStreamBridgeTest {
+
+	// HL7 namespace
+	private static final String NS_HL7 = "urn:hl7-org:v3";
+	// XSI namespace
+	private static final String NS_XSI = "http://www.w3.org/2001/XMLSchema-instance";
+	
+	/**
+	 * Parse the specified XML into a namespace aware DOM
+	 */
+	private static Document parse(String xml) throws Exception
+	{
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+	}
+	
+	/**
+	 * Writing to a DOM result builds the elements, attributes and namespaces written
+	 */
+	@Test
+	public void XMLStreamBridgeWriteDomTest() throws Exception {
+		DOMResult result = new DOMResult();
+		XMLStreamWriter xw = XMLStreamBridge.createWriter(result);
+		xw.writeStartDocument();
+		xw.setPrefix("hl7", NS_HL7);
+		xw.writeStartElement("hl7", "id", NS_HL7);
+		xw.writeNamespace("hl7", NS_HL7);
+		xw.writeAttribute("xsi", NS_XSI, "type", "hl7:II");
+		xw.writeAttribute("root", "1.2.3");
+		xw.writeStartElement(NS_HL7, "text");
+		xw.writeCharacters("value");
+		xw.writeEndElement();
+		xw.writeEmptyElement("hl7", "empty", NS_HL7);
+		xw.writeEndDocument();
+		
+		Element root = ((Document)result.getNode()).getDocumentElement();
+		Assert.assertEquals("id", root.getLocalName());
+		Assert.assertEquals(NS_HL7, root.getNamespaceURI());
+		Assert.assertEquals("hl7:II", root.getAttributeNS(NS_XSI, "type"));
+		Assert.assertEquals(NS_XSI, root.lookupNamespaceURI("xsi"));
+		Assert.assertEquals("1.2.3", root.getAttribute("root"));
+		Assert.assertEquals("value", root.getElementsByTagNameNS(NS_HL7, "text").item(0).getTextContent());
+		Assert.assertEquals(1, root.getElementsByTagNameNS(NS_HL7, "empty").getLength());
+	}
+	
+	/**
+	 * Reading a DOM source reports the elements, attributes and namespaces in document order
+	 */
+	@Test
+	public void XMLStreamBridgeReadDomTest() throws Exception {
+		Document document = parse("<id xmlns='urn:hl7-org:v3' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance' xsi:type='II' root='1.2.3'><!-- c --><text>va<![CDATA[lue]]></text><empty/></id>");
+		XMLStreamReader xr = XMLStreamBridge.createReader(new DOMSource(document.getDocumentElement()));
+		
+		Assert.assertEquals(XMLStreamReader.START_DOCUMENT, xr.getEventType());
+		Assert.assertEquals(XMLStreamReader.START_ELEMENT, xr.next());
+		Assert.assertEquals(NS_HL7, xr.getNamespaceURI());
+		Assert.assertEquals("id", xr.getLocalName());
+		Assert.assertEquals(2, xr.getNamespaceCount());
+		Assert.assertEquals(2, xr.getAttributeCount());
+		Assert.assertEquals("II", xr.getAttributeValue(NS_XSI, "type"));
+		Assert.assertEquals("1.2.3", xr.getAttributeValue(null, "root"));
+		Assert.assertEquals(NS_HL7, xr.getName().getNamespaceURI());
+		
+		Assert.assertEquals(XMLStreamReader.START_ELEMENT, xr.nextTag());
+		Assert.assertEquals("text", xr.getLocalName());
+		Assert.assertEquals("value", xr.getElementText());
+		Assert.assertEquals(XMLStreamReader.END_ELEMENT, xr.getEventType());
+		Assert.assertEquals(XMLStreamReader.START_ELEMENT, xr.next());
+		Assert.assertEquals("empty", xr.getLocalName());
+		Assert.assertEquals(XMLStreamReader.END_ELEMENT, xr.next());
+		Assert.assertEquals(XMLStreamReader.END_ELEMENT, xr.next());
+		Assert.assertEquals("id", xr.getLocalName());
+		Assert.assertEquals(XMLStreamReader.END_DOCUMENT, xr.next());
+		Assert.assertFalse(xr.hasNext());
+	}
+	
+}